@@ -0,0 +1,165 @@
+package com.jldubz.gistaviewer.model;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.jldubz.gistaviewer.model.replay.PerformanceFlows;
+import com.jldubz.gistaviewer.model.replay.Recording;
+import com.jldubz.gistaviewer.model.replay.RecordingInterceptor;
+import com.jldubz.gistaviewer.model.replay.ReplayConfig;
+import com.jldubz.gistaviewer.model.replay.ReplayInterceptor;
+import com.jldubz.gistaviewer.model.replay.RequestLog;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Records the app's traffic to the GitHub API, or replays it without a network, in debug builds.
+ * <p>
+ * Both are set up by pushing a {@link ReplayConfig} to {@code files/replay/config.json} in the
+ * app's data directory, e.g. with {@code adb shell run-as}, and restarting the app.  The config
+ * is read when the first HTTP client is built, so that may happen on the main thread.  Recorded
+ * exchanges are appended to {@code files/replay/recording.jsonl}.  When replaying with
+ * {@code runFlows} set, the end-to-end flows run once the app starts and their report is logged
+ * and written to {@code files/replay/report.txt}.  Without a config the app talks to GitHub as
+ * usual.
+ */
+public class NetworkHooks {
+
+    private static final String TAG = "NetworkHooks";
+
+    private static final String DIR_REPLAY = "replay";
+    private static final String FILE_CONFIG = "config.json";
+    private static final String FILE_RECORDING = "recording.jsonl";
+    private static final String FILE_REPORT = "report.txt";
+
+    private static File sDir;
+    private static boolean sIsLoaded;
+    private static ReplayConfig sConfig;
+    private static Recording sRecording;
+    private static RequestLog sRequestLog;
+
+    /**
+     * Remember where the config and the recording are.  They are only read once the first HTTP
+     * client is built.
+     *
+     * @param context any context of the app
+     */
+    public static synchronized void install(Context context) {
+        sDir = new File(context.getFilesDir(), DIR_REPLAY);
+    }
+
+    /**
+     * Add the recording or replaying interceptor to the shared HTTP client.  It must be added
+     * before the interceptor that decodes compressed responses, so recorded bodies are decoded
+     * and replayed ones aren't decoded again.
+     *
+     * @param builder the builder of the shared client
+     */
+    static synchronized void addInterceptors(OkHttpClient.Builder builder) {
+        if (!sIsLoaded) {
+            sIsLoaded = true;
+            load();
+        }
+        if (sConfig == null) {
+            return;
+        }
+        if (sConfig.isReplaying()) {
+            builder.addInterceptor(new ReplayInterceptor(sRecording, sConfig, sRequestLog));
+        } else if (sConfig.isRecording()) {
+            builder.addInterceptor(new RecordingInterceptor(sRecording));
+        }
+    }
+
+    /**
+     * Use a config and a recording instead of the ones in the app's data directory, e.g. in tests
+     *
+     * @param config    the config or NULL to talk to GitHub as usual
+     * @param recording the recording to add to or replay from
+     */
+    static synchronized void setUp(ReplayConfig config, Recording recording) {
+        sIsLoaded = true;
+        sConfig = config;
+        sRecording = recording;
+        sRequestLog = config != null && config.isReplaying() ? new RequestLog() : null;
+    }
+
+    /**
+     * Get the requests the app made while replaying
+     *
+     * @return the report or NULL if nothing is being replayed
+     */
+    public static synchronized String getReport() {
+        return sRequestLog != null ? "Replayed " + sRequestLog : null;
+    }
+
+    /**
+     * Read the config and the recording, and start the end-to-end flows if they should run
+     */
+    private static void load() {
+        if (sDir == null) {
+            return;
+        }
+        File configFile = new File(sDir, FILE_CONFIG);
+        if (!configFile.exists()) {
+            return;
+        }
+
+        try (Reader reader = new InputStreamReader(new FileInputStream(configFile), StandardCharsets.UTF_8)) {
+            sConfig = new Gson().fromJson(reader, ReplayConfig.class);
+            if (sConfig == null) {
+                return;
+            }
+            sRecording = new Recording(new File(sDir, FILE_RECORDING));
+            sRecording.load();
+        } catch (IOException | JsonParseException exception) {
+            Log.e(TAG, "Could not read " + configFile + ", talking to GitHub instead", exception);
+            sConfig = null;
+            return;
+        }
+
+        if (sConfig.isReplaying()) {
+            sRequestLog = new RequestLog();
+            Log.i(TAG, "Replaying " + sRecording.size() + " recorded exchanges");
+            if (sConfig.isRunningFlows()) {
+                ReplayConfig config = sConfig;
+                Recording recording = sRecording;
+                File reportFile = new File(sDir, FILE_REPORT);
+                new Thread(() -> runFlows(new PerformanceFlows(recording, config), reportFile), "PerformanceFlows").start();
+            }
+        } else if (sConfig.isRecording()) {
+            Log.i(TAG, "Recording to " + new File(sDir, FILE_RECORDING));
+        }
+    }
+
+    /**
+     * Run the end-to-end flows, then log and save their report
+     *
+     * @param flows      the flows
+     * @param reportFile the file to save the report to
+     */
+    private static void runFlows(PerformanceFlows flows, File reportFile) {
+        List<String> reports = flows.run();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(reportFile), StandardCharsets.UTF_8)) {
+            for (String report : reports) {
+                Log.i(TAG, report);
+                writer.write(report);
+                writer.write('\n');
+            }
+        } catch (IOException exception) {
+            Log.e(TAG, "Could not write " + reportFile, exception);
+        }
+    }
+}
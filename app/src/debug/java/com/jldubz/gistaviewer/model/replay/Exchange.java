@@ -0,0 +1,167 @@
+package com.jldubz.gistaviewer.model.replay;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * One recorded request to the GitHub API and the response it got
+ */
+public class Exchange {
+
+    //The body is stored decoded, so the headers describing the encoding no longer apply
+    private static final String[] SKIPPED_HEADERS = {"Content-Encoding", "Content-Length", "Transfer-Encoding", "Set-Cookie"};
+
+    private String method;
+    private String url;
+    private int code;
+    private String message;
+    private Map<String, String> headers;
+    private String body;
+
+    /**
+     * Create an exchange from a request and a response to it
+     *
+     * @param request  the request
+     * @param response the response
+     * @param body     the decoded body of the response or NULL if it has none
+     * @return the exchange
+     */
+    static Exchange create(Request request, Response response, String body) {
+        Exchange exchange = new Exchange();
+        exchange.method = request.method();
+        exchange.url = toKey(request.url());
+        exchange.code = response.code();
+        exchange.message = response.message();
+        exchange.headers = new LinkedHashMap<>();
+        Headers headers = response.headers();
+        for (String name : headers.names()) {
+            if (!isSkipped(name)) {
+                //Only Link and rate limit headers are used and they are never repeated
+                exchange.headers.put(name, headers.get(name));
+            }
+        }
+        exchange.body = body;
+        return exchange;
+    }
+
+    /**
+     * Create an exchange with the same response as this one but a different body and headers
+     *
+     * @param body    the new body
+     * @param headers headers to add to or replace in the copy
+     * @return the copy
+     */
+    Exchange copy(String body, Map<String, String> headers) {
+        Exchange exchange = new Exchange();
+        exchange.method = method;
+        exchange.url = url;
+        exchange.code = code;
+        exchange.message = message;
+        exchange.headers = new LinkedHashMap<>(this.headers);
+        exchange.headers.putAll(headers);
+        exchange.body = body;
+        return exchange;
+    }
+
+    /**
+     * Get the key an exchange for a URL is recorded under.  The query parameters are sorted, so
+     * the order Retrofit adds them in doesn't matter.
+     *
+     * @param url the URL of a request
+     * @return the host, path and sorted query of the URL
+     */
+    static String toKey(HttpUrl url) {
+        StringBuilder key = new StringBuilder(url.host()).append(url.encodedPath());
+        TreeSet<String> names = new TreeSet<>(url.queryParameterNames());
+        char separator = '?';
+        for (String name : names) {
+            for (String value : url.queryParameterValues(name)) {
+                key.append(separator).append(name).append('=').append(value);
+                separator = '&';
+            }
+        }
+        return key.toString();
+    }
+
+    private static boolean isSkipped(String name) {
+        for (String skipped : SKIPPED_HEADERS) {
+            if (skipped.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Create a response to a request from this exchange
+     *
+     * @param request the request being answered, which may differ from the recorded one
+     * @return the response
+     */
+    Response toResponse(Request request) {
+        Headers.Builder headers = new Headers.Builder();
+        for (Map.Entry<String, String> header : this.headers.entrySet()) {
+            headers.add(header.getKey(), header.getValue());
+        }
+        String contentType = getHeader("Content-Type");
+        String responseBody = body != null && !"HEAD".equals(request.method()) ? body : "";
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_2)
+                .code(code)
+                .message(message != null ? message : "")
+                .headers(headers.build())
+                .body(ResponseBody.create(responseBody, contentType != null ? MediaType.parse(contentType) : null))
+                .build();
+    }
+
+    /**
+     * Get a recorded header of the response
+     *
+     * @param name the name of the header, in any case
+     * @return the value of the header or NULL if it wasn't recorded
+     */
+    public String getHeader(String name) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * Get the number of bytes the body of the response takes as UTF-8
+     *
+     * @return the size of the body
+     */
+    long getBodySize() {
+        return body != null ? body.getBytes(StandardCharsets.UTF_8).length : 0;
+    }
+}
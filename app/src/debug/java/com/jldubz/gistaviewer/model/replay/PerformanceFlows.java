@@ -0,0 +1,161 @@
+package com.jldubz.gistaviewer.model.replay;
+
+import com.jldubz.gistaviewer.model.Constants;
+import com.jldubz.gistaviewer.model.NetworkUtil;
+import com.jldubz.gistaviewer.model.data.CommentPageStore;
+import com.jldubz.gistaviewer.model.data.IGitHubService;
+import com.jldubz.gistaviewer.model.gists.GistListItem;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import okhttp3.OkHttpClient;
+import retrofit2.Call;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * End-to-end flows through the GitHub API, replayed from a {@link Recording} and reported with
+ * the time each flow took and the requests it made.  The flows make the same requests the app
+ * makes for them, one after the other, on the calling thread.
+ */
+public class PerformanceFlows {
+
+    //The first pages of the lists shown after logging in
+    private static final int LOGIN_PAGE_SIZE = 30;
+    //The largest page the lists of Gists ask for
+    private static final int DISCOVER_PAGE_SIZE = 100;
+
+    private final Recording mRecording;
+    private final ReplayConfig mConfig;
+
+    private String mDiscoveredGistId;
+
+    public PerformanceFlows(Recording recording, ReplayConfig config) {
+        mRecording = recording;
+        mConfig = config;
+    }
+
+    /**
+     * Run every flow, one after the other
+     *
+     * @return a report of each flow
+     */
+    public List<String> run() {
+        List<String> reports = new ArrayList<>();
+        reports.add(runFlow("login", this::logIn));
+        reports.add(runFlow("discover scroll", this::scrollDiscoveredGists));
+        reports.add(runFlow("open gist", this::openGist));
+        return reports;
+    }
+
+    /**
+     * Run one flow against its own replayed service, so only its requests are counted
+     *
+     * @param name the name of the flow
+     * @param flow the flow
+     * @return the report of the flow
+     */
+    private String runFlow(String name, Flow flow) {
+        RequestLog requestLog = new RequestLog();
+        OkHttpClient client = NetworkUtil.getPlainHttpClient().newBuilder()
+                .addInterceptor(new ReplayInterceptor(mRecording, mConfig, requestLog))
+                .build();
+        IGitHubService service = new Retrofit.Builder().baseUrl(Constants.URL_GITHUB)
+                .addConverterFactory(GsonConverterFactory.create(NetworkUtil.createGsonBuilder().create()))
+                .client(client)
+                .build()
+                .create(IGitHubService.class);
+
+        long startTime = System.currentTimeMillis();
+        String result;
+        try {
+            result = flow.run(service);
+        } catch (IOException exception) {
+            result = "stopped: " + exception;
+        }
+        long elapsedMillis = System.currentTimeMillis() - startTime;
+        return String.format(Locale.US, "%s: %d ms, %s\n%s", name, elapsedMillis, result, requestLog);
+    }
+
+    /**
+     * Log in and load the first page of the user's own and starred Gists
+     */
+    private String logIn(IGitHubService service) throws IOException {
+        Response<?> user = service.getLoggedInUser().execute();
+        if (!user.isSuccessful()) {
+            return "login failed with " + user.code();
+        }
+        execute(service.getYourGistListItems(1, LOGIN_PAGE_SIZE));
+        execute(service.getStarredGistListItems(1, LOGIN_PAGE_SIZE));
+        return "logged in";
+    }
+
+    /**
+     * Page through the public Gists until the last page or the configured number of pages
+     */
+    private String scrollDiscoveredGists(IGitHubService service) throws IOException {
+        int gistCount = 0;
+        int page = 1;
+        for (; page <= mConfig.getDiscoverPageCount(); page++) {
+            Map<String, Object> queries = new HashMap<>();
+            queries.put("page", page);
+            queries.put("per_page", DISCOVER_PAGE_SIZE);
+            Response<List<GistListItem>> response = execute(service.getPublicGists(queries));
+            List<GistListItem> gists = response.body();
+            if (gists == null) {
+                continue;
+            }
+            if (mDiscoveredGistId == null && !gists.isEmpty()) {
+                mDiscoveredGistId = gists.get(0).getId();
+            }
+            gistCount += gists.size();
+            if (NetworkUtil.getLinkedPage(response.headers().get("Link"), "next") == 0) {
+                break;
+            }
+        }
+        return String.format(Locale.US, "%d gists in %d pages", gistCount, Math.min(page, mConfig.getDiscoverPageCount()));
+    }
+
+    /**
+     * Open a Gist and page through its comments, up to the configured number of pages
+     */
+    private String openGist(IGitHubService service) throws IOException {
+        String gistId = mConfig.getGistId() != null ? mConfig.getGistId() : mDiscoveredGistId;
+        if (gistId == null) {
+            return "no gist to open";
+        }
+
+        if (!execute(service.getGistById(gistId)).isSuccessful()) {
+            return "gist failed to load";
+        }
+        Response<Void> header = execute(service.getGistCommentsHeaderById(gistId, CommentPageStore.PAGE_SIZE));
+        int lastPage = Math.max(NetworkUtil.getLinkedPage(header.headers().get("Link"), "last"), 1);
+        int pageCount = Math.min(lastPage, mConfig.getCommentPageCount());
+        for (int page = 1; page <= pageCount; page++) {
+            execute(service.getGistCommentsById(gistId, page, CommentPageStore.PAGE_SIZE));
+        }
+        return String.format(Locale.US, "%d of %d comment pages", pageCount, lastPage);
+    }
+
+    /**
+     * Make a request and discard its body if it failed, since failures are counted by the log
+     */
+    private static <T> Response<T> execute(Call<T> call) throws IOException {
+        Response<T> response = call.execute();
+        if (!response.isSuccessful() && response.errorBody() != null) {
+            response.errorBody().close();
+        }
+        return response;
+    }
+
+    private interface Flow {
+
+        String run(IGitHubService service) throws IOException;
+    }
+}
@@ -0,0 +1,122 @@
+package com.jldubz.gistaviewer.model.replay;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Exchanges with the GitHub API, saved to a file with one JSON exchange per line.  Exchanges are
+ * only ever appended to the file, and a later exchange for the same request replaces an earlier
+ * one when the file is loaded.
+ */
+public class Recording {
+
+    private final File mFile;
+    private final Gson mGson = new Gson();
+    private final Map<String, Exchange> mExchanges = new LinkedHashMap<>();
+
+    /**
+     * @param file the file the exchanges are saved in; it is created once the first exchange is
+     *             added
+     */
+    public Recording(File file) {
+        mFile = file;
+    }
+
+    /**
+     * Read every exchange that has been saved to the file so far
+     *
+     * @throws IOException if the file exists but could not be read
+     */
+    public synchronized void load() throws IOException {
+        mExchanges.clear();
+        if (!mFile.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(mFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    Exchange exchange = mGson.fromJson(line, Exchange.class);
+                    mExchanges.put(toKey(exchange.getMethod(), exchange.getUrl()), exchange);
+                } catch (JsonParseException exception) {
+                    //A line cut short by the app being killed while recording
+                    throw new IOException("Invalid exchange in " + mFile, exception);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add an exchange and append it to the file
+     *
+     * @param exchange the exchange
+     * @throws IOException if the exchange could not be saved
+     */
+    public synchronized void add(Exchange exchange) throws IOException {
+        mExchanges.put(toKey(exchange.getMethod(), exchange.getUrl()), exchange);
+
+        File dir = mFile.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(mFile, true), StandardCharsets.UTF_8)) {
+            writer.write(mGson.toJson(exchange));
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Find the exchange recorded for a request
+     *
+     * @param method the method of the request
+     * @param url    the URL of the request
+     * @return the exchange or NULL if the request wasn't recorded
+     */
+    public synchronized Exchange get(String method, HttpUrl url) {
+        return mExchanges.get(toKey(method, Exchange.toKey(url)));
+    }
+
+    /**
+     * Find any exchange recorded for a request to the same endpoint, e.g. the recorded Gist when
+     * a Gist that wasn't recorded is requested
+     *
+     * @param method   the method of the request
+     * @param endpoint the endpoint, as returned by {@link RequestLog#toEndpoint(HttpUrl)}
+     * @return a successful exchange or NULL if none was recorded for the endpoint
+     */
+    public synchronized Exchange getAny(String method, String endpoint) {
+        for (Exchange exchange : mExchanges.values()) {
+            if (exchange.getMethod().equals(method) && exchange.getCode() < 300
+                    && endpoint.equals(RequestLog.toEndpoint(exchange.getUrl()))) {
+                return exchange;
+            }
+        }
+        return null;
+    }
+
+    public synchronized int size() {
+        return mExchanges.size();
+    }
+
+    private static String toKey(String method, String url) {
+        return method + " " + url;
+    }
+}
@@ -0,0 +1,44 @@
+package com.jldubz.gistaviewer.model.replay;
+
+import android.util.Log;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Records every response, with its decoded body, to a {@link Recording}.  It must be added as an
+ * application interceptor before the one that decodes compressed responses, so the responses it
+ * sees have already been decoded.
+ */
+public class RecordingInterceptor implements Interceptor {
+
+    private static final String TAG = "RecordingInterceptor";
+
+    //Larger bodies, e.g. raw files, are recorded cut short
+    private static final long MAX_BODY_BYTES = 10 * 1024 * 1024;
+
+    private final Recording mRecording;
+
+    public RecordingInterceptor(Recording recording) {
+        mRecording = recording;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+
+        //Peeking leaves the body unread for the app
+        String body = response.body() != null ? response.peekBody(MAX_BODY_BYTES).string() : null;
+        try {
+            mRecording.add(Exchange.create(request, response, body));
+        } catch (IOException exception) {
+            //Failing to record must not fail the request
+            Log.w(TAG, "Could not record " + request.url(), exception);
+        }
+        return response;
+    }
+}
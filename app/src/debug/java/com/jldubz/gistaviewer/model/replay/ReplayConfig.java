@@ -0,0 +1,126 @@
+package com.jldubz.gistaviewer.model.replay;
+
+/**
+ * Settings for recording or replaying traffic to the GitHub API, read from a JSON file, e.g.
+ * <pre>
+ * {"mode": "replay", "latencyMillis": 150, "bytesPerSecond": 50000, "errorRate": 0.02,
+ *  "publicGistCount": 100000, "commentCount": 1500, "runFlows": true}
+ * </pre>
+ * Every setting other than the mode is only used when replaying.
+ */
+public class ReplayConfig {
+
+    public static final String MODE_RECORD = "record";
+    public static final String MODE_REPLAY = "replay";
+
+    private String mode;
+    private long latencyMillis;
+    private long latencyJitterMillis;
+    private long bytesPerSecond;
+    private double errorRate;
+    private long seed;
+    private int publicGistCount;
+    private int commentCount;
+    private boolean runFlows;
+    private int discoverPageCount = 50;
+    private int commentPageCount = 50;
+    private String gistId;
+
+    public boolean isRecording() {
+        return MODE_RECORD.equals(mode);
+    }
+
+    public boolean isReplaying() {
+        return MODE_REPLAY.equals(mode);
+    }
+
+    /**
+     * Get the time every replayed request waits before its response starts
+     *
+     * @return the latency in milliseconds
+     */
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    /**
+     * Get the most time added to or taken from the latency of a request at random
+     *
+     * @return the jitter in milliseconds
+     */
+    public long getLatencyJitterMillis() {
+        return latencyJitterMillis;
+    }
+
+    /**
+     * Get the speed the bodies of replayed responses arrive at
+     *
+     * @return the bandwidth or 0 for no limit
+     */
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Get the share of replayed requests that fail with a server error instead
+     *
+     * @return a rate between 0 and 1
+     */
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    /**
+     * Get the seed of the latency jitter and the injected errors, so runs can be repeated
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the number of public Gists to page through, made up from the recorded ones
+     *
+     * @return the number of Gists or 0 to only replay the recorded pages
+     */
+    public int getPublicGistCount() {
+        return publicGistCount;
+    }
+
+    /**
+     * Get the number of comments every Gist has, made up from the recorded ones
+     *
+     * @return the number of comments or 0 to only replay the recorded pages
+     */
+    public int getCommentCount() {
+        return commentCount;
+    }
+
+    /**
+     * Get whether the end-to-end flows should run, and be reported, once the app starts
+     *
+     * @return TRUE to run the flows
+     * @see PerformanceFlows
+     */
+    public boolean isRunningFlows() {
+        return runFlows;
+    }
+
+    public int getDiscoverPageCount() {
+        return discoverPageCount;
+    }
+
+    public int getCommentPageCount() {
+        return commentPageCount;
+    }
+
+    /**
+     * Get the Gist the flow that opens a Gist opens
+     *
+     * @return the ID of the Gist or NULL for the first discovered Gist
+     */
+    public String getGistId() {
+        return gistId;
+    }
+}
@@ -0,0 +1,149 @@
+package com.jldubz.gistaviewer.model.replay;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Answers every request from a {@link Recording} instead of the network, as a local mock of the
+ * GitHub API.  Responses are delayed by the configured latency plus the time their bodies would
+ * take at the configured bandwidth, a share of them fail with a server error, and the public
+ * Gists and the comments of every Gist can be scaled up past what was recorded.
+ * <p>
+ * Requests that weren't recorded are answered with any recorded response from the same endpoint,
+ * so a recording of one Gist can stand in for every Gist.  Requests to an endpoint that wasn't
+ * recorded at all fail with a 404.
+ */
+public class ReplayInterceptor implements Interceptor {
+
+    private static final String ENDPOINT_PUBLIC_GISTS = "api.github.com/gists/public";
+    private static final String ENDPOINT_COMMENTS = "api.github.com/gists/{id}/comments";
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    //Checked between naps so a canceled call stops waiting
+    private static final long MAX_NAP_MILLIS = 10;
+
+    private final Recording mRecording;
+    private final ReplayConfig mConfig;
+    private final RequestLog mRequestLog;
+    private final Random mRandom;
+    private final List<SyntheticList> mSyntheticLists = new ArrayList<>();
+
+    /**
+     * @param recording  the recorded responses
+     * @param config     the latency, bandwidth, error rate and scale to replay them with
+     * @param requestLog the log every replayed request is counted in
+     */
+    public ReplayInterceptor(Recording recording, ReplayConfig config, RequestLog requestLog) {
+        mRecording = recording;
+        mConfig = config;
+        mRequestLog = requestLog;
+        mRandom = new Random(config.getSeed());
+        if (config.getPublicGistCount() > 0) {
+            mSyntheticLists.add(new SyntheticList(ENDPOINT_PUBLIC_GISTS, config.getPublicGistCount()));
+        }
+        if (config.getCommentCount() > 0) {
+            mSyntheticLists.add(new SyntheticList(ENDPOINT_COMMENTS, config.getCommentCount()));
+        }
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        long startTime = System.currentTimeMillis();
+        Request request = chain.request();
+
+        Response response;
+        long bodySize;
+        if (mRandom.nextDouble() < mConfig.getErrorRate()) {
+            response = createError(request, 503, "Service Unavailable (injected)");
+            bodySize = 0;
+        } else {
+            Exchange exchange = findExchange(request);
+            if (exchange != null) {
+                response = exchange.toResponse(request);
+                bodySize = "HEAD".equals(request.method()) ? 0 : exchange.getBodySize();
+            } else {
+                response = createError(request, 404, "Not Found (not recorded)");
+                bodySize = 0;
+            }
+        }
+
+        long delayMillis = mConfig.getLatencyMillis();
+        if (mConfig.getLatencyJitterMillis() > 0) {
+            delayMillis += Math.round((mRandom.nextDouble() * 2 - 1) * mConfig.getLatencyJitterMillis());
+        }
+        if (mConfig.getBytesPerSecond() > 0) {
+            delayMillis += bodySize * 1000 / mConfig.getBytesPerSecond();
+        }
+        waitFor(chain, delayMillis);
+
+        mRequestLog.onRequest(request.method(), request.url(), response.code(), bodySize,
+                System.currentTimeMillis() - startTime);
+        return response;
+    }
+
+    /**
+     * Find the response to replay for a request
+     *
+     * @param request the request
+     * @return the response or NULL if nothing from the endpoint was recorded
+     */
+    private Exchange findExchange(Request request) {
+        for (SyntheticList list : mSyntheticLists) {
+            if (list.matches(request)) {
+                Exchange page = list.createPage(mRecording, request);
+                if (page != null) {
+                    return page;
+                }
+            }
+        }
+
+        Exchange exchange = mRecording.get(request.method(), request.url());
+        if (exchange == null) {
+            exchange = mRecording.getAny(request.method(), RequestLog.toEndpoint(request.url()));
+        }
+        return exchange;
+    }
+
+    /**
+     * Wait without holding up a call that has been canceled
+     *
+     * @param chain  the chain of the call
+     * @param millis the time to wait
+     * @throws IOException if the call was canceled or the thread interrupted while waiting
+     */
+    private static void waitFor(Chain chain, long millis) throws IOException {
+        long endTime = System.currentTimeMillis() + Math.max(millis, 0);
+        long remaining;
+        while ((remaining = endTime - System.currentTimeMillis()) > 0) {
+            if (chain.call().isCanceled()) {
+                throw new IOException("Canceled");
+            }
+            try {
+                Thread.sleep(Math.min(remaining, MAX_NAP_MILLIS));
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    private static Response createError(Request request, int code, String message) {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_2)
+                .code(code)
+                .message(message)
+                .body(ResponseBody.create("{\"message\":\"" + message + "\"}", JSON))
+                .build();
+    }
+}
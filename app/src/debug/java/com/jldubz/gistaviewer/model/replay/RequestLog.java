@@ -0,0 +1,112 @@
+package com.jldubz.gistaviewer.model.replay;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Counts the requests made to each endpoint of the GitHub API and how long they took
+ */
+public class RequestLog {
+
+    //Gist IDs, revision SHAs and comment IDs
+    private static final Pattern ID_SEGMENT = Pattern.compile("[0-9a-f]{20,}|[0-9]+");
+
+    private final Map<String, EndpointStats> mEndpoints = new TreeMap<>();
+    private long mRequestCount;
+    private long mFailedCount;
+    private long mBytes;
+    private long mMillis;
+
+    /**
+     * Get the endpoint a URL is a request to, with the IDs in its path replaced, e.g.
+     * {@code api.github.com/gists/{id}/comments}
+     *
+     * @param url the URL of a request
+     * @return the endpoint
+     */
+    public static String toEndpoint(HttpUrl url) {
+        return toEndpoint(Exchange.toKey(url));
+    }
+
+    /**
+     * Get the endpoint of a URL key of an {@link Exchange}
+     *
+     * @param key the host, path and query of a URL
+     * @return the endpoint
+     */
+    static String toEndpoint(String key) {
+        int queryStart = key.indexOf('?');
+        String[] segments = (queryStart < 0 ? key : key.substring(0, queryStart)).split("/");
+        StringBuilder endpoint = new StringBuilder(segments[0]);
+        for (int i = 1; i < segments.length; i++) {
+            endpoint.append('/').append(ID_SEGMENT.matcher(segments[i]).matches() ? "{id}" : segments[i]);
+        }
+        return endpoint.toString();
+    }
+
+    /**
+     * Record a request that has been answered
+     *
+     * @param method the method of the request
+     * @param url    the URL of the request
+     * @param code   the status code of the response
+     * @param bytes  the size of the body of the response
+     * @param millis the time the request took
+     */
+    public synchronized void onRequest(String method, HttpUrl url, int code, long bytes, long millis) {
+        String endpoint = method + " " + toEndpoint(url);
+        EndpointStats stats = mEndpoints.get(endpoint);
+        if (stats == null) {
+            stats = new EndpointStats();
+            mEndpoints.put(endpoint, stats);
+        }
+
+        boolean isFailed = code >= 400;
+        stats.mRequestCount++;
+        stats.mFailedCount += isFailed ? 1 : 0;
+        stats.mBytes += bytes;
+        stats.mMillis += millis;
+        stats.mMaxMillis = Math.max(stats.mMaxMillis, millis);
+        mRequestCount++;
+        mFailedCount += isFailed ? 1 : 0;
+        mBytes += bytes;
+        mMillis += millis;
+    }
+
+    public synchronized long getRequestCount() {
+        return mRequestCount;
+    }
+
+    public synchronized long getFailedCount() {
+        return mFailedCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder(String.format(Locale.US, "%d requests (%d failed), %d bytes, %d ms in requests",
+                mRequestCount, mFailedCount, mBytes, mMillis));
+        for (Map.Entry<String, EndpointStats> entry : mEndpoints.entrySet()) {
+            builder.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        return builder.toString();
+    }
+
+    private static class EndpointStats {
+
+        private long mRequestCount;
+        private long mFailedCount;
+        private long mBytes;
+        private long mMillis;
+        private long mMaxMillis;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d requests (%d failed), %d bytes, %d ms avg, %d ms max",
+                    mRequestCount, mFailedCount, mBytes, mMillis / mRequestCount, mMaxMillis);
+        }
+    }
+}
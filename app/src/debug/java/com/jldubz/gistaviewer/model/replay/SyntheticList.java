@@ -0,0 +1,127 @@
+package com.jldubz.gistaviewer.model.replay;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.util.Collections;
+import java.util.Locale;
+
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+
+/**
+ * A paged list endpoint scaled up to any number of items by repeating the items of a recorded
+ * page with new IDs, e.g. to page through 100,000 public Gists from one recorded page.  Every
+ * page gets the Link header GitHub would send with it.
+ */
+class SyntheticList {
+
+    private static final int DEFAULT_PAGE_SIZE = 30;
+
+    private final String mEndpoint;
+    private final int mItemCount;
+    private JsonArray mTemplateItems;
+
+    /**
+     * @param endpoint  the endpoint to scale up, as returned by {@link RequestLog#toEndpoint(HttpUrl)}
+     * @param itemCount the number of items in the whole list
+     */
+    SyntheticList(String endpoint, int itemCount) {
+        mEndpoint = endpoint;
+        mItemCount = itemCount;
+    }
+
+    /**
+     * Get whether this list answers a request
+     *
+     * @param request the request
+     * @return TRUE if the request is for a page of this list
+     */
+    boolean matches(Request request) {
+        String method = request.method();
+        return ("GET".equals(method) || "HEAD".equals(method)) && mEndpoint.equals(RequestLog.toEndpoint(request.url()));
+    }
+
+    /**
+     * Create the page of the list a request asks for
+     *
+     * @param recording the recording with a page of the endpoint to repeat
+     * @param request   the request for the page
+     * @return the page or NULL if no page of the endpoint was recorded
+     */
+    Exchange createPage(Recording recording, Request request) {
+        Exchange template = recording.getAny("GET", mEndpoint);
+        JsonArray templateItems = getTemplateItems(template);
+        if (templateItems == null) {
+            return null;
+        }
+
+        HttpUrl url = request.url();
+        int page = Math.max(parseInt(url.queryParameter("page"), 1), 1);
+        int pageSize = Math.max(parseInt(url.queryParameter("per_page"), DEFAULT_PAGE_SIZE), 1);
+        int lastPage = Math.max((mItemCount + pageSize - 1) / pageSize, 1);
+
+        JsonArray items = new JsonArray();
+        int end = (int) Math.min((long) page * pageSize, mItemCount);
+        for (int i = (page - 1) * pageSize; i < end; i++) {
+            JsonObject item = templateItems.get(i % templateItems.size()).getAsJsonObject().deepCopy();
+            JsonElement id = item.get("id");
+            if (id != null && id.isJsonPrimitive() && id.getAsJsonPrimitive().isNumber()) {
+                item.addProperty("id", i + 1);
+            } else {
+                item.addProperty("id", String.format(Locale.US, "%032x", i + 1));
+            }
+            items.add(item);
+        }
+
+        StringBuilder link = new StringBuilder();
+        if (page < lastPage) {
+            link.append(toLink(url, page + 1, "next")).append(", ").append(toLink(url, lastPage, "last"));
+        }
+        if (page > 1) {
+            if (link.length() > 0) {
+                link.append(", ");
+            }
+            link.append(toLink(url, 1, "first")).append(", ").append(toLink(url, page - 1, "prev"));
+        }
+        return template.copy(items.toString(), Collections.singletonMap("Link", link.toString()));
+    }
+
+    /**
+     * Parse the items of the recorded page once
+     *
+     * @param template the recorded page
+     * @return the items or NULL if there is no page with items to repeat
+     */
+    private synchronized JsonArray getTemplateItems(Exchange template) {
+        if (mTemplateItems == null && template != null && template.getBody() != null) {
+            try {
+                JsonElement body = new JsonParser().parse(template.getBody());
+                if (body.isJsonArray() && body.getAsJsonArray().size() > 0) {
+                    mTemplateItems = body.getAsJsonArray();
+                }
+            } catch (JsonParseException exception) {
+                return null;
+            }
+        }
+        return mTemplateItems;
+    }
+
+    private static String toLink(HttpUrl url, int page, String rel) {
+        return "<" + url.newBuilder().setQueryParameter("page", String.valueOf(page)).build() + ">; rel=\"" + rel + "\"";
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException exception) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.jldubz.gistaviewer;
+
+import android.app.Application;
+
+import com.jldubz.gistaviewer.model.NetworkHooks;
+import com.jldubz.gistaviewer.model.NetworkUtil;
+
+/**
+ * Application that starts connecting to GitHub as soon as the process starts
+ */
+public class GistaViewerApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        NetworkHooks.install(this);
+        //Connect while the first screen is being created rather than after it asks for Gists
+        new Thread(NetworkUtil::warmUpConnections, "ConnectionWarmer").start();
+    }
+}
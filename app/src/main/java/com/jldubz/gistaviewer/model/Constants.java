@@ -3,6 +3,7 @@ package com.jldubz.gistaviewer.model;
 public class Constants {
 
     public static final String URL_GITHUB = "https://api.github.com";
+    public static final String URL_GITHUB_AVATARS = "https://avatars.githubusercontent.com";
     public static final String USERNAME_ERROR = "Please enter a valid username";
     public static final String TOKEN_ERROR = "Please enter a valid access token";
     public static final String NEED_LOGIN_ERROR = "Please login first";
@@ -0,0 +1,127 @@
+package com.jldubz.gistaviewer.model;
+
+import android.util.LruCache;
+
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Formats dates for display while caching both the locale formatters and the formatted strings.
+ * <p>
+ * DateFormat instances are not thread-safe, so each thread keeps its own set of formatters.  The
+ * formatted strings are memoized by timestamp, which is safe because the dates of Gists and Gist
+ * Comments never change once they have been loaded.  All caches are dropped when the default
+ * locale changes.
+ */
+public class DateFormatUtil {
+
+    private static final int MAX_CACHED_DATES = 512;
+
+    private static final ThreadLocal<Formatters> sFormatters = new ThreadLocal<>();
+    private static final LruCache<Long, String> sDateCache = new LruCache<>(MAX_CACHED_DATES);
+    private static final LruCache<Long, String> sDateTimeCache = new LruCache<>(MAX_CACHED_DATES);
+    private static volatile Locale sCacheLocale = Locale.getDefault();
+
+    /**
+     * Format the date portion of a date using the default locale's medium style
+     *
+     * @param date the date to format
+     * @return the formatted date or an empty string if there was no date
+     */
+    public static String formatDate(Date date) {
+        if (date == null) {
+            return "";
+        }
+        checkLocale();
+        Long key = date.getTime();
+        String text = sDateCache.get(key);
+        if (text == null) {
+            text = getFormatters().mDateFormat.format(date);
+            sDateCache.put(key, text);
+        }
+        return text;
+    }
+
+    /**
+     * Format the date and time of a date using the default locale's medium style
+     *
+     * @param date the date to format
+     * @return the formatted date and time or an empty string if there was no date
+     */
+    public static String formatDateTime(Date date) {
+        if (date == null) {
+            return "";
+        }
+        checkLocale();
+        Long key = date.getTime();
+        String text = sDateTimeCache.get(key);
+        if (text == null) {
+            text = getFormatters().mDateTimeFormat.format(date);
+            sDateTimeCache.put(key, text);
+        }
+        return text;
+    }
+
+    /**
+     * Format the time portion of a date using the default locale's medium style.  Times are not
+     * memoized since they are only used for one-off messages.
+     *
+     * @param date the date to format
+     * @return the formatted time or an empty string if there was no date
+     */
+    public static String formatTime(Date date) {
+        if (date == null) {
+            return "";
+        }
+        checkLocale();
+        return getFormatters().mTimeFormat.format(date);
+    }
+
+    /**
+     * Get the formatters owned by the calling thread, creating them if needed
+     *
+     * @return the formatters for the current thread and locale
+     */
+    private static Formatters getFormatters() {
+        Locale locale = sCacheLocale;
+        Formatters formatters = sFormatters.get();
+        if (formatters == null || !formatters.mLocale.equals(locale)) {
+            formatters = new Formatters(locale);
+            sFormatters.set(formatters);
+        }
+        return formatters;
+    }
+
+    /**
+     * Drop all of the memoized strings if the default locale has changed since they were formatted
+     */
+    private static void checkLocale() {
+        Locale locale = Locale.getDefault();
+        if (locale.equals(sCacheLocale)) {
+            return;
+        }
+        synchronized (DateFormatUtil.class) {
+            if (!locale.equals(sCacheLocale)) {
+                sDateCache.evictAll();
+                sDateTimeCache.evictAll();
+                sCacheLocale = locale;
+            }
+        }
+    }
+
+    private static class Formatters {
+
+        private final Locale mLocale;
+        private final DateFormat mDateFormat;
+        private final DateFormat mDateTimeFormat;
+        private final DateFormat mTimeFormat;
+
+        Formatters(Locale locale) {
+            mLocale = locale;
+            mDateFormat = DateFormat.getDateInstance(DateFormat.DEFAULT, locale);
+            mDateTimeFormat = DateFormat.getDateTimeInstance(DateFormat.DEFAULT, DateFormat.DEFAULT, locale);
+            mTimeFormat = DateFormat.getTimeInstance(DateFormat.DEFAULT, locale);
+        }
+    }
+}
@@ -168,4 +168,68 @@ public class GitHubUser {
     public void setPrivate_gists(int private_gists) {
         this.private_gists = private_gists;
     }
+
+    /**
+     * Check if this is a full user record, e.g. from /user, rather than the summary embedded in
+     * a Gist or a Gist Comment, which has no profile fields
+     *
+     * @return TRUE if the profile fields were part of the response
+     */
+    public boolean isFullRecord() {
+        return createdAt != null;
+    }
+
+    /**
+     * Copy the fields of a newer response for the same user into this one, so every reference to
+     * this instance sees them.  The profile fields are only copied from a full record that isn't
+     * older than this one.
+     *
+     * @param user a newer response for the same user
+     */
+    public void updateFrom(GitHubUser user) {
+        if (user.login != null) {
+            login = user.login;
+        }
+        if (user.avatar_url != null) {
+            avatar_url = user.avatar_url;
+        }
+        if (!user.isFullRecord()
+                || (updatedAt != null && user.updatedAt != null && user.updatedAt.before(updatedAt))) {
+            return;
+        }
+        copyProfileFrom(user);
+    }
+
+    /**
+     * Copy the fields this instance is missing from an older copy of the same user, e.g. one
+     * restored from a database, without overwriting any field this instance already has
+     *
+     * @param user an older copy of the same user
+     */
+    public void fillFrom(GitHubUser user) {
+        if (login == null) {
+            login = user.login;
+        }
+        if (avatar_url == null) {
+            avatar_url = user.avatar_url;
+        }
+        if (!isFullRecord() && user.isFullRecord()) {
+            copyProfileFrom(user);
+        }
+    }
+
+    private void copyProfileFrom(GitHubUser user) {
+        name = user.name;
+        company = user.company;
+        blog = user.blog;
+        location = user.location;
+        email = user.email;
+        bio = user.bio;
+        public_gists = user.public_gists;
+        followers = user.followers;
+        following = user.following;
+        createdAt = user.createdAt;
+        updatedAt = user.updatedAt;
+        private_gists = user.private_gists;
+    }
 }
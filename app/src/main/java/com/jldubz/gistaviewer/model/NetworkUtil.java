@@ -1,13 +1,245 @@
 package com.jldubz.gistaviewer.model;
 
-import java.text.DateFormat;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.jldubz.gistaviewer.BuildConfig;
+import com.jldubz.gistaviewer.model.data.ConnectionWarmer;
+import com.jldubz.gistaviewer.model.data.DisplayTextTypeAdapterFactory;
+import com.jldubz.gistaviewer.model.data.GistListItemTypeAdapterFactory;
+import com.jldubz.gistaviewer.model.data.IGitHubService;
+import com.jldubz.gistaviewer.model.data.RequestBudget;
+import com.jldubz.gistaviewer.model.data.TransferStats;
+import com.jldubz.gistaviewer.model.data.UserIdentityMap;
+import com.jldubz.gistaviewer.model.data.UserIdentityTypeAdapterFactory;
+
 import java.util.Date;
 import java.util.Set;
 
+import androidx.annotation.VisibleForTesting;
+
 import okhttp3.Headers;
+import okhttp3.OkHttpClient;
+import okhttp3.brotli.BrotliInterceptor;
 import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
 
 public class NetworkUtil {
+
+    //Not counted against the rate limit, unlike the other API endpoints
+    private static final String URL_WARM_UP_GITHUB = Constants.URL_GITHUB + "/rate_limit";
+    private static final String URL_WARM_UP_AVATARS = Constants.URL_GITHUB_AVATARS + "/";
+
+    private static final TransferStats sTransferStats = new TransferStats();
+    private static final ConnectionWarmer sConnectionWarmer = new ConnectionWarmer();
+    //Debug builds log when a user flow makes more requests than it is budgeted
+    private static final RequestBudget sRequestBudget = new RequestBudget();
+    //Full user records kept for profiles opened again, e.g. of the owners of Gists
+    private static final int MAX_FULL_USERS = 50;
+    private static final UserIdentityMap sUsers = new UserIdentityMap(MAX_FULL_USERS);
+    private static final IServiceFactory RETROFIT_SERVICE_FACTORY = (client, gson) -> new Retrofit.Builder()
+            .baseUrl(Constants.URL_GITHUB)
+            .addConverterFactory(GsonConverterFactory.create(gson))
+            .client(client)
+            .build()
+            .create(IGitHubService.class);
+    private static volatile IServiceFactory sServiceFactory = RETROFIT_SERVICE_FACTORY;
+    private static OkHttpClient sHttpClient;
+    private static OkHttpClient sPlainHttpClient;
+
+    /**
+     * Get the HTTP client every request to the GitHub API is made with.  Clients that need more
+     * interceptors, e.g. for authorization, should be created with {@link OkHttpClient#newBuilder()}
+     * so they share its connections and threads.
+     * <p>
+     * The client asks for brotli or gzip compressed responses and counts the bytes of every
+     * response in {@link #getTransferStats()}.
+     *
+     * @return the shared client
+     */
+    public static synchronized OkHttpClient getHttpClient() {
+        if (sHttpClient == null) {
+            sHttpClient = createHttpClientBuilder().build();
+        }
+        return sHttpClient;
+    }
+
+    /**
+     * Create a builder of a client like {@link #getHttpClient()}, with its interceptors in the
+     * order they run in
+     *
+     * @return the builder
+     */
+    static OkHttpClient.Builder createHttpClientBuilder() {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .addInterceptor(sTransferStats.getApplicationInterceptor());
+        if (BuildConfig.DEBUG) {
+            builder.addInterceptor(sRequestBudget.getInterceptor());
+        }
+        //Debug builds can record the API traffic or replay it instead of using the network.  The
+        //Brotli interceptor asks for br or gzip itself, so OkHttp no longer decodes gzip, and only
+        //interceptors added before it see decoded bodies
+        NetworkHooks.addInterceptors(builder);
+        return builder.addInterceptor(BrotliInterceptor.INSTANCE)
+                .addNetworkInterceptor(sTransferStats.getNetworkInterceptor())
+                .eventListenerFactory(sConnectionWarmer.getEventListenerFactory());
+    }
+
+    /**
+     * Get an HTTP client for requests that aren't API calls, e.g. for avatar images.  It shares
+     * the connections and threads of {@link #getHttpClient()} but none of its interceptors, so
+     * its responses aren't counted as API responses.
+     *
+     * @return the shared client without interceptors
+     */
+    public static synchronized OkHttpClient getPlainHttpClient() {
+        if (sPlainHttpClient == null) {
+            OkHttpClient.Builder builder = getHttpClient().newBuilder();
+            builder.interceptors().clear();
+            builder.networkInterceptors().clear();
+            sPlainHttpClient = builder.build();
+        }
+        return sPlainHttpClient;
+    }
+
+    /**
+     * Create a service for making calls to the GitHub API
+     *
+     * @param client the HTTP client the calls are made with
+     * @param gson   the Gson instance the responses are parsed with
+     * @return a new service
+     */
+    public static IGitHubService createGitHubService(OkHttpClient client, Gson gson) {
+        return sServiceFactory.create(client, gson);
+    }
+
+    /**
+     * Replace the way services are created, e.g. so that tests can answer API calls with a fake
+     * service
+     *
+     * @param factory the factory or NULL to create services with Retrofit again
+     */
+    @VisibleForTesting
+    public static void setServiceFactory(IServiceFactory factory) {
+        sServiceFactory = factory != null ? factory : RETROFIT_SERVICE_FACTORY;
+    }
+
+    /**
+     * Start opening connections to the API and avatar hosts in the background, so the first
+     * Gists and avatars don't wait for DNS, TCP and TLS.  This builds the HTTP clients, so it
+     * should not be called from the main thread.
+     */
+    public static void warmUpConnections() {
+        sConnectionWarmer.warmUp(getPlainHttpClient(), URL_WARM_UP_GITHUB, URL_WARM_UP_AVATARS);
+    }
+
+    /**
+     * Get the time it took to connect to each host, and the time warming up the connections
+     * saved the first request to each host
+     *
+     * @return the connection timings since the app started
+     */
+    public static ConnectionWarmer getConnectionWarmer() {
+        return sConnectionWarmer;
+    }
+
+    /**
+     * Get the number of bytes received by the shared HTTP client, before and after decompression
+     *
+     * @return the stats of every response since the app started
+     */
+    public static TransferStats getTransferStats() {
+        return sTransferStats;
+    }
+
+    /**
+     * Get the budgets of the requests each user flow may make.  Flows should be started with
+     * {@link RequestBudget#begin(RequestBudget.Flow)} in every build, but are only checked in
+     * debug builds.
+     *
+     * @return the shared budget
+     */
+    public static RequestBudget getRequestBudget() {
+        return sRequestBudget;
+    }
+
+    /**
+     * Get the map every GitHub user parsed by {@link #createGsonBuilder()} and
+     * {@link #createStorageGsonBuilder()} goes through
+     *
+     * @return the shared map of users
+     */
+    public static UserIdentityMap getUserIdentityMap() {
+        return sUsers;
+    }
+
+    /**
+     * Create a Gson builder configured for parsing GitHub API responses.  Users are parsed into
+     * one shared instance per user.
+     *
+     * @return a new GsonBuilder that can be further customized
+     */
+    public static GsonBuilder createGsonBuilder() {
+        return createGsonBuilder(false);
+    }
+
+    /**
+     * Create a Gson builder configured for reading responses back from storage, e.g. from a
+     * database.  Users are parsed into the same instances as {@link #createGsonBuilder()}, but
+     * only fill in the fields those instances are missing, since they may be newer.
+     *
+     * @return a new GsonBuilder that can be further customized
+     */
+    public static GsonBuilder createStorageGsonBuilder() {
+        return createGsonBuilder(true);
+    }
+
+    private static GsonBuilder createGsonBuilder(boolean isRestoring) {
+        return new GsonBuilder().registerTypeAdapterFactory(new DisplayTextTypeAdapterFactory())
+                .registerTypeAdapterFactory(new GistListItemTypeAdapterFactory())
+                .registerTypeAdapterFactory(new UserIdentityTypeAdapterFactory(sUsers, isRestoring));
+    }
+
+    /**
+     * Find the page number of one of the links in a Link header returned by the GitHub API
+     *
+     * @param linkHeader the Link header, e.g. {@code <...?per_page=30&page=2>; rel="next"}
+     * @param rel        the relation of the link to read, e.g. "next" or "last"
+     * @return the page number of the link or 0 if there is no such link
+     */
+    public static int getLinkedPage(String linkHeader, String rel) {
+        if (linkHeader == null) {
+            return 0;
+        }
+
+        for (String link : linkHeader.split(",")) {
+            if (!link.contains("rel=\"" + rel + "\"")) {
+                continue;
+            }
+            int urlEnd = link.indexOf('>');
+            if (urlEnd < 0) {
+                return 0;
+            }
+            String url = link.substring(0, urlEnd);
+            //Look for the "page" parameter itself rather than a parameter ending in "page"
+            for (String prefix : new String[]{"?page=", "&page="}) {
+                int pageIndex = url.indexOf(prefix);
+                if (pageIndex < 0) {
+                    continue;
+                }
+                int pageStart = pageIndex + prefix.length();
+                int pageEnd = url.indexOf('&', pageStart);
+                try {
+                    return Integer.parseInt(url.substring(pageStart, pageEnd < 0 ? url.length() : pageEnd));
+                } catch (NumberFormatException exception) {
+                    return 0;
+                }
+            }
+            return 0;
+        }
+        return 0;
+    }
+
     public static String onGitHubResponseError(Response response) {
         if (response.code() == 403) {
             Headers headers = response.headers();
@@ -26,10 +258,22 @@ public class NetworkUtil {
             }
             if (rateLimitReset > 0) {
                 Date resetDate = new Date(rateLimitReset * 1000);
-                String resetTimeText = DateFormat.getTimeInstance().format(resetDate);
+                String resetTimeText = DateFormatUtil.formatTime(resetDate);
                 return "Rate limit exceeded. Try again after " + resetTimeText;
             }
         }
         return response.message();
     }
+
+    public interface IServiceFactory {
+
+        /**
+         * Called to create a service for making calls to the GitHub API
+         *
+         * @param client the HTTP client the calls are made with
+         * @param gson   the Gson instance the responses are parsed with
+         * @return a new service
+         */
+        IGitHubService create(OkHttpClient client, Gson gson);
+    }
 }
@@ -0,0 +1,152 @@
+package com.jldubz.gistaviewer.model.data;
+
+import com.jldubz.gistaviewer.model.GitHubUser;
+import com.jldubz.gistaviewer.model.NetworkUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+
+/**
+ * A GitHub account the user has logged in with.
+ * <p>
+ * Each account has its own authorized service and its own partition of the HTTP response cache,
+ * so conditional requests made for one account are never answered with another account's
+ * responses.  The service's client is built from {@link NetworkUtil#getHttpClient()}, so every
+ * account shares one connection pool and switching accounts doesn't open new connections.
+ * Anything an account stores locally, e.g. its comment database, is named after its key.
+ *
+ * @see AccountRegistry
+ */
+public class Account {
+
+    private static final long MAX_CACHE_BYTES = 10 * 1024 * 1024;
+
+    private final String mUsername;
+    private final String mToken;
+    private final String mKey;
+    private final File mCacheDir;
+
+    private Cache mCache;
+    private IGitHubService mGitHubService;
+    private volatile GitHubUser mUser;
+    private volatile String mUserETag;
+
+    /**
+     * @param username     the GitHub username used for authorization
+     * @param token        the private access token associated with the GitHub user
+     * @param cacheRootDir the directory the account's cache partition is created in
+     */
+    Account(String username, String token, File cacheRootDir) {
+        mUsername = username;
+        mToken = token;
+        mKey = toKey(username);
+        mCacheDir = new File(cacheRootDir, mKey);
+    }
+
+    /**
+     * Get the key an account is stored under for a username.  GitHub usernames are not case
+     * sensitive, and only letters, digits and hyphens are kept so the key can name files.
+     *
+     * @param username the GitHub username
+     * @return the key of the account
+     */
+    static String toKey(String username) {
+        return username.toLowerCase(Locale.US).replaceAll("[^a-z0-9-]", "_");
+    }
+
+    public String getUsername() {
+        return mUsername;
+    }
+
+    String getToken() {
+        return mToken;
+    }
+
+    /**
+     * Get the key that names everything the account stores locally
+     *
+     * @return the key, e.g. "octocat"
+     */
+    public String getKey() {
+        return mKey;
+    }
+
+    /**
+     * Get the name of the database the account's Gist Comments are paged out to
+     *
+     * @return the name of the database
+     */
+    public String getCommentDatabaseName() {
+        return "comments-" + mKey + ".db";
+    }
+
+    /**
+     * Get the service for making API calls authorized as this account.  It is created the first
+     * time it is needed and then reused for as long as the account exists.
+     *
+     * @return the authorized service
+     */
+    public synchronized IGitHubService getGitHubService() {
+        if (mGitHubService == null) {
+            mCache = new Cache(mCacheDir, MAX_CACHE_BYTES);
+            OkHttpClient client = NetworkUtil.getHttpClient().newBuilder()
+                    .addInterceptor(new BasicAuthInterceptor(mUsername, mToken))
+                    .cache(mCache)
+                    .build();
+            mGitHubService = NetworkUtil.createGitHubService(client, NetworkUtil.createGsonBuilder().create());
+        }
+        return mGitHubService;
+    }
+
+    /**
+     * Get the user this account was last verified as, so the profile can be shown as soon as the
+     * account is switched to.  The user is saved with the account, so it is known from the start
+     * of the next session too.
+     *
+     * @return the user or NULL if the account has never been verified
+     */
+    public GitHubUser getUser() {
+        return mUser;
+    }
+
+    /**
+     * Get the ETag of the response the user was loaded from, so the user can be loaded again only
+     * if it changed
+     *
+     * @return the ETag or NULL if there is none
+     */
+    public String getUserETag() {
+        return mUserETag;
+    }
+
+    /**
+     * Set the user the account was verified as.  Use
+     * {@link AccountRegistry#setUser(Account, GitHubUser, String)} so the user is saved.
+     *
+     * @param user the user
+     * @param eTag the ETag of the response the user was loaded from
+     */
+    void setUser(GitHubUser user, String eTag) {
+        mUser = user;
+        mUserETag = eTag;
+    }
+
+    /**
+     * Delete the account's cache partition.  This must not be called from the main thread.
+     */
+    synchronized void deleteCache() {
+        try {
+            if (mCache != null) {
+                mCache.delete();
+            } else {
+                new Cache(mCacheDir, MAX_CACHE_BYTES).delete();
+            }
+        } catch (IOException exception) {
+            //The cache is only an optimization, so anything left behind is harmless
+        }
+    }
+}
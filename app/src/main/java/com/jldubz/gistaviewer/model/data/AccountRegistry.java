@@ -0,0 +1,280 @@
+package com.jldubz.gistaviewer.model.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.jldubz.gistaviewer.R;
+import com.jldubz.gistaviewer.model.GitHubUser;
+import com.jldubz.gistaviewer.model.NetworkUtil;
+
+import java.io.File;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import androidx.annotation.Keep;
+
+/**
+ * The GitHub accounts the user has logged in with and which of them is active.
+ * <p>
+ * Accounts are saved to Shared Preferences so they are still logged in after the app closes.
+ * Credentials saved by older versions of the app, which only supported one account, are moved
+ * into the registry the first time it is loaded.  The user each account was last verified as is
+ * saved with it, so a profile can be shown before it has been loaded again.  Removing an account
+ * also deletes its cache partition and its comment database.
+ * <p>
+ * There is one registry per process.  All methods are thread-safe.
+ */
+public class AccountRegistry {
+
+    private static final Type CREDENTIALS_LIST_TYPE = new TypeToken<List<Credentials>>() {}.getType();
+    private static final Type SAVED_USERS_TYPE = new TypeToken<Map<String, SavedUser>>() {}.getType();
+
+    private static AccountRegistry sInstance;
+
+    private final Context mContext;
+    private final SharedPreferences mPreferences;
+    private final File mCacheRootDir;
+    //Saved users go through the shared identity map like users parsed from responses
+    private final Gson mGson = NetworkUtil.createStorageGsonBuilder().create();
+    private final Executor mCleanupExecutor = Executors.newSingleThreadExecutor();
+    //Keyed by account key, in the order the accounts were added
+    private final Map<String, Account> mAccounts = new LinkedHashMap<>();
+    private Account mActiveAccount;
+
+    /**
+     * Get the registry of the app
+     *
+     * @param context any context of the app
+     * @return the registry
+     */
+    public static synchronized AccountRegistry getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new AccountRegistry(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private AccountRegistry(Context context) {
+        mContext = context;
+        mPreferences = context.getSharedPreferences(context.getString(R.string.key_pref_file), Context.MODE_PRIVATE);
+        mCacheRootDir = new File(context.getCacheDir(), "http");
+        load();
+    }
+
+    /**
+     * Get every account, in the order they were added
+     *
+     * @return the accounts
+     */
+    public synchronized List<Account> getAccounts() {
+        return new ArrayList<>(mAccounts.values());
+    }
+
+    /**
+     * Get the account with a username
+     *
+     * @param username the GitHub username
+     * @return the account or NULL if there is no account with the username
+     */
+    public synchronized Account getAccount(String username) {
+        return mAccounts.get(Account.toKey(username));
+    }
+
+    /**
+     * Get the account API calls are currently made as
+     *
+     * @return the active account or NULL if no account is logged in
+     */
+    public synchronized Account getActiveAccount() {
+        return mActiveAccount;
+    }
+
+    /**
+     * Create an account that hasn't been added yet, e.g. to verify the credentials before adding
+     * it.  If an account with the same credentials already exists, that account is returned
+     * instead.
+     *
+     * @param username the GitHub username used for authorization
+     * @param token    the private access token associated with the GitHub user
+     * @return the account
+     */
+    public synchronized Account createAccount(String username, String token) {
+        Account account = getAccount(username);
+        if (account != null && account.getToken().equals(token)) {
+            return account;
+        }
+        return new Account(username, token, mCacheRootDir);
+    }
+
+    /**
+     * Add an account and make it the active account.  An account with the same username is
+     * replaced, e.g. when the user logs in again with a new token.
+     *
+     * @param account the account, created by {@link #createAccount(String, String)}
+     */
+    public synchronized void addAccount(Account account) {
+        Account oldAccount = mAccounts.put(account.getKey(), account);
+        if (oldAccount != null && oldAccount != account) {
+            mCleanupExecutor.execute(oldAccount::deleteCache);
+        }
+        mActiveAccount = account;
+        save();
+    }
+
+    /**
+     * Make one of the accounts the active account
+     *
+     * @param account the account or NULL to make API calls without authorization
+     */
+    public synchronized void setActiveAccount(Account account) {
+        mActiveAccount = account;
+        save();
+    }
+
+    /**
+     * Set the user an account was verified as and save it with the account
+     *
+     * @param account the account
+     * @param user    the user loaded with the account's credentials
+     * @param eTag    the ETag of the response the user was loaded from or NULL if there was none
+     */
+    public synchronized void setUser(Account account, GitHubUser user, String eTag) {
+        account.setUser(user, eTag);
+        if (mAccounts.get(account.getKey()) == account) {
+            save();
+        }
+    }
+
+    /**
+     * Remove an account and delete everything it stored locally.  If it was the active account,
+     * no account is active afterwards.
+     *
+     * @param account the account to remove
+     */
+    public synchronized void removeAccount(Account account) {
+        if (mAccounts.get(account.getKey()) != account) {
+            return;
+        }
+        mAccounts.remove(account.getKey());
+        if (mActiveAccount == account) {
+            mActiveAccount = null;
+        }
+        save();
+        mCleanupExecutor.execute(() -> {
+            account.deleteCache();
+            mContext.deleteDatabase(account.getCommentDatabaseName());
+        });
+    }
+
+    /**
+     * Read the saved accounts, moving the credentials of the single account older versions saved
+     * into the list of accounts
+     */
+    private void load() {
+        List<Credentials> credentialsList = null;
+        String json = mPreferences.getString(mContext.getString(R.string.key_pref_accounts), null);
+        if (json != null) {
+            try {
+                credentialsList = mGson.fromJson(json, CREDENTIALS_LIST_TYPE);
+            } catch (JsonParseException exception) {
+                credentialsList = null;
+            }
+        }
+        if (credentialsList != null) {
+            Map<String, SavedUser> savedUsers = loadUsers();
+            for (Credentials credentials : credentialsList) {
+                Account account = new Account(credentials.username, credentials.token, mCacheRootDir);
+                SavedUser savedUser = savedUsers.get(account.getKey());
+                if (savedUser != null && savedUser.user != null) {
+                    account.setUser(savedUser.user, savedUser.eTag);
+                }
+                mAccounts.put(account.getKey(), account);
+            }
+            String activeKey = mPreferences.getString(mContext.getString(R.string.key_pref_active_account), null);
+            mActiveAccount = activeKey != null ? mAccounts.get(activeKey) : null;
+            return;
+        }
+
+        String username = mPreferences.getString(mContext.getString(R.string.key_pref_username), "");
+        String token = mPreferences.getString(mContext.getString(R.string.key_pref_token), "");
+        if (!username.isEmpty() && !token.isEmpty()) {
+            Account account = new Account(username, token, mCacheRootDir);
+            mAccounts.put(account.getKey(), account);
+            mActiveAccount = account;
+        }
+        save();
+    }
+
+    /**
+     * Read the users the accounts were last verified as
+     *
+     * @return the saved users keyed by account key
+     */
+    private Map<String, SavedUser> loadUsers() {
+        Map<String, SavedUser> savedUsers = null;
+        String json = mPreferences.getString(mContext.getString(R.string.key_pref_account_users), null);
+        if (json != null) {
+            try {
+                savedUsers = mGson.fromJson(json, SAVED_USERS_TYPE);
+            } catch (JsonParseException exception) {
+                savedUsers = null;
+            }
+        }
+        //The users are only a head start, so they are simply loaded again if they can't be read
+        return savedUsers != null ? savedUsers : new LinkedHashMap<>();
+    }
+
+    /**
+     * Write the accounts to Shared Preferences
+     */
+    private void save() {
+        List<Credentials> credentialsList = new ArrayList<>();
+        Map<String, SavedUser> savedUsers = new LinkedHashMap<>();
+        for (Account account : mAccounts.values()) {
+            credentialsList.add(new Credentials(account.getUsername(), account.getToken()));
+            if (account.getUser() != null) {
+                savedUsers.put(account.getKey(), new SavedUser(account.getUser(), account.getUserETag()));
+            }
+        }
+        mPreferences.edit()
+                .putString(mContext.getString(R.string.key_pref_accounts), mGson.toJson(credentialsList, CREDENTIALS_LIST_TYPE))
+                .putString(mContext.getString(R.string.key_pref_account_users), mGson.toJson(savedUsers, SAVED_USERS_TYPE))
+                .putString(mContext.getString(R.string.key_pref_active_account), mActiveAccount != null ? mActiveAccount.getKey() : null)
+                .remove(mContext.getString(R.string.key_pref_username))
+                .remove(mContext.getString(R.string.key_pref_token))
+                .apply();
+    }
+
+    //Kept so that saved accounts can be read after the fields would have been renamed
+    @Keep
+    private static class Credentials {
+
+        private String username;
+        private String token;
+
+        Credentials(String username, String token) {
+            this.username = username;
+            this.token = token;
+        }
+    }
+
+    @Keep
+    private static class SavedUser {
+
+        private GitHubUser user;
+        private String eTag;
+
+        SavedUser(GitHubUser user, String eTag) {
+            this.user = user;
+            this.eTag = eTag;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.jldubz.gistaviewer.model.data;
+
+/**
+ * Picks the number of items to request per page from the GitHub API based on how fast pages
+ * have been arriving.
+ * <p>
+ * The first page is small so the first rows show up quickly.  Each page is split into the
+ * latency before its response started, i.e. the round trip and the server's time, and the time
+ * per item it took to transfer after that, and both are folded into moving averages.  The next
+ * page is sized so that it should arrive within a target time: larger on a fast network to save
+ * round trips, smaller on a slow one so each page still shows up promptly.  When the latency
+ * alone takes a large part of that time, as on 2G or 3G, small pages would spend most of their
+ * time waiting on round trips, so the page is allowed ten times the latency instead and gets
+ * larger.  Pages are also kept small while the network is metered, so nothing is downloaded far
+ * ahead of what the user scrolls to.
+ * <p>
+ * The API pages by page number, so a list can only switch to a new page size at an offset that
+ * is a multiple of it.  Page sizes are therefore taken from the divisors of 100, the largest page
+ * the API allows, and a larger size waits until the offset lines up with it.
+ * <p>
+ * One instance can be shared by every list loaded over the same network.  All methods must be
+ * called from the main thread.
+ */
+public class AdaptivePageSize {
+
+    private static final int[] PAGE_SIZES = {10, 20, 25, 50, 100};
+    //Pages are sized to arrive within this time at the measured throughput
+    private static final long TARGET_PAGE_MILLIS = 1000;
+    //A page may take this many times the latency when that is longer than the target
+    private static final int LATENCY_MULTIPLE = 10;
+    private static final int METERED_MAX_PAGE_SIZE = 25;
+    //Weight of the newest page in the moving averages of the latency and the time per item
+    private static final double AVERAGE_WEIGHT = 0.5;
+
+    private final int mMinPageSize;
+    private final int mMaxPageSize;
+    private double mLatencyMillis;
+    private double mMillisPerItem = -1;
+    private boolean mIsMetered;
+
+    /**
+     * @param minPageSize the size of the first page and the smallest page; one of 10, 20, 25, 50
+     *                    or 100
+     * @param maxPageSize the largest page; one of 10, 20, 25, 50 or 100
+     */
+    public AdaptivePageSize(int minPageSize, int maxPageSize) {
+        mMinPageSize = minPageSize;
+        mMaxPageSize = maxPageSize;
+    }
+
+    /**
+     * Set whether the active network is metered, e.g. mobile data
+     *
+     * @param isMetered TRUE to keep pages small
+     */
+    public void setMetered(boolean isMetered) {
+        mIsMetered = isMetered;
+    }
+
+    /**
+     * Get the size of the next page of a list
+     *
+     * @param offset the number of items requested from the list so far, which is always a
+     *               multiple of the sizes of the pages requested before
+     * @return the number of items to request
+     */
+    public int getPageSize(int offset) {
+        int target = mMinPageSize;
+        if (mMillisPerItem == 0) {
+            target = mMaxPageSize;
+        } else if (mMillisPerItem > 0) {
+            //Every page pays the latency once, so only the rest of its time is spent on items
+            double pageMillis = Math.max(TARGET_PAGE_MILLIS, LATENCY_MULTIPLE * mLatencyMillis);
+            target = (int) Math.min((pageMillis - mLatencyMillis) / mMillisPerItem, mMaxPageSize);
+        }
+        if (mIsMetered) {
+            target = Math.min(target, METERED_MAX_PAGE_SIZE);
+        }
+
+        //Take the largest size that fits the target and lines up with the offset
+        int pageSize = 0;
+        for (int size : PAGE_SIZES) {
+            if (size > target && pageSize > 0) {
+                break;
+            }
+            if (size >= mMinPageSize && size <= mMaxPageSize && offset % size == 0) {
+                pageSize = size;
+            }
+        }
+        return pageSize > 0 ? pageSize : mMinPageSize;
+    }
+
+    /**
+     * Record how long a page took to arrive
+     *
+     * @param itemCount     the number of items on the page
+     * @param elapsedMillis the time from requesting the page to its response
+     * @param latencyMillis the part of that time before the response started to arrive, or 0 if
+     *                      it isn't known
+     */
+    public void onPageLoaded(int itemCount, long elapsedMillis, long latencyMillis) {
+        //A short last page says little about the network
+        if (itemCount <= 0 || elapsedMillis <= 0) {
+            return;
+        }
+        latencyMillis = Math.max(0, Math.min(latencyMillis, elapsedMillis));
+        double millisPerItem = (double) (elapsedMillis - latencyMillis) / itemCount;
+        if (mMillisPerItem < 0) {
+            mLatencyMillis = latencyMillis;
+            mMillisPerItem = millisPerItem;
+        } else {
+            mLatencyMillis = AVERAGE_WEIGHT * latencyMillis + (1 - AVERAGE_WEIGHT) * mLatencyMillis;
+            mMillisPerItem = AVERAGE_WEIGHT * millisPerItem + (1 - AVERAGE_WEIGHT) * mMillisPerItem;
+        }
+    }
+}
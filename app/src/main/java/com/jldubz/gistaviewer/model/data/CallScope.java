@@ -0,0 +1,101 @@
+package com.jldubz.gistaviewer.model.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import retrofit2.Call;
+
+/**
+ * Ties Retrofit calls to the lifetime of their owner, e.g. a ViewModel.
+ * <p>
+ * Every call started through {@link #call(Call)} is tracked until its response arrives, so
+ * {@link #cancelAll()} can cancel whatever is still in flight.  Each call is also tagged with the
+ * generation of the scope it was started in, and every cancellation starts a new generation, so a
+ * response that was already on its way when its call was cancelled is dropped too, e.g. a page of
+ * the previous user's Gists arriving after a logout.  Once the scope is closed, e.g. in
+ * {@link androidx.lifecycle.ViewModel#onCleared()}, calls started through it are cancelled
+ * straight away.
+ * <p>
+ * All methods must be called from the main thread.
+ */
+public class CallScope {
+
+    private final Map<Call<?>, Integer> mCalls = new HashMap<>();
+    private int mGeneration;
+    private boolean mIsClosed;
+
+    /**
+     * Wrap a call in a task that runs in this scope.  Nothing is sent until the task is
+     * enqueued.
+     *
+     * @param call the call to make
+     * @param <T>  the type of the response body
+     * @return a task for the call
+     */
+    public <T> CallTask<T> call(Call<T> call) {
+        return new CallTask<>(this, target -> enqueue(call, target));
+    }
+
+    /**
+     * Cancel every call in flight, e.g. when the results are no longer needed.  Calls can still
+     * be started afterwards.
+     */
+    public void cancelAll() {
+        mGeneration++;
+        //Cancelling can call back into untrack, so iterate over a copy
+        List<Call<?>> calls = new ArrayList<>(mCalls.keySet());
+        mCalls.clear();
+        for (Call<?> call : calls) {
+            call.cancel();
+        }
+    }
+
+    /**
+     * Cancel every call in flight and every call started from now on
+     */
+    public void close() {
+        mIsClosed = true;
+        cancelAll();
+    }
+
+    public boolean isClosed() {
+        return mIsClosed;
+    }
+
+    /**
+     * Check if any call started through this scope is still waiting for its response
+     *
+     * @return TRUE if a call is in flight
+     */
+    public boolean isBusy() {
+        return !mCalls.isEmpty();
+    }
+
+    /**
+     * Start a call and track it until its response arrives
+     *
+     * @param call   the call to start
+     * @param target the task the response is delivered to
+     */
+    <T> void enqueue(Call<T> call, CallTask<T> target) {
+        if (mIsClosed) {
+            return;
+        }
+        mCalls.put(call, mGeneration);
+        call.enqueue(target);
+    }
+
+    /**
+     * Stop tracking a call once its response has arrived
+     *
+     * @param call the call
+     * @return TRUE if the response should be delivered, FALSE if the call was cancelled or
+     * belongs to an earlier generation
+     */
+    boolean untrack(Call<?> call) {
+        Integer generation = mCalls.remove(call);
+        return generation != null && generation == mGeneration && !call.isCanceled() && !mIsClosed;
+    }
+}
@@ -0,0 +1,149 @@
+package com.jldubz.gistaviewer.model.data;
+
+import com.jldubz.gistaviewer.model.NetworkUtil;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * A Retrofit call, or a chain of dependent calls, that runs in a {@link CallScope}.
+ * <p>
+ * A task is its own Retrofit callback, so call sites only supply the listeners they care about.
+ * Use {@link #then(IContinuation)} to start a call that depends on the response of this one,
+ * e.g. reading the number of pages from a HEAD request before downloading a page.  An error at
+ * any step of a chain ends the chain and is passed to the error listener of the task that was
+ * enqueued.
+ * <p>
+ * A task can only be enqueued once, and its listeners are called on the main thread.
+ *
+ * @param <T> the type of the response body
+ */
+public class CallTask<T> implements Callback<T> {
+
+    private final CallScope mScope;
+    private final IStarter<T> mStarter;
+
+    private IResponseListener<T> mResponseListener;
+    private IErrorListener mErrorListener;
+    private boolean mIsAnyResponseDelivered;
+
+    CallTask(CallScope scope, IStarter<T> starter) {
+        mScope = scope;
+        mStarter = starter;
+    }
+
+    /**
+     * Chain a call that is made once this task has a successful response
+     *
+     * @param continuation creates the next call from the response of this task, or returns NULL
+     *                     to end the chain without calling any listener
+     * @param <R>          the type of the response body of the next call
+     * @return a task for the chain
+     */
+    public <R> CallTask<R> then(IContinuation<T, R> continuation) {
+        CallTask<T> parent = this;
+        return new CallTask<>(mScope, target -> parent.start(response -> {
+            Call<R> next = continuation.next(response);
+            if (next != null) {
+                mScope.enqueue(next, target);
+            }
+        }, target::deliverError, false));
+    }
+
+    /**
+     * Start the task
+     *
+     * @param listener      called with the response if it was successful
+     * @param errorListener called with a message to show the user if the response was an error
+     *                      or the call failed
+     */
+    public void enqueue(IResponseListener<T> listener, IErrorListener errorListener) {
+        start(listener, errorListener, false);
+    }
+
+    /**
+     * Start the task, handing every response to the listener including errors, e.g. when a 404
+     * or 304 is an expected answer
+     *
+     * @param listener      called with the response
+     * @param errorListener called with a message to show the user if the call failed
+     */
+    public void enqueueForAnyResponse(IResponseListener<T> listener, IErrorListener errorListener) {
+        start(listener, errorListener, true);
+    }
+
+    private void start(IResponseListener<T> listener, IErrorListener errorListener, boolean isAnyResponseDelivered) {
+        mResponseListener = listener;
+        mErrorListener = errorListener;
+        mIsAnyResponseDelivered = isAnyResponseDelivered;
+        mStarter.start(this);
+    }
+
+    private void deliverError(String message) {
+        if (mErrorListener != null) {
+            mErrorListener.onError(message);
+        }
+    }
+
+    @Override
+    public void onResponse(Call<T> call, Response<T> response) {
+        if (!mScope.untrack(call)) {
+            return;
+        }
+        if (!mIsAnyResponseDelivered && !response.isSuccessful()) {
+            deliverError(NetworkUtil.onGitHubResponseError(response));
+            return;
+        }
+        mResponseListener.onResponse(response);
+    }
+
+    @Override
+    public void onFailure(Call<T> call, Throwable t) {
+        if (!mScope.untrack(call)) {
+            return;
+        }
+        deliverError(t.getLocalizedMessage());
+    }
+
+    interface IStarter<T> {
+
+        /**
+         * Start the call, or the chain of calls, whose last response is delivered to the target
+         *
+         * @param target the task the last response is delivered to
+         */
+        void start(CallTask<T> target);
+    }
+
+    public interface IContinuation<T, R> {
+
+        /**
+         * Called with a successful response to create the call that depends on it
+         *
+         * @param response the successful response
+         * @return the next call or NULL to end the chain
+         */
+        Call<R> next(Response<T> response);
+    }
+
+    public interface IResponseListener<T> {
+
+        /**
+         * Called when a response has arrived
+         *
+         * @param response the response
+         */
+        void onResponse(Response<T> response);
+    }
+
+    public interface IErrorListener {
+
+        /**
+         * Called when the task has failed
+         *
+         * @param message a message describing the error that can be shown to the user
+         */
+        void onError(String message);
+    }
+}
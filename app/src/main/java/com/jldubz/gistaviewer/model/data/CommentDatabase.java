@@ -0,0 +1,119 @@
+package com.jldubz.gistaviewer.model.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.jldubz.gistaviewer.model.NetworkUtil;
+import com.jldubz.gistaviewer.model.gists.GistComment;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Local database holding pages of Gist Comments that have been paged out of memory.
+ * <p>
+ * Each row holds one page of comments exactly as it was returned by the GitHub API.  Each account
+ * has a database of its own, so that comments on a secret Gist are never read by another account.
+ * None of the methods should be called from the main thread.
+ *
+ * @see Account#getCommentDatabaseName()
+ */
+public class CommentDatabase extends SQLiteOpenHelper {
+
+    //Used while no account is logged in
+    public static final String ANONYMOUS_DATABASE_NAME = "comments.db";
+    private static final int DATABASE_VERSION = 1;
+
+    private static final String TABLE_PAGES = "comment_pages";
+    private static final String COLUMN_GIST_ID = "gist_id";
+    private static final String COLUMN_PAGE = "page";
+    private static final String COLUMN_COMMENTS = "comments";
+
+    private static final Type COMMENT_LIST_TYPE = new TypeToken<List<GistComment>>() {}.getType();
+
+    private final Gson mGson = NetworkUtil.createStorageGsonBuilder().create();
+
+    /**
+     * @param context any context of the app
+     * @param name    the name of the database, e.g. {@link #ANONYMOUS_DATABASE_NAME}
+     */
+    public CommentDatabase(Context context, String name) {
+        super(context.getApplicationContext(), name, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_PAGES + " ("
+                + COLUMN_GIST_ID + " TEXT NOT NULL, "
+                + COLUMN_PAGE + " INTEGER NOT NULL, "
+                + COLUMN_COMMENTS + " TEXT NOT NULL, "
+                + "PRIMARY KEY (" + COLUMN_GIST_ID + ", " + COLUMN_PAGE + "))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        //The table only holds pages that can be downloaded again, so just start over
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_PAGES);
+        onCreate(db);
+    }
+
+    /**
+     * Store a page of comments, replacing any copy of the same page
+     *
+     * @param gistId   the ID of the Gist the comments belong to
+     * @param page     the number of the page
+     * @param comments the comments on the page
+     * @return TRUE if the page was stored, FALSE if not
+     */
+    public boolean savePage(String gistId, int page, List<GistComment> comments) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_GIST_ID, gistId);
+        values.put(COLUMN_PAGE, page);
+        values.put(COLUMN_COMMENTS, mGson.toJson(comments, COMMENT_LIST_TYPE));
+        try {
+            return getWritableDatabase().insertWithOnConflict(TABLE_PAGES, null, values, SQLiteDatabase.CONFLICT_REPLACE) >= 0;
+        } catch (SQLiteException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Read a page of comments that was previously stored
+     *
+     * @param gistId the ID of the Gist the comments belong to
+     * @param page   the number of the page
+     * @return the comments on the page or NULL if the page could not be read
+     */
+    public List<GistComment> loadPage(String gistId, int page) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_PAGES, new String[]{COLUMN_COMMENTS},
+                COLUMN_GIST_ID + " = ? AND " + COLUMN_PAGE + " = ?",
+                new String[]{gistId, String.valueOf(page)}, null, null, null)) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return mGson.fromJson(cursor.getString(0), COMMENT_LIST_TYPE);
+        } catch (SQLiteException | JsonParseException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Remove every page stored for a Gist
+     *
+     * @param gistId the ID of the Gist
+     */
+    public void deletePages(String gistId) {
+        try {
+            getWritableDatabase().delete(TABLE_PAGES, COLUMN_GIST_ID + " = ?", new String[]{gistId});
+        } catch (SQLiteException exception) {
+            //Nothing to clean up if the database can't be opened
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.jldubz.gistaviewer.model.data;
+
+import android.os.Handler;
+
+import com.jldubz.gistaviewer.model.gists.GistComment;
+import com.jldubz.gistaviewer.model.text.CommentTextPrecomputer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads the pages of a Gist's comments into a CommentPageStore in either direction.
+ * <p>
+ * Loading starts from an anchor: the newest comments, the oldest comments or a given page.  Since
+ * the page holding any position is known from the number of the last page, reaching the anchor
+ * costs a single request no matter how long the thread is.  From there, the visible pages are
+ * loaded, and the two pages ahead of the viewport are loaded once the user scrolls towards them.
+ * Pages that are still in memory or were paged out to the local database are reused instead of
+ * being downloaded again.
+ * <p>
+ * All methods must be called from the main thread, and all listener calls are made on it.
+ */
+public class CommentPageLoader {
+
+    public static final int ANCHOR_NEWEST = 0;
+    public static final int ANCHOR_OLDEST = 1;
+    public static final int ANCHOR_PAGE = 2;
+
+    private final CommentPageStore mStore;
+    private final CommentTextPrecomputer mTextPrecomputer;
+    private final Handler mMainHandler;
+    private final IPageDownloader mDownloader;
+    private final ILoaderListener mListener;
+
+    private final Set<Integer> mLoadingPages = new HashSet<>();
+    private int mAnchor = ANCHOR_NEWEST;
+    private int mAnchorPage;
+    private boolean mIsAnchorReached;
+    private int mLastFirstPosition = -1;
+    private boolean mIsReleased;
+
+    /**
+     * @param store           the store the loaded pages are added to
+     * @param textPrecomputer prepares the comment bodies of each page before it is added
+     * @param mainHandler     a handler for the main thread
+     * @param downloader      downloads pages that are not available locally
+     * @param listener        notified of every change to the store
+     */
+    public CommentPageLoader(CommentPageStore store, CommentTextPrecomputer textPrecomputer,
+                             Handler mainHandler, IPageDownloader downloader, ILoaderListener listener) {
+        mStore = store;
+        mTextPrecomputer = textPrecomputer;
+        mMainHandler = mainHandler;
+        mDownloader = downloader;
+        mListener = listener;
+    }
+
+    /**
+     * Set the number of the last page of comments and start loading from the current anchor
+     *
+     * @param lastPage the number of the last page
+     */
+    public void setLastPage(int lastPage) {
+        mStore.setLastPage(lastPage);
+        start(mAnchor, mAnchorPage);
+    }
+
+    /**
+     * Start loading comments from a new anchor.  The newest and oldest anchors also change the
+     * order of the list so that the anchor is at the top.
+     *
+     * @param anchor one of {@link #ANCHOR_NEWEST}, {@link #ANCHOR_OLDEST} or {@link #ANCHOR_PAGE}
+     * @param page   the number of the page to start from when the anchor is a page
+     */
+    public void start(int anchor, int page) {
+        mAnchor = anchor;
+        mAnchorPage = page;
+        mIsAnchorReached = false;
+        mLastFirstPosition = -1;
+
+        //Wait for the number of pages to be known
+        int lastPage = mStore.getLastPage();
+        if (lastPage <= 0) {
+            return;
+        }
+
+        if (anchor != ANCHOR_PAGE && mStore.isNewestFirst() != (anchor == ANCHOR_NEWEST)) {
+            mListener.onCommentsChanged(mStore.setNewestFirst(anchor == ANCHOR_NEWEST));
+        }
+        if (anchor == ANCHOR_NEWEST) {
+            mAnchorPage = lastPage;
+        } else if (anchor == ANCHOR_OLDEST) {
+            mAnchorPage = 1;
+        } else {
+            mAnchorPage = Math.min(Math.max(page, 1), lastPage);
+        }
+
+        loadPage(mAnchorPage);
+        //Positions are counted from the newest comment when the list is newest first, so the
+        // last page is needed to place any other page
+        if (mStore.isNewestFirst()) {
+            loadPage(lastPage);
+        }
+        checkAnchor();
+    }
+
+    /**
+     * Called when the range of visible comments has changed.  The visible pages are loaded, and
+     * once the user has scrolled, the two pages ahead in the direction of the scroll.  Until then
+     * nothing else is loaded, so showing the anchor doesn't cost a page the user may never see.
+     * Pages far from the viewport are paged out of memory.
+     *
+     * @param firstVisiblePosition the position of the first visible comment
+     * @param lastVisiblePosition  the position of the last visible comment
+     */
+    public void onViewportChanged(int firstVisiblePosition, int lastVisiblePosition) {
+        if (mStore.getCount() == 0 || firstVisiblePosition < 0 || lastVisiblePosition < 0) {
+            return;
+        }
+
+        int firstPage = mStore.getPageForPosition(firstVisiblePosition);
+        int lastPage = mStore.getPageForPosition(lastVisiblePosition);
+        int oldestVisiblePage = Math.min(firstPage, lastPage);
+        int newestVisiblePage = Math.max(firstPage, lastPage);
+        for (int page = oldestVisiblePage; page <= newestVisiblePage; page++) {
+            loadPage(page);
+        }
+
+        //Scrolling down the list moves towards older pages when it is newest first
+        if (mLastFirstPosition >= 0 && firstVisiblePosition != mLastFirstPosition) {
+            boolean isScrollingDown = firstVisiblePosition > mLastFirstPosition;
+            if (isScrollingDown == mStore.isNewestFirst()) {
+                loadPage(oldestVisiblePage - 1);
+                loadPage(oldestVisiblePage - 2);
+            } else {
+                loadPage(newestVisiblePage + 1);
+                loadPage(newestVisiblePage + 2);
+            }
+        }
+        mLastFirstPosition = firstVisiblePosition;
+
+        mStore.trimToWindow(oldestVisiblePage, newestVisiblePage);
+    }
+
+    /**
+     * Replace the newest pages of comments with a fresh copy, e.g. after polling for new comments.
+     * The comment bodies are prepared off the main thread first.
+     *
+     * @param pages    the pages that were downloaded, which must include the last page
+     * @param lastPage the number of the last page
+     */
+    public void putNewestPages(Map<Integer, List<GistComment>> pages, int lastPage) {
+        List<GistComment> comments = new ArrayList<>();
+        for (List<GistComment> pageComments : pages.values()) {
+            comments.addAll(pageComments);
+        }
+        mTextPrecomputer.precompute(comments, () -> mMainHandler.post(() -> {
+            if (mIsReleased) {
+                return;
+            }
+            mListener.onCommentsChanged(mStore.putNewestPages(pages, lastPage));
+        }));
+    }
+
+    /**
+     * Stop delivering pages, e.g. when the store is replaced by the store of another Gist.
+     * Pages that are still being loaded are dropped when they arrive.
+     */
+    public void release() {
+        mIsReleased = true;
+    }
+
+    /**
+     * Make a page of comments available in memory, restoring it from the local database if it was
+     * paged out or downloading it otherwise
+     *
+     * @param page the number of the page to load
+     */
+    private void loadPage(int page) {
+        if (mIsReleased || page < 1 || page > mStore.getLastPage() || mStore.isPageLoaded(page)
+                || !mLoadingPages.add(page)) {
+            return;
+        }
+
+        if (!mStore.isPagePersisted(page)) {
+            downloadPage(page);
+            return;
+        }
+
+        mStore.restorePage(page, comments -> {
+            if (comments != null) {
+                onPageLoaded(page, comments);
+                return;
+            }
+            //Download the page again if it couldn't be read back
+            mMainHandler.post(() -> {
+                mStore.forgetPersistedPage(page);
+                mLoadingPages.remove(page);
+                loadPage(page);
+            });
+        });
+    }
+
+    private void downloadPage(int page) {
+        mDownloader.downloadPage(page, new IDownloadCallback() {
+            @Override
+            public void onDownloaded(List<GistComment> comments) {
+                onPageLoaded(page, comments);
+            }
+
+            @Override
+            public void onFailed() {
+                mLoadingPages.remove(page);
+            }
+        });
+    }
+
+    /**
+     * Called when a page of comments has been downloaded or restored.  The comment bodies are
+     * prepared off the main thread before the page is added to the store.
+     *
+     * @param page     the number of the page
+     * @param comments the comments on the page, oldest first
+     */
+    private void onPageLoaded(int page, List<GistComment> comments) {
+        mTextPrecomputer.precompute(comments, () -> mMainHandler.post(() -> {
+            mLoadingPages.remove(page);
+            if (mIsReleased) {
+                return;
+            }
+            mListener.onCommentsChanged(mStore.putPage(page, comments));
+            checkAnchor();
+        }));
+    }
+
+    /**
+     * Tell the listener where the anchor is once it can be displayed
+     */
+    private void checkAnchor() {
+        if (mIsAnchorReached || mStore.getCount() == 0 || !mStore.isPageLoaded(mAnchorPage)) {
+            return;
+        }
+        mIsAnchorReached = true;
+        mListener.onAnchorLoaded(mStore.getPositionForPage(mAnchorPage));
+    }
+
+    public interface IPageDownloader {
+
+        /**
+         * Called when a page of comments needs to be downloaded
+         *
+         * @param page     the number of the page
+         * @param callback to be called on the main thread once the download has finished
+         */
+        void downloadPage(int page, IDownloadCallback callback);
+    }
+
+    public interface IDownloadCallback {
+
+        /**
+         * Called when a page has been downloaded
+         *
+         * @param comments the comments on the page, oldest first
+         */
+        void onDownloaded(List<GistComment> comments);
+
+        /**
+         * Called when a page could not be downloaded
+         */
+        void onFailed();
+    }
+
+    public interface ILoaderListener {
+
+        /**
+         * Called when the comments in the store have changed
+         *
+         * @param change the change that was made
+         */
+        void onCommentsChanged(CommentPageStore.Change change);
+
+        /**
+         * Called once the page the loader was started from can be displayed
+         *
+         * @param position the position of the first comment of the page
+         */
+        void onAnchorLoaded(int position);
+    }
+}
@@ -0,0 +1,432 @@
+package com.jldubz.gistaviewer.model.data;
+
+import com.jldubz.gistaviewer.model.gists.GistComment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Windowed store for the comments of a single Gist.
+ * <p>
+ * Comments are addressed by their position in the list shown to the user, which is either newest
+ * or oldest first.  Because every page but the last one holds exactly {@link #PAGE_SIZE} comments,
+ * the page holding any position can be computed from the number of the last page alone, so any
+ * part of the thread can be reached without walking the pages in between.
+ * <p>
+ * Only pages near the viewport are kept in memory; the rest are paged out to a
+ * {@link CommentDatabase}.  The last page is always kept because new comments are added to it.
+ * The state of the store must only be read and changed from the main thread.
+ */
+public class CommentPageStore {
+
+    /**
+     * The number of comments requested per page
+     */
+    public static final int PAGE_SIZE = 30;
+
+    private final String mGistId;
+    private final CommentDatabase mDatabase;
+    private final Executor mExecutor;
+    private final int mWindowPages;
+
+    private final Map<Integer, List<GistComment>> mPages = new HashMap<>();
+    private final Set<Integer> mPersistedPages = new HashSet<>();
+    private int mLastPage;
+    private int mLastPageSize;
+    private boolean mIsNewestFirst = true;
+
+    /**
+     * @param gistId      the ID of the Gist whose comments are stored
+     * @param database    the database pages are written to when they leave memory
+     * @param executor    the background executor used for all database work
+     * @param windowPages the number of pages kept in memory on either side of the viewport
+     */
+    public CommentPageStore(String gistId, CommentDatabase database, Executor executor, int windowPages) {
+        mGistId = gistId;
+        mDatabase = database;
+        mExecutor = executor;
+        mWindowPages = windowPages;
+
+        //Drop any pages left over from the last time this Gist was opened
+        mExecutor.execute(() -> mDatabase.deletePages(mGistId));
+    }
+
+    public String getGistId() {
+        return mGistId;
+    }
+
+    /**
+     * Set the number of the last page of comments, as read from the Link header
+     *
+     * @param lastPage the number of the last page
+     */
+    public void setLastPage(int lastPage) {
+        mLastPage = lastPage;
+    }
+
+    public int getLastPage() {
+        return mLastPage;
+    }
+
+    public boolean isNewestFirst() {
+        return mIsNewestFirst;
+    }
+
+    /**
+     * Set the order the comments are listed in.  Every position changes, so the whole list has to
+     * be refreshed.
+     *
+     * @param isNewestFirst TRUE to list the newest comment first, FALSE to list the oldest first
+     * @return the change to the list of comments
+     */
+    public Change setNewestFirst(boolean isNewestFirst) {
+        mIsNewestFirst = isNewestFirst;
+        int count = getCount();
+        return new Change(Change.RESET, 0, count, count);
+    }
+
+    /**
+     * Get the total number of comments on the Gist.
+     * <p>
+     * When listing newest first the count is only known once the last page has been loaded, since
+     * every position is counted from the newest comment.  When listing oldest first the rows of
+     * every full page can be shown before the last page has been loaded.
+     *
+     * @return the number of comments that can be listed
+     */
+    public int getCount() {
+        if (mLastPage <= 0) {
+            return 0;
+        }
+        if (!mPages.containsKey(mLastPage)) {
+            return mIsNewestFirst ? 0 : (mLastPage - 1) * PAGE_SIZE;
+        }
+        return (mLastPage - 1) * PAGE_SIZE + mLastPageSize;
+    }
+
+    /**
+     * Get the number of the page that holds a position in the list
+     *
+     * @param position the position in the list
+     * @return the number of the page
+     */
+    public int getPageForPosition(int position) {
+        return Math.max(toIndex(position), 0) / PAGE_SIZE + 1;
+    }
+
+    /**
+     * Get the position of the first comment of a page in the order the list is read
+     *
+     * @param page the number of the page
+     * @return the position in the list
+     */
+    public int getPositionForPage(int page) {
+        int firstIndex = (page - 1) * PAGE_SIZE;
+        if (!mIsNewestFirst) {
+            return firstIndex;
+        }
+        int pageSize = page == mLastPage ? mLastPageSize : PAGE_SIZE;
+        return Math.max(toPosition(firstIndex + pageSize - 1), 0);
+    }
+
+    /**
+     * Get the comment at a position in the list
+     *
+     * @param position the position in the list
+     * @return the comment or NULL if its page is not in memory
+     */
+    public GistComment getComment(int position) {
+        int index = toIndex(position);
+        if (index < 0) {
+            return null;
+        }
+        List<GistComment> comments = mPages.get(index / PAGE_SIZE + 1);
+        int offset = index % PAGE_SIZE;
+        if (comments == null || offset >= comments.size()) {
+            return null;
+        }
+        return comments.get(offset);
+    }
+
+    /**
+     * Check if a page is held in memory
+     *
+     * @param page the number of the page
+     * @return TRUE if the comments on the page can be displayed right away
+     */
+    public boolean isPageLoaded(int page) {
+        return mPages.containsKey(page);
+    }
+
+    /**
+     * Check if a page has been paged out to the database
+     *
+     * @param page the number of the page
+     * @return TRUE if the page can be restored without downloading it
+     */
+    public boolean isPagePersisted(int page) {
+        return mPersistedPages.contains(page);
+    }
+
+    /**
+     * Add a page of comments to memory
+     *
+     * @param page     the number of the page
+     * @param comments the comments on the page, oldest first
+     * @return the change to the list of comments
+     */
+    public Change putPage(int page, List<GistComment> comments) {
+        return putPage(page, comments, getCount());
+    }
+
+    /**
+     * Add a page of comments to memory
+     *
+     * @param page     the number of the page
+     * @param comments the comments on the page, oldest first
+     * @param oldCount the number of comments before the page was added
+     * @return the change to the list of comments
+     */
+    private Change putPage(int page, List<GistComment> comments, int oldCount) {
+        mPages.put(page, new ArrayList<>(comments));
+        if (page == mLastPage) {
+            mLastPageSize = comments.size();
+        }
+
+        int firstIndex = (page - 1) * PAGE_SIZE;
+        return createChange(oldCount, firstIndex, firstIndex + Math.max(comments.size(), 1) - 1);
+    }
+
+    /**
+     * Replace the newest pages of comments after polling for changes.  The number of the last
+     * page may have grown as comments were added or shrunk as they were deleted.
+     *
+     * @param pages    the pages that were downloaded, which must include the last page
+     * @param lastPage the number of the last page
+     * @return the change to the list of comments
+     */
+    public Change putNewestPages(Map<Integer, List<GistComment>> pages, int lastPage) {
+        int oldCount = getCount();
+
+        //Forget pages that no longer exist
+        Iterator<Integer> iterator = mPages.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() > lastPage) {
+                iterator.remove();
+            }
+        }
+        iterator = mPersistedPages.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() > lastPage) {
+                iterator.remove();
+            }
+        }
+
+        mLastPage = lastPage;
+        int firstPage = lastPage;
+        for (Map.Entry<Integer, List<GistComment>> entry : pages.entrySet()) {
+            mPages.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            mPersistedPages.remove(entry.getKey());
+            firstPage = Math.min(firstPage, entry.getKey());
+        }
+        List<GistComment> lastPageComments = mPages.get(lastPage);
+        mLastPageSize = lastPageComments != null ? lastPageComments.size() : 0;
+
+        return createChange(oldCount, (firstPage - 1) * PAGE_SIZE, getCount() - 1);
+    }
+
+    /**
+     * Describe the change to the list after comments were stored
+     *
+     * @param oldCount   the number of comments before they were stored
+     * @param firstIndex the index of the first comment stored, counted from the oldest comment
+     * @param lastIndex  the index of the last comment stored, counted from the oldest comment
+     * @return the change to the list of comments
+     */
+    private Change createChange(int oldCount, int firstIndex, int lastIndex) {
+        int newCount = getCount();
+        if (oldCount == 0 || newCount < oldCount) {
+            return new Change(Change.RESET, 0, newCount, newCount);
+        }
+        if (newCount > oldCount) {
+            //Comments were added to the end of the last page, which is the top of the list when
+            // it is newest first and the bottom when it is oldest first
+            int insertedCount = newCount - oldCount;
+            return new Change(Change.INSERTED, mIsNewestFirst ? 0 : oldCount, insertedCount, newCount);
+        }
+        lastIndex = Math.min(lastIndex, newCount - 1);
+        if (lastIndex < firstIndex) {
+            return new Change(Change.CHANGED, 0, 0, newCount);
+        }
+        int firstPosition = Math.min(toPosition(firstIndex), toPosition(lastIndex));
+        int lastPosition = Math.max(toPosition(firstIndex), toPosition(lastIndex));
+        return new Change(Change.CHANGED, firstPosition, lastPosition - firstPosition + 1, newCount);
+    }
+
+    /**
+     * Add a comment that was just created to the end of the last page
+     *
+     * @param comment the new comment
+     * @return the change to the list of comments
+     */
+    public Change addNewestComment(GistComment comment) {
+        int oldCount = getCount();
+        if (mLastPage > 0 && !mPages.containsKey(mLastPage)) {
+            //The rest of the last page isn't known yet; the comment will be on it once it loads
+            return new Change(Change.CHANGED, 0, 0, oldCount);
+        }
+        if (mLastPage <= 0) {
+            mLastPage = 1;
+        }
+        List<GistComment> lastPage = mPages.get(mLastPage);
+        if (lastPage != null && lastPage.size() >= PAGE_SIZE) {
+            //The last page is full, so the comment starts a new page
+            mLastPage++;
+            lastPage = null;
+        }
+
+        List<GistComment> comments = new ArrayList<>();
+        if (lastPage != null) {
+            comments.addAll(lastPage);
+        }
+        comments.add(comment);
+        return putPage(mLastPage, comments, oldCount);
+    }
+
+    /**
+     * Page out every page that is not within the window around the visible pages
+     *
+     * @param oldestVisiblePage the lowest page number that is visible
+     * @param newestVisiblePage the highest page number that is visible
+     */
+    public void trimToWindow(int oldestVisiblePage, int newestVisiblePage) {
+        int firstKeptPage = oldestVisiblePage - mWindowPages;
+        int lastKeptPage = newestVisiblePage + mWindowPages;
+
+        Iterator<Map.Entry<Integer, List<GistComment>>> iterator = mPages.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, List<GistComment>> entry = iterator.next();
+            int page = entry.getKey();
+            if (page == mLastPage || page >= firstKeptPage && page <= lastKeptPage) {
+                continue;
+            }
+            if (mPersistedPages.add(page)) {
+                List<GistComment> comments = entry.getValue();
+                mExecutor.execute(() -> mDatabase.savePage(mGistId, page, comments));
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Read a page that was paged out back from the database.  Since the database work is done on
+     * the same executor that wrote the page, the page is always written before it is read.
+     *
+     * @param page     the number of the page
+     * @param listener called on the background executor with the comments or NULL if the page
+     *                 could not be read
+     */
+    public void restorePage(int page, IPageRestoredListener listener) {
+        mExecutor.execute(() -> listener.onPageRestored(mDatabase.loadPage(mGistId, page)));
+    }
+
+    /**
+     * Forget that a page was paged out, e.g. when it could not be read back from the database
+     *
+     * @param page the number of the page
+     */
+    public void forgetPersistedPage(int page) {
+        mPersistedPages.remove(page);
+    }
+
+    /**
+     * Convert a position in the list into the index of a comment counted from the oldest comment
+     *
+     * @param position the position in the list
+     * @return the index of the comment
+     */
+    private int toIndex(int position) {
+        return mIsNewestFirst ? getCount() - 1 - position : position;
+    }
+
+    /**
+     * Convert the index of a comment counted from the oldest comment into a position in the list
+     *
+     * @param index the index of the comment
+     * @return the position in the list
+     */
+    private int toPosition(int index) {
+        return mIsNewestFirst ? getCount() - 1 - index : index;
+    }
+
+    /**
+     * Remove every comment from memory and the database
+     */
+    public void clear() {
+        mPages.clear();
+        mPersistedPages.clear();
+        mLastPage = 0;
+        mLastPageSize = 0;
+        mExecutor.execute(() -> mDatabase.deletePages(mGistId));
+    }
+
+    public interface IPageRestoredListener {
+
+        /**
+         * Called when a page has been read back from the database
+         *
+         * @param comments the comments on the page or NULL if it could not be read
+         */
+        void onPageRestored(List<GistComment> comments);
+    }
+
+    /**
+     * Describes how the list of comments changed so that an adapter can animate only the
+     * affected rows
+     */
+    public static class Change {
+
+        public static final int RESET = 0;
+        public static final int INSERTED = 1;
+        public static final int CHANGED = 2;
+
+        private final int mType;
+        private final int mPositionStart;
+        private final int mItemCount;
+        private final int mTotalCount;
+
+        Change(int type, int positionStart, int itemCount, int totalCount) {
+            mType = type;
+            mPositionStart = positionStart;
+            mItemCount = itemCount;
+            mTotalCount = totalCount;
+        }
+
+        public int getType() {
+            return mType;
+        }
+
+        public int getPositionStart() {
+            return mPositionStart;
+        }
+
+        public int getItemCount() {
+            return mItemCount;
+        }
+
+        /**
+         * Get the number of comments in the list after the change
+         *
+         * @return the total number of comments
+         */
+        public int getTotalCount() {
+            return mTotalCount;
+        }
+    }
+}
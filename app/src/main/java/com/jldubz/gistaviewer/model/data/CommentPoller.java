@@ -0,0 +1,219 @@
+package com.jldubz.gistaviewer.model.data;
+
+import android.os.Handler;
+
+import com.jldubz.gistaviewer.model.NetworkUtil;
+import com.jldubz.gistaviewer.model.gists.GistComment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Polls the last page of a Gist's comments so that new comments show up while the Gist is open.
+ * <p>
+ * Each poll sends the ETag of the last copy of the page in an If-None-Match header, so a poll that
+ * finds nothing new is answered with an empty 304 that does not count against the rate limit.
+ * The time between polls doubles every time nothing has changed and drops back to the minimum as
+ * soon as something has.
+ * <p>
+ * All methods must be called from the main thread.
+ */
+public class CommentPoller {
+
+    private static final long MIN_POLL_INTERVAL_MS = 15 * 1000;
+    private static final long MAX_POLL_INTERVAL_MS = 5 * 60 * 1000;
+
+    private final String mGistId;
+    private final CommentPageStore mStore;
+    private final CommentPageLoader mLoader;
+    private final Handler mMainHandler;
+    private final Runnable mPollRunnable = this::poll;
+    private IGitHubService mGitHubService;
+
+    private long mPollInterval = MIN_POLL_INTERVAL_MS;
+    private boolean mIsRunning;
+    private final CallScope mCalls = new CallScope();
+    private String mETag;
+    private int mETagPage;
+
+    /**
+     * @param gistId        the ID of the Gist whose comments are polled
+     * @param store         the store holding the comments of the Gist
+     * @param loader        the loader new comments are handed to
+     * @param mainHandler   a handler for the main thread
+     * @param gitHubService the service used to poll
+     */
+    public CommentPoller(String gistId, CommentPageStore store, CommentPageLoader loader,
+                         Handler mainHandler, IGitHubService gitHubService) {
+        mGistId = gistId;
+        mStore = store;
+        mLoader = loader;
+        mMainHandler = mainHandler;
+        mGitHubService = gitHubService;
+    }
+
+    /**
+     * Set the service used to poll, e.g. after the user's credentials have changed.  ETags are
+     * tied to the credentials used, so the next poll downloads the page again.
+     *
+     * @param gitHubService the service used to poll
+     */
+    public void setGitHubService(IGitHubService gitHubService) {
+        mGitHubService = gitHubService;
+        mETag = null;
+    }
+
+    /**
+     * Remember the ETag of a page of comments that was downloaded elsewhere, so that the first
+     * poll of the last page doesn't download it again
+     *
+     * @param page the number of the page
+     * @param eTag the ETag header of the response or NULL if there was none
+     */
+    public void onPageDownloaded(int page, String eTag) {
+        if (eTag != null && page == mStore.getLastPage()) {
+            mETag = eTag;
+            mETagPage = page;
+        }
+    }
+
+    /**
+     * Start polling, e.g. when the Gist becomes visible.  The first poll is made after the
+     * minimum interval.
+     */
+    public void start() {
+        if (mIsRunning) {
+            return;
+        }
+        mIsRunning = true;
+        mPollInterval = MIN_POLL_INTERVAL_MS;
+        scheduleNextPoll();
+    }
+
+    public boolean isRunning() {
+        return mIsRunning;
+    }
+
+    /**
+     * Stop polling and cancel any poll in flight, e.g. when the Gist is no longer visible
+     */
+    public void stop() {
+        mIsRunning = false;
+        mMainHandler.removeCallbacks(mPollRunnable);
+        mCalls.cancelAll();
+    }
+
+    private void scheduleNextPoll() {
+        if (mIsRunning) {
+            mMainHandler.postDelayed(mPollRunnable, mPollInterval);
+        }
+    }
+
+    /**
+     * Poll the last page of comments, sending the ETag of the last copy when there is one
+     */
+    private void poll() {
+        int page = mStore.getLastPage();
+        //Wait for the comments to be loaded for the first time
+        if (page <= 0) {
+            scheduleNextPoll();
+            return;
+        }
+
+        String eTag = page == mETagPage ? mETag : null;
+        //A 304 is the expected answer, so every response is handled here
+        mCalls.call(mGitHubService.getGistCommentsIfChanged(mGistId, page, CommentPageStore.PAGE_SIZE, eTag)).enqueueForAnyResponse(response -> {
+            if (!mIsRunning) {
+                return;
+            }
+
+            if (response.code() == 304) {
+                //Nothing has changed, so wait longer before asking again
+                mPollInterval = Math.min(mPollInterval * 2, MAX_POLL_INTERVAL_MS);
+                scheduleNextPoll();
+                return;
+            }
+            if (!response.isSuccessful()) {
+                //Polling happens in the background, so errors are not shown to the user
+                mPollInterval = MAX_POLL_INTERVAL_MS;
+                scheduleNextPoll();
+                return;
+            }
+
+            List<GistComment> comments = response.body();
+            if (comments == null) {
+                comments = new ArrayList<>();
+            }
+            int lastPage = Math.max(NetworkUtil.getLinkedPage(response.headers().get("Link"), "last"), page);
+            if (lastPage > page) {
+                //The page filled up, so the newest comments are on a new last page
+                pollNewLastPage(page, comments, lastPage);
+                return;
+            }
+
+            Map<Integer, List<GistComment>> pages = new HashMap<>();
+            pages.put(page, comments);
+            onPollChanged(pages, lastPage, response.headers().get("ETag"));
+        }, message -> onPollFailed());
+    }
+
+    /**
+     * Download the new last page after the page that was polled filled up
+     *
+     * @param polledPage     the number of the page that was polled
+     * @param polledComments the comments on the page that was polled
+     * @param lastPage       the number of the new last page
+     */
+    private void pollNewLastPage(int polledPage, List<GistComment> polledComments, int lastPage) {
+        mCalls.call(mGitHubService.getGistCommentsIfChanged(mGistId, lastPage, CommentPageStore.PAGE_SIZE, null)).enqueueForAnyResponse(response -> {
+            if (!mIsRunning) {
+                return;
+            }
+            if (!response.isSuccessful()) {
+                mPollInterval = MAX_POLL_INTERVAL_MS;
+                scheduleNextPoll();
+                return;
+            }
+
+            List<GistComment> comments = response.body();
+            if (comments == null) {
+                comments = new ArrayList<>();
+            }
+            //Any pages in between are loaded when they are scrolled to
+            Map<Integer, List<GistComment>> pages = new HashMap<>();
+            pages.put(polledPage, polledComments);
+            pages.put(lastPage, comments);
+            onPollChanged(pages, lastPage, response.headers().get("ETag"));
+        }, message -> onPollFailed());
+    }
+
+    /**
+     * Called when a poll could not reach the GitHub API, e.g. while the device is offline
+     */
+    private void onPollFailed() {
+        if (!mIsRunning) {
+            return;
+        }
+        mPollInterval = Math.min(mPollInterval * 2, MAX_POLL_INTERVAL_MS);
+        scheduleNextPoll();
+    }
+
+    /**
+     * Called when a poll found that the newest comments have changed
+     *
+     * @param pages    the pages that were downloaded
+     * @param lastPage the number of the last page
+     * @param eTag     the ETag of the last page
+     */
+    private void onPollChanged(Map<Integer, List<GistComment>> pages, int lastPage, String eTag) {
+        mETag = eTag;
+        mETagPage = lastPage;
+        mLoader.putNewestPages(pages, lastPage);
+
+        //Comments are being posted, so check again soon
+        mPollInterval = MIN_POLL_INTERVAL_MS;
+        scheduleNextPoll();
+    }
+}
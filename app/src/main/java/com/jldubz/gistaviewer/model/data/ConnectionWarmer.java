@@ -0,0 +1,242 @@
+package com.jldubz.gistaviewer.model.data;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Opens connections to the hosts the app talks to before anything needs them, so the first
+ * request to each host doesn't wait for DNS, TCP and TLS.
+ * <p>
+ * A warm-up is a HEAD request whose response is closed straight away, which leaves its
+ * connection idle in the client's pool for any client that shares the pool to reuse.  HTTP/2 is
+ * negotiated during the TLS handshake, so one connection per host serves every request after it.
+ * <p>
+ * {@link #getEventListenerFactory()} must be set on the clients whose first requests should be
+ * measured.  It records how long the warm-up took to get a connection for each host and how long
+ * the first real request to that host took, which is the time the warm-up saved it.
+ */
+public class ConnectionWarmer {
+
+    private final Map<String, HostTiming> mHostTimings = new LinkedHashMap<>();
+
+    private final EventListener.Factory mEventListenerFactory = call -> new CallTimer();
+
+    public EventListener.Factory getEventListenerFactory() {
+        return mEventListenerFactory;
+    }
+
+    /**
+     * Start opening a connection to the host of each URL in the background.  Failures are ignored,
+     * since the first real request will simply connect itself.
+     *
+     * @param client the client whose pool the connections go into
+     * @param urls   a URL on each host, ideally one that is cheap to request
+     */
+    public void warmUp(OkHttpClient client, String... urls) {
+        for (String url : urls) {
+            Request request = new Request.Builder()
+                    .url(url)
+                    .head()
+                    .tag(ConnectionWarmer.class, this)
+                    .build();
+            client.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    //The connection is opened before the response, so there is nothing to do
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    //Closing the response releases the connection back to the pool
+                    response.close();
+                }
+            });
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (mHostTimings.isEmpty()) {
+            return "no connections";
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, HostTiming> entry : mHostTimings.entrySet()) {
+            if (builder.length() > 0) {
+                builder.append("; ");
+            }
+            builder.append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Record the time a call took to get a connection
+     *
+     * @param host          the host the call was made to
+     * @param isWarmUp      TRUE if the call was made by {@link #warmUp(OkHttpClient, String...)}
+     * @param isReused      TRUE if the connection came from the pool
+     * @param acquireMillis the time from the start of the call until it had a connection
+     * @param dnsMillis     the part of that time spent looking up the host
+     * @param connectMillis the part of that time spent opening the socket, including TLS
+     * @param tlsMillis     the part of that time spent on the TLS handshake
+     * @param protocol      the protocol negotiated for the connection
+     */
+    private synchronized void onConnectionAcquired(String host, boolean isWarmUp, boolean isReused,
+                                                   double acquireMillis, double dnsMillis,
+                                                   double connectMillis, double tlsMillis,
+                                                   Protocol protocol) {
+        HostTiming timing = mHostTimings.get(host);
+        if (timing == null) {
+            timing = new HostTiming();
+            mHostTimings.put(host, timing);
+        }
+
+        if (isWarmUp) {
+            if (timing.mWarmUpMillis < 0 && !isReused) {
+                timing.mWarmUpMillis = acquireMillis;
+                timing.mDnsMillis = dnsMillis;
+                timing.mConnectMillis = connectMillis;
+                timing.mTlsMillis = tlsMillis;
+                timing.mProtocol = protocol;
+            }
+            return;
+        }
+
+        //Only the first request to each host can be sped up by warming up
+        if (timing.mFirstRequestMillis < 0) {
+            timing.mFirstRequestMillis = acquireMillis;
+            timing.mIsFirstRequestReused = isReused;
+        }
+    }
+
+    /**
+     * The time taken to get a connection to one host, both by the warm-up and by the first real
+     * request
+     */
+    private static class HostTiming {
+
+        private double mWarmUpMillis = -1;
+        private double mDnsMillis;
+        private double mConnectMillis;
+        private double mTlsMillis;
+        private Protocol mProtocol;
+        private double mFirstRequestMillis = -1;
+        private boolean mIsFirstRequestReused;
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            if (mWarmUpMillis >= 0) {
+                builder.append(String.format(Locale.US, "warmed up in %.0f ms (dns %.0f, connect %.0f incl. tls %.0f, %s)",
+                        mWarmUpMillis, mDnsMillis, mConnectMillis, mTlsMillis, mProtocol));
+            } else {
+                builder.append("not warmed up");
+            }
+
+            if (mFirstRequestMillis < 0) {
+                return builder.append(", no request yet").toString();
+            }
+            builder.append(String.format(Locale.US, ", first request got a %s connection in %.1f ms",
+                    mIsFirstRequestReused ? "pooled" : "new", mFirstRequestMillis));
+            if (mIsFirstRequestReused && mWarmUpMillis >= 0) {
+                builder.append(String.format(Locale.US, ", saving %.0f ms", Math.max(0, mWarmUpMillis - mFirstRequestMillis)));
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Times the steps one call takes to get a connection.  OkHttp creates one for each call and
+     * calls it from one thread at a time.
+     */
+    private class CallTimer extends EventListener {
+
+        private long mCallStartNanos;
+        private long mDnsStartNanos;
+        private long mDnsNanos;
+        private long mConnectStartNanos;
+        private long mConnectNanos;
+        private long mTlsStartNanos;
+        private long mTlsNanos;
+        private boolean mIsConnected;
+        private boolean mIsAcquired;
+
+        @Override
+        public void callStart(Call call) {
+            mCallStartNanos = System.nanoTime();
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            mDnsStartNanos = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            mDnsNanos += System.nanoTime() - mDnsStartNanos;
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            mConnectStartNanos = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            mTlsStartNanos = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            mTlsNanos += System.nanoTime() - mTlsStartNanos;
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            mConnectNanos += System.nanoTime() - mConnectStartNanos;
+            mIsConnected = true;
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                                  Protocol protocol, IOException ioe) {
+            mConnectNanos += System.nanoTime() - mConnectStartNanos;
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            //Redirects and retries acquire connections again, but only the first one is waited on
+            if (mIsAcquired) {
+                return;
+            }
+            mIsAcquired = true;
+
+            Request request = call.request();
+            onConnectionAcquired(request.url().host(), request.tag(ConnectionWarmer.class) != null,
+                    !mIsConnected, toMillis(System.nanoTime() - mCallStartNanos), toMillis(mDnsNanos),
+                    toMillis(mConnectNanos), toMillis(mTlsNanos), connection.protocol());
+        }
+
+        private double toMillis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.jldubz.gistaviewer.model.data;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.jldubz.gistaviewer.model.gists.Gist;
+import com.jldubz.gistaviewer.model.gists.GistComment;
+
+import java.io.IOException;
+
+/**
+ * Gson factory that formats the display strings of Gists and Gist Comments as soon as they are
+ * parsed.  Retrofit converts response bodies on OkHttp's background threads, so by the time a
+ * response reaches the UI, binding a view does no date formatting at all.
+ */
+public class DisplayTextTypeAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (rawType != Gist.class && rawType != GistComment.class) {
+            return null;
+        }
+
+        TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+        return new TypeAdapter<T>() {
+            @Override
+            public void write(JsonWriter out, T value) throws IOException {
+                delegate.write(out, value);
+            }
+
+            @Override
+            public T read(JsonReader in) throws IOException {
+                T value = delegate.read(in);
+                if (value instanceof Gist) {
+                    ((Gist) value).precomputeDisplayText();
+                } else if (value instanceof GistComment) {
+                    ((GistComment) value).precomputeDisplayText();
+                }
+                return value;
+            }
+        };
+    }
+}
@@ -0,0 +1,163 @@
+package com.jldubz.gistaviewer.model.data;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.jldubz.gistaviewer.model.DateFormatUtil;
+import com.jldubz.gistaviewer.model.GitHubUser;
+import com.jldubz.gistaviewer.model.gists.GistListItem;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Gson factory that parses a Gist from a list endpoint into a {@link GistListItem}.
+ * <p>
+ * The response is read as a stream and only the fields a row shows are kept: the ID, the name
+ * of the first file, the date it was updated and the owner.  Every other field, including the
+ * metadata of the other files, is skipped without creating any objects for it.  The owner is
+ * parsed with the Gson instance's own adapter, so it goes through the same
+ * {@link UserIdentityMap} as every other user.  The date is parsed with the Gson instance's own
+ * date format and formatted for display right away, on OkHttp's background thread.
+ * <p>
+ * Items are written back in the same shape, with only the fields that are kept, so whatever is
+ * written can be read again.
+ */
+public class GistListItemTypeAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (type.getRawType() != GistListItem.class) {
+            return null;
+        }
+        return (TypeAdapter<T>) new GistListItemTypeAdapter(gson.getAdapter(Date.class),
+                gson.getAdapter(GitHubUser.class));
+    }
+
+    private static class GistListItemTypeAdapter extends TypeAdapter<GistListItem> {
+
+        private final TypeAdapter<Date> mDateAdapter;
+        private final TypeAdapter<GitHubUser> mUserAdapter;
+
+        GistListItemTypeAdapter(TypeAdapter<Date> dateAdapter, TypeAdapter<GitHubUser> userAdapter) {
+            mDateAdapter = dateAdapter;
+            mUserAdapter = userAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, GistListItem value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+            out.name("id").value(value.getId());
+            out.name("files");
+            if (value.getFilename() != null) {
+                //The one file that is kept, keyed by its name like the rest of the map was
+                out.beginObject();
+                out.name(value.getFilename());
+                out.beginObject();
+                out.name("filename").value(value.getFilename());
+                out.endObject();
+                out.endObject();
+            } else {
+                out.nullValue();
+            }
+            out.name("updated_at");
+            mDateAdapter.write(out, value.getUpdatedAt());
+            out.name("owner");
+            mUserAdapter.write(out, value.getOwner());
+            out.endObject();
+        }
+
+        @Override
+        public GistListItem read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            String id = null;
+            String filename = null;
+            Date updatedAt = null;
+            GitHubUser owner = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = readString(in);
+                        break;
+                    case "files":
+                        filename = readFirstFilename(in);
+                        break;
+                    case "updated_at":
+                        updatedAt = mDateAdapter.read(in);
+                        break;
+                    case "owner":
+                        owner = mUserAdapter.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+
+            return new GistListItem(id, filename, updatedAt, DateFormatUtil.formatDate(updatedAt), owner);
+        }
+
+        /**
+         * Read the name of the first file from the map of files of a Gist and skip the rest
+         *
+         * @return the filename or NULL if there are no files
+         */
+        private static String readFirstFilename(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            String filename = null;
+            in.beginObject();
+            if (in.hasNext()) {
+                //The map is keyed by filename, but prefer the file's own name when it has one
+                filename = in.nextName();
+                if (in.peek() == JsonToken.BEGIN_OBJECT) {
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        if (in.nextName().equals("filename") && in.peek() == JsonToken.STRING) {
+                            filename = in.nextString();
+                        } else {
+                            in.skipValue();
+                        }
+                    }
+                    in.endObject();
+                } else {
+                    in.skipValue();
+                }
+            }
+            while (in.hasNext()) {
+                in.nextName();
+                in.skipValue();
+            }
+            in.endObject();
+            return filename;
+        }
+
+        private static String readString(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return in.nextString();
+        }
+    }
+}
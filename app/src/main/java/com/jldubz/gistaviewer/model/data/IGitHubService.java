@@ -3,12 +3,15 @@ package com.jldubz.gistaviewer.model.data;
 import com.jldubz.gistaviewer.model.GitHubUser;
 import com.jldubz.gistaviewer.model.gists.Gist;
 import com.jldubz.gistaviewer.model.gists.GistComment;
+import com.jldubz.gistaviewer.model.gists.GistListItem;
+import com.jldubz.gistaviewer.model.gists.GistHistory;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
 import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.Response;
 import retrofit2.http.Body;
@@ -26,35 +29,75 @@ import retrofit2.http.Part;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
 import retrofit2.http.QueryMap;
+import retrofit2.http.Streaming;
+import retrofit2.http.Url;
 
 public interface IGitHubService {
+    // list endpoints are parsed into only the fields a row of a list shows
     @GET("/gists/public")
-    Call<List<Gist>> getPublicGists(@QueryMap Map<String, Object> queries);
+    Call<List<GistListItem>> getPublicGists(@QueryMap Map<String, Object> queries);
 
     // get your gists
+    // the account's own lists and star state change with every star, so the HTTP cache has to
+    // revalidate them rather than serve them for the max-age GitHub allows
+    @Headers("Cache-Control: no-cache")
     @GET("/gists")
-    Call<List<Gist>> getYourGists(@Query("page") int pageNum);
+    Call<List<Gist>> getYourGists(@Query("page") int pageNum, @Query("per_page") int perPage);
+
+    @Headers("Cache-Control: no-cache")
+    @GET("/gists")
+    Call<List<GistListItem>> getYourGistListItems(@Query("page") int pageNum, @Query("per_page") int perPage);
 
     // get stared gists
+    @Headers("Cache-Control: no-cache")
+    @GET("/gists/starred")
+    Call<List<Gist>> getStarredGists(@Query("page") int pageNum, @Query("per_page") int perPage);
+
+    @Headers("Cache-Control: no-cache")
     @GET("/gists/starred")
-    Call<List<Gist>> getStarredGists(@Query("page") int pageNum);
+    Call<List<GistListItem>> getStarredGistListItems(@Query("page") int pageNum, @Query("per_page") int perPage);
 
     /// get with gist id
     @GET("/gists/{gistId}")
     Call<Gist> getGistById(@Path("gistId") String gistId);
 
+    // get a gist as it was at a specific revision
+    @GET("/gists/{gistId}/{sha}")
+    Call<Gist> getGistRevision(@Path("gistId") String gistId, @Path("sha") String sha);
+
+    // list the revisions of a gist, newest first
+    @GET("/gists/{gistId}/commits")
+    Call<List<GistHistory>> getGistCommits(@Path("gistId") String gistId, @Query("page") int pageNum, @Query("per_page") int perPage);
+
+    // download the full content of a gist file whose content was truncated
+    @Streaming
+    @GET
+    Call<ResponseBody> getRawFile(@Url String rawUrl);
+
     // get gist comment by id
     @GET("/gists/{gistId}/comments")
-    Call<List<GistComment>> getGistCommentsById(@Path("gistId") String gistId, @Query("page") int pageNum);
+    Call<List<GistComment>> getGistCommentsById(@Path("gistId") String gistId, @Query("page") int pageNum, @Query("per_page") int perPage);
+
+    // get a page of gist comments only if it changed since the ETag was returned
+    @GET("/gists/{gistId}/comments")
+    Call<List<GistComment>> getGistCommentsIfChanged(@Path("gistId") String gistId, @Query("page") int pageNum, @Query("per_page") int perPage, @Header("If-None-Match") String eTag);
 
     // get gist comment header by id
     @HEAD("/gists/{gistId}/comments")
-    Call<Void> getGistCommentsHeaderById(@Path("gistId") String gistId);
+    Call<Void> getGistCommentsHeaderById(@Path("gistId") String gistId, @Query("per_page") int perPage);
 
     // GitHubUser
     @GET("/user")
     Call<GitHubUser> getLoggedInUser();
 
+    // get the logged in user only if it changed since the ETag was returned
+    @GET("/user")
+    Call<GitHubUser> getLoggedInUserIfChanged(@Header("If-None-Match") String eTag);
+
+    // get the public profile of any user by login
+    @GET("/users/{username}")
+    Call<GitHubUser> getUserByLogin(@Path("username") String username);
+
     // star gist by id
     @PUT("/gists/{gistId}/star")
     Call<Response> starGistById(@Path("gistId") String gistId);
@@ -62,6 +105,7 @@ public interface IGitHubService {
     @DELETE("/gists/{gistId}/star")
     Call<Response> unstarGistById(@Path("gistId") String gistId);
 
+    @Headers("Cache-Control: no-cache")
     @GET("/gists/{gistId}/star")
     Call<Response> getStarGistById(@Path("gistId") String gistId);
 
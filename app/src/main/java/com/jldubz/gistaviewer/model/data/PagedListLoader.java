@@ -0,0 +1,200 @@
+package com.jldubz.gistaviewer.model.data;
+
+import com.jldubz.gistaviewer.model.NetworkUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Response;
+import retrofit2.Call;
+
+/**
+ * Loads a list from a paged GitHub API endpoint one page at a time, e.g. a list of Gists.
+ * <p>
+ * The loader owns everything about paging through the endpoint: the offset of the next page,
+ * whether the Link header says there are more pages, making sure only one page
+ * is requested at a time, requesting the next page once the list has been scrolled close enough
+ * to its end, and collecting the pages into one list.  Each time a page arrives the listener is
+ * handed the whole list so far.
+ * <p>
+ * The size of each page is chosen by an {@link AdaptivePageSize} when the page is requested, and
+ * the time the page took to arrive, and how much of it passed before the response started, is
+ * reported back to it.
+ * <p>
+ * The page requests run in the loader's own {@link CallScope}, so they can be cancelled without
+ * touching anything else, e.g. when the list is hidden or reset.
+ * <p>
+ * All methods must be called from the main thread.
+ *
+ * @param <T> the type of the items in the list
+ */
+public class PagedListLoader<T> {
+
+    private final IPageSource<T> mSource;
+    private final AdaptivePageSize mPageSize;
+    private final int mPrefetchDistance;
+    private final IListListener<T> mListener;
+    private final CallTask.IErrorListener mErrorListener;
+    private final CallScope mCalls = new CallScope();
+
+    private final List<T> mItems = new ArrayList<>();
+    //The number of items requested so far, counting the full size of every page
+    private int mOffset;
+    private boolean mHasMore = true;
+    private boolean mIsPageCancelled;
+
+    /**
+     * @param source           creates the call for a page of the list
+     * @param pageSize         picks the number of items requested per page
+     * @param prefetchDistance how close to the end of the list the last visible item can get
+     *                         before the next page is requested
+     * @param listener         handed the whole list each time a page arrives or the list is reset
+     * @param errorListener    called when a page could not be loaded
+     */
+    public PagedListLoader(IPageSource<T> source, AdaptivePageSize pageSize, int prefetchDistance,
+                           IListListener<T> listener, CallTask.IErrorListener errorListener) {
+        mSource = source;
+        mPageSize = pageSize;
+        mPrefetchDistance = prefetchDistance;
+        mListener = listener;
+        mErrorListener = errorListener;
+    }
+
+    /**
+     * Check if there are more pages to load
+     *
+     * @return TRUE until a page arrives without a "next" link
+     */
+    public boolean hasMore() {
+        return mHasMore;
+    }
+
+    /**
+     * Get every item loaded so far
+     *
+     * @return a copy of the list
+     */
+    public List<T> getItems() {
+        return new ArrayList<>(mItems);
+    }
+
+    public boolean isLoading() {
+        return mCalls.isBusy();
+    }
+
+    /**
+     * Check if any page has been requested since the loader was created or reset
+     *
+     * @return TRUE if a page has been loaded or is on its way
+     */
+    public boolean isStarted() {
+        return mOffset > 0 || isLoading() || mIsPageCancelled;
+    }
+
+    /**
+     * Request the next page, unless one is already on its way or there are no more pages
+     */
+    public void loadNextPage() {
+        if (!mHasMore || mCalls.isBusy()) {
+            return;
+        }
+
+        //The offset is always a multiple of the page size, so it maps onto a page number
+        int pageSize = mPageSize.getPageSize(mOffset);
+        int page = mOffset / pageSize + 1;
+        long startTime = System.nanoTime();
+        mCalls.call(mSource.getPage(page, pageSize)).enqueue(response -> {
+            List<T> items = response.body();
+            if (items != null) {
+                mItems.addAll(items);
+                //Only a full page says how fast the network is
+                if (items.size() == pageSize) {
+                    Response rawResponse = response.raw();
+                    mPageSize.onPageLoaded(pageSize, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime),
+                            rawResponse.receivedResponseAtMillis() - rawResponse.sentRequestAtMillis());
+                }
+            }
+            mOffset += pageSize;
+            mHasMore = NetworkUtil.getLinkedPage(response.headers().get("Link"), "next") > 0;
+            mListener.onListChanged(new ArrayList<>(mItems));
+        }, mErrorListener);
+    }
+
+    /**
+     * Called when the list has been scrolled.  The next page is requested once the last visible
+     * item is within the prefetch distance of the end of the list.
+     *
+     * @param lastVisiblePosition the position of the last visible item
+     */
+    public void onScrolled(int lastVisiblePosition) {
+        if (lastVisiblePosition >= mItems.size() - 1 - mPrefetchDistance) {
+            loadNextPage();
+        }
+    }
+
+    /**
+     * Cancel the page on its way, if any, e.g. when the list is hidden.  It is requested again by
+     * {@link #resume()}.
+     */
+    public void pause() {
+        if (!mCalls.isBusy()) {
+            return;
+        }
+        mCalls.cancelAll();
+        mIsPageCancelled = true;
+    }
+
+    /**
+     * Request the page that was cancelled by {@link #pause()}, if any
+     */
+    public void resume() {
+        if (!mIsPageCancelled) {
+            return;
+        }
+        mIsPageCancelled = false;
+        loadNextPage();
+    }
+
+    /**
+     * Cancel the page on its way and empty the list, so that it is loaded again from the first
+     * page, e.g. after the user has changed
+     */
+    public void reset() {
+        mCalls.cancelAll();
+        mItems.clear();
+        mOffset = 0;
+        mHasMore = true;
+        mIsPageCancelled = false;
+        mListener.onListChanged(new ArrayList<>());
+    }
+
+    /**
+     * Cancel the page on its way and any page requested from now on
+     */
+    public void close() {
+        mCalls.close();
+    }
+
+    public interface IPageSource<T> {
+
+        /**
+         * Create the call for a page of the list
+         *
+         * @param page     the number of the page, starting at 1
+         * @param pageSize the number of items per page
+         * @return the call
+         */
+        Call<List<T>> getPage(int page, int pageSize);
+    }
+
+    public interface IListListener<T> {
+
+        /**
+         * Called when the list has changed
+         *
+         * @param items every item loaded so far
+         */
+        void onListChanged(List<T> items);
+    }
+}
@@ -0,0 +1,215 @@
+package com.jldubz.gistaviewer.model.data;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import retrofit2.Invocation;
+
+/**
+ * Checks that each user flow makes no more requests to the GitHub API than it is budgeted, since
+ * every request counts against the rate limit.
+ * <p>
+ * A flow is started with {@link #begin(Flow)} where the user starts it, e.g. when a Gist is
+ * opened.  Every request to one of the flow's {@link IGitHubService} methods is then charged to
+ * it until no request has been in flight for a second.  When two running flows use the same
+ * method, the request is charged to the one started last.  Requests that aren't part of any
+ * running flow aren't checked.
+ * <p>
+ * The requests are counted by {@link #getInterceptor()}, which is only added to the HTTP client
+ * in debug builds.  A flow that goes over its budget is logged with every request it made.  The
+ * budgets themselves are enforced by the unit tests, which drive each flow against a fake service.
+ */
+public class RequestBudget {
+
+    private static final String TAG = "RequestBudget";
+
+    //A flow is over once no request has been in flight for this long
+    private static final long QUIET_MILLIS = 1000;
+
+    //The method names must match IGitHubService
+    private static final String[] USER_LISTS = {"getYourGistListItems", "getStarredGistListItems"};
+    private static final String[] ALL_LISTS = {"getPublicGists", "getYourGistListItems", "getStarredGistListItems"};
+    private static final String[] USER = {"getLoggedInUser", "getLoggedInUserIfChanged"};
+
+    /**
+     * Starting the app logged in: the user and the first page of each list
+     */
+    public static final Flow STARTUP = new Flow("startup", 4, concat(ALL_LISTS, USER));
+    /**
+     * Logging in or switching accounts: the user and the first page of their own lists
+     */
+    public static final Flow LOGIN = new Flow("login", 3, concat(USER_LISTS, USER));
+    /**
+     * Switching tabs: at most the page the list was waiting for when it was hidden
+     */
+    public static final Flow SWITCH_TAB = new Flow("switch tab", 1, ALL_LISTS);
+    /**
+     * Opening a Gist: the Gist, its star, the number of comment pages and the newest page of
+     * comments
+     */
+    public static final Flow OPEN_GIST = new Flow("open gist", 4, "getGistById", "getStarGistById",
+            "getGistCommentsHeaderById", "getGistCommentsById");
+    /**
+     * Jumping to a page of comments: the page, the last page when the list is newest first, and
+     * the two pages ahead once the user scrolls away from it
+     */
+    public static final Flow COMMENT_PAGE = new Flow("comment page", 4, "getGistCommentsById");
+    /**
+     * Starring or unstarring a Gist
+     */
+    public static final Flow STAR = new Flow("star", 1, "starGistById", "unstarGistById");
+    /**
+     * Opening the profile of the owner of a Gist, which is only downloaded if it isn't cached
+     */
+    public static final Flow OWNER_PROFILE = new Flow("owner profile", 1, "getUserByLogin");
+
+    private final List<Run> mRuns = new ArrayList<>();
+    private int mInFlightCount;
+    private long mLastActivityTime;
+
+    private final Interceptor mInterceptor = chain -> {
+        onRequestStart(chain.request());
+        try {
+            return chain.proceed(chain.request());
+        } finally {
+            onRequestEnd();
+        }
+    };
+
+    /**
+     * Get the interceptor that charges requests to the running flows.  It must be added as an
+     * application interceptor, so retries and redirects aren't charged twice.
+     *
+     * @return the interceptor
+     */
+    public Interceptor getInterceptor() {
+        return mInterceptor;
+    }
+
+    /**
+     * Start charging requests to a flow.  Starting a flow that is already running starts it
+     * over.
+     *
+     * @param flow the flow the user just started
+     */
+    public synchronized void begin(Flow flow) {
+        long now = SystemClock.elapsedRealtime();
+        endQuietRuns(now);
+        Iterator<Run> runs = mRuns.iterator();
+        while (runs.hasNext()) {
+            if (runs.next().mFlow == flow) {
+                runs.remove();
+            }
+        }
+        mRuns.add(new Run(flow));
+        mLastActivityTime = now;
+    }
+
+    private synchronized void onRequestStart(Request request) {
+        long now = SystemClock.elapsedRealtime();
+        endQuietRuns(now);
+        mInFlightCount++;
+        mLastActivityTime = now;
+
+        Invocation invocation = request.tag(Invocation.class);
+        if (invocation == null) {
+            return;
+        }
+        String method = invocation.method().getName();
+        for (int i = mRuns.size() - 1; i >= 0; i--) {
+            Run run = mRuns.get(i);
+            if (run.mFlow.mMethods.contains(method)) {
+                run.charge(method + " " + request.url().encodedPath());
+                return;
+            }
+        }
+    }
+
+    private synchronized void onRequestEnd() {
+        mInFlightCount--;
+        mLastActivityTime = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * End every flow once nothing has happened for a while
+     *
+     * @param now the current time, from {@link SystemClock#elapsedRealtime()}
+     */
+    private void endQuietRuns(long now) {
+        if (mInFlightCount == 0 && now - mLastActivityTime >= QUIET_MILLIS) {
+            mRuns.clear();
+        }
+    }
+
+    private static String[] concat(String[] methods, String[] moreMethods) {
+        String[] all = Arrays.copyOf(methods, methods.length + moreMethods.length);
+        System.arraycopy(moreMethods, 0, all, methods.length, moreMethods.length);
+        return all;
+    }
+
+    /**
+     * A user flow and the most requests it may make
+     */
+    public static class Flow {
+
+        private final String mName;
+        private final int mMaxRequests;
+        private final Set<String> mMethods;
+
+        /**
+         * @param name        the name of the flow in reports
+         * @param maxRequests the most requests the flow may make
+         * @param methods     the names of the {@link IGitHubService} methods the flow calls
+         */
+        Flow(String name, int maxRequests, String... methods) {
+            mName = name;
+            mMaxRequests = maxRequests;
+            mMethods = new HashSet<>(Arrays.asList(methods));
+        }
+
+        public int getMaxRequests() {
+            return mMaxRequests;
+        }
+
+        /**
+         * Check if requests to a method are charged to the flow
+         *
+         * @param method the name of the {@link IGitHubService} method
+         * @return TRUE if the flow calls the method
+         */
+        public boolean hasMethod(String method) {
+            return mMethods.contains(method);
+        }
+    }
+
+    /**
+     * The requests charged to one run of a flow
+     */
+    private static class Run {
+
+        private final Flow mFlow;
+        private final List<String> mRequests = new ArrayList<>();
+
+        private Run(Flow flow) {
+            mFlow = flow;
+        }
+
+        private void charge(String request) {
+            mRequests.add(request);
+            //Only report once per run, when the budget is first exceeded
+            if (mRequests.size() == mFlow.mMaxRequests + 1) {
+                Log.e(TAG, "Flow \"" + mFlow.mName + "\" made " + mRequests.size() + " requests, budget "
+                        + mFlow.mMaxRequests + ": " + mRequests);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.jldubz.gistaviewer.model.data;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * Counts the bytes of response bodies both as they came over the network and after they were
+ * decompressed, so the effect of gzip and brotli on the API responses can be measured end to
+ * end.
+ * <p>
+ * {@link #getNetworkInterceptor()} must be added as a network interceptor, where bodies are
+ * still encoded, and {@link #getApplicationInterceptor()} as the first application interceptor,
+ * where they have already been decoded.  Bytes are counted as they are read, so a body that is
+ * never read in full only counts as far as it was read.  Headers are not counted.
+ */
+public class TransferStats {
+
+    private final AtomicLong mResponseCount = new AtomicLong();
+    private final AtomicLong mGzipResponseCount = new AtomicLong();
+    private final AtomicLong mBrotliResponseCount = new AtomicLong();
+    private final AtomicLong mWireBytes = new AtomicLong();
+    private final AtomicLong mDecodedBytes = new AtomicLong();
+
+    private final Interceptor mNetworkInterceptor = chain -> {
+        Response response = chain.proceed(chain.request());
+        mResponseCount.incrementAndGet();
+        String encoding = response.header("Content-Encoding");
+        if ("gzip".equalsIgnoreCase(encoding)) {
+            mGzipResponseCount.incrementAndGet();
+        } else if ("br".equalsIgnoreCase(encoding)) {
+            mBrotliResponseCount.incrementAndGet();
+        }
+        return countBody(response, mWireBytes);
+    };
+
+    private final Interceptor mApplicationInterceptor = chain -> countBody(chain.proceed(chain.request()), mDecodedBytes);
+
+    public Interceptor getNetworkInterceptor() {
+        return mNetworkInterceptor;
+    }
+
+    public Interceptor getApplicationInterceptor() {
+        return mApplicationInterceptor;
+    }
+
+    public long getResponseCount() {
+        return mResponseCount.get();
+    }
+
+    public long getGzipResponseCount() {
+        return mGzipResponseCount.get();
+    }
+
+    public long getBrotliResponseCount() {
+        return mBrotliResponseCount.get();
+    }
+
+    /**
+     * Get the number of body bytes received over the network, before decompression
+     *
+     * @return the number of bytes
+     */
+    public long getWireBytes() {
+        return mWireBytes.get();
+    }
+
+    /**
+     * Get the number of body bytes handed to the app, after decompression
+     *
+     * @return the number of bytes
+     */
+    public long getDecodedBytes() {
+        return mDecodedBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        long wireBytes = getWireBytes();
+        long decodedBytes = getDecodedBytes();
+        return String.format(Locale.US, "%d responses (%d gzip, %d brotli): %d bytes on the wire, %d decoded (%.1f%%)",
+                getResponseCount(), getGzipResponseCount(), getBrotliResponseCount(), wireBytes, decodedBytes,
+                decodedBytes > 0 ? 100.0 * wireBytes / decodedBytes : 0);
+    }
+
+    /**
+     * Wrap the body of a response so every byte read from it is added to a counter
+     *
+     * @param response the response
+     * @param counter  the counter to add to
+     * @return the response with the counting body
+     */
+    private static Response countBody(Response response, AtomicLong counter) {
+        ResponseBody body = response.body();
+        if (body == null) {
+            return response;
+        }
+
+        BufferedSource source = Okio.buffer(new ForwardingSource(body.source()) {
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+                long bytesRead = super.read(sink, byteCount);
+                if (bytesRead > 0) {
+                    counter.addAndGet(bytesRead);
+                }
+                return bytesRead;
+            }
+        });
+        return response.newBuilder()
+                .body(ResponseBody.create(source, body.contentType(), body.contentLength()))
+                .build();
+    }
+}
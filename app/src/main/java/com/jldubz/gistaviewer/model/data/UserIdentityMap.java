@@ -0,0 +1,140 @@
+package com.jldubz.gistaviewer.model.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import com.jldubz.gistaviewer.model.GitHubUser;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps one instance of each GitHub user, keyed by the user's ID, no matter how many Gists,
+ * Gist Comments and revisions the user appears in.
+ * <p>
+ * Every user that is parsed is handed to {@link #canonicalize(GitHubUser, boolean)}, which
+ * returns the instance already known for that ID, so a feed where the same few users own
+ * hundreds of Gists only keeps a few users.  Users are held weakly and are forgotten once nothing
+ * refers to them.
+ * <p>
+ * The users whose full profile is known, e.g. from the user endpoints rather than as the owner of
+ * a Gist, are also held strongly in a small LRU, so opening the same profile again doesn't have
+ * to download it again.
+ * <p>
+ * Users are parsed on OkHttp's and the databases' background threads, so all methods are
+ * thread-safe, but the known instances are only ever changed on the main thread.  The fields of
+ * a user parsed on another thread are merged into the known instance by a task posted to the
+ * main thread, which runs before the response the user came in is delivered to its callback.
+ * A user restored from storage only fills in the fields the known instance is missing, so it
+ * can't overwrite what a newer response set.
+ */
+public class UserIdentityMap {
+
+    private final Map<Integer, UserReference> mUsers = new HashMap<>();
+    private final ReferenceQueue<GitHubUser> mReferenceQueue = new ReferenceQueue<>();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<Integer, GitHubUser> mFullUsers;
+
+    /**
+     * @param maxFullUsers the number of full user records kept after nothing else refers to them
+     */
+    public UserIdentityMap(int maxFullUsers) {
+        mFullUsers = new LruCache<>(maxFullUsers);
+    }
+
+    /**
+     * Get the one instance of a user that was just parsed
+     *
+     * @param user       the user that was parsed
+     * @param isRestored TRUE if the user was read from storage rather than from a response
+     * @return the instance already known for the user's ID, or the user itself if the ID is new
+     * or the user has no ID
+     */
+    public GitHubUser canonicalize(GitHubUser user, boolean isRestored) {
+        if (user == null || user.getId() == 0) {
+            return user;
+        }
+
+        GitHubUser canonicalUser;
+        synchronized (this) {
+            removeClearedUsers();
+            UserReference reference = mUsers.get(user.getId());
+            canonicalUser = reference != null ? reference.get() : null;
+            if (canonicalUser == null) {
+                mUsers.put(user.getId(), new UserReference(user, mReferenceQueue));
+                if (user.isFullRecord()) {
+                    mFullUsers.put(user.getId(), user);
+                }
+                return user;
+            }
+        }
+        if (canonicalUser == user) {
+            return user;
+        }
+
+        GitHubUser knownUser = canonicalUser;
+        Runnable merge = () -> {
+            if (isRestored) {
+                knownUser.fillFrom(user);
+            } else {
+                knownUser.updateFrom(user);
+            }
+            if (knownUser.isFullRecord()) {
+                mFullUsers.put(knownUser.getId(), knownUser);
+            }
+        };
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            merge.run();
+        } else {
+            mMainHandler.post(merge);
+        }
+        return canonicalUser;
+    }
+
+    /**
+     * Get the full record of a user, e.g. to show the user's profile without downloading it
+     *
+     * @param id the ID of the user
+     * @return the one instance of the user, or NULL if the user's full record isn't among the
+     * ones most recently parsed
+     */
+    public GitHubUser getFullUser(int id) {
+        return mFullUsers.get(id);
+    }
+
+    /**
+     * Get the number of users currently known
+     *
+     * @return the number of users, including any that were collected but not removed yet
+     */
+    public synchronized int size() {
+        removeClearedUsers();
+        return mUsers.size();
+    }
+
+    /**
+     * Remove the entries of users that have been garbage collected
+     */
+    private void removeClearedUsers() {
+        UserReference reference;
+        while ((reference = (UserReference) mReferenceQueue.poll()) != null) {
+            //The ID may already belong to a newer instance
+            if (mUsers.get(reference.mId) == reference) {
+                mUsers.remove(reference.mId);
+            }
+        }
+    }
+
+    private static class UserReference extends WeakReference<GitHubUser> {
+
+        private final int mId;
+
+        UserReference(GitHubUser user, ReferenceQueue<GitHubUser> queue) {
+            super(user, queue);
+            mId = user.getId();
+        }
+    }
+}
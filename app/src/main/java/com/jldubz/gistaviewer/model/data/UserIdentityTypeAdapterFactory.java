@@ -0,0 +1,53 @@
+package com.jldubz.gistaviewer.model.data;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.jldubz.gistaviewer.model.GitHubUser;
+
+import java.io.IOException;
+
+/**
+ * Gson factory that hands every GitHub user it parses to a {@link UserIdentityMap}, so the
+ * owners of Gists, the authors of Gist Comments and the logged in user all share one instance
+ * per user.  A factory for Gson instances that read from storage marks its users as restored, so
+ * they never overwrite the fields of a newer response.
+ */
+public class UserIdentityTypeAdapterFactory implements TypeAdapterFactory {
+
+    private final UserIdentityMap mUsers;
+    private final boolean mIsRestoring;
+
+    /**
+     * @param users       the map of users shared by every response
+     * @param isRestoring TRUE if the users are read from storage rather than from responses
+     */
+    public UserIdentityTypeAdapterFactory(UserIdentityMap users, boolean isRestoring) {
+        mUsers = users;
+        mIsRestoring = isRestoring;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (type.getRawType() != GitHubUser.class) {
+            return null;
+        }
+
+        TypeAdapter<GitHubUser> delegate = (TypeAdapter<GitHubUser>) gson.getDelegateAdapter(this, type);
+        return (TypeAdapter<T>) new TypeAdapter<GitHubUser>() {
+            @Override
+            public void write(JsonWriter out, GitHubUser value) throws IOException {
+                delegate.write(out, value);
+            }
+
+            @Override
+            public GitHubUser read(JsonReader in) throws IOException {
+                return mUsers.canonicalize(delegate.read(in), mIsRestoring);
+            }
+        };
+    }
+}
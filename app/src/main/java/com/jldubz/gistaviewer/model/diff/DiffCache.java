@@ -0,0 +1,57 @@
+package com.jldubz.gistaviewer.model.diff;
+
+import android.util.LruCache;
+
+import java.util.List;
+
+/**
+ * Least recently used cache of the diffs computed between pairs of Gist revisions.
+ * <p>
+ * Revisions never change once they are committed, so a diff can be reused for as long as it is
+ * cached.  The cache is capped by the total number of rows held rather than by the number of
+ * diffs, since a single diff of a large file can hold thousands of rows.
+ */
+public class DiffCache {
+
+    private final LruCache<String, List<DiffRow>> mCache;
+
+    /**
+     * @param maxRows the number of rows the cached diffs may hold
+     */
+    public DiffCache(int maxRows) {
+        mCache = new LruCache<String, List<DiffRow>>(maxRows) {
+            @Override
+            protected int sizeOf(String key, List<DiffRow> value) {
+                return Math.max(value.size(), 1);
+            }
+        };
+    }
+
+    /**
+     * Get the diff between two revisions of a Gist
+     *
+     * @param gistId     the ID of the Gist
+     * @param oldVersion the SHA of the old revision or NULL if the new revision is the first one
+     * @param newVersion the SHA of the new revision
+     * @return the rows of the diff or NULL if it is not cached
+     */
+    public List<DiffRow> get(String gistId, String oldVersion, String newVersion) {
+        return mCache.get(getKey(gistId, oldVersion, newVersion));
+    }
+
+    /**
+     * Store the diff between two revisions of a Gist
+     *
+     * @param gistId     the ID of the Gist
+     * @param oldVersion the SHA of the old revision or NULL if the new revision is the first one
+     * @param newVersion the SHA of the new revision
+     * @param rows       the complete rows of the diff
+     */
+    public void put(String gistId, String oldVersion, String newVersion, List<DiffRow> rows) {
+        mCache.put(getKey(gistId, oldVersion, newVersion), rows);
+    }
+
+    private static String getKey(String gistId, String oldVersion, String newVersion) {
+        return gistId + ":" + oldVersion + ".." + newVersion;
+    }
+}
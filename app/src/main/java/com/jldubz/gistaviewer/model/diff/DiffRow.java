@@ -0,0 +1,76 @@
+package com.jldubz.gistaviewer.model.diff;
+
+/**
+ * A single row of a diff between two revisions of a Gist: the header of a file or of a hunk, or
+ * a line of a file that is unchanged, removed or added.
+ */
+public class DiffRow {
+
+    public static final int TYPE_FILE_HEADER = 0;
+    public static final int TYPE_HUNK_HEADER = 1;
+    public static final int TYPE_CONTEXT = 2;
+    public static final int TYPE_REMOVED = 3;
+    public static final int TYPE_ADDED = 4;
+
+    private final int mType;
+    private final int mOldLineNumber;
+    private final int mNewLineNumber;
+    private final String mText;
+
+    /**
+     * @param type          the type of the row
+     * @param oldLineNumber the number of the line in the old revision, starting at 1, or 0 if
+     *                      the line isn't in the old revision
+     * @param newLineNumber the number of the line in the new revision, starting at 1, or 0 if
+     *                      the line isn't in the new revision
+     * @param text          the text of the row
+     */
+    public DiffRow(int type, int oldLineNumber, int newLineNumber, String text) {
+        mType = type;
+        mOldLineNumber = oldLineNumber;
+        mNewLineNumber = newLineNumber;
+        mText = text;
+    }
+
+    /**
+     * Create the header row of a file
+     *
+     * @param filename the name of the file
+     * @return the header row
+     */
+    public static DiffRow fileHeader(String filename) {
+        return new DiffRow(TYPE_FILE_HEADER, 0, 0, filename);
+    }
+
+    /**
+     * Create the header row of a hunk, in the same format as a unified diff
+     *
+     * @param oldStart the index of the first line of the hunk in the old revision
+     * @param oldCount the number of lines of the old revision in the hunk
+     * @param newStart the index of the first line of the hunk in the new revision
+     * @param newCount the number of lines of the new revision in the hunk
+     * @return the header row
+     */
+    static DiffRow hunkHeader(int oldStart, int oldCount, int newStart, int newCount) {
+        //Unified diffs number an empty range by the line before it
+        String text = "@@ -" + (oldCount > 0 ? oldStart + 1 : oldStart) + "," + oldCount
+                + " +" + (newCount > 0 ? newStart + 1 : newStart) + "," + newCount + " @@";
+        return new DiffRow(TYPE_HUNK_HEADER, 0, 0, text);
+    }
+
+    public int getType() {
+        return mType;
+    }
+
+    public int getOldLineNumber() {
+        return mOldLineNumber;
+    }
+
+    public int getNewLineNumber() {
+        return mNewLineNumber;
+    }
+
+    public String getText() {
+        return mText;
+    }
+}
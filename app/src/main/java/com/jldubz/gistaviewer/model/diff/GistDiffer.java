@@ -0,0 +1,101 @@
+package com.jldubz.gistaviewer.model.diff;
+
+import com.jldubz.gistaviewer.model.gists.GistFile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Computes the diff between the files of two revisions of a Gist.
+ * <p>
+ * Files are compared one at a time in order of their names and each hunk is handed over as soon
+ * as it is ready, in batches, so the first changes can be displayed long before a large Gist has
+ * been compared in full.  Files that did not change are left out.  Comparing stops early if the
+ * calling thread is interrupted.
+ */
+public class GistDiffer {
+
+    /**
+     * The number of unchanged lines shown around each change
+     */
+    public static final int CONTEXT_LINES = 3;
+
+    private static final int BATCH_ROWS = 200;
+
+    private final IDiffListener mListener;
+    private List<DiffRow> mBatch = new ArrayList<>();
+
+    /**
+     * @param listener receives the rows of the diff in order
+     */
+    public GistDiffer(IDiffListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Compare the files of two revisions.  The content of every file must already be complete.
+     *
+     * @param oldFiles the files of the old revision or NULL if there is no old revision
+     * @param newFiles the files of the new revision
+     * @return TRUE if every file was compared, FALSE if comparing was interrupted
+     */
+    public boolean diff(Map<String, GistFile> oldFiles, Map<String, GistFile> newFiles) {
+        if (oldFiles == null) {
+            oldFiles = Collections.emptyMap();
+        }
+        if (newFiles == null) {
+            newFiles = Collections.emptyMap();
+        }
+
+        TreeSet<String> filenames = new TreeSet<>(oldFiles.keySet());
+        filenames.addAll(newFiles.keySet());
+        for (String filename : filenames) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+
+            String oldContent = getContent(oldFiles.get(filename));
+            String newContent = getContent(newFiles.get(filename));
+            if (oldContent != null && oldContent.equals(newContent)) {
+                continue;
+            }
+
+            mBatch.add(DiffRow.fileHeader(filename));
+            LineDiff lineDiff = new LineDiff(LineDiff.splitLines(oldContent), LineDiff.splitLines(newContent));
+            lineDiff.writeHunks(CONTEXT_LINES, rows -> {
+                mBatch.addAll(rows);
+                if (mBatch.size() >= BATCH_ROWS) {
+                    flush();
+                }
+            });
+            //Show each file as soon as it is done, even if the batch isn't full
+            flush();
+        }
+        return !Thread.currentThread().isInterrupted();
+    }
+
+    private void flush() {
+        if (mBatch.isEmpty()) {
+            return;
+        }
+        mListener.onRows(mBatch);
+        mBatch = new ArrayList<>();
+    }
+
+    private static String getContent(GistFile file) {
+        return file != null ? file.getContent() : null;
+    }
+
+    public interface IDiffListener {
+
+        /**
+         * Called on the comparing thread with the next rows of the diff
+         *
+         * @param rows the rows, which are not changed after this call
+         */
+        void onRows(List<DiffRow> rows);
+    }
+}
@@ -0,0 +1,319 @@
+package com.jldubz.gistaviewer.model.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Line by line difference between two versions of a file.
+ * <p>
+ * The shortest edit script is found with Myers' O(ND) algorithm using its linear space
+ * refinement: each call finds the middle snake of the optimal path and recurses on the halves on
+ * either side of it, so memory stays proportional to the number of lines no matter how many of
+ * them changed.  Lines are compared as integer IDs and any common prefix and suffix is skipped
+ * before searching, which keeps small edits to long files cheap.
+ * <p>
+ * None of the methods should be called from the main thread for large files.
+ */
+public class LineDiff {
+
+    private final List<String> mOldLines;
+    private final List<String> mNewLines;
+    private final int[] mOldIds;
+    private final int[] mNewIds;
+    private final boolean[] mRemoved;
+    private final boolean[] mAdded;
+
+    private int[] mForward;
+    private int[] mBackward;
+
+    /**
+     * Compute the difference between two versions of a file
+     *
+     * @param oldLines the lines of the old version
+     * @param newLines the lines of the new version
+     */
+    public LineDiff(List<String> oldLines, List<String> newLines) {
+        mOldLines = oldLines;
+        mNewLines = newLines;
+        mRemoved = new boolean[oldLines.size()];
+        mAdded = new boolean[newLines.size()];
+
+        //Give every distinct line an ID so lines are only hashed once
+        Map<String, Integer> lineIds = new HashMap<>();
+        mOldIds = toIds(oldLines, lineIds);
+        mNewIds = toIds(newLines, lineIds);
+
+        compare(0, mOldIds.length, 0, mNewIds.length);
+        mForward = null;
+        mBackward = null;
+    }
+
+    private static int[] toIds(List<String> lines, Map<String, Integer> lineIds) {
+        int[] ids = new int[lines.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Integer id = lineIds.get(lines.get(i));
+            if (id == null) {
+                id = lineIds.size();
+                lineIds.put(lines.get(i), id);
+            }
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Check if a line of the old version is missing from the new version
+     *
+     * @param line the index of the line in the old version
+     * @return TRUE if the line was removed
+     */
+    public boolean isRemoved(int line) {
+        return mRemoved[line];
+    }
+
+    /**
+     * Check if a line of the new version is missing from the old version
+     *
+     * @param line the index of the line in the new version
+     * @return TRUE if the line was added
+     */
+    public boolean isAdded(int line) {
+        return mAdded[line];
+    }
+
+    /**
+     * Mark the lines that differ between two ranges of the old and new versions
+     *
+     * @param oldStart the first line of the old range
+     * @param oldEnd   the line after the last line of the old range
+     * @param newStart the first line of the new range
+     * @param newEnd   the line after the last line of the new range
+     */
+    private void compare(int oldStart, int oldEnd, int newStart, int newEnd) {
+        //Skip the lines the ranges start and end with in common
+        while (oldStart < oldEnd && newStart < newEnd && mOldIds[oldStart] == mNewIds[newStart]) {
+            oldStart++;
+            newStart++;
+        }
+        while (oldStart < oldEnd && newStart < newEnd && mOldIds[oldEnd - 1] == mNewIds[newEnd - 1]) {
+            oldEnd--;
+            newEnd--;
+        }
+
+        if (oldStart == oldEnd) {
+            for (int i = newStart; i < newEnd; i++) {
+                mAdded[i] = true;
+            }
+            return;
+        }
+        if (newStart == newEnd) {
+            for (int i = oldStart; i < oldEnd; i++) {
+                mRemoved[i] = true;
+            }
+            return;
+        }
+
+        long split = findMiddleSnake(oldStart, oldEnd, newStart, newEnd);
+        int oldSplit = (int) (split >>> 32);
+        int newSplit = (int) split;
+        compare(oldStart, oldSplit, newStart, newSplit);
+        compare(oldSplit, oldEnd, newSplit, newEnd);
+    }
+
+    /**
+     * Find a point on a shortest edit path between two ranges by searching from both ends at
+     * once until the paths overlap
+     *
+     * @return the line of the old range in the upper 32 bits and the line of the new range in the
+     * lower 32 bits
+     */
+    private long findMiddleSnake(int oldStart, int oldEnd, int newStart, int newEnd) {
+        int oldLength = oldEnd - oldStart;
+        int newLength = newEnd - newStart;
+        int maxD = (oldLength + newLength + 1) / 2;
+        int offset = maxD + 1;
+        int size = 2 * offset + 1;
+        if (mForward == null || mForward.length < size) {
+            mForward = new int[size];
+            mBackward = new int[size];
+        }
+        int[] forward = mForward;
+        int[] backward = mBackward;
+        Arrays.fill(forward, 0, size, -1);
+        Arrays.fill(backward, 0, size, -1);
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+
+        //Diagonal k holds the points where x - y == k, with x counted in the old range and y in
+        // the new range.  The backward search counts both from the ends of the ranges.
+        int delta = oldLength - newLength;
+        boolean isDeltaOdd = (delta & 1) != 0;
+        for (int d = 0; d <= maxD; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && forward[offset + k - 1] < forward[offset + k + 1])) {
+                    x = forward[offset + k + 1];
+                } else {
+                    x = forward[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < oldLength && y < newLength && mOldIds[oldStart + x] == mNewIds[newStart + y]) {
+                    x++;
+                    y++;
+                }
+                forward[offset + k] = x;
+
+                int backwardK = delta - k;
+                if (isDeltaOdd && backwardK >= -(d - 1) && backwardK <= d - 1
+                        && backward[offset + backwardK] >= 0
+                        && x + backward[offset + backwardK] >= oldLength) {
+                    return ((long) (oldStart + x) << 32) | (newStart + y);
+                }
+            }
+
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && backward[offset + k - 1] < backward[offset + k + 1])) {
+                    x = backward[offset + k + 1];
+                } else {
+                    x = backward[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < oldLength && y < newLength
+                        && mOldIds[oldEnd - 1 - x] == mNewIds[newEnd - 1 - y]) {
+                    x++;
+                    y++;
+                }
+                backward[offset + k] = x;
+
+                int forwardK = delta - k;
+                if (!isDeltaOdd && forwardK >= -d && forwardK <= d
+                        && forward[offset + forwardK] >= 0
+                        && x + forward[offset + forwardK] >= oldLength) {
+                    return ((long) (oldEnd - x) << 32) | (newEnd - y);
+                }
+            }
+        }
+
+        //The paths always meet by maxD, but fall back to replacing the whole range just in case
+        return ((long) oldEnd << 32) | newStart;
+    }
+
+    /**
+     * Group the changed lines into hunks surrounded by unchanged context lines, in the same way as
+     * a unified diff.  Each hunk is handed to the listener as soon as it is complete.
+     *
+     * @param contextLines the number of unchanged lines to show around each change
+     * @param listener     receives the rows of each hunk in order
+     */
+    public void writeHunks(int contextLines, IHunkListener listener) {
+        int oldCount = mOldIds.length;
+        int newCount = mNewIds.length;
+
+        //Find the start of each run of changes, with the lines of both versions it covers
+        List<int[]> changes = new ArrayList<>();
+        int oldLine = 0;
+        int newLine = 0;
+        while (oldLine < oldCount || newLine < newCount) {
+            if (oldLine < oldCount && newLine < newCount && !mRemoved[oldLine] && !mAdded[newLine]) {
+                oldLine++;
+                newLine++;
+                continue;
+            }
+            int oldChangeStart = oldLine;
+            int newChangeStart = newLine;
+            while (oldLine < oldCount && mRemoved[oldLine]) {
+                oldLine++;
+            }
+            while (newLine < newCount && mAdded[newLine]) {
+                newLine++;
+            }
+            changes.add(new int[]{oldChangeStart, oldLine, newChangeStart, newLine});
+        }
+
+        int changeIndex = 0;
+        while (changeIndex < changes.size()) {
+            //Merge changes whose context would overlap into one hunk
+            int lastChangeIndex = changeIndex;
+            while (lastChangeIndex + 1 < changes.size()
+                    && changes.get(lastChangeIndex + 1)[0] - changes.get(lastChangeIndex)[1] <= 2 * contextLines) {
+                lastChangeIndex++;
+            }
+
+            int[] firstChange = changes.get(changeIndex);
+            int[] lastChange = changes.get(lastChangeIndex);
+            int leadingContext = Math.min(contextLines, firstChange[0]);
+            int trailingContext = Math.min(contextLines, oldCount - lastChange[1]);
+            int hunkOldStart = firstChange[0] - leadingContext;
+            int hunkNewStart = firstChange[2] - leadingContext;
+            int hunkOldEnd = lastChange[1] + trailingContext;
+            int hunkNewEnd = lastChange[3] + trailingContext;
+
+            List<DiffRow> rows = new ArrayList<>();
+            rows.add(DiffRow.hunkHeader(hunkOldStart, hunkOldEnd - hunkOldStart, hunkNewStart, hunkNewEnd - hunkNewStart));
+            oldLine = hunkOldStart;
+            newLine = hunkNewStart;
+            for (int i = changeIndex; i <= lastChangeIndex; i++) {
+                int[] change = changes.get(i);
+                while (oldLine < change[0]) {
+                    rows.add(new DiffRow(DiffRow.TYPE_CONTEXT, oldLine + 1, newLine + 1, mOldLines.get(oldLine)));
+                    oldLine++;
+                    newLine++;
+                }
+                for (; oldLine < change[1]; oldLine++) {
+                    rows.add(new DiffRow(DiffRow.TYPE_REMOVED, oldLine + 1, 0, mOldLines.get(oldLine)));
+                }
+                for (; newLine < change[3]; newLine++) {
+                    rows.add(new DiffRow(DiffRow.TYPE_ADDED, 0, newLine + 1, mNewLines.get(newLine)));
+                }
+            }
+            while (oldLine < hunkOldEnd) {
+                rows.add(new DiffRow(DiffRow.TYPE_CONTEXT, oldLine + 1, newLine + 1, mOldLines.get(oldLine)));
+                oldLine++;
+                newLine++;
+            }
+            listener.onHunk(rows);
+
+            changeIndex = lastChangeIndex + 1;
+        }
+    }
+
+    /**
+     * Split the content of a file into lines without their line terminators
+     *
+     * @param content the content of the file or NULL if the file doesn't exist
+     * @return the lines of the file
+     */
+    public static List<String> splitLines(String content) {
+        List<String> lines = new ArrayList<>();
+        if (content == null || content.isEmpty()) {
+            return lines;
+        }
+
+        int lineStart = 0;
+        int length = content.length();
+        while (lineStart < length) {
+            int lineEnd = content.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = length;
+            }
+            int textEnd = lineEnd > lineStart && content.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            lines.add(content.substring(lineStart, textEnd));
+            lineStart = lineEnd + 1;
+        }
+        return lines;
+    }
+
+    public interface IHunkListener {
+
+        /**
+         * Called when a hunk of the difference is complete
+         *
+         * @param rows the header row of the hunk followed by its lines
+         */
+        void onHunk(List<DiffRow> rows);
+    }
+}
@@ -0,0 +1,114 @@
+package com.jldubz.gistaviewer.model.export;
+
+import java.io.File;
+import java.util.Date;
+
+/**
+ * Summary of a run of a {@link GistExporter}, including how fast the Gists were written
+ */
+public class ExportReport {
+
+    private final File mArchiveFile;
+    private final int mGistsExported;
+    private final int mGistsSkipped;
+    private final int mGistsFailed;
+    private final int mFilesWritten;
+    private final long mBytesWritten;
+    private final long mElapsedMillis;
+    private final boolean mIsComplete;
+    private final Date mRateLimitReset;
+
+    ExportReport(File archiveFile, int gistsExported, int gistsSkipped, int gistsFailed, int filesWritten,
+                 long bytesWritten, long elapsedMillis, boolean isComplete, Date rateLimitReset) {
+        mArchiveFile = archiveFile;
+        mGistsExported = gistsExported;
+        mGistsSkipped = gistsSkipped;
+        mGistsFailed = gistsFailed;
+        mFilesWritten = filesWritten;
+        mBytesWritten = bytesWritten;
+        mElapsedMillis = elapsedMillis;
+        mIsComplete = isComplete;
+        mRateLimitReset = rateLimitReset;
+    }
+
+    /**
+     * Get the archive the Gists are written to.  It only exists once the export is complete.
+     *
+     * @return the archive file
+     */
+    public File getArchiveFile() {
+        return mArchiveFile;
+    }
+
+    /**
+     * Get the number of Gists written during this run
+     *
+     * @return the number of Gists exported
+     */
+    public int getGistsExported() {
+        return mGistsExported;
+    }
+
+    /**
+     * Get the number of Gists that were already in the archive from an earlier run
+     *
+     * @return the number of Gists skipped
+     */
+    public int getGistsSkipped() {
+        return mGistsSkipped;
+    }
+
+    /**
+     * Get the number of Gists that could not be downloaded.  They are retried when the export is
+     * run again.
+     *
+     * @return the number of Gists that failed
+     */
+    public int getGistsFailed() {
+        return mGistsFailed;
+    }
+
+    public int getFilesWritten() {
+        return mFilesWritten;
+    }
+
+    /**
+     * Get the number of bytes of file content downloaded during this run, before compression
+     *
+     * @return the number of bytes written
+     */
+    public long getBytesWritten() {
+        return mBytesWritten;
+    }
+
+    public long getElapsedMillis() {
+        return mElapsedMillis;
+    }
+
+    /**
+     * Get the average rate file content was downloaded and written during this run
+     *
+     * @return the throughput in bytes per second
+     */
+    public long getBytesPerSecond() {
+        return mElapsedMillis > 0 ? mBytesWritten * 1000 / mElapsedMillis : mBytesWritten;
+    }
+
+    /**
+     * Check if every Gist is in the finished archive
+     *
+     * @return TRUE if the archive is finished, FALSE if the export stopped early and can be resumed
+     */
+    public boolean isComplete() {
+        return mIsComplete;
+    }
+
+    /**
+     * Get the time the rate limit resets if the export stopped to stay within it
+     *
+     * @return the time the export can be resumed or NULL if it did not stop for the rate limit
+     */
+    public Date getRateLimitReset() {
+        return mRateLimitReset;
+    }
+}
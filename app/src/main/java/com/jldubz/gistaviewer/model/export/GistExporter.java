@@ -0,0 +1,430 @@
+package com.jldubz.gistaviewer.model.export;
+
+import com.google.gson.Gson;
+import com.jldubz.gistaviewer.model.NetworkUtil;
+import com.jldubz.gistaviewer.model.data.IGitHubService;
+import com.jldubz.gistaviewer.model.gists.Gist;
+import com.jldubz.gistaviewer.model.gists.GistFile;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Exports every Gist in the authorized user's list of Gists or starred Gists to a zip archive.
+ * <p>
+ * The lists are paged through with the GitHub API and each file is downloaded from its raw URL
+ * to a temporary file, so no file is ever held in memory in full.  Up to a fixed number of files
+ * are downloaded at once; only copying the downloaded files into the archive is done one file at
+ * a time.
+ * <p>
+ * Every Gist is written as its files followed by a {@code gist.json} entry, so a Gist is only
+ * complete once that entry is in the archive.  If the export stops early the unfinished archive
+ * is kept, and the next run copies the complete Gists out of it before downloading the rest.  The
+ * export also stops before the rate limit of the GitHub API runs out.
+ * <p>
+ * {@link #run()} blocks, so it must not be called from the main thread.
+ */
+public class GistExporter {
+
+    public static final int TYPE_YOUR_GISTS = 0;
+    public static final int TYPE_STARRED_GISTS = 1;
+
+    private static final String METADATA_ENTRY = "gist.json";
+    private static final String PART_SUFFIX = ".part";
+    private static final int BUFFER_SIZE = 8 * 1024;
+    //The largest page the GitHub API allows, so listing takes as few calls as possible
+    private static final int PAGE_SIZE = 100;
+    //API calls left in reserve so the rest of the app keeps working during an export
+    private static final int RATE_LIMIT_RESERVE = 10;
+
+    private final IGitHubService mGitHubService;
+    private final int mType;
+    private final File mArchiveFile;
+    private final File mTempDir;
+    private final int mMaxConcurrentDownloads;
+    private final IExportListener mListener;
+    private final Gson mGson = NetworkUtil.createGsonBuilder().create();
+
+    private final Set<Call<ResponseBody>> mDownloads = Collections.synchronizedSet(new HashSet<>());
+    private volatile boolean mIsCancelled;
+
+    private ZipOutputStream mZipStream;
+    private final Object mZipLock = new Object();
+    private final AtomicInteger mGistsExported = new AtomicInteger();
+    private final AtomicInteger mGistsFailed = new AtomicInteger();
+    private final AtomicInteger mFilesWritten = new AtomicInteger();
+    private long mBytesWritten;
+
+    /**
+     * @param gitHubService          the service used to list the Gists and download their files
+     * @param type                   {@link #TYPE_YOUR_GISTS} or {@link #TYPE_STARRED_GISTS}
+     * @param outputDir              the directory the archive is written to
+     * @param tempDir                the directory files are downloaded to before they are
+     *                               copied into the archive
+     * @param maxConcurrentDownloads the number of files downloaded at once
+     * @param listener               notified as each Gist is written, on the thread that wrote it
+     */
+    public GistExporter(IGitHubService gitHubService, int type, File outputDir, File tempDir,
+                        int maxConcurrentDownloads, IExportListener listener) {
+        mGitHubService = gitHubService;
+        mType = type;
+        mArchiveFile = new File(outputDir, type == TYPE_STARRED_GISTS ? "starred-gists.zip" : "your-gists.zip");
+        mTempDir = tempDir;
+        mMaxConcurrentDownloads = maxConcurrentDownloads;
+        mListener = listener;
+    }
+
+    /**
+     * Get the archive the Gists are written to once the export is complete
+     *
+     * @return the archive file
+     */
+    public File getArchiveFile() {
+        return mArchiveFile;
+    }
+
+    /**
+     * Stop the export as soon as possible.  The unfinished archive is kept so the export can be
+     * resumed.
+     */
+    public void cancel() {
+        mIsCancelled = true;
+        synchronized (mDownloads) {
+            for (Call<ResponseBody> download : mDownloads) {
+                download.cancel();
+            }
+        }
+    }
+
+    /**
+     * Run the export, resuming from an unfinished archive if there is one
+     *
+     * @return a summary of the run
+     * @throws IOException if the lists of Gists could not be read or the archive could not be
+     *                     written
+     */
+    public ExportReport run() throws IOException {
+        long startTime = System.currentTimeMillis();
+        File partFile = new File(mArchiveFile.getPath() + PART_SUFFIX);
+        File oldPartFile = new File(mArchiveFile.getPath() + PART_SUFFIX + ".old");
+
+        //A zip can't be appended to, so the unfinished archive is copied into a new one
+        //If the app was killed while copying, the old archive is still the one to resume from
+        if (partFile.exists() && !oldPartFile.exists() && !partFile.renameTo(oldPartFile)) {
+            throw new IOException("Couldn't resume the unfinished export");
+        }
+        Set<String> completeGistIds = new HashSet<>();
+        if (oldPartFile.exists()) {
+            completeGistIds = findCompleteGists(oldPartFile);
+        }
+        if (!mTempDir.isDirectory() && !mTempDir.mkdirs()) {
+            throw new IOException("Could not create " + mTempDir);
+        }
+
+        ExecutorService downloadExecutor = Executors.newFixedThreadPool(mMaxConcurrentDownloads);
+        Semaphore downloadPermits = new Semaphore(mMaxConcurrentDownloads * 2);
+        Set<String> startedGistIds = new HashSet<>();
+        int gistsSkipped = 0;
+        boolean isComplete = false;
+        Date rateLimitReset = null;
+        try {
+            mZipStream = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(partFile), BUFFER_SIZE));
+            if (oldPartFile.exists()) {
+                copyCompleteGists(oldPartFile, completeGistIds);
+                mZipStream.flush();
+                oldPartFile.delete();
+            }
+
+            for (int page = 1; !mIsCancelled; page++) {
+                Call<List<Gist>> listCall = mType == TYPE_STARRED_GISTS
+                        ? mGitHubService.getStarredGists(page, PAGE_SIZE)
+                        : mGitHubService.getYourGists(page, PAGE_SIZE);
+                Response<List<Gist>> response = listCall.execute();
+                if (!response.isSuccessful()) {
+                    throw new IOException(NetworkUtil.onGitHubResponseError(response));
+                }
+
+                List<Gist> gists = response.body();
+                if (gists == null || gists.isEmpty()) {
+                    isComplete = true;
+                    break;
+                }
+                for (Gist gist : gists) {
+                    if (completeGistIds.contains(gist.getId())) {
+                        gistsSkipped++;
+                        continue;
+                    }
+                    //A Gist created while paging shifts the rest onto the next page, so the same
+                    // Gist can be listed twice
+                    if (!startedGistIds.add(gist.getId())) {
+                        continue;
+                    }
+                    exportGist(gist, downloadExecutor, downloadPermits);
+                }
+
+                if (NetworkUtil.getLinkedPage(response.headers().get("Link"), "next") <= 0) {
+                    isComplete = true;
+                    break;
+                }
+                rateLimitReset = checkRateLimit(response);
+                if (rateLimitReset != null) {
+                    break;
+                }
+            }
+
+            //Wait for the downloads in flight to be written
+            downloadPermits.acquireUninterruptibly(mMaxConcurrentDownloads * 2);
+        } finally {
+            downloadExecutor.shutdownNow();
+            if (mZipStream != null) {
+                mZipStream.close();
+            }
+        }
+
+        isComplete = isComplete && !mIsCancelled && mGistsFailed.get() == 0;
+        if (isComplete) {
+            if (mArchiveFile.exists()) {
+                mArchiveFile.delete();
+            }
+            if (!partFile.renameTo(mArchiveFile)) {
+                throw new IOException("Couldn't finish the export");
+            }
+        }
+
+        return new ExportReport(mArchiveFile, mGistsExported.get(), gistsSkipped, mGistsFailed.get(), mFilesWritten.get(),
+                getBytesWritten(), System.currentTimeMillis() - startTime, isComplete, rateLimitReset);
+    }
+
+    /**
+     * Download the files of a Gist on the download executor, followed by its metadata once every
+     * file has been written
+     */
+    private void exportGist(Gist gist, ExecutorService downloadExecutor, Semaphore downloadPermits) {
+        Map<String, GistFile> files = gist.getFiles();
+        List<GistFile> fileList = files != null ? new ArrayList<>(files.values()) : new ArrayList<>();
+        if (fileList.isEmpty()) {
+            finishGist(gist, true);
+            return;
+        }
+
+        AtomicInteger filesRemaining = new AtomicInteger(fileList.size());
+        AtomicInteger filesFailed = new AtomicInteger();
+        for (GistFile file : fileList) {
+            //Limit how far the listing gets ahead of the downloads
+            downloadPermits.acquireUninterruptibly();
+            downloadExecutor.execute(() -> {
+                try {
+                    if (mIsCancelled || !downloadFile(gist, file)) {
+                        filesFailed.incrementAndGet();
+                    }
+                } finally {
+                    if (filesRemaining.decrementAndGet() == 0) {
+                        finishGist(gist, filesFailed.get() == 0);
+                    }
+                    downloadPermits.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * Download a file to a temporary file and copy it into the archive
+     *
+     * @return TRUE if the file was written, FALSE if it could not be downloaded
+     */
+    private boolean downloadFile(Gist gist, GistFile file) {
+        if (file.getRaw_url() == null) {
+            return false;
+        }
+
+        Call<ResponseBody> download = mGitHubService.getRawFile(file.getRaw_url());
+        mDownloads.add(download);
+        File tempFile = null;
+        try {
+            Response<ResponseBody> response = download.execute();
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                return false;
+            }
+
+            //The download runs in parallel with the others; only the copy into the archive is
+            // serialized, and it no longer waits on the network
+            tempFile = File.createTempFile("export", ".tmp", mTempDir);
+            try (InputStream input = body.byteStream();
+                 OutputStream output = new FileOutputStream(tempFile)) {
+                copy(input, output);
+            }
+            try (InputStream input = new FileInputStream(tempFile)) {
+                synchronized (mZipLock) {
+                    mZipStream.putNextEntry(new ZipEntry(gist.getId() + "/" + file.getFilename()));
+                    long bytes = copy(input, mZipStream);
+                    mZipStream.closeEntry();
+                    mBytesWritten += bytes;
+                }
+            }
+            mFilesWritten.incrementAndGet();
+            return true;
+        } catch (IOException exception) {
+            return false;
+        } finally {
+            mDownloads.remove(download);
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Write the metadata of a Gist after its files, which marks it as complete in the archive
+     *
+     * @param gist         the Gist
+     * @param isSuccessful FALSE if any of its files could not be downloaded
+     */
+    private void finishGist(Gist gist, boolean isSuccessful) {
+        if (!isSuccessful) {
+            mGistsFailed.incrementAndGet();
+            return;
+        }
+
+        byte[] metadata = mGson.toJson(gist).getBytes(Charset.forName("UTF-8"));
+        try {
+            synchronized (mZipLock) {
+                mZipStream.putNextEntry(new ZipEntry(gist.getId() + "/" + METADATA_ENTRY));
+                mZipStream.write(metadata);
+                mZipStream.closeEntry();
+                //Make sure the Gist survives the app being killed before the archive is closed
+                mZipStream.flush();
+            }
+        } catch (IOException exception) {
+            mGistsFailed.incrementAndGet();
+            return;
+        }
+        int gistsExported = mGistsExported.incrementAndGet();
+        mListener.onGistExported(gistsExported, getBytesWritten());
+    }
+
+    private long getBytesWritten() {
+        synchronized (mZipLock) {
+            return mBytesWritten;
+        }
+    }
+
+    /**
+     * Check if the export should stop to stay within the rate limit
+     *
+     * @param response the last response from the GitHub API
+     * @return the time the rate limit resets if the export should stop or NULL to keep going
+     */
+    private Date checkRateLimit(Response<?> response) {
+        String remaining = response.headers().get("X-RateLimit-Remaining");
+        String reset = response.headers().get("X-RateLimit-Reset");
+        if (remaining == null || reset == null) {
+            return null;
+        }
+        try {
+            if (Integer.parseInt(remaining) > RATE_LIMIT_RESERVE) {
+                return null;
+            }
+            return new Date(Long.parseLong(reset) * 1000);
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Find the Gists whose metadata, and so every file, made it into an unfinished archive.  The
+     * last entry may have been cut short, so reading stops at the first broken entry.
+     *
+     * @param archive the unfinished archive
+     * @return the IDs of the complete Gists
+     */
+    private static Set<String> findCompleteGists(File archive) {
+        Set<String> completeGistIds = new HashSet<>();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (ZipInputStream input = new ZipInputStream(new FileInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                //Read the whole entry so a truncated one fails here
+                while (input.read(buffer) >= 0) {
+                    //Skip to the end of the entry
+                }
+                String name = entry.getName();
+                if (name.endsWith("/" + METADATA_ENTRY)) {
+                    completeGistIds.add(name.substring(0, name.indexOf('/')));
+                }
+            }
+        } catch (IOException exception) {
+            //Keep the Gists that were read before the archive was cut short
+        }
+        return completeGistIds;
+    }
+
+    /**
+     * Copy the entries of the complete Gists from an unfinished archive into the new archive
+     *
+     * @param archive         the unfinished archive
+     * @param completeGistIds the IDs of the Gists to copy
+     * @throws IOException if the unfinished archive could not be copied
+     */
+    private void copyCompleteGists(File archive, Set<String> completeGistIds) throws IOException {
+        try (ZipInputStream input = new ZipInputStream(new FileInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                String name = entry.getName();
+                int separator = name.indexOf('/');
+                if (separator < 0 || !completeGistIds.contains(name.substring(0, separator))) {
+                    continue;
+                }
+                mZipStream.putNextEntry(new ZipEntry(name));
+                copy(input, mZipStream);
+                mZipStream.closeEntry();
+            }
+        }
+    }
+
+    private static long copy(InputStream input, OutputStream output) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        int count;
+        while ((count = input.read(buffer)) >= 0) {
+            output.write(buffer, 0, count);
+            total += count;
+        }
+        return total;
+    }
+
+    public interface IExportListener {
+
+        /**
+         * Called each time a Gist has been written to the archive
+         *
+         * @param gistsExported the number of Gists written so far during this run
+         * @param bytesWritten  the number of bytes of file content written so far during this run
+         */
+        void onGistExported(int gistsExported, long bytesWritten);
+    }
+}
@@ -0,0 +1,204 @@
+package com.jldubz.gistaviewer.model.files;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The content of a Gist file, kept as the UTF-8 bytes it was downloaded as, with an index of
+ * where each line starts.
+ * <p>
+ * The index is built while the bytes are read in, in the same pass, and takes one {@code int}
+ * per line.  A line is only decoded into a string when it is shown, so a file of a million lines
+ * costs its own size plus 4 MB rather than a million strings, and any line can be reached
+ * directly by its number.
+ */
+public class FileContent {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    //A guess at the length of a line, so the index rarely has to grow while reading
+    private static final int EXPECTED_LINE_LENGTH = 32;
+
+    private final byte[] mBytes;
+    private final int mLength;
+    private final int[] mLineStarts;
+    private final int mLineCount;
+
+    private FileContent(byte[] bytes, int length, int[] lineStarts, int lineCount) {
+        mBytes = bytes;
+        mLength = length;
+        mLineStarts = lineStarts;
+        mLineCount = lineCount;
+    }
+
+    /**
+     * Read the content of a file, indexing its lines as it is read
+     *
+     * @param input        the content, which is read to the end but not closed
+     * @param expectedSize the size of the content in bytes if it is known, or 0
+     * @return the content
+     * @throws IOException if the content could not be read or the thread was interrupted
+     */
+    public static FileContent read(InputStream input, int expectedSize) throws IOException {
+        //One byte to spare, so reading the end of a file of the expected size doesn't grow the array
+        byte[] bytes = new byte[Math.max(expectedSize + 1, BUFFER_SIZE)];
+        int[] lineStarts = new int[Math.max(bytes.length / EXPECTED_LINE_LENGTH, 16)];
+        int lineCount = 1;
+        int length = 0;
+
+        int count;
+        while ((count = input.read(bytes, length, Math.min(bytes.length - length, BUFFER_SIZE))) >= 0) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IOException("Interrupted");
+            }
+            for (int i = length; i < length + count; i++) {
+                if (bytes[i] != '\n') {
+                    continue;
+                }
+                if (lineCount == lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+                }
+                lineStarts[lineCount++] = i + 1;
+            }
+            length += count;
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+        }
+        return create(bytes, length, lineStarts, lineCount);
+    }
+
+    /**
+     * Index the content of a file that is already in memory
+     *
+     * @param content the content
+     * @return the content
+     */
+    public static FileContent of(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        int[] lineStarts = new int[Math.max(bytes.length / EXPECTED_LINE_LENGTH, 16)];
+        int lineCount = 1;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            if (lineCount == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+            }
+            lineStarts[lineCount++] = i + 1;
+        }
+        return create(bytes, bytes.length, lineStarts, lineCount);
+    }
+
+    private static FileContent create(byte[] bytes, int length, int[] lineStarts, int lineCount) {
+        //A final line break ends the last line rather than starting an empty one
+        if (lineCount > 1 && lineStarts[lineCount - 1] == length) {
+            lineCount--;
+        } else if (length == 0) {
+            lineCount = 0;
+        }
+        //Keep only what is used, since the content stays in memory while the file is viewed
+        if (bytes.length != length) {
+            bytes = Arrays.copyOf(bytes, length);
+        }
+        if (lineStarts.length != lineCount) {
+            lineStarts = Arrays.copyOf(lineStarts, lineCount);
+        }
+        return new FileContent(bytes, length, lineStarts, lineCount);
+    }
+
+    public int getLineCount() {
+        return mLineCount;
+    }
+
+    /**
+     * Get the offset of the first byte of a line
+     *
+     * @param line the index of the line, from 0
+     * @return the offset in {@link #getBytes()}
+     */
+    public int getLineStart(int line) {
+        return mLineStarts[line];
+    }
+
+    /**
+     * Get the offset just past the last byte of a line, not counting its line break
+     *
+     * @param line the index of the line, from 0
+     * @return the offset in {@link #getBytes()}
+     */
+    public int getLineEnd(int line) {
+        int start = mLineStarts[line];
+        int end = line + 1 < mLineCount ? mLineStarts[line + 1] : mLength;
+        //Drop the line feed and the carriage return that may come before it
+        if (end > start && mBytes[end - 1] == '\n') {
+            end--;
+        }
+        if (end > start && mBytes[end - 1] == '\r') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Find the line a byte of the content is on
+     *
+     * @param offset the offset in {@link #getBytes()}
+     * @return the index of the line, from 0
+     */
+    public int getLineAt(int offset) {
+        int line = Arrays.binarySearch(mLineStarts, 0, mLineCount, offset);
+        //Between two line starts, so on the line that starts before it
+        return line >= 0 ? line : Math.max(-line - 2, 0);
+    }
+
+    /**
+     * Count the chars the bytes between two offsets decode to, e.g. to turn the offset of a byte
+     * on a line into an index into the decoded line
+     *
+     * @param start the offset of the first byte, which must start a character
+     * @param end   the offset just past the last byte
+     * @return the number of UTF-16 chars
+     */
+    public int getCharCount(int start, int end) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            int b = mBytes[i] & 0xFF;
+            //Continuation bytes add nothing and four byte characters decode to a surrogate pair
+            if ((b & 0xC0) != 0x80) {
+                count += b >= 0xF0 ? 2 : 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get a line of the file, decoded from the bytes of just that line
+     *
+     * @param line the index of the line, from 0
+     * @return the line without its line break
+     */
+    public String getLine(int line) {
+        int start = mLineStarts[line];
+        return new String(mBytes, start, getLineEnd(line) - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the bytes of the content, which must not be changed
+     *
+     * @return the UTF-8 bytes of the content
+     */
+    public byte[] getBytes() {
+        return mBytes;
+    }
+
+    /**
+     * Get the memory the content takes, for sizing caches of content
+     *
+     * @return the number of bytes of the content and its index
+     */
+    public int getMemorySize() {
+        return mLength + mLineCount * 4;
+    }
+}
@@ -0,0 +1,395 @@
+package com.jldubz.gistaviewer.model.files;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Finds every match of a query in the content of a Gist file.
+ * <p>
+ * A plain query is looked for in the bytes of the content with the Boyer-Moore-Horspool
+ * algorithm, which decodes nothing and skips ahead by up to the length of the query at each step.
+ * A regular expression is matched against runs of whole lines; lines that are all ASCII are
+ * matched straight off their bytes, anything else once it is decoded.
+ * <p>
+ * Matches are kept in order as byte offsets into the content, and can be read from any thread
+ * while the search is still running.  The listener is told about them in batches as they are
+ * found, so the first ones can be shown long before a large file has been searched to the end.
+ * <p>
+ * {@link #run()} blocks, so it must not be called from the main thread.
+ */
+public class FileSearch {
+
+    //Matches are reported at most this far apart while the search finds them
+    private static final long REPORT_INTERVAL_NANOS = 50 * 1000 * 1000;
+    //About how many bytes are searched between checks that the search is still wanted
+    private static final int CHUNK_SIZE = 64 * 1024;
+    //Shorter queries can't skip far enough for Boyer-Moore-Horspool to beat a plain scan
+    private static final int MIN_SKIP_LENGTH = 4;
+
+    private final FileContent mContent;
+    private final String mQuery;
+    private final Pattern mPattern;
+    private final int mMaxMatches;
+    private final ISearchListener mListener;
+
+    private int[] mStarts = new int[64];
+    private int[] mEnds = new int[64];
+    private int mMatchCount;
+    private boolean mIsTruncated;
+    private boolean mIsComplete;
+    private volatile boolean mIsCancelled;
+    private long mLastReportTime;
+
+    /**
+     * @param content    the content to search
+     * @param query      the text or regular expression to look for
+     * @param isRegex    TRUE if the query is a regular expression
+     * @param maxMatches the number of matches to stop at
+     * @param listener   notified as matches are found, on the thread running the search
+     * @throws PatternSyntaxException if the query is not a valid regular expression
+     */
+    public FileSearch(FileContent content, String query, boolean isRegex, int maxMatches,
+                      ISearchListener listener) {
+        mContent = content;
+        mQuery = query;
+        mPattern = isRegex ? Pattern.compile(query, Pattern.MULTILINE) : null;
+        mMaxMatches = maxMatches;
+        mListener = listener;
+    }
+
+    /**
+     * Stop the search as soon as possible.  The matches found so far are kept.
+     */
+    public void cancel() {
+        mIsCancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return mIsCancelled;
+    }
+
+    /**
+     * Run the search to the end of the content, or until it is canceled or has found the maximum
+     * number of matches
+     */
+    public void run() {
+        if (mPattern == null) {
+            findText();
+        } else {
+            findPattern();
+        }
+
+        if (mIsCancelled) {
+            return;
+        }
+        synchronized (this) {
+            mIsComplete = true;
+        }
+        mListener.onMatchesFound(this);
+    }
+
+    /**
+     * Check if the search has run to its end
+     *
+     * @return TRUE if no more matches will be found
+     */
+    public synchronized boolean isComplete() {
+        return mIsComplete;
+    }
+
+    /**
+     * Check if the search stopped at the maximum number of matches before reaching the end
+     *
+     * @return TRUE if there may be more matches than were found
+     */
+    public synchronized boolean isTruncated() {
+        return mIsTruncated;
+    }
+
+    public synchronized int getMatchCount() {
+        return mMatchCount;
+    }
+
+    /**
+     * Get the offset of the first byte of a match
+     *
+     * @param match the index of the match
+     * @return the offset in {@link FileContent#getBytes()}
+     */
+    public synchronized int getMatchStart(int match) {
+        return mStarts[match];
+    }
+
+    /**
+     * Get the offset just past the last byte of a match
+     *
+     * @param match the index of the match
+     * @return the offset in {@link FileContent#getBytes()}
+     */
+    public synchronized int getMatchEnd(int match) {
+        return mEnds[match];
+    }
+
+    /**
+     * Find the first match that ends after an offset, e.g. the first match on a line
+     *
+     * @param offset the offset in {@link FileContent#getBytes()}
+     * @return the index of the match, or the match count if there is none yet
+     */
+    public synchronized int findMatch(int offset) {
+        //Matches don't overlap, so their ends are in order too
+        int match = Arrays.binarySearch(mEnds, 0, mMatchCount, offset);
+        return match >= 0 ? match + 1 : -match - 1;
+    }
+
+    /**
+     * Look for the query as plain text with the Boyer-Moore-Horspool algorithm
+     */
+    private void findText() {
+        byte[] text = mContent.getBytes();
+        byte[] pattern = mQuery.getBytes(StandardCharsets.UTF_8);
+        int length = pattern.length;
+        if (length == 0) {
+            return;
+        }
+        if (length < MIN_SKIP_LENGTH) {
+            findShortText(text, pattern);
+            return;
+        }
+
+        //How far the pattern can move when a byte is under its last byte and it doesn't match
+        int[] skip = new int[256];
+        Arrays.fill(skip, length);
+        for (int i = 0; i < length - 1; i++) {
+            skip[pattern[i] & 0xFF] = length - 1 - i;
+        }
+
+        byte last = pattern[length - 1];
+        int lastStart = text.length - length;
+        int start = 0;
+        while (start <= lastStart && !mIsCancelled) {
+            int chunkEnd = Math.min(start + CHUNK_SIZE, lastStart);
+            while (start <= chunkEnd) {
+                byte b = text[start + length - 1];
+                if (b == last && isMatchAt(text, start, pattern)) {
+                    if (!addMatch(start, start + length)) {
+                        return;
+                    }
+                    start += length;
+                } else {
+                    start += skip[b & 0xFF];
+                }
+            }
+        }
+    }
+
+    /**
+     * Look for a query too short to skip far with by finding its first byte and comparing the rest
+     */
+    private void findShortText(byte[] text, byte[] pattern) {
+        byte first = pattern[0];
+        int lastStart = text.length - pattern.length;
+        int start = 0;
+        while (start <= lastStart && !mIsCancelled) {
+            int chunkEnd = Math.min(start + CHUNK_SIZE, lastStart + 1);
+            while (start < chunkEnd) {
+                if (text[start] != first || !isMatchAt(text, start, pattern)) {
+                    start++;
+                    continue;
+                }
+                if (!addMatch(start, start + pattern.length)) {
+                    return;
+                }
+                start += pattern.length;
+            }
+        }
+    }
+
+    private static boolean isMatchAt(byte[] text, int start, byte[] pattern) {
+        for (int i = pattern.length - 1; i >= 0; i--) {
+            if (text[start + i] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Match the regular expression against the content a run of whole lines at a time, so the
+     * search can stop between runs and {@code ^} and {@code $} still match at each line
+     */
+    private void findPattern() {
+        byte[] bytes = mContent.getBytes();
+        Matcher asciiMatcher = mPattern.matcher(new AsciiSequence(bytes));
+        int lineCount = mContent.getLineCount();
+        int line = 0;
+        while (line < lineCount && !mIsCancelled) {
+            int start = mContent.getLineStart(line);
+            int lastLine = mContent.getLineAt(start + CHUNK_SIZE);
+            int end = lastLine + 1 < lineCount ? mContent.getLineStart(lastLine + 1) : bytes.length;
+            boolean isMatching = isAscii(bytes, start, end)
+                    ? findPatternInBytes(asciiMatcher, start, end)
+                    : findPatternInText(start, end);
+            if (!isMatching) {
+                return;
+            }
+            line = lastLine + 1;
+        }
+    }
+
+    /**
+     * Match lines that are all ASCII straight off their bytes, where each char is at the offset of
+     * its byte
+     *
+     * @return FALSE if the search should stop
+     */
+    private boolean findPatternInBytes(Matcher matcher, int start, int end) {
+        matcher.region(start, end);
+        while (matcher.find()) {
+            if (!addPatternMatch(matcher.start(), matcher.end())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Match lines that are not all ASCII once they are decoded, turning the positions of the
+     * matches back into byte offsets
+     *
+     * @return FALSE if the search should stop
+     */
+    private boolean findPatternInText(int start, int end) {
+        String text = new String(mContent.getBytes(), start, end - start, StandardCharsets.UTF_8);
+        Matcher matcher = mPattern.matcher(text);
+        //Count the bytes up to each match from where the last one left off
+        int index = 0;
+        int offset = start;
+        while (matcher.find()) {
+            offset += getByteCount(text, index, matcher.start());
+            index = matcher.start();
+            if (!addPatternMatch(offset, offset + getByteCount(text, matcher.start(), matcher.end()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Count the bytes the chars between two indexes of a string encode to in UTF-8
+     */
+    private static int getByteCount(String text, int start, int end) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                count++;
+            } else if (c < 0x800) {
+                count += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                count += 4;
+                i++;
+            } else {
+                count += 3;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isAscii(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Keep a match of the regular expression, cut off at the end of the line it starts on since
+     * each line is shown on its own
+     *
+     * @return FALSE if the search should stop
+     */
+    private boolean addPatternMatch(int start, int end) {
+        end = Math.min(end, mContent.getLineEnd(mContent.getLineAt(start)));
+        //An empty match has nothing to show
+        return end <= start || addMatch(start, end);
+    }
+
+    /**
+     * Keep a match and let the listener know about it if it's been a while since the last report
+     *
+     * @return FALSE if the search should stop
+     */
+    private boolean addMatch(int start, int end) {
+        boolean isFull;
+        synchronized (this) {
+            if (mMatchCount == mStarts.length) {
+                mStarts = Arrays.copyOf(mStarts, mMatchCount * 2);
+                mEnds = Arrays.copyOf(mEnds, mMatchCount * 2);
+            }
+            mStarts[mMatchCount] = start;
+            mEnds[mMatchCount] = end;
+            mMatchCount++;
+            isFull = mMatchCount >= mMaxMatches;
+            mIsTruncated = isFull;
+        }
+        if (isFull) {
+            return false;
+        }
+
+        //The first match is reported right away
+        long now = System.nanoTime();
+        if (mLastReportTime == 0 || now - mLastReportTime >= REPORT_INTERVAL_NANOS) {
+            mLastReportTime = now;
+            mListener.onMatchesFound(this);
+        }
+        return !mIsCancelled;
+    }
+
+    /**
+     * Content that is all ASCII, read as chars without decoding it
+     */
+    private static class AsciiSequence implements CharSequence {
+
+        private final byte[] mBytes;
+
+        AsciiSequence(byte[] bytes) {
+            mBytes = bytes;
+        }
+
+        @Override
+        public int length() {
+            return mBytes.length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) mBytes[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(mBytes, start, end - start, StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public String toString() {
+            return new String(mBytes, StandardCharsets.US_ASCII);
+        }
+    }
+
+    public interface ISearchListener {
+
+        /**
+         * Called when more matches have been found, and once more when the search is complete
+         *
+         * @param search the search that found them
+         */
+        void onMatchesFound(FileSearch search);
+    }
+}
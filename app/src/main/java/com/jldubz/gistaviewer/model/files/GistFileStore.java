@@ -0,0 +1,308 @@
+package com.jldubz.gistaviewer.model.files;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import com.jldubz.gistaviewer.model.NetworkUtil;
+import com.jldubz.gistaviewer.model.data.IGitHubService;
+import com.jldubz.gistaviewer.model.gists.GistFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Holds the files of one Gist and loads the content of each file only once it is needed, e.g.
+ * when it scrolls into view or is expanded.
+ * <p>
+ * Content that came with the Gist is indexed in the background; files too large to be included
+ * in full are streamed from their raw URL and indexed as they arrive.  A load that is no longer
+ * needed because its file scrolled out of view before it started is dropped with
+ * {@link #releaseContent(int)}.  Loaded content is kept in a least recently used cache capped by
+ * the memory it takes, so opening a Gist with a hundred files costs no more than the files that
+ * are actually looked at.
+ * <p>
+ * The content of the files that are shown is retained outside of the cache, so it can't be
+ * evicted, and loaded again, while it is in view; the cache shrinks by the memory it takes
+ * instead.  A file larger than the whole cap is never loaded and counts as failed.
+ * <p>
+ * All methods must be called from the main thread, and the listener is notified on it.
+ */
+public class GistFileStore {
+
+    private final IGitHubService mGitHubService;
+    private final ExecutorService mExecutor;
+    private final IStoreListener mListener;
+    private final int mMaxBytes;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private final List<GistFile> mFiles = new ArrayList<>();
+    private final LruCache<Integer, FileContent> mContents;
+    private final Map<Integer, Future<?>> mLoads = new HashMap<>();
+    private final Set<Integer> mFailedFiles = new HashSet<>();
+    private final Set<Integer> mOversizedFiles = new HashSet<>();
+    //The number of views showing each file, and the content of the files that are shown
+    private final Map<Integer, Integer> mRetainCounts = new HashMap<>();
+    private final Map<Integer, FileContent> mRetainedContents = new HashMap<>();
+    private int mRetainedBytes;
+    //Downloads are read on the executor, so they are canceled from the main thread through here
+    private final Set<Call<ResponseBody>> mDownloads = Collections.synchronizedSet(new HashSet<>());
+    private boolean mIsClosed;
+
+    /**
+     * @param gitHubService the service the raw content of truncated files is downloaded with
+     * @param executor      the executor content is loaded on
+     * @param maxBytes      the total memory the loaded content may take, in bytes
+     * @param listener      notified when the content of a file has loaded or failed to
+     */
+    public GistFileStore(IGitHubService gitHubService, ExecutorService executor, int maxBytes,
+                         IStoreListener listener) {
+        mGitHubService = gitHubService;
+        mExecutor = executor;
+        mListener = listener;
+        mMaxBytes = maxBytes;
+        mContents = new LruCache<Integer, FileContent>(maxBytes) {
+            @Override
+            protected int sizeOf(Integer key, FileContent value) {
+                return Math.max(value.getMemorySize(), 1);
+            }
+        };
+    }
+
+    /**
+     * Set the files of the Gist, in the order they are shown.  Content loaded for the previous
+     * files is dropped.
+     *
+     * @param files the files of the Gist
+     */
+    public void setFiles(Collection<GistFile> files) {
+        for (Future<?> load : mLoads.values()) {
+            load.cancel(true);
+        }
+        mLoads.clear();
+        mContents.evictAll();
+        //The views keep retaining their positions, which now show the new files
+        mRetainedContents.clear();
+        mRetainedBytes = 0;
+        mFailedFiles.clear();
+        mOversizedFiles.clear();
+        mFiles.clear();
+        if (files != null) {
+            mFiles.addAll(files);
+        }
+    }
+
+    public int getFileCount() {
+        return mFiles.size();
+    }
+
+    public GistFile getFile(int index) {
+        return mFiles.get(index);
+    }
+
+    /**
+     * Get the content of a file if it has been loaded
+     *
+     * @param index the index of the file
+     * @return the content or NULL if it is not loaded, see {@link #requestContent(int)}
+     */
+    public FileContent getContent(int index) {
+        FileContent content = mRetainedContents.get(index);
+        return content != null ? content : mContents.get(index);
+    }
+
+    /**
+     * Check if the content of a file could not be loaded the last time it was requested
+     *
+     * @param index the index of the file
+     * @return TRUE if the last load failed
+     */
+    public boolean isFailed(int index) {
+        return mFailedFiles.contains(index) || mOversizedFiles.contains(index);
+    }
+
+    /**
+     * Start loading the content of a file in the background, unless it is loaded or already
+     * loading.  The listener is notified once it is done.
+     *
+     * @param index the index of the file
+     */
+    public void requestContent(int index) {
+        if (mIsClosed || getContent(index) != null || mLoads.containsKey(index)
+                || mOversizedFiles.contains(index)) {
+            return;
+        }
+        GistFile file = mFiles.get(index);
+        //Content that can't fit in the cache would be loaded again every time it is shown
+        if (file.getSize() > mMaxBytes) {
+            mOversizedFiles.add(index);
+            return;
+        }
+        mFailedFiles.remove(index);
+        mLoads.put(index, mExecutor.submit(() -> {
+            FileContent content;
+            try {
+                content = load(file);
+            } catch (IOException exception) {
+                content = null;
+            }
+            FileContent loadedContent = content;
+            mMainHandler.post(() -> onLoaded(index, file, loadedContent));
+        }));
+    }
+
+    /**
+     * Keep the content of a file in memory while a view shows it, even if that takes more than
+     * the cap.  Every call must be matched by a call to {@link #releaseContent(int)}.
+     *
+     * @param index the index of the file
+     */
+    public void retainContent(int index) {
+        Integer count = mRetainCounts.get(index);
+        mRetainCounts.put(index, count != null ? count + 1 : 1);
+        if (count != null) {
+            return;
+        }
+        FileContent content = mContents.remove(index);
+        if (content != null) {
+            mRetainedContents.put(index, content);
+            mRetainedBytes += content.getMemorySize();
+            trimCache();
+        }
+    }
+
+    /**
+     * Called when a view no longer shows a file.  Once no view shows it, its content goes back
+     * into the cache, and its load is dropped if it hasn't started yet.  A load that has started
+     * is left to finish, so its content is ready if the file comes back into view.
+     *
+     * @param index the index of the file
+     */
+    public void releaseContent(int index) {
+        Integer count = mRetainCounts.get(index);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            mRetainCounts.put(index, count - 1);
+            return;
+        }
+        mRetainCounts.remove(index);
+        FileContent content = mRetainedContents.remove(index);
+        if (content != null) {
+            mRetainedBytes -= content.getMemorySize();
+            mContents.put(index, content);
+            trimCache();
+        }
+
+        Future<?> load = mLoads.get(index);
+        if (load != null && load.cancel(false)) {
+            mLoads.remove(index);
+        }
+    }
+
+    /**
+     * Stop every load and drop the loaded content
+     */
+    public void close() {
+        mIsClosed = true;
+        for (Future<?> load : mLoads.values()) {
+            load.cancel(true);
+        }
+        mLoads.clear();
+        synchronized (mDownloads) {
+            for (Call<ResponseBody> download : mDownloads) {
+                download.cancel();
+            }
+        }
+        mMainHandler.removeCallbacksAndMessages(null);
+        mContents.evictAll();
+        mRetainedContents.clear();
+        mRetainedBytes = 0;
+    }
+
+    private void onLoaded(int index, GistFile file, FileContent content) {
+        //The files were replaced while this one was loading
+        if (mIsClosed || index >= mFiles.size() || mFiles.get(index) != file) {
+            return;
+        }
+        mLoads.remove(index);
+        if (content == null) {
+            mFailedFiles.add(index);
+        } else if (content.getMemorySize() > mMaxBytes) {
+            //Larger than the size the Gist gave for the file, once its lines are indexed
+            mOversizedFiles.add(index);
+        } else if (mRetainCounts.containsKey(index)) {
+            mRetainedContents.put(index, content);
+            mRetainedBytes += content.getMemorySize();
+            trimCache();
+        } else {
+            mContents.put(index, content);
+            trimCache();
+        }
+        mListener.onContentLoaded(index);
+    }
+
+    /**
+     * Evict content from the cache until it and the retained content fit in the cap together
+     */
+    private void trimCache() {
+        mContents.trimToSize(Math.max(mMaxBytes - mRetainedBytes, 0));
+    }
+
+    /**
+     * Load the content of a file.  This is called on the executor, so downloads are made in line.
+     *
+     * @param file the file
+     * @return the content
+     * @throws IOException if the content could not be downloaded
+     */
+    private FileContent load(GistFile file) throws IOException {
+        if (!file.isTruncated() && file.getContent() != null) {
+            return FileContent.of(file.getContent());
+        }
+        if (file.getRaw_url() == null) {
+            throw new IOException("No content for " + file.getFilename());
+        }
+
+        Call<ResponseBody> download = mGitHubService.getRawFile(file.getRaw_url());
+        mDownloads.add(download);
+        try {
+            Response<ResponseBody> response = download.execute();
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException(NetworkUtil.onGitHubResponseError(response));
+            }
+            //The size of the file is known, so its bytes are read into an array of the right size
+            try (InputStream input = body.byteStream()) {
+                return FileContent.read(input, file.getSize());
+            }
+        } finally {
+            mDownloads.remove(download);
+        }
+    }
+
+    public interface IStoreListener {
+
+        /**
+         * Called when the content of a file has loaded, or failed to load
+         *
+         * @param index the index of the file
+         */
+        void onContentLoaded(int index);
+    }
+}
@@ -2,9 +2,11 @@ package com.jldubz.gistaviewer.model.gists;
 
 import androidx.annotation.Keep;
 
+import com.jldubz.gistaviewer.model.DateFormatUtil;
 import com.jldubz.gistaviewer.model.GitHubUser;
 
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 @Keep
@@ -24,7 +26,12 @@ public class Gist {
         "description": "Hello World Examples",
         "owner": {
 
-        }
+        },
+        "history": [
+          {
+
+          }
+        ]
       }
     */
     private String id;
@@ -33,6 +40,12 @@ public class Gist {
     private Date updated_at;
     private String description;
     private GitHubUser owner;
+    private List<GistHistory> history;
+
+    //Display strings are not part of the API response; they are formatted once and reused
+    private transient String createdAtText;
+    private transient String updatedAtText;
+    private transient String updatedAtDateText;
 
     public String getId() {
         return id;
@@ -56,6 +69,7 @@ public class Gist {
 
     public void setCreated_at(Date created_at) {
         this.created_at = created_at;
+        this.createdAtText = null;
     }
 
     public Date getUpdated_at() {
@@ -64,6 +78,8 @@ public class Gist {
 
     public void setUpdated_at(Date updated_at) {
         this.updated_at = updated_at;
+        this.updatedAtText = null;
+        this.updatedAtDateText = null;
     }
 
     public String getDescription() {
@@ -81,4 +97,62 @@ public class Gist {
     public void setOwner(GitHubUser owner) {
         this.owner = owner;
     }
+
+    /**
+     * Get the revisions of the Gist, newest first
+     *
+     * @return the revisions or NULL if they were not part of the response
+     */
+    public List<GistHistory> getHistory() {
+        return history;
+    }
+
+    public void setHistory(List<GistHistory> history) {
+        this.history = history;
+    }
+
+    /**
+     * Get the date and time the Gist was created, formatted for display
+     *
+     * @return the formatted date and time
+     */
+    public String getCreatedAtText() {
+        if (createdAtText == null) {
+            createdAtText = DateFormatUtil.formatDateTime(created_at);
+        }
+        return createdAtText;
+    }
+
+    /**
+     * Get the date and time the Gist was last updated, formatted for display
+     *
+     * @return the formatted date and time
+     */
+    public String getUpdatedAtText() {
+        if (updatedAtText == null) {
+            updatedAtText = DateFormatUtil.formatDateTime(updated_at);
+        }
+        return updatedAtText;
+    }
+
+    /**
+     * Get the date the Gist was last updated without the time, formatted for display
+     *
+     * @return the formatted date
+     */
+    public String getUpdatedAtDateText() {
+        if (updatedAtDateText == null) {
+            updatedAtDateText = DateFormatUtil.formatDate(updated_at);
+        }
+        return updatedAtDateText;
+    }
+
+    /**
+     * Format all of the display strings ahead of time so that binding a view does no formatting
+     */
+    public void precomputeDisplayText() {
+        getCreatedAtText();
+        getUpdatedAtText();
+        getUpdatedAtDateText();
+    }
 }
@@ -0,0 +1,44 @@
+package com.jldubz.gistaviewer.model.gists;
+
+import androidx.annotation.Keep;
+
+@Keep
+public class GistChangeStatus {
+
+    /*
+    Modified sample data from: https://developer.github.com/v3/gists/#get-a-single-gist
+    {
+        "deletions": 0,
+        "additions": 180,
+        "total": 180
+      }
+    */
+
+    private int deletions;
+    private int additions;
+    private int total;
+
+    public int getDeletions() {
+        return deletions;
+    }
+
+    public void setDeletions(int deletions) {
+        this.deletions = deletions;
+    }
+
+    public int getAdditions() {
+        return additions;
+    }
+
+    public void setAdditions(int additions) {
+        this.additions = additions;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+}
@@ -2,6 +2,7 @@ package com.jldubz.gistaviewer.model.gists;
 
 import androidx.annotation.Keep;
 
+import com.jldubz.gistaviewer.model.DateFormatUtil;
 import com.jldubz.gistaviewer.model.GitHubUser;
 
 import java.util.Date;
@@ -28,6 +29,10 @@ public class GistComment {
     private Date created_at;
     private Date updated_at;
 
+    //Display strings are not part of the API response; they are formatted once and reused
+    private transient String createdAtText;
+    private transient CharSequence bodyText;
+
     public int getId() {
         return id;
     }
@@ -42,6 +47,7 @@ public class GistComment {
 
     public void setBody(String body) {
         this.body = body;
+        this.bodyText = null;
     }
 
     public GitHubUser getUser() {
@@ -58,6 +64,7 @@ public class GistComment {
 
     public void setCreated_at(Date created_at) {
         this.created_at = created_at;
+        this.createdAtText = null;
     }
 
     public Date getUpdated_at() {
@@ -67,4 +74,45 @@ public class GistComment {
     public void setUpdated_at(Date updated_at) {
         this.updated_at = updated_at;
     }
+
+    /**
+     * Get the date and time the comment was created, formatted for display
+     *
+     * @return the formatted date and time
+     */
+    public String getCreatedAtText() {
+        if (createdAtText == null) {
+            createdAtText = DateFormatUtil.formatDateTime(created_at);
+        }
+        return createdAtText;
+    }
+
+    /**
+     * Get the body of the comment prepared for display.  This is the laid out text when it has
+     * been precomputed, otherwise the raw body.
+     *
+     * @return the text to display for the body of the comment
+     */
+    public CharSequence getBodyText() {
+        if (bodyText == null) {
+            return body;
+        }
+        return bodyText;
+    }
+
+    /**
+     * Set the body of the comment prepared for display
+     *
+     * @param bodyText the text to display for the body of the comment
+     */
+    public void setBodyText(CharSequence bodyText) {
+        this.bodyText = bodyText;
+    }
+
+    /**
+     * Format all of the display strings ahead of time so that binding a view does no formatting
+     */
+    public void precomputeDisplayText() {
+        getCreatedAtText();
+    }
 }
@@ -5,13 +5,21 @@ import androidx.annotation.Keep;
 @Keep
 public class GistFile {
     /*
-    Modified sample data from: https://developer.github.com/v3/gists/#list-a-users-gists
+    Modified sample data from: https://developer.github.com/v3/gists/#get-a-single-gist
     {
-        "filename": "hello_world.rb"
+        "filename": "hello_world.rb",
+        "size": 167,
+        "raw_url": "https://gist.githubusercontent.com/octocat/6cad326836d38bd3a7ae/raw/db9c55113504e46fa076e7df3a04ce592e2e86d8/hello_world.rb",
+        "truncated": false,
+        "content": "class HelloWorld\n   def initialize(name)\n      @name = name.capitalize\n   end\nend"
     }
     */
 
     private String filename;
+    private int size;
+    private String raw_url;
+    private boolean truncated;
+    private String content;
 
     public String getFilename() {
         return filename;
@@ -20,4 +28,47 @@ public class GistFile {
     public void setFilename(String filename) {
         this.filename = filename;
     }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public String getRaw_url() {
+        return raw_url;
+    }
+
+    public void setRaw_url(String raw_url) {
+        this.raw_url = raw_url;
+    }
+
+    /**
+     * Check if the content of the file was cut short because the file is too large.  The full
+     * content can be downloaded from the raw URL.
+     *
+     * @return TRUE if the content is incomplete
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    /**
+     * Get the content of the file.  This is only included when a single Gist is requested.
+     *
+     * @return the content or NULL if it was not part of the response
+     */
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
 }
@@ -0,0 +1,79 @@
+package com.jldubz.gistaviewer.model.gists;
+
+import androidx.annotation.Keep;
+
+import com.jldubz.gistaviewer.model.GitHubUser;
+
+import java.util.Date;
+
+@Keep
+public class GistHistory {
+
+    /*
+    Modified sample data from: https://developer.github.com/v3/gists/#get-a-single-gist
+    {
+        "url": "https://api.github.com/gists/aa5a315d61ae9438b18d/57a7f021a713b1c5a6a199b54cc514735d2d462f",
+        "version": "57a7f021a713b1c5a6a199b54cc514735d2d462f",
+        "user": {
+
+        },
+        "change_status": {
+          "deletions": 0,
+          "additions": 180,
+          "total": 180
+        },
+        "committed_at": "2010-04-14T02:15:15Z"
+      }
+    */
+
+    private String url;
+    private String version;
+    private GitHubUser user;
+    private GistChangeStatus change_status;
+    private Date committed_at;
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Get the SHA of the revision, which can be used to fetch the Gist as it was at the time
+     *
+     * @return the SHA of the revision
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public GitHubUser getUser() {
+        return user;
+    }
+
+    public void setUser(GitHubUser user) {
+        this.user = user;
+    }
+
+    public GistChangeStatus getChange_status() {
+        return change_status;
+    }
+
+    public void setChange_status(GistChangeStatus change_status) {
+        this.change_status = change_status;
+    }
+
+    public Date getCommitted_at() {
+        return committed_at;
+    }
+
+    public void setCommitted_at(Date committed_at) {
+        this.committed_at = committed_at;
+    }
+}
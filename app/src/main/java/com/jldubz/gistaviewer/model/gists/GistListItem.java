@@ -0,0 +1,74 @@
+package com.jldubz.gistaviewer.model.gists;
+
+import com.jldubz.gistaviewer.model.GitHubUser;
+
+import java.util.Date;
+
+/**
+ * The few fields of a Gist that a row of a list of Gists shows.
+ * <p>
+ * The list endpoints return every file's metadata and the whole owner object for each Gist, so
+ * the lists are parsed straight into these instead of into full {@link Gist}s and the rest of
+ * each response is skipped as it is read.  The owner is the one shared instance of the user, so
+ * rows owned by the same user don't each keep a copy of the user's login and avatar.
+ *
+ * @see com.jldubz.gistaviewer.model.data.GistListItemTypeAdapterFactory
+ */
+public class GistListItem {
+
+    private final String mId;
+    private final String mFilename;
+    private final Date mUpdatedAt;
+    private final String mUpdatedAtDateText;
+    private final GitHubUser mOwner;
+
+    /**
+     * @param id                the ID of the Gist
+     * @param filename          the name of the first file or NULL if the Gist has no files
+     * @param updatedAt         the date and time the Gist was last updated
+     * @param updatedAtDateText the date the Gist was last updated, formatted for display
+     * @param owner             the owner or NULL if the Gist is anonymous
+     */
+    public GistListItem(String id, String filename, Date updatedAt, String updatedAtDateText, GitHubUser owner) {
+        mId = id;
+        mFilename = filename;
+        mUpdatedAt = updatedAt;
+        mUpdatedAtDateText = updatedAtDateText;
+        mOwner = owner;
+    }
+
+    public String getId() {
+        return mId;
+    }
+
+    /**
+     * Get the name of the first file of the Gist
+     *
+     * @return the filename or NULL if the Gist has no files
+     */
+    public String getFilename() {
+        return mFilename;
+    }
+
+    public Date getUpdatedAt() {
+        return mUpdatedAt;
+    }
+
+    /**
+     * Get the date the Gist was last updated without the time, formatted for display
+     *
+     * @return the formatted date
+     */
+    public String getUpdatedAtDateText() {
+        return mUpdatedAtDateText;
+    }
+
+    /**
+     * Get the owner of the Gist
+     *
+     * @return the owner or NULL if the Gist is anonymous
+     */
+    public GitHubUser getOwner() {
+        return mOwner;
+    }
+}
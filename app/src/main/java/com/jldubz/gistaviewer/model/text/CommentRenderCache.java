@@ -0,0 +1,102 @@
+package com.jldubz.gistaviewer.model.text;
+
+import android.text.Spanned;
+import android.util.LruCache;
+
+import com.jldubz.gistaviewer.model.gists.GistComment;
+
+import java.util.Date;
+
+import androidx.core.text.PrecomputedTextCompat;
+
+/**
+ * Least recently used cache of rendered Gist Comment bodies.
+ * <p>
+ * Entries are keyed by the comment ID and the time it was last updated, so an edited comment is
+ * rendered again while an unchanged one is reused across pages and Gists.  The cache is capped by
+ * an estimate of the memory held by each rendered body rather than by the number of entries.
+ */
+public class CommentRenderCache {
+
+    private static final int BYTES_PER_CHAR = 2;
+    private static final int BYTES_PER_MEASURED_CHAR = 4;
+    private static final int BYTES_PER_SPAN = 64;
+
+    private final LruCache<String, CharSequence> mCache;
+
+    /**
+     * @param maxSizeBytes the estimated number of bytes the cached bodies may hold
+     */
+    public CommentRenderCache(int maxSizeBytes) {
+        mCache = new LruCache<String, CharSequence>(maxSizeBytes) {
+            @Override
+            protected int sizeOf(String key, CharSequence value) {
+                return estimateSize(value);
+            }
+        };
+    }
+
+    /**
+     * Get the rendered body of a comment
+     *
+     * @param comment the comment to look up
+     * @return the rendered body or NULL if it is not cached
+     */
+    public CharSequence get(GistComment comment) {
+        return mCache.get(getKey(comment));
+    }
+
+    /**
+     * Store the rendered body of a comment
+     *
+     * @param comment the comment that was rendered
+     * @param text    the rendered body
+     */
+    public void put(GistComment comment, CharSequence text) {
+        mCache.put(getKey(comment), text);
+    }
+
+    /**
+     * Remove every rendered body, e.g. when the style they were rendered with has changed
+     */
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    /**
+     * Get the estimated number of bytes held by all of the cached bodies
+     *
+     * @return the estimated size of the cache in bytes
+     */
+    public int size() {
+        return mCache.size();
+    }
+
+    public int maxSize() {
+        return mCache.maxSize();
+    }
+
+    private static String getKey(GistComment comment) {
+        Date updatedAt = comment.getUpdated_at();
+        return comment.getId() + ":" + (updatedAt != null ? updatedAt.getTime() : 0);
+    }
+
+    /**
+     * Estimate the number of bytes held by a rendered body: its characters, the widths measured
+     * for each character when it was precomputed and a fixed cost for each span
+     *
+     * @param text the rendered body
+     * @return the estimated size in bytes
+     */
+    private static int estimateSize(CharSequence text) {
+        int size = text.length() * BYTES_PER_CHAR;
+        if (text instanceof PrecomputedTextCompat) {
+            size += text.length() * BYTES_PER_MEASURED_CHAR;
+        }
+        if (text instanceof Spanned) {
+            Spanned spanned = (Spanned) text;
+            size += spanned.getSpans(0, spanned.length(), Object.class).length * BYTES_PER_SPAN;
+        }
+        return Math.max(size, 1);
+    }
+}
@@ -0,0 +1,82 @@
+package com.jldubz.gistaviewer.model.text;
+
+import com.jldubz.gistaviewer.model.gists.GistComment;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import androidx.core.text.PrecomputedTextCompat;
+
+/**
+ * Renders the markdown of Gist Comment bodies and lays out the result on a background thread so
+ * that binding a comment only has to attach the finished text to its TextView.
+ * <p>
+ * Rendered bodies are kept in a {@link CommentRenderCache} so a comment is only rendered again
+ * when it has been edited.  Nothing is prepared until the style of the comment TextView has been
+ * provided with {@link #setStyle(PrecomputedTextCompat.Params, MarkdownRenderer)}; until then
+ * comments pass straight through and display their raw body.
+ */
+public class CommentTextPrecomputer {
+
+    private final Executor mExecutor;
+    private final CommentRenderCache mRenderCache;
+    private volatile PrecomputedTextCompat.Params mParams;
+    private volatile MarkdownRenderer mRenderer;
+
+    public CommentTextPrecomputer(Executor executor, CommentRenderCache renderCache) {
+        mExecutor = executor;
+        mRenderCache = renderCache;
+    }
+
+    /**
+     * Set the style of the TextView that will display comment bodies.  Bodies that were rendered
+     * with a different style are dropped from the cache.
+     *
+     * @param params   the text metrics used to measure the comment text
+     * @param renderer the renderer used to style the comment markdown
+     */
+    public void setStyle(PrecomputedTextCompat.Params params, MarkdownRenderer renderer) {
+        if (mParams != null && !mParams.equals(params)) {
+            mRenderCache.clear();
+        }
+        mParams = params;
+        mRenderer = renderer;
+    }
+
+    /**
+     * Prepare the bodies of the provided comments on the background executor
+     *
+     * @param comments   the comments whose bodies should be prepared
+     * @param onComplete called on the background executor once every comment has been prepared
+     */
+    public void precompute(List<GistComment> comments, Runnable onComplete) {
+        mExecutor.execute(() -> {
+            for (GistComment comment : comments) {
+                prepare(comment);
+            }
+            onComplete.run();
+        });
+    }
+
+    /**
+     * Render and lay out the body of a single comment on the calling thread, reusing the cached
+     * result when the comment has not changed
+     *
+     * @param comment the comment whose body should be prepared
+     */
+    private void prepare(GistComment comment) {
+        PrecomputedTextCompat.Params params = mParams;
+        MarkdownRenderer renderer = mRenderer;
+        String body = comment.getBody();
+        if (params == null || renderer == null || body == null) {
+            return;
+        }
+
+        CharSequence text = mRenderCache.get(comment);
+        if (text == null) {
+            text = PrecomputedTextCompat.create(renderer.render(body), params);
+            mRenderCache.put(comment, text);
+        }
+        comment.setBodyText(text);
+    }
+}
@@ -0,0 +1,90 @@
+package com.jldubz.gistaviewer.model.text;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+import android.text.style.ReplacementSpan;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Reserves a fixed, square space in rendered markdown for an embedded image.
+ * <p>
+ * Because the size never changes, the text can be laid out before the image is downloaded and the
+ * picture can be swapped in later with only a redraw.  The image should be decoded at
+ * {@link #getImageSize()} so that no full resolution bitmaps are kept for comments.
+ */
+public class MarkdownImageSpan extends ReplacementSpan {
+
+    private final String mUrl;
+    private final int mImageSize;
+    private volatile Drawable mDrawable;
+
+    MarkdownImageSpan(String url, int imageSize) {
+        mUrl = url;
+        mImageSize = imageSize;
+    }
+
+    public String getUrl() {
+        return mUrl;
+    }
+
+    /**
+     * Get the width and height of the space reserved for the image
+     *
+     * @return the size of the image in pixels
+     */
+    public int getImageSize() {
+        return mImageSize;
+    }
+
+    /**
+     * Set or clear the picture drawn in the space reserved for the image.  The picture is scaled
+     * to fit inside the reserved space while keeping its aspect ratio.
+     *
+     * @param drawable the picture to draw or NULL to leave the space blank
+     */
+    public void setDrawable(@Nullable Drawable drawable) {
+        if (drawable != null) {
+            int width = drawable.getIntrinsicWidth();
+            int height = drawable.getIntrinsicHeight();
+            if (width <= 0 || height <= 0) {
+                drawable.setBounds(0, 0, mImageSize, mImageSize);
+            } else {
+                float scale = Math.min((float) mImageSize / width, (float) mImageSize / height);
+                drawable.setBounds(0, 0, Math.round(width * scale), Math.round(height * scale));
+            }
+        }
+        mDrawable = drawable;
+    }
+
+    public boolean hasDrawable() {
+        return mDrawable != null;
+    }
+
+    @Override
+    public int getSize(@NonNull Paint paint, CharSequence text, int start, int end,
+                       @Nullable Paint.FontMetricsInt fm) {
+        if (fm != null) {
+            fm.ascent = -mImageSize;
+            fm.top = fm.ascent;
+            fm.descent = 0;
+            fm.bottom = 0;
+        }
+        return mImageSize;
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas, CharSequence text, int start, int end, float x,
+                     int top, int y, int bottom, @NonNull Paint paint) {
+        Drawable drawable = mDrawable;
+        if (drawable == null) {
+            return;
+        }
+        canvas.save();
+        canvas.translate(x, y - mImageSize);
+        drawable.draw(canvas);
+        canvas.restore();
+    }
+}
@@ -0,0 +1,245 @@
+package com.jldubz.gistaviewer.model.text;
+
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.BackgroundColorSpan;
+import android.text.style.BulletSpan;
+import android.text.style.QuoteSpan;
+import android.text.style.RelativeSizeSpan;
+import android.text.style.StyleSpan;
+import android.text.style.TypefaceSpan;
+import android.text.style.URLSpan;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renders the GitHub flavored markdown used in Gist Comment bodies into styled text.
+ * <p>
+ * Only the subset of markdown that shows up in comments is supported: fenced code blocks,
+ * headings, block quotes, bullet lists, inline code, bold, italic, links and images.  Images are
+ * rendered as {@link MarkdownImageSpan}s that reserve space for the picture; the picture itself is
+ * only loaded when the comment is displayed.
+ * <p>
+ * A renderer holds no state besides its style, so it is safe to use from any thread.
+ */
+public class MarkdownRenderer {
+
+    private static final Pattern HEADING = Pattern.compile("^(#{1,6})\\s+(.*?)\\s*#*\\s*$");
+    private static final Pattern QUOTE = Pattern.compile("^\\s{0,3}>\\s?(.*)$");
+    private static final Pattern BULLET = Pattern.compile("^\\s*[-*+]\\s+(.*)$");
+    private static final Pattern FENCE = Pattern.compile("^\\s{0,3}(```|~~~).*$");
+
+    private static final int GROUP_IMAGE_ALT = 1;
+    private static final int GROUP_IMAGE_URL = 2;
+    private static final int GROUP_LINK_TEXT = 3;
+    private static final int GROUP_LINK_URL = 4;
+    private static final int GROUP_CODE = 5;
+    private static final int GROUP_BOLD_STARS = 6;
+    private static final int GROUP_BOLD_UNDERSCORES = 7;
+    private static final int GROUP_ITALIC_STARS = 8;
+    private static final int GROUP_ITALIC_UNDERSCORES = 9;
+    private static final int GROUP_AUTOLINK = 10;
+    private static final Pattern INLINE = Pattern.compile(
+            "!\\[([^\\]]*)\\]\\(\\s*([^)\\s]+)[^)]*\\)"
+                    + "|\\[([^\\]]+)\\]\\(\\s*([^)\\s]+)[^)]*\\)"
+                    + "|`([^`]+)`"
+                    + "|\\*\\*(.+?)\\*\\*"
+                    + "|__(.+?)__"
+                    + "|\\*([^*\\s](?:[^*]*[^*\\s])?)\\*"
+                    + "|\\b_([^_\\s](?:[^_]*[^_\\s])?)_\\b"
+                    + "|(https?://[^\\s<>()]+[^\\s<>().,;:!?'\"])");
+
+    private static final float[] HEADING_SIZES = {1.6f, 1.4f, 1.25f, 1.1f, 1f, 0.9f};
+    private static final String MONOSPACE = "monospace";
+
+    private final int mCodeBackgroundColor;
+    private final int mQuoteColor;
+    private final int mBulletGap;
+    private final int mImageSize;
+
+    /**
+     * @param codeBackgroundColor the background color of code blocks and inline code
+     * @param quoteColor          the color of the stripe drawn beside block quotes
+     * @param bulletGap           the gap between a bullet and its text in pixels
+     * @param imageSize           the size in pixels reserved for embedded images
+     */
+    public MarkdownRenderer(int codeBackgroundColor, int quoteColor, int bulletGap, int imageSize) {
+        mCodeBackgroundColor = codeBackgroundColor;
+        mQuoteColor = quoteColor;
+        mBulletGap = bulletGap;
+        mImageSize = imageSize;
+    }
+
+    /**
+     * Render markdown into styled text
+     *
+     * @param markdown the markdown source to render
+     * @return the styled text
+     */
+    public CharSequence render(String markdown) {
+        SpannableStringBuilder builder = new SpannableStringBuilder();
+        if (markdown == null) {
+            return builder;
+        }
+
+        String[] lines = markdown.replace("\r\n", "\n").split("\n", -1);
+        int fenceStart = -1;
+        boolean isPreviousLineBlank = true;
+        for (String line : lines) {
+            //Fenced code blocks are copied verbatim
+            if (FENCE.matcher(line).matches()) {
+                if (fenceStart < 0) {
+                    startBlock(builder, isPreviousLineBlank);
+                    fenceStart = builder.length();
+                } else {
+                    endCodeBlock(builder, fenceStart);
+                    fenceStart = -1;
+                    isPreviousLineBlank = true;
+                }
+                continue;
+            }
+            if (fenceStart >= 0) {
+                builder.append(line).append('\n');
+                continue;
+            }
+
+            //A blank line ends the current paragraph
+            if (line.trim().isEmpty()) {
+                isPreviousLineBlank = true;
+                continue;
+            }
+
+            Matcher matcher = HEADING.matcher(line);
+            if (matcher.matches()) {
+                startBlock(builder, true);
+                int start = builder.length();
+                appendInline(builder, matcher.group(2));
+                int level = matcher.group(1).length();
+                builder.setSpan(new StyleSpan(Typeface.BOLD), start, builder.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                builder.setSpan(new RelativeSizeSpan(HEADING_SIZES[level - 1]), start, builder.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                isPreviousLineBlank = true;
+                continue;
+            }
+
+            matcher = QUOTE.matcher(line);
+            if (matcher.matches()) {
+                startBlock(builder, isPreviousLineBlank);
+                int start = builder.length();
+                appendInline(builder, matcher.group(1));
+                builder.setSpan(new QuoteSpan(mQuoteColor), start, builder.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                isPreviousLineBlank = false;
+                continue;
+            }
+
+            matcher = BULLET.matcher(line);
+            if (matcher.matches()) {
+                startBlock(builder, false);
+                int start = builder.length();
+                appendInline(builder, matcher.group(1));
+                builder.setSpan(new BulletSpan(mBulletGap), start, builder.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                isPreviousLineBlank = false;
+                continue;
+            }
+
+            //Consecutive lines of text are joined into a single paragraph
+            if (isPreviousLineBlank) {
+                startBlock(builder, true);
+            } else if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            appendInline(builder, line.trim());
+            isPreviousLineBlank = false;
+        }
+
+        //Close a code block that was never terminated
+        if (fenceStart >= 0) {
+            endCodeBlock(builder, fenceStart);
+        }
+
+        return builder;
+    }
+
+    /**
+     * Start a new block of text on its own line, optionally separated by a blank line
+     *
+     * @param builder          the text being rendered
+     * @param isNewParagraph   TRUE if a blank line should separate the block from the previous one
+     */
+    private void startBlock(SpannableStringBuilder builder, boolean isNewParagraph) {
+        int length = builder.length();
+        if (length == 0) {
+            return;
+        }
+        if (builder.charAt(length - 1) != '\n') {
+            builder.append('\n');
+        }
+        if (isNewParagraph) {
+            builder.append('\n');
+        }
+    }
+
+    /**
+     * Style the text of a fenced code block once its closing fence has been reached
+     *
+     * @param builder the text being rendered
+     * @param start   the position the code block started at
+     */
+    private void endCodeBlock(SpannableStringBuilder builder, int start) {
+        //Drop the line break after the last line of code
+        int end = builder.length();
+        if (end > start && builder.charAt(end - 1) == '\n') {
+            builder.delete(end - 1, end);
+            end--;
+        }
+        if (end <= start) {
+            return;
+        }
+        builder.setSpan(new TypefaceSpan(MONOSPACE), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        builder.setSpan(new BackgroundColorSpan(mCodeBackgroundColor), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    }
+
+    /**
+     * Append a line of text while rendering any inline markdown within it
+     *
+     * @param builder the text being rendered
+     * @param text    the markdown source of the line
+     */
+    private void appendInline(SpannableStringBuilder builder, String text) {
+        Matcher matcher = INLINE.matcher(text);
+        int position = 0;
+        while (matcher.find()) {
+            builder.append(text, position, matcher.start());
+            position = matcher.end();
+            int start = builder.length();
+
+            if (matcher.group(GROUP_IMAGE_URL) != null) {
+                //Reserve space for the image; its picture is loaded when the comment is displayed
+                String alt = matcher.group(GROUP_IMAGE_ALT);
+                builder.append(alt.isEmpty() ? "\uFFFC" : alt);
+                builder.setSpan(new MarkdownImageSpan(matcher.group(GROUP_IMAGE_URL), mImageSize), start, builder.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            } else if (matcher.group(GROUP_LINK_URL) != null) {
+                appendInline(builder, matcher.group(GROUP_LINK_TEXT));
+                builder.setSpan(new URLSpan(matcher.group(GROUP_LINK_URL)), start, builder.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            } else if (matcher.group(GROUP_CODE) != null) {
+                builder.append(matcher.group(GROUP_CODE));
+                builder.setSpan(new TypefaceSpan(MONOSPACE), start, builder.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                builder.setSpan(new BackgroundColorSpan(mCodeBackgroundColor), start, builder.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            } else if (matcher.group(GROUP_BOLD_STARS) != null || matcher.group(GROUP_BOLD_UNDERSCORES) != null) {
+                String bold = matcher.group(GROUP_BOLD_STARS) != null ? matcher.group(GROUP_BOLD_STARS) : matcher.group(GROUP_BOLD_UNDERSCORES);
+                appendInline(builder, bold);
+                builder.setSpan(new StyleSpan(Typeface.BOLD), start, builder.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            } else if (matcher.group(GROUP_ITALIC_STARS) != null || matcher.group(GROUP_ITALIC_UNDERSCORES) != null) {
+                String italic = matcher.group(GROUP_ITALIC_STARS) != null ? matcher.group(GROUP_ITALIC_STARS) : matcher.group(GROUP_ITALIC_UNDERSCORES);
+                appendInline(builder, italic);
+                builder.setSpan(new StyleSpan(Typeface.ITALIC), start, builder.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            } else if (matcher.group(GROUP_AUTOLINK) != null) {
+                String url = matcher.group(GROUP_AUTOLINK);
+                builder.append(url);
+                builder.setSpan(new URLSpan(url), start, builder.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+        }
+        builder.append(text, position, text.length());
+    }
+}
@@ -0,0 +1,149 @@
+package com.jldubz.gistaviewer.model.upload;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Shrinks a picture to a JPEG no larger than a maximum dimension without ever decoding it at its
+ * full size.
+ * <p>
+ * The picture is decoded with the largest power of two {@link BitmapFactory.Options#inSampleSize}
+ * that still leaves its longest side at least as long as the maximum dimension, and never with
+ * more pixels than fit in the decode ceiling.  The decoded bitmap is then scaled to the maximum
+ * dimension and compressed to a file, so at most the decoded and the scaled bitmap are in memory
+ * at once.  A 12 megapixel photo is decoded at 3 megapixels, rather than the 48 MB a full decode
+ * would take.
+ * <p>
+ * {@link #downscale(ContentResolver, Uri, File)} blocks, so it must not be called from the main
+ * thread.
+ */
+public class PictureDownscaler {
+
+    //ARGB_8888
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final int JPEG_QUALITY = 85;
+
+    private final int mMaxDimension;
+    private final long mMaxDecodeBytes;
+
+    /**
+     * @param maxDimension   the longest side of the downscaled picture, in pixels
+     * @param maxDecodeBytes the most memory the decoded picture may take before it is scaled
+     */
+    public PictureDownscaler(int maxDimension, long maxDecodeBytes) {
+        mMaxDimension = maxDimension;
+        mMaxDecodeBytes = maxDecodeBytes;
+    }
+
+    /**
+     * Downscale a picture and write it to a file as a JPEG
+     *
+     * @param resolver   the resolver the picture is opened with
+     * @param uri        the picture, e.g. picked from the gallery
+     * @param outputFile the file to write the JPEG to
+     * @throws IOException if the picture could not be read or decoded, or the JPEG written
+     */
+    public void downscale(ContentResolver resolver, Uri uri, File outputFile) throws IOException {
+        Bitmap decoded = decode(resolver, uri);
+        Bitmap scaled = scale(decoded, mMaxDimension);
+        if (scaled != decoded) {
+            decoded.recycle();
+        }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+            if (!scaled.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out)) {
+                throw new IOException("Could not encode " + uri);
+            }
+        } finally {
+            scaled.recycle();
+        }
+    }
+
+    /**
+     * Decode a picture with the sample size that keeps it within the decode ceiling
+     *
+     * @param resolver the resolver the picture is opened with
+     * @param uri      the picture
+     * @return the decoded bitmap, which is no larger than the decode ceiling
+     * @throws IOException if the picture could not be read or decoded
+     */
+    Bitmap decode(ContentResolver resolver, Uri uri) throws IOException {
+        //Read the size first, which doesn't decode any pixels
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = openInputStream(resolver, uri)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Not a picture: " + uri);
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, mMaxDimension, mMaxDecodeBytes);
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        Bitmap decoded;
+        try (InputStream in = openInputStream(resolver, uri)) {
+            decoded = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (decoded == null) {
+            throw new IOException("Could not decode " + uri);
+        }
+        return decoded;
+    }
+
+    /**
+     * Calculate the sample size to decode a picture with
+     *
+     * @param width          the width of the picture
+     * @param height         the height of the picture
+     * @param maxDimension   the longest side the picture will be scaled to
+     * @param maxDecodeBytes the most memory the decoded picture may take
+     * @return a power of two, 1 to decode the picture at its full size
+     */
+    static int calculateInSampleSize(int width, int height, int maxDimension, long maxDecodeBytes) {
+        int longestSide = Math.max(width, height);
+        int sampleSize = 1;
+        //Sampling is cheap but blurry, so stop before the picture gets smaller than needed
+        while (longestSide / (sampleSize * 2) >= maxDimension) {
+            sampleSize *= 2;
+        }
+        while ((long) (width / sampleSize) * (height / sampleSize) * BYTES_PER_PIXEL > maxDecodeBytes) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Scale a bitmap down so its longest side is no longer than a maximum dimension
+     *
+     * @param bitmap       the bitmap
+     * @param maxDimension the longest side of the scaled bitmap
+     * @return the scaled bitmap or the bitmap itself if it is small enough already
+     */
+    private static Bitmap scale(Bitmap bitmap, int maxDimension) {
+        int longestSide = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (longestSide <= maxDimension) {
+            return bitmap;
+        }
+        float scale = maxDimension / (float) longestSide;
+        int width = Math.max(Math.round(bitmap.getWidth() * scale), 1);
+        int height = Math.max(Math.round(bitmap.getHeight() * scale), 1);
+        return Bitmap.createScaledBitmap(bitmap, width, height, true);
+    }
+
+    private static InputStream openInputStream(ContentResolver resolver, Uri uri) throws IOException {
+        InputStream in = resolver.openInputStream(uri);
+        if (in == null) {
+            throw new IOException("Could not open " + uri);
+        }
+        return in;
+    }
+}
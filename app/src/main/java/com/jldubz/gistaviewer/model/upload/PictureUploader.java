@@ -0,0 +1,122 @@
+package com.jldubz.gistaviewer.model.upload;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+
+import com.jldubz.gistaviewer.model.GitHubUser;
+import com.jldubz.gistaviewer.model.NetworkUtil;
+import com.jldubz.gistaviewer.model.data.IGitHubService;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Uploads a picture to the authorized user's profile.
+ * <p>
+ * The picture is downscaled by a {@link PictureDownscaler} into a temporary JPEG, which is then
+ * streamed to the GitHub API by a {@link ProgressRequestBody}.  Neither step holds the picture in
+ * memory at its full size, and the temporary file is deleted once the upload is over, whether it
+ * succeeded or not.
+ * <p>
+ * {@link #run()} blocks, so it must not be called from the main thread.
+ */
+public class PictureUploader {
+
+    private static final MediaType JPEG = MediaType.parse("image/jpeg");
+    private static final MediaType TEXT = MediaType.parse("text/plain; charset=utf-8");
+
+    private final IGitHubService mGitHubService;
+    private final ContentResolver mResolver;
+    private final Uri mPictureUri;
+    private final String mDescription;
+    private final PictureDownscaler mDownscaler;
+    private final File mCacheDir;
+    private final ProgressRequestBody.IProgressListener mListener;
+
+    private volatile boolean mIsCancelled;
+    private volatile ProgressRequestBody mBody;
+    private volatile Call<GitHubUser> mCall;
+
+    /**
+     * @param gitHubService the service the picture is uploaded with
+     * @param resolver      the resolver the picture is opened with
+     * @param pictureUri    the picture, e.g. picked from the gallery
+     * @param description   the description sent with the picture
+     * @param downscaler    the downscaler that shrinks the picture before it is sent
+     * @param cacheDir      the directory the temporary JPEG is written to
+     * @param listener      notified as the upload progresses, on the thread that runs it
+     */
+    public PictureUploader(IGitHubService gitHubService, ContentResolver resolver, Uri pictureUri, String description,
+                           PictureDownscaler downscaler, File cacheDir,
+                           ProgressRequestBody.IProgressListener listener) {
+        mGitHubService = gitHubService;
+        mResolver = resolver;
+        mPictureUri = pictureUri;
+        mDescription = description;
+        mDownscaler = downscaler;
+        mCacheDir = cacheDir;
+        mListener = listener;
+    }
+
+    /**
+     * Stop the upload as soon as possible, whether it is still downscaling or already sending
+     */
+    public void cancel() {
+        mIsCancelled = true;
+        ProgressRequestBody body = mBody;
+        if (body != null) {
+            body.cancel();
+        }
+        Call<GitHubUser> call = mCall;
+        if (call != null) {
+            call.cancel();
+        }
+    }
+
+    public boolean isCancelled() {
+        return mIsCancelled;
+    }
+
+    /**
+     * Downscale and upload the picture
+     *
+     * @return the user with their new picture
+     * @throws IOException if the picture could not be read, the upload failed or it was cancelled
+     */
+    public GitHubUser run() throws IOException {
+        File pictureFile = File.createTempFile("upload", ".jpg", mCacheDir);
+        try {
+            mDownscaler.downscale(mResolver, mPictureUri, pictureFile);
+            checkCancelled();
+
+            mBody = new ProgressRequestBody(pictureFile, JPEG, mListener);
+            mCall = mGitHubService.uploadPictureToUser(mBody, RequestBody.create(mDescription, TEXT));
+            //Cancelled between the check and the call being set, which cancel() would have missed
+            checkCancelled();
+
+            Response<GitHubUser> response = mCall.execute();
+            if (!response.isSuccessful()) {
+                throw new IOException(NetworkUtil.onGitHubResponseError(response));
+            }
+            GitHubUser user = response.body();
+            if (user == null) {
+                throw new IOException("The upload returned no user");
+            }
+            return user;
+        } finally {
+            pictureFile.delete();
+        }
+    }
+
+    private void checkCancelled() throws InterruptedIOException {
+        if (mIsCancelled) {
+            throw new InterruptedIOException("Upload cancelled");
+        }
+    }
+}
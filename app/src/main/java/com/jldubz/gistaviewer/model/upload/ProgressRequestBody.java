@@ -0,0 +1,85 @@
+package com.jldubz.gistaviewer.model.upload;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * A request body streamed from a file a chunk at a time, so the file is never held in memory in
+ * full, that reports how much of it has been sent.
+ * <p>
+ * The body can be written more than once, e.g. when OkHttp retries the request, and each write
+ * reports its progress from zero again.
+ */
+public class ProgressRequestBody extends RequestBody {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private final File mFile;
+    private final MediaType mContentType;
+    private final IProgressListener mListener;
+    private volatile boolean mIsCancelled;
+
+    /**
+     * @param file        the file to send
+     * @param contentType the type of the file
+     * @param listener    notified after each chunk, on the thread the body is written on
+     */
+    public ProgressRequestBody(File file, MediaType contentType, IProgressListener listener) {
+        mFile = file;
+        mContentType = contentType;
+        mListener = listener;
+    }
+
+    /**
+     * Stop writing the body at the next chunk, failing the request
+     */
+    public void cancel() {
+        mIsCancelled = true;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return mContentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return mFile.length();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        long total = contentLength();
+        long bytesSent = 0;
+        try (Source source = Okio.source(mFile)) {
+            long count;
+            while ((count = source.read(sink.getBuffer(), CHUNK_SIZE)) != -1) {
+                if (mIsCancelled) {
+                    throw new InterruptedIOException("Upload cancelled");
+                }
+                //Push the chunk out before reporting it, so progress follows the socket
+                sink.flush();
+                bytesSent += count;
+                mListener.onProgress(bytesSent, total);
+            }
+        }
+    }
+
+    public interface IProgressListener {
+
+        /**
+         * Called each time a chunk of the body has been sent
+         *
+         * @param bytesSent the number of bytes sent so far
+         * @param total     the size of the body in bytes
+         */
+        void onProgress(long bytesSent, long total);
+    }
+}
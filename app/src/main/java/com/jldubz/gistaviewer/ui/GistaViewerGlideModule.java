@@ -0,0 +1,33 @@
+package com.jldubz.gistaviewer.ui;
+
+import android.content.Context;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.module.AppGlideModule;
+import com.jldubz.gistaviewer.model.NetworkUtil;
+
+import java.io.InputStream;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Loads images through the app's shared HTTP client, so avatars reuse the connections opened by
+ * {@link NetworkUtil#warmUpConnections()}
+ */
+@GlideModule
+public final class GistaViewerGlideModule extends AppGlideModule {
+
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        registry.replace(GlideUrl.class, InputStream.class, new OkHttpUrlLoader.Factory(NetworkUtil.getPlainHttpClient()));
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
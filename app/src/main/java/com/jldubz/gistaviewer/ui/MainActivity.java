@@ -1,11 +1,20 @@
 package com.jldubz.gistaviewer.ui;
 
-import android.content.SharedPreferences;
+import android.content.Context;
+import android.net.ConnectivityManager;
 import android.os.Bundle;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
 
 import com.google.android.material.bottomnavigation.BottomNavigationView;
+import com.jldubz.gistaviewer.BuildConfig;
 import com.jldubz.gistaviewer.R;
+import com.jldubz.gistaviewer.model.NetworkHooks;
+import com.jldubz.gistaviewer.model.NetworkUtil;
+import com.jldubz.gistaviewer.model.data.RequestBudget;
 import com.jldubz.gistaviewer.ui.gists.DiscoverGistsFragment;
+import com.jldubz.gistaviewer.ui.gists.GistRowPool;
 import com.jldubz.gistaviewer.ui.gists.StarGistsFragment;
 import com.jldubz.gistaviewer.ui.gists.YourGistsFragment;
 import com.jldubz.gistaviewer.viewmodel.MainViewModel;
@@ -13,6 +22,8 @@ import com.jldubz.gistaviewer.viewmodel.MainViewModel;
 import androidx.annotation.Keep;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.net.ConnectivityManagerCompat;
+import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
 import androidx.lifecycle.ViewModelProviders;
@@ -24,14 +35,23 @@ import androidx.lifecycle.ViewModelProviders;
  * @author Jon-Luke West
  */
 @Keep
-public class MainActivity extends AppCompatActivity {
+public class MainActivity extends AppCompatActivity implements GistRowPool.IGistRowPoolOwner {
 
+    private static final String TAG = "MainActivity";
     private static final String KEY_SELECTED_TAB_ID = "com.jldubz.gistaviewer.MainActivity.tab";
+    private static final String TAG_DISCOVER_GISTS = "com.jldubz.gistaviewer.MainActivity.discover";
+    private static final String TAG_STAR_GISTS = "com.jldubz.gistaviewer.MainActivity.star";
+    private static final String TAG_YOUR_GISTS = "com.jldubz.gistaviewer.MainActivity.your";
+    private static final String TAG_PROFILE = "com.jldubz.gistaviewer.MainActivity.profile";
+
+    //The number of Gist rows kept for reuse across all of the lists
+    private static final int GIST_ROW_POOL_SIZE = 20;
 
     private DiscoverGistsFragment mDiscoverGistsFragment;
     private StarGistsFragment mStarGistsFragment;
     private YourGistsFragment mYourGistsFragment;
     private ProfileFragment mProfileFragment;
+    private GistRowPool mGistRowPool;
 
     private int mSelectedTabId;
 
@@ -43,14 +63,8 @@ public class MainActivity extends AppCompatActivity {
 
         //Get the shared view model
         MainViewModel viewModel = ViewModelProviders.of(this).get(MainViewModel.class);
-        //Get any saved credentials
-        SharedPreferences sharedPreferences = getApplicationContext().getSharedPreferences(getString(R.string.key_pref_file), MODE_PRIVATE);
-        String username = sharedPreferences.getString(getString(R.string.key_pref_username), "");
-        String token = sharedPreferences.getString(getString(R.string.key_pref_token), "");
-
-        if (!username.isEmpty() && !token.isEmpty()) {
-            viewModel.logIn(username, token);
-        }
+        //The view model logs back in to the saved account itself
+        updateNetworkMetered(viewModel);
 
         mSelectedTabId = R.id.nav_gist_discover;
 
@@ -62,48 +76,152 @@ public class MainActivity extends AppCompatActivity {
             }
         }
 
+        //Start inflating Gist rows before any list is created, so they are ready by the time the
+        // first page of Gists arrives
+        mGistRowPool = new GistRowPool(GIST_ROW_POOL_SIZE);
+        mGistRowPool.preInflate(this, findViewById(R.id.content), getResources().getInteger(R.integer.gist_row_pre_inflate_count));
+
+        //Every tab is added once and then only shown or hidden, so switching tabs keeps each
+        // list's views, scroll position and recycled rows instead of inflating them again
+        FragmentManager fragmentManager = getSupportFragmentManager();
+        if (savedInstanceState == null) {
+            mDiscoverGistsFragment = DiscoverGistsFragment.newInstance();
+            mStarGistsFragment = StarGistsFragment.newInstance();
+            mYourGistsFragment = YourGistsFragment.newInstance();
+            mProfileFragment = ProfileFragment.newInstance();
+            fragmentManager.beginTransaction()
+                    .add(R.id.content, mDiscoverGistsFragment, TAG_DISCOVER_GISTS)
+                    .add(R.id.content, mStarGistsFragment, TAG_STAR_GISTS)
+                    .add(R.id.content, mYourGistsFragment, TAG_YOUR_GISTS)
+                    .add(R.id.content, mProfileFragment, TAG_PROFILE)
+                    .commitNow();
+        }
+        else {
+            //The fragment manager has already restored the tabs
+            mDiscoverGistsFragment = (DiscoverGistsFragment) fragmentManager.findFragmentByTag(TAG_DISCOVER_GISTS);
+            mStarGistsFragment = (StarGistsFragment) fragmentManager.findFragmentByTag(TAG_STAR_GISTS);
+            mYourGistsFragment = (YourGistsFragment) fragmentManager.findFragmentByTag(TAG_YOUR_GISTS);
+            mProfileFragment = (ProfileFragment) fragmentManager.findFragmentByTag(TAG_PROFILE);
+        }
+
         //Config the bottom nav view
         BottomNavigationView bottomNavigation = findViewById(R.id.navigation);
         bottomNavigation.setOnNavigationItemSelectedListener(item -> {
-            int itemId = item.getItemId();
-            //Log.d("Gist", "tab selected " + item.getTitle());
-            FragmentManager fragmentManager = getSupportFragmentManager();
-            FragmentTransaction fragmentTransaction;
-            if (itemId == R.id.nav_gist_discover) {
-                fragmentTransaction = fragmentManager.beginTransaction();
-                fragmentTransaction.replace(R.id.content, mDiscoverGistsFragment);
-                fragmentTransaction.commit();
-                return true;
+            Fragment tabFragment = getTabFragment(item.getItemId());
+            if (tabFragment == null) {
+                return false;
             }
-            if (itemId == R.id.nav_gist_star) {
-                fragmentTransaction = fragmentManager.beginTransaction();
-                fragmentTransaction.replace(R.id.content, mStarGistsFragment);
-                fragmentTransaction.commit();
-                return true;
+            showTab(item.getItemId(), tabFragment);
+            return true;
+        });
+
+        //Set the currently selected tab
+        bottomNavigation.setSelectedItemId(mSelectedTabId);
+    }
+
+    @Override
+    protected void onRestart() {
+        super.onRestart();
+        //The network may have changed while the app was in the background
+        updateNetworkMetered(ViewModelProviders.of(this).get(MainViewModel.class));
+    }
+
+    /**
+     * Tell the view model whether the active network is metered, so it can keep pages of Gists
+     * small on mobile data
+     *
+     * @param viewModel the shared view model
+     */
+    private void updateNetworkMetered(MainViewModel viewModel) {
+        ConnectivityManager connectivityManager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager != null) {
+            viewModel.setNetworkMetered(ConnectivityManagerCompat.isActiveNetworkMetered(connectivityManager));
+        }
+    }
+
+    /**
+     * Get the fragment shown for a tab of the bottom nav view
+     *
+     * @param tabId the ID of the menu item of the tab
+     * @return the fragment or NULL if the ID isn't a tab
+     */
+    private Fragment getTabFragment(int tabId) {
+        if (tabId == R.id.nav_gist_discover) {
+            return mDiscoverGistsFragment;
+        }
+        if (tabId == R.id.nav_gist_star) {
+            return mStarGistsFragment;
+        }
+        if (tabId == R.id.nav_gist_your) {
+            return mYourGistsFragment;
+        }
+        if (tabId == R.id.nav_profile) {
+            return mProfileFragment;
+        }
+        return null;
+    }
+
+    /**
+     * Show the fragment of a tab and hide the others
+     *
+     * @param tabId       the ID of the menu item of the tab
+     * @param tabFragment the fragment of the tab
+     */
+    private void showTab(int tabId, Fragment tabFragment) {
+        long startTime = System.nanoTime();
+        NetworkUtil.getRequestBudget().begin(RequestBudget.SWITCH_TAB);
+
+        FragmentTransaction fragmentTransaction = getSupportFragmentManager().beginTransaction();
+        for (Fragment fragment : new Fragment[]{mDiscoverGistsFragment, mStarGistsFragment, mYourGistsFragment, mProfileFragment}) {
+            if (fragment == tabFragment) {
+                fragmentTransaction.show(fragment);
             }
-            if (itemId == R.id.nav_gist_your) {
-                fragmentTransaction = fragmentManager.beginTransaction();
-                fragmentTransaction.replace(R.id.content, mYourGistsFragment);
-                fragmentTransaction.commit();
-                return true;
+            else {
+                fragmentTransaction.hide(fragment);
             }
-            if (itemId == R.id.nav_profile) {
-                fragmentTransaction = fragmentManager.beginTransaction();
-                fragmentTransaction.replace(R.id.content, mProfileFragment);
-                fragmentTransaction.commit();
+        }
+        fragmentTransaction.commit();
+        mSelectedTabId = tabId;
+
+        if (BuildConfig.DEBUG) {
+            logTabSwitchTime(startTime);
+        }
+    }
+
+    /**
+     * Log the time from a tab being selected until its first frame is about to be drawn
+     *
+     * @param startTime the time the tab was selected, from {@link System#nanoTime()}
+     */
+    private void logTabSwitchTime(long startTime) {
+        View contentView = findViewById(R.id.content);
+        contentView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                contentView.getViewTreeObserver().removeOnPreDrawListener(this);
+                Log.d(TAG, "Tab switch took " + (System.nanoTime() - startTime) / 1000 + "us");
                 return true;
             }
-            return false;
         });
+    }
 
-        //Make new instances of the fragments
-        mDiscoverGistsFragment = DiscoverGistsFragment.newInstance();
-        mStarGistsFragment = StarGistsFragment.newInstance();
-        mYourGistsFragment = YourGistsFragment.newInstance();
-        mProfileFragment = ProfileFragment.newInstance();
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (BuildConfig.DEBUG && isFinishing()) {
+            mGistRowPool.logInflationCounts();
+            Log.d(TAG, "Network: " + NetworkUtil.getTransferStats());
+            Log.d(TAG, "Connections: " + NetworkUtil.getConnectionWarmer());
+            String replayReport = NetworkHooks.getReport();
+            if (replayReport != null) {
+                Log.d(TAG, replayReport);
+            }
+        }
+    }
 
-        //Set the currently selected tab
-        bottomNavigation.setSelectedItemId(mSelectedTabId);
+    @Override
+    public GistRowPool getGistRowPool() {
+        return mGistRowPool;
     }
 
     @Override
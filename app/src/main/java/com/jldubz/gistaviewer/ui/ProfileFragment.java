@@ -6,7 +6,6 @@ import androidx.lifecycle.ViewModelProviders;
 
 import android.app.Activity;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.net.Uri;
 import android.os.Bundle;
 
@@ -15,6 +14,8 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
 import android.text.Editable;
+import android.text.format.DateFormat;
+import android.text.format.Formatter;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -30,15 +31,20 @@ import com.google.android.material.textfield.TextInputEditText;
 import com.jldubz.gistaviewer.viewmodel.MainViewModel;
 import com.jldubz.gistaviewer.R;
 import com.jldubz.gistaviewer.model.GitHubUser;
+import com.jldubz.gistaviewer.model.export.ExportReport;
+import com.jldubz.gistaviewer.model.export.GistExporter;
 
-import static android.content.Context.MODE_PRIVATE;
+import java.io.File;
+import java.util.List;
 
 /**
  * Fragment used for showing a GitHub user and some of their basic info
  *
  * @author Jon-Luke West
  */
-public class ProfileFragment extends Fragment implements MainViewModel.IMainViewModelListener {
+public class ProfileFragment extends Fragment {
+
+    private static final int REQUEST_PICK_PICTURE = 1;
 
     private MainViewModel mViewModel;
 
@@ -53,6 +59,12 @@ public class ProfileFragment extends Fragment implements MainViewModel.IMainView
     private TextView mCompanyText;
     private TextView mLocationText;
     private TextView mBlogText;
+    private Button mExportYoursButton;
+    private Button mExportStarredButton;
+    private TextView mExportStatusText;
+    private Button mChangePictureButton;
+    private TextView mUploadStatusText;
+    private boolean mIsUploadingPicture;
 
     private View mProfileView;
     private View mLoginView;
@@ -60,6 +72,9 @@ public class ProfileFragment extends Fragment implements MainViewModel.IMainView
     private ProgressBar mLoginProgressBar;
     private TextInputEditText mUsernameInput;
     private TextInputEditText mTokenInput;
+    private Button mCancelLoginButton;
+
+    private List<String> mAccountUsernames;
 
     static ProfileFragment newInstance() {
         return new ProfileFragment();
@@ -77,6 +92,16 @@ public class ProfileFragment extends Fragment implements MainViewModel.IMainView
         loginButton.setOnClickListener(v -> onLoginButtonClick());
         Button logoutButton = rootView.findViewById(R.id.button_profile_logout);
         logoutButton.setOnClickListener(v -> onLogoutButtonClick());
+        Button switchAccountButton = rootView.findViewById(R.id.button_profile_switch_account);
+        switchAccountButton.setOnClickListener(v -> onSwitchAccountButtonClick());
+        mCancelLoginButton = rootView.findViewById(R.id.button_profile_login_cancel);
+        mCancelLoginButton.setOnClickListener(v -> onCancelLoginButtonClick());
+        mExportYoursButton = rootView.findViewById(R.id.button_profile_export_yours);
+        mExportYoursButton.setOnClickListener(v -> onExportButtonClick(GistExporter.TYPE_YOUR_GISTS));
+        mExportStarredButton = rootView.findViewById(R.id.button_profile_export_starred);
+        mExportStarredButton.setOnClickListener(v -> onExportButtonClick(GistExporter.TYPE_STARRED_GISTS));
+        mChangePictureButton = rootView.findViewById(R.id.button_profile_change_picture);
+        mChangePictureButton.setOnClickListener(v -> onChangePictureButtonClick());
 
         //Login form
         mLoginFormView = rootView.findViewById(R.id.view_profile_login_form);
@@ -98,6 +123,8 @@ public class ProfileFragment extends Fragment implements MainViewModel.IMainView
         mCompanyText = rootView.findViewById(R.id.text_profile_company);
         mLocationText = rootView.findViewById(R.id.text_profile_location);
         mBlogText = rootView.findViewById(R.id.text_profile_blog);
+        mExportStatusText = rootView.findViewById(R.id.text_profile_export_status);
+        mUploadStatusText = rootView.findViewById(R.id.text_profile_upload_status);
 
         return rootView;
     }
@@ -114,28 +141,13 @@ public class ProfileFragment extends Fragment implements MainViewModel.IMainView
     }
 
     @Override
-    public void onResume() {
-        super.onResume();
-        mViewModel.setListener(this);
-    }
-
-    @Override
-    public void onPause() {
-        super.onPause();
-        mViewModel.setListener(null);
-    }
-
-    @Override
-    public void saveCredentials(String username, String token) {
-        FragmentActivity activity = getActivity();
-        if (activity == null) {
+    public void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode != REQUEST_PICK_PICTURE || resultCode != Activity.RESULT_OK || data == null
+                || data.getData() == null) {
             return;
         }
-        SharedPreferences sharedPreferences = activity.getApplicationContext().getSharedPreferences(getString(R.string.key_pref_file), MODE_PRIVATE);
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putString(getString(R.string.key_pref_username), username);
-        editor.putString(getString(R.string.key_pref_token), token);
-        editor.apply();
+        mViewModel.uploadPicture(data.getData());
     }
 
     /**
@@ -177,17 +189,90 @@ public class ProfileFragment extends Fragment implements MainViewModel.IMainView
         //Clear input fields
         mUsernameInput.setText("");
         mTokenInput.setText("");
+    }
 
-        //Clear saved credentials
+    /**
+     * Called when the Switch Account button was clicked by the user
+     */
+    private void onSwitchAccountButtonClick() {
+        FragmentActivity activity = getActivity();
+        if (activity == null || mAccountUsernames == null) {
+            return;
+        }
+
+        //List every saved account followed by an option to add another one
+        List<String> usernames = mAccountUsernames;
+        String[] items = usernames.toArray(new String[usernames.size() + 1]);
+        items[usernames.size()] = getString(R.string.dialog_item_add_account);
+        AlertDialog.Builder builder = new AlertDialog.Builder(activity);
+        builder.setTitle(getString(R.string.dialog_title_switch_account))
+                .setItems(items, (dialog, which) -> {
+                    if (which < usernames.size()) {
+                        mViewModel.switchAccount(usernames.get(which));
+                    } else {
+                        mUsernameInput.setText("");
+                        mTokenInput.setText("");
+                        mViewModel.showAddAccount();
+                    }
+                })
+                .setNegativeButton(getString(R.string.dialog_button_cancel), null)
+                .show();
+    }
+
+    /**
+     * Called when the Cancel button of the login form was clicked by the user
+     */
+    private void onCancelLoginButtonClick() {
+        mViewModel.cancelAddAccount();
+    }
+
+    /**
+     * Called when an account has been added or removed
+     *
+     * @param usernames the usernames of every saved account
+     */
+    private void onAccountsChanged(List<String> usernames) {
+        mAccountUsernames = usernames;
+        //Cancelling only makes sense when there is an account to go back to
+        boolean hasAccounts = usernames != null && !usernames.isEmpty();
+        mCancelLoginButton.setVisibility(hasAccounts ? View.VISIBLE : View.GONE);
+    }
+
+    /**
+     * Called when one of the Export buttons was clicked by the user
+     *
+     * @param type the list of Gists to export
+     */
+    private void onExportButtonClick(int type) {
         FragmentActivity activity = getActivity();
         if (activity == null) {
             return;
         }
-        SharedPreferences sharedPreferences = activity.getApplicationContext().getSharedPreferences(getString(R.string.key_pref_file), MODE_PRIVATE);
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putString(getString(R.string.key_pref_username), "");
-        editor.putString(getString(R.string.key_pref_token), "");
-        editor.apply();
+        //App specific storage doesn't need a permission and can be reached from a computer
+        File outputDir = activity.getExternalFilesDir("exports");
+        if (outputDir == null) {
+            outputDir = new File(activity.getFilesDir(), "exports");
+        }
+        if (!outputDir.exists() && !outputDir.mkdirs()) {
+            return;
+        }
+        mViewModel.exportGists(type, outputDir);
+    }
+
+    /**
+     * Called when the Change Picture button was clicked by the user, which cancels the upload
+     * while one is running
+     */
+    private void onChangePictureButtonClick() {
+        if (mIsUploadingPicture) {
+            mViewModel.cancelPictureUpload();
+            return;
+        }
+
+        Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
+        intent.setType("image/*");
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        startActivityForResult(intent, REQUEST_PICK_PICTURE);
     }
 
     /**
@@ -205,7 +290,6 @@ public class ProfileFragment extends Fragment implements MainViewModel.IMainView
      * Observe all of the necessary properties of the view model
      */
     private void observeViewModel() {
-        mViewModel.setListener(this);
         mViewModel.getLoginFormVisibility().observe(this, visibility -> mLoginFormView.setVisibility(visibility));
         mViewModel.getLoginViewVisibility().observe(this, visibility -> mLoginView.setVisibility(visibility));
         mViewModel.getProfileVisibility().observe(this, visibility -> mProfileView.setVisibility(visibility));
@@ -214,6 +298,12 @@ public class ProfileFragment extends Fragment implements MainViewModel.IMainView
         mViewModel.getUsernameError().observe(this, message -> mUsernameInput.setError(message));
         mViewModel.getTokenError().observe(this, message -> mTokenInput.setError(message));
         mViewModel.getUser().observe(this, this::onUserLoaded);
+        mViewModel.getAccountUsernames().observe(this, this::onAccountsChanged);
+        mViewModel.getIsExporting().observe(this, this::onExportingChanged);
+        mViewModel.getExportedGistCount().observe(this, this::onExportProgressChanged);
+        mViewModel.getExportReport().observe(this, this::onExportFinished);
+        mViewModel.getIsUploadingPicture().observe(this, this::onUploadingPictureChanged);
+        mViewModel.getPictureUploadProgress().observe(this, this::onPictureUploadProgressChanged);
     }
 
     /**
@@ -255,12 +345,84 @@ public class ProfileFragment extends Fragment implements MainViewModel.IMainView
                 .into(mAvatarImage);
     }
 
+    /**
+     * Called when an export starts or stops
+     *
+     * @param isExporting TRUE if an export is running
+     */
+    private void onExportingChanged(Boolean isExporting) {
+        boolean isEnabled = isExporting == null || !isExporting;
+        mExportYoursButton.setEnabled(isEnabled);
+        mExportStarredButton.setEnabled(isEnabled);
+    }
+
+    /**
+     * Called each time another Gist has been exported
+     *
+     * @param gistsExported the number of Gists exported so far
+     */
+    private void onExportProgressChanged(Integer gistsExported) {
+        if (gistsExported == null) {
+            return;
+        }
+        mExportStatusText.setText(getString(R.string.text_profile_export_progress, gistsExported));
+    }
+
+    /**
+     * Called when an export has stopped
+     *
+     * @param report the summary of the export
+     */
+    private void onExportFinished(ExportReport report) {
+        if (report == null) {
+            return;
+        }
+
+        if (report.isComplete()) {
+            mExportStatusText.setText(getString(R.string.text_profile_export_complete,
+                    report.getGistsExported(), report.getGistsSkipped(), report.getArchiveFile().getName(),
+                    Formatter.formatShortFileSize(getContext(), report.getBytesPerSecond())));
+        } else if (report.getRateLimitReset() != null) {
+            mExportStatusText.setText(getString(R.string.text_profile_export_rate_limited,
+                    report.getGistsExported(), DateFormat.getTimeFormat(getContext()).format(report.getRateLimitReset())));
+        } else {
+            mExportStatusText.setText(getString(R.string.text_profile_export_incomplete,
+                    report.getGistsExported(), report.getGistsFailed()));
+        }
+    }
+
+    /**
+     * Called when a picture upload starts or stops
+     *
+     * @param isUploading TRUE if a picture is being uploaded
+     */
+    private void onUploadingPictureChanged(Boolean isUploading) {
+        mIsUploadingPicture = isUploading != null && isUploading;
+        mChangePictureButton.setText(mIsUploadingPicture
+                ? R.string.button_profile_cancel_upload
+                : R.string.button_profile_change_picture);
+        mUploadStatusText.setVisibility(mIsUploadingPicture ? View.VISIBLE : View.GONE);
+    }
+
+    /**
+     * Called each time more of the picture being uploaded has been sent
+     *
+     * @param percent how much of the picture has been sent, from 0 to 100
+     */
+    private void onPictureUploadProgressChanged(Integer percent) {
+        if (percent == null) {
+            return;
+        }
+        mUploadStatusText.setText(getString(R.string.text_profile_upload_progress, percent));
+    }
+
     /**
      * Called when a new error message is needs to be displayed to the user
      * @param message the error message to diaplsy
      */
     private void onErrorChanged(String message) {
-        if (message == null) {
+        //Hidden tabs are still observing, so only the visible tab shows the error
+        if (message == null || isHidden()) {
             return;
         }
 
@@ -6,21 +6,25 @@ import androidx.appcompat.app.ActionBar;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.core.content.ContextCompat;
+import androidx.core.widget.TextViewCompat;
 import androidx.lifecycle.ViewModelProviders;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import android.app.Activity;
 import android.content.Intent;
-import android.content.SharedPreferences;
+import android.content.res.Resources;
 import android.os.Bundle;
 import android.text.Editable;
+import android.text.InputType;
 import android.text.TextWatcher;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
@@ -30,14 +34,19 @@ import com.bumptech.glide.request.RequestOptions;
 import com.google.android.material.textfield.TextInputEditText;
 import com.jldubz.gistaviewer.R;
 import com.jldubz.gistaviewer.model.Constants;
+import com.jldubz.gistaviewer.model.DateFormatUtil;
 import com.jldubz.gistaviewer.model.GitHubUser;
+import com.jldubz.gistaviewer.model.data.CommentPageStore;
 import com.jldubz.gistaviewer.model.gists.Gist;
-import com.jldubz.gistaviewer.model.gists.GistComment;
+import com.jldubz.gistaviewer.model.gists.GistChangeStatus;
 import com.jldubz.gistaviewer.model.gists.GistFile;
+import com.jldubz.gistaviewer.model.gists.GistHistory;
+import com.jldubz.gistaviewer.model.text.MarkdownRenderer;
 import com.jldubz.gistaviewer.ui.gists.comments.CommentAdapter;
+import com.jldubz.gistaviewer.ui.gists.diff.GistDiffActivity;
+import com.jldubz.gistaviewer.ui.gists.files.GistFilesActivity;
 import com.jldubz.gistaviewer.viewmodel.GistViewModel;
 
-import java.text.DateFormat;
 import java.util.List;
 import java.util.Map;
 
@@ -68,8 +77,6 @@ public class GistActivity extends AppCompatActivity {
 
     private CommentAdapter mCommentAdapter = new CommentAdapter();
 
-    private boolean mIsLoadingMoreComments = false;
-
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -93,33 +100,30 @@ public class GistActivity extends AppCompatActivity {
         mAuthorAvatarImage = findViewById(R.id.image_gist_author_avatar);
         mCreatedAtText = findViewById(R.id.text_gist_created);
         mLastUpdatedText = findViewById(R.id.text_gist_updated);
+        //The owner's profile is shown over the Gist
+        mAuthorNameText.setOnClickListener(v -> mViewModel.loadOwnerProfile());
+        mAuthorAvatarImage.setOnClickListener(v -> mViewModel.loadOwnerProfile());
+        //The files are listed in full in their own viewer
+        findViewById(R.id.view_gist_files).setOnClickListener(v -> onFilesClick());
+        mFirstFilenameText.setOnClickListener(v -> onFilesClick());
         mCommentList = findViewById(R.id.list_gist_comments);
         LinearLayoutManager linearLayoutManager = new LinearLayoutManager(this, RecyclerView.VERTICAL, false);
         mCommentList.setLayoutManager(linearLayoutManager);
-        mCommentAdapter.setIsLoadMoreEnabled(false);
         mCommentList.setAdapter(mCommentAdapter);
 
-        //Add a scroll listener to trigger a call to load more when the user reaches the bottom
-        // of the comments list
+        //Add a scroll listener to tell the view model which comments are visible so that it can
+        // load the pages around them.  This is also called after each layout.
         mCommentList.addOnScrollListener(new RecyclerView.OnScrollListener() {
             @Override
             public void onScrolled(@NonNull RecyclerView recyclerView,
                                    int dx, int dy) {
                 super.onScrolled(recyclerView, dx, dy);
-                if (!mCommentAdapter.isLoadMoreEnabled()) {
+                if (mCommentAdapter.getItemCount() <= 0) {
                     return;
                 }
 
-                int totalItemCount = linearLayoutManager.getItemCount();
-                if (totalItemCount <= 0) {
-                    return;
-                }
-                int lastVisibleItem = linearLayoutManager
-                        .findLastVisibleItemPosition();
-                if (!mIsLoadingMoreComments && lastVisibleItem >= totalItemCount - 1) {
-                    mIsLoadingMoreComments = true;
-                    mViewModel.loadMoreComments();
-                }
+                mViewModel.onCommentsScrolled(linearLayoutManager.findFirstVisibleItemPosition(),
+                        linearLayoutManager.findLastVisibleItemPosition());
             }
         });
 
@@ -157,20 +161,35 @@ public class GistActivity extends AppCompatActivity {
             onErrorChanged(Constants.INVALID_GIST_ID_ERROR);
         } else {
             mViewModel.setGistId(gistId);
+            mCommentAdapter.setCommentStore(mViewModel.getCommentStore());
         }
 
-        //Saved credentials
-        SharedPreferences sharedPreferences = getApplicationContext().getSharedPreferences(getString(R.string.key_pref_file), MODE_PRIVATE);
-        String username = sharedPreferences.getString(getString(R.string.key_pref_username), "");
-        String token = sharedPreferences.getString(getString(R.string.key_pref_token), "");
-
-        if (!username.isEmpty() && !token.isEmpty()) {
-            mViewModel.setCredentials(username, token);
-        }
+        //Measure the comment body style once so pages of comments can be rendered in the background
+        View commentTemplate = getLayoutInflater().inflate(R.layout.item_comment, mCommentList, false);
+        TextView commentTemplateText = commentTemplate.findViewById(R.id.text_comment);
+        Resources resources = getResources();
+        MarkdownRenderer markdownRenderer = new MarkdownRenderer(
+                ContextCompat.getColor(this, R.color.colorCodeBackground),
+                ContextCompat.getColor(this, R.color.colorPrimary),
+                resources.getDimensionPixelSize(R.dimen.comment_bullet_gap),
+                resources.getDimensionPixelSize(R.dimen.comment_image_size));
+        mViewModel.setCommentTextStyle(TextViewCompat.getTextMetricsParams(commentTemplateText), markdownRenderer);
 
         observeViewModel();
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        mViewModel.startCommentPolling();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        mViewModel.stopCommentPolling();
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.activity_gist_bottom, menu);
@@ -182,14 +201,55 @@ public class GistActivity extends AppCompatActivity {
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
 
-        if (item.getItemId() == R.id.menu_gist_star) {
-            mViewModel.starItemClicked();
-            return true;
+        switch (item.getItemId()) {
+            case R.id.menu_gist_star:
+                mViewModel.starItemClicked();
+                return true;
+            case R.id.menu_gist_revisions:
+                mViewModel.loadRevisions();
+                return true;
+            case R.id.menu_gist_comments_newest:
+                mViewModel.showNewestComments();
+                return true;
+            case R.id.menu_gist_comments_oldest:
+                mViewModel.showOldestComments();
+                return true;
+            case R.id.menu_gist_comments_page:
+                showCommentPageDialog();
+                return true;
         }
         return false;
 
     }
 
+    /**
+     * Ask the user which page of comments to jump to
+     */
+    private void showCommentPageDialog() {
+        int pageCount = mViewModel.getCommentPageCount();
+        if (pageCount <= 0) {
+            return;
+        }
+
+        EditText pageInput = new EditText(this);
+        pageInput.setInputType(InputType.TYPE_CLASS_NUMBER);
+        pageInput.setHint(String.valueOf(pageCount));
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle(R.string.dialog_title_comment_page)
+                .setMessage(getString(R.string.dialog_message_comment_page, pageCount))
+                .setView(pageInput)
+                .setPositiveButton(R.string.dialog_button_go, (dialogInterface, i) -> {
+                    try {
+                        mViewModel.showCommentPage(Integer.parseInt(pageInput.getText().toString()));
+                    } catch (NumberFormatException exception) {
+                        //Nothing to jump to
+                    }
+                })
+                .setNegativeButton(R.string.dialog_button_cancel, null)
+                .show();
+    }
+
     /**
      * Called when the user clicks the button to create a new comment
      *
@@ -220,6 +280,15 @@ public class GistActivity extends AppCompatActivity {
         mViewModel.createComment(comment.toString());
     }
 
+    /**
+     * Called when the user clicks the name or the number of files to view every file of the Gist
+     */
+    private void onFilesClick() {
+        Intent filesIntent = new Intent(this, GistFilesActivity.class);
+        filesIntent.putExtra(GistFilesActivity.KEY_GIST_ID, getIntent().getStringExtra(KEY_GIST_ID));
+        startActivity(filesIntent);
+    }
+
     /**
      * Observe all of the necessary properties of the view model
      */
@@ -227,6 +296,9 @@ public class GistActivity extends AppCompatActivity {
         mViewModel.getErrorMessage().observe(this, this::onErrorChanged);
         mViewModel.getGist().observe(this, this::onGistChanged);
         mViewModel.getComments().observe(this, this::onCommentsChanged);
+        mViewModel.getCommentScrollPosition().observe(this, this::onCommentScrollPositionChanged);
+        mViewModel.getRevisions().observe(this, this::onRevisionsChanged);
+        mViewModel.getOwnerProfile().observe(this, this::onOwnerProfileChanged);
         mViewModel.getProgressBarVisibility().observe(this, this::onProgressBarVisibilityChanged);
     }
 
@@ -252,10 +324,8 @@ public class GistActivity extends AppCompatActivity {
         //Set the description of the Gist
         mDescriptionText.setText(gist.getDescription());
         //Set the last updated and created time/dates
-        String updatedAtTime = DateFormat.getDateTimeInstance().format(gist.getUpdated_at());
-        String createdAtTime = DateFormat.getDateTimeInstance().format(gist.getCreated_at());
-        mCreatedAtText.setText(createdAtTime);
-        mLastUpdatedText.setText(updatedAtTime);
+        mCreatedAtText.setText(gist.getCreatedAtText());
+        mLastUpdatedText.setText(gist.getUpdatedAtText());
         GitHubUser owner = gist.getOwner();
         if (owner != null) {
             //Set the author's avatar image
@@ -273,24 +343,119 @@ public class GistActivity extends AppCompatActivity {
     }
 
     /**
-     * Called when the list of Comments has been updated to update the UI
+     * Called when the comments have been updated to update the UI
      *
-     * @param comments the new list of comments
+     * @param change the change that was made to the comments
      */
-    private void onCommentsChanged(List<GistComment> comments) {
-        mIsLoadingMoreComments = false;
-        if (comments.size() == 0) {
+    private void onCommentsChanged(CommentPageStore.Change change) {
+        if (change == null) {
+            return;
+        }
+        if (change.getTotalCount() == 0) {
             mCommentList.setVisibility(View.GONE);
         } else {
             mCommentList.setVisibility(View.VISIBLE);
         }
         mProgressBar.setVisibility(View.GONE);
-        mCommentAdapter.setIsLoadMoreEnabled(mViewModel.isMoreCommentsAvailable());
-        if (mCommentAdapter.setComments(comments)) {
+        //Only follow new comments to the top if the user was already there, so that reading
+        // older comments isn't interrupted
+        LinearLayoutManager layoutManager = (LinearLayoutManager) mCommentList.getLayoutManager();
+        boolean isAtTop = layoutManager.findFirstVisibleItemPosition() <= 0;
+        if (mCommentAdapter.onCommentsChanged(change) && isAtTop) {
             mCommentList.scrollToPosition(0);
         }
     }
 
+    /**
+     * Called when the list of comments should jump to a new position, e.g. the first comment of a
+     * page the user asked for
+     *
+     * @param position the position to scroll to or NULL if there is nowhere to scroll to
+     */
+    private void onCommentScrollPositionChanged(Integer position) {
+        if (position == null) {
+            return;
+        }
+        ((LinearLayoutManager) mCommentList.getLayoutManager()).scrollToPositionWithOffset(position, 0);
+        mViewModel.onCommentScrollHandled();
+    }
+
+    /**
+     * Called when the list of revisions has loaded to let the user choose one to view the
+     * changes made in it
+     *
+     * @param revisions the revisions of the Gist, newest first, or NULL if there is none to show
+     */
+    private void onRevisionsChanged(List<GistHistory> revisions) {
+        if (revisions == null) {
+            return;
+        }
+        mViewModel.onRevisionsShown();
+
+        String[] revisionLabels = new String[revisions.size()];
+        for (int i = 0; i < revisions.size(); i++) {
+            GistHistory revision = revisions.get(i);
+            String version = revision.getVersion();
+            GistChangeStatus changeStatus = revision.getChange_status();
+            revisionLabels[i] = getString(R.string.text_gist_revision,
+                    version.substring(0, Math.min(GistDiffActivity.SHORT_VERSION_LENGTH, version.length())),
+                    revision.getCommitted_at() != null ? DateFormatUtil.formatDateTime(revision.getCommitted_at()) : "",
+                    changeStatus != null ? changeStatus.getAdditions() : 0,
+                    changeStatus != null ? changeStatus.getDeletions() : 0);
+        }
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle(R.string.dialog_title_revisions)
+                .setItems(revisionLabels, (dialogInterface, i) -> {
+                    Intent diffIntent = new Intent(this, GistDiffActivity.class);
+                    diffIntent.putExtra(GistDiffActivity.KEY_GIST_ID, getIntent().getStringExtra(KEY_GIST_ID));
+                    diffIntent.putExtra(GistDiffActivity.KEY_NEW_VERSION, revisions.get(i).getVersion());
+                    //The first revision is compared against an empty Gist
+                    if (i + 1 < revisions.size()) {
+                        diffIntent.putExtra(GistDiffActivity.KEY_OLD_VERSION, revisions.get(i + 1).getVersion());
+                    }
+                    startActivity(diffIntent);
+                })
+                .setNegativeButton(R.string.dialog_button_cancel, null)
+                .show();
+    }
+
+    /**
+     * Called when the full profile of the owner of the Gist has loaded to show it
+     *
+     * @param owner the owner of the Gist or NULL if there is none to show
+     */
+    private void onOwnerProfileChanged(GitHubUser owner) {
+        if (owner == null) {
+            return;
+        }
+        mViewModel.onOwnerProfileShown();
+
+        StringBuilder message = new StringBuilder();
+        if (owner.getBio() != null) {
+            message.append(owner.getBio()).append("\n\n");
+        }
+        appendOwnerField(message, R.string.label_profile_company, owner.getCompany());
+        appendOwnerField(message, R.string.label_profile_location, owner.getLocation());
+        appendOwnerField(message, R.string.label_profile_blog, owner.getBlog());
+        appendOwnerField(message, R.string.label_profile_public_gists, String.valueOf(owner.getPublic_gists()));
+        appendOwnerField(message, R.string.label_profile_followers, String.valueOf(owner.getFollowers()));
+        appendOwnerField(message, R.string.label_profile_following, String.valueOf(owner.getFollowing()));
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle(owner.getName() != null ? owner.getName() : owner.getLogin())
+                .setMessage(message.toString().trim())
+                .setPositiveButton(R.string.dialog_button_ok, null)
+                .show();
+    }
+
+    private void appendOwnerField(StringBuilder message, int labelId, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        message.append(getString(R.string.text_gist_owner_field, getString(labelId), value)).append('\n');
+    }
+
     /**
      * Called when the state of the star on the Gist has been updated to update the UI
      *
@@ -5,7 +5,7 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import com.jldubz.gistaviewer.R;
-import com.jldubz.gistaviewer.model.gists.Gist;
+import com.jldubz.gistaviewer.model.gists.GistListItem;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -20,9 +20,10 @@ import androidx.recyclerview.widget.RecyclerView;
  */
 public class GistAdapter extends RecyclerView.Adapter implements GistViewHolder.IGistViewHolderListener {
 
-    private List<Gist> mGists;
+    private List<GistListItem> mGists;
     private IGistListListener mListener;
     private boolean mIsLoadMoreEnabled = false;
+    private GistRowPool mRowPool;
 
     @Override
     public int getItemViewType(int position) {
@@ -36,12 +37,15 @@ public class GistAdapter extends RecyclerView.Adapter implements GistViewHolder.
     @NonNull
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(parent.getContext())
-                .inflate(viewType, parent, false);
         if (viewType == R.layout.item_gist) {
+            //Use a row that was inflated ahead of time when there is one
+            View view = mRowPool != null ? mRowPool.obtainRow(parent)
+                    : LayoutInflater.from(parent.getContext()).inflate(viewType, parent, false);
             return new GistViewHolder(view, this);
         }
 
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(viewType, parent, false);
         return new LoadMoreViewHolder(view);
     }
 
@@ -49,8 +53,10 @@ public class GistAdapter extends RecyclerView.Adapter implements GistViewHolder.
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
 
         if (holder instanceof GistViewHolder) {
-            Gist gist = mGists.get(position);
+            GistListItem gist = mGists.get(position);
             GistViewHolder gistViewHolder = (GistViewHolder) holder;
+            //The row may have been created by the adapter of another list
+            gistViewHolder.setListener(this);
             gistViewHolder.configureView(gist);
         }
     }
@@ -73,7 +79,7 @@ public class GistAdapter extends RecyclerView.Adapter implements GistViewHolder.
      * Update the data set driving this adapter
      * @param gists the new list of gists to use
      */
-    public void setGists(List<Gist> gists) {
+    public void setGists(List<GistListItem> gists) {
         //When the new list is NULL, use a blank list
         if (gists == null) {
             mGists = new ArrayList<>();
@@ -97,6 +103,14 @@ public class GistAdapter extends RecyclerView.Adapter implements GistViewHolder.
         }
     }
 
+    /***
+     * Set the pool new Gist rows are taken from
+     * @param rowPool the pool shared by every list of Gists
+     */
+    void setRowPool(GistRowPool rowPool) {
+        mRowPool = rowPool;
+    }
+
     /***
      * Set or clear the interface listening to Gist clicks from this adapter
      * @param mListener the interface listening or NULL to clear it
@@ -8,7 +8,7 @@ import android.view.ViewGroup;
 import android.widget.ProgressBar;
 
 import com.jldubz.gistaviewer.R;
-import com.jldubz.gistaviewer.model.gists.Gist;
+import com.jldubz.gistaviewer.model.gists.GistListItem;
 import com.jldubz.gistaviewer.viewmodel.MainViewModel;
 
 import java.util.List;
@@ -23,15 +23,13 @@ import androidx.recyclerview.widget.DividerItemDecoration;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-public class GistFragment extends Fragment implements GistAdapter.IGistListListener {
+public abstract class GistFragment extends Fragment implements GistAdapter.IGistListListener {
 
     MainViewModel mViewModel;
 
     RecyclerView mGistList;
     GistAdapter mAdapter = new GistAdapter();
 
-    boolean mIsLoadingMore = false;
-
     private View mEmptyListView;
     private ProgressBar mProgressBar;
 
@@ -49,9 +47,29 @@ public class GistFragment extends Fragment implements GistAdapter.IGistListListe
         LinearLayoutManager linearLayoutManager = new LinearLayoutManager(activity, RecyclerView.VERTICAL, false);
         mGistList.setLayoutManager(linearLayoutManager);
         mGistList.addItemDecoration(new DividerItemDecoration(activity, DividerItemDecoration.VERTICAL));
+        //Share rows with the lists in the other tabs
+        if (activity instanceof GistRowPool.IGistRowPoolOwner) {
+            GistRowPool rowPool = ((GistRowPool.IGistRowPoolOwner) activity).getGistRowPool();
+            mGistList.setRecycledViewPool(rowPool.getRecycledViewPool());
+            mAdapter.setRowPool(rowPool);
+            //Hand the rows back to the shared pool if this list's view is destroyed
+            linearLayoutManager.setRecycleChildrenOnDetach(true);
+        }
         mAdapter.setIsLoadMoreEnabled(true);
         mGistList.setAdapter(mAdapter);
 
+        //Let the view model request the next page before the user reaches the bottom of the list
+        mGistList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                super.onScrolled(recyclerView, dx, dy);
+                if (mViewModel == null || !mAdapter.isLoadMoreEnabled()) {
+                    return;
+                }
+                mViewModel.onGistListScrolled(getGistListType(), linearLayoutManager.findLastVisibleItemPosition());
+            }
+        });
+
         return rootView;
     }
 
@@ -59,12 +77,37 @@ public class GistFragment extends Fragment implements GistAdapter.IGistListListe
     public void onActivityCreated(@Nullable Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
         mViewModel = ViewModelProviders.of(getActivity()).get(MainViewModel.class);
+        //Observed once per view, so switching back to the tab doesn't deliver and bind the list again
+        observeViewModel();
     }
 
     @Override
     public void onStart() {
         super.onStart();
-        observeViewModel();
+        if (!isHidden()) {
+            mViewModel.onGistListShown(getGistListType());
+        }
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        if (!isHidden()) {
+            mViewModel.onGistListHidden(getGistListType());
+        }
+    }
+
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        //Tabs are hidden rather than stopped when the user switches to another tab
+        if (hidden) {
+            //Don't keep downloading a page for a list the user has left
+            mViewModel.onGistListHidden(getGistListType());
+        }
+        else {
+            mViewModel.onGistListShown(getGistListType());
+        }
     }
 
     @Override
@@ -86,18 +129,27 @@ public class GistFragment extends Fragment implements GistAdapter.IGistListListe
         startActivity(gistIntent);
     }
 
+    /**
+     * Get the list of Gists shown by this fragment
+     *
+     * @return one of the list types of the MainViewModel, e.g. {@link MainViewModel#LIST_STARRED_GISTS}
+     */
+    protected abstract int getGistListType();
+
     /**
      * Observe all of the necessary properties of the view model
      */
-    protected void observeViewModel() {
-        mViewModel.getErrorMessage().observe(this, this::onErrorChanged);
+    private void observeViewModel() {
+        mViewModel.getErrorMessage().observe(getViewLifecycleOwner(), this::onErrorChanged);
+        mViewModel.getGists(getGistListType()).observe(getViewLifecycleOwner(), this::onGistsChanged);
     }
 
     /**
      * Called when the list of Gists has updated and the UI needs to be updated to reflect it
      * @param gists the new list of Gists
      */
-    protected void onGistsChanged(List<Gist> gists) {
+    private void onGistsChanged(List<GistListItem> gists) {
+        mAdapter.setIsLoadMoreEnabled(mViewModel.isMoreGistsAvailable(getGistListType()));
         if (gists == null || gists.isEmpty()) {
             mEmptyListView.setVisibility(View.VISIBLE);
             mGistList.setVisibility(View.GONE);
@@ -108,7 +160,6 @@ public class GistFragment extends Fragment implements GistAdapter.IGistListListe
         }
         mProgressBar.setVisibility(View.GONE);
         mAdapter.setGists(gists);
-        mIsLoadingMore = false;
     }
 
     /**
@@ -116,7 +167,8 @@ public class GistFragment extends Fragment implements GistAdapter.IGistListListe
      * @param message the error message to diaplsy
      */
     private void onErrorChanged(String message) {
-        if (message == null) {
+        //Hidden tabs are still observing, so only the visible tab shows the error
+        if (message == null || isHidden()) {
             return;
         }
         mProgressBar.setVisibility(View.GONE);
@@ -0,0 +1,110 @@
+package com.jldubz.gistaviewer.ui.gists;
+
+import android.content.Context;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.jldubz.gistaviewer.R;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Shares Gist rows between the lists of Gists in every tab.
+ * <p>
+ * Every list uses the same {@link RecyclerView.RecycledViewPool}, so a row scrolled off one list
+ * can be reused by another instead of being inflated again.  Rows can also be inflated on a
+ * background thread ahead of time, so the first frames of each list don't pay for inflating
+ * them.  The number of rows inflated each way is counted for the session.
+ * <p>
+ * All methods must be called from the main thread.
+ */
+public class GistRowPool {
+
+    private static final String TAG = "GistRowPool";
+
+    //AsyncLayoutInflater blocks the caller once this many inflations are waiting
+    private static final int MAX_PRE_INFLATE_COUNT = 10;
+
+    private final RecyclerView.RecycledViewPool mRecycledViewPool = new RecyclerView.RecycledViewPool();
+    private final Deque<View> mPreInflatedRows = new ArrayDeque<>();
+
+    private int mPreInflatedCount;
+    private int mPreInflatedUsedCount;
+    private int mInflatedCount;
+
+    /**
+     * @param maxRecycledRows the number of Gist rows kept for reuse once they have scrolled off a
+     *                        list
+     */
+    public GistRowPool(int maxRecycledRows) {
+        mRecycledViewPool.setMaxRecycledViews(R.layout.item_gist, maxRecycledRows);
+    }
+
+    /**
+     * Get the pool every list of Gists should recycle its rows into
+     *
+     * @return the shared pool
+     */
+    public RecyclerView.RecycledViewPool getRecycledViewPool() {
+        return mRecycledViewPool;
+    }
+
+    /**
+     * Start inflating rows on a background thread so they are ready before the lists need them
+     *
+     * @param context the context whose theme the rows are inflated with
+     * @param parent  a view whose layout params the rows are given; the rows are not attached to it
+     * @param count   the number of rows to inflate, up to 10
+     */
+    public void preInflate(Context context, ViewGroup parent, int count) {
+        AsyncLayoutInflater inflater = new AsyncLayoutInflater(context);
+        for (int i = 0; i < Math.min(count, MAX_PRE_INFLATE_COUNT); i++) {
+            inflater.inflate(R.layout.item_gist, parent, (view, resid, viewParent) -> {
+                mPreInflatedCount++;
+                mPreInflatedRows.push(view);
+            });
+        }
+    }
+
+    /**
+     * Get a new Gist row, using one that was inflated ahead of time when there is one
+     *
+     * @param parent the list the row is for
+     * @return the row
+     */
+    View obtainRow(ViewGroup parent) {
+        View row = mPreInflatedRows.poll();
+        if (row != null) {
+            mPreInflatedUsedCount++;
+            return row;
+        }
+
+        mInflatedCount++;
+        return LayoutInflater.from(parent.getContext()).inflate(R.layout.item_gist, parent, false);
+    }
+
+    /**
+     * Log how many rows were inflated this session, both ahead of time and while a list was
+     * waiting for them
+     */
+    public void logInflationCounts() {
+        Log.d(TAG, "Gist rows inflated ahead of time: " + mPreInflatedCount
+                + " (" + mPreInflatedUsedCount + " used), inflated on demand: " + mInflatedCount);
+    }
+
+    public interface IGistRowPoolOwner {
+
+        /**
+         * Get the pool shared by every list of Gists
+         *
+         * @return the shared pool
+         */
+        GistRowPool getGistRowPool();
+    }
+}
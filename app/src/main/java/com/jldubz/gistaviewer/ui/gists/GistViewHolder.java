@@ -8,11 +8,7 @@ import com.bumptech.glide.Glide;
 import com.bumptech.glide.request.RequestOptions;
 import com.jldubz.gistaviewer.R;
 import com.jldubz.gistaviewer.model.GitHubUser;
-import com.jldubz.gistaviewer.model.gists.Gist;
-import com.jldubz.gistaviewer.model.gists.GistFile;
-
-import java.text.DateFormat;
-import java.util.Map;
+import com.jldubz.gistaviewer.model.gists.GistListItem;
 
 import androidx.annotation.Keep;
 import androidx.annotation.NonNull;
@@ -44,23 +40,29 @@ class GistViewHolder extends RecyclerView.ViewHolder implements View.OnClickList
         itemView.setOnClickListener(this);
     }
 
+    /***
+     * Set the listener for clicks on this view.  Rows are shared between lists, so this is set
+     * each time the view is bound.
+     * @param listener the listener to notify
+     */
+    void setListener(IGistViewHolderListener listener) {
+        mListener = listener;
+    }
+
     /***
      * Configure the view according to the Gist info provided
      * @param gist the Gist info to display in this view
      */
-    void configureView(Gist gist) {
+    void configureView(GistListItem gist) {
         //Set the filename to the first file in the Gist
-        Map<String, GistFile> gistFiles = gist.getFiles();
-        if (gistFiles != null && gistFiles.size() > 0) {
-            GistFile firstFile = gistFiles.values().iterator().next();
-            mFileNameText.setText(firstFile.getFilename());
+        if (gist.getFilename() != null) {
+            mFileNameText.setText(gist.getFilename());
         }
         else {
             mFileNameText.setText("ERROR - NO FILES");
         }
         //Set the updated time
-        String updatedAtTime = DateFormat.getDateInstance().format(gist.getUpdated_at());
-        mUpdatedText.setText(updatedAtTime);
+        mUpdatedText.setText(gist.getUpdatedAtDateText());
         GitHubUser owner = gist.getOwner();
         if (owner != null) {
             //Set the author avatar image
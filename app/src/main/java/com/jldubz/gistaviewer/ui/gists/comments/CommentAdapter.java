@@ -5,29 +5,30 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import com.jldubz.gistaviewer.R;
+import com.jldubz.gistaviewer.model.data.CommentPageStore;
 import com.jldubz.gistaviewer.model.gists.GistComment;
 import com.jldubz.gistaviewer.ui.gists.LoadMoreViewHolder;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 /**
  * RecyclerView data adapter for displaying Gist Comments
+ * <p>
+ * Comments are read straight from a CommentPageStore instead of a copy of the list.  Positions
+ * whose page is not in memory yet are shown as loading rows until the page arrives.
  *
  * @author Jon-Luke West
  */
 public class CommentAdapter extends RecyclerView.Adapter {
 
-    private List<GistComment> mComments;
-    private boolean mIsLoadMoreEnabled = false;
+    private CommentPageStore mCommentStore;
+    private int mItemCount = 0;
 
     @Override
     public int getItemViewType(int position) {
 
-        if (position >= mComments.size()) {
+        if (mCommentStore.getComment(position) == null) {
             return R.layout.item_load_more;
         }
         return R.layout.item_comment;
@@ -50,7 +51,7 @@ public class CommentAdapter extends RecyclerView.Adapter {
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
 
         if (holder instanceof CommentViewHolder) {
-            GistComment gistComment = mComments.get(position);
+            GistComment gistComment = mCommentStore.getComment(position);
             CommentViewHolder commentViewHolder = (CommentViewHolder) holder;
             commentViewHolder.configureView(gistComment);
         }
@@ -58,68 +59,42 @@ public class CommentAdapter extends RecyclerView.Adapter {
 
     @Override
     public int getItemCount() {
-        if (mComments == null) {
-            return 0;
-        }
+        return mItemCount;
+    }
 
-        int itemCount = mComments.size();
-        //Add one to the item count if loading more is enabled and there is already data in the list
-        if (itemCount > 0 && mIsLoadMoreEnabled) {
-            itemCount++;
-        }
-        return itemCount;
+    /***
+     * Set the store driving this adapter
+     * @param commentStore the store holding the comments to display or NULL to display none
+     */
+    public void setCommentStore(CommentPageStore commentStore) {
+        mCommentStore = commentStore;
+        mItemCount = commentStore != null ? commentStore.getCount() : 0;
+        notifyDataSetChanged();
     }
 
     /***
-     * Update the data set driving this adapter
-     * @param comments the new list of comments to use
+     * Update the rows affected by a change to the comment store
+     * @param change the change that was made to the store
      * @return TRUE if the list should be scrolled to the top,
      *          FALSE if the list should remain at its current scroll position
      */
-    public boolean setComments(List<GistComment> comments) {
-        //When the new list is NULL, use a blank list
-        if (comments == null) {
-            mComments = new ArrayList<>();
-            notifyDataSetChanged();
-            return false;
-        }
-        //Get the current size of the list
-        int oldSize = mComments != null ? mComments.size() : 0;
-        //Get the size of the new list
-        int newSize = comments.size();
-        //Update the comment list
-        mComments = new ArrayList<>(comments);
-        if (oldSize <= 0) {
-            //When the size of the old list was 0, refresh the whole list
-            notifyDataSetChanged();
-        } else if (newSize == oldSize + 1) {
-            //When the size of the new list is greater than the old one by one,
-            // insert the new item at the top
-            notifyItemInserted(0);
-            return true;
-        } else if (newSize > oldSize + 1) {
-            //When the size of the new list is greater than the old one, insert all new items
-            notifyItemRangeInserted(oldSize, newSize - oldSize);
+    public boolean onCommentsChanged(CommentPageStore.Change change) {
+        int oldCount = mItemCount;
+        mItemCount = change.getTotalCount();
+
+        //Fall back to a full refresh whenever the change doesn't line up with the rows shown,
+        // e.g. when a change is redelivered to a new adapter after a configuration change
+        if (change.getType() == CommentPageStore.Change.INSERTED && oldCount > 0
+                && oldCount + change.getItemCount() == mItemCount) {
+            notifyItemRangeInserted(change.getPositionStart(), change.getItemCount());
+            //Only follow comments inserted at the top, i.e. when the list is newest first
+            return change.getPositionStart() == 0;
+        } else if (change.getType() == CommentPageStore.Change.CHANGED && oldCount == mItemCount) {
+            notifyItemRangeChanged(change.getPositionStart(), change.getItemCount());
         } else {
             notifyDataSetChanged();
         }
 
         return false;
     }
-
-    /***
-     * Used to determine if loading more when the list is scrolled to the bottom is enabled
-     * @return TRUE if loading more is enabled, FALSE if not
-     */
-    public boolean isLoadMoreEnabled() {
-        return mIsLoadMoreEnabled;
-    }
-
-    /***
-     * Set whether loading more when the list is scrolled to the bottom is enabled or not
-     * @param isLoadMoreEnabled TRUE if loading more is enabled, FALSE if not
-     */
-    public void setIsLoadMoreEnabled(boolean isLoadMoreEnabled) {
-        this.mIsLoadMoreEnabled = isLoadMoreEnabled;
-    }
 }
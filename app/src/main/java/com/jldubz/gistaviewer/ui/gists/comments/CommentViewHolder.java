@@ -1,18 +1,30 @@
 package com.jldubz.gistaviewer.ui.gists.comments;
 
+import android.graphics.drawable.Drawable;
+import android.text.Spanned;
+import android.text.method.LinkMovementMethod;
 import android.view.View;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
 import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.target.SimpleTarget;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.request.transition.Transition;
 import com.jldubz.gistaviewer.R;
 import com.jldubz.gistaviewer.model.GitHubUser;
 import com.jldubz.gistaviewer.model.gists.GistComment;
+import com.jldubz.gistaviewer.model.text.MarkdownImageSpan;
 
-import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.List;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
 import androidx.recyclerview.widget.RecyclerView;
 
 /**
@@ -26,6 +38,8 @@ class CommentViewHolder extends RecyclerView.ViewHolder {
     private TextView mAuthorNameText;
     private TextView mCreatedText;
     private TextView mCommentText;
+    private PrecomputedTextCompat.Params mCommentTextParams;
+    private List<Target<Drawable>> mImageTargets = new ArrayList<>();
 
     CommentViewHolder(@NonNull View itemView) {
         super(itemView);
@@ -34,6 +48,8 @@ class CommentViewHolder extends RecyclerView.ViewHolder {
         mAuthorNameText = itemView.findViewById(R.id.text_comment_username);
         mCreatedText = itemView.findViewById(R.id.text_comment_created);
         mCommentText = itemView.findViewById(R.id.text_comment);
+        mCommentTextParams = TextViewCompat.getTextMetricsParams(mCommentText);
+        mCommentText.setMovementMethod(LinkMovementMethod.getInstance());
     }
 
     /***
@@ -58,10 +74,58 @@ class CommentViewHolder extends RecyclerView.ViewHolder {
         }
 
         //Set the created time
-        String createdOnTime = DateFormat.getDateTimeInstance().format(comment.getCreated_at());
-        mCreatedText.setText(createdOnTime);
-        //Set the comment body
-        mCommentText.setText(comment.getBody());
+        mCreatedText.setText(comment.getCreatedAtText());
+        //Set the comment body, attaching the precomputed layout when it was measured for this view
+        CharSequence body = comment.getBodyText();
+        if (body instanceof PrecomputedTextCompat
+                && mCommentTextParams.equals(((PrecomputedTextCompat) body).getParams())) {
+            TextViewCompat.setPrecomputedText(mCommentText, (PrecomputedTextCompat) body);
+        } else {
+            mCommentText.setText(body);
+        }
+        //Load any images embedded in the comment at the size reserved for them
+        loadImages(body);
+    }
+
+    /**
+     * Load the pictures of the images embedded in a rendered comment body, replacing the requests
+     * made for the comment this view previously displayed
+     *
+     * @param body the rendered comment body
+     */
+    private void loadImages(CharSequence body) {
+        for (Target<Drawable> target : mImageTargets) {
+            Glide.with(mCommentText).clear(target);
+        }
+        mImageTargets.clear();
+
+        if (!(body instanceof Spanned)) {
+            return;
+        }
+        Spanned spanned = (Spanned) body;
+        MarkdownImageSpan[] imageSpans = spanned.getSpans(0, spanned.length(), MarkdownImageSpan.class);
+        RequestOptions options = new RequestOptions().downsample(DownsampleStrategy.CENTER_INSIDE);
+        for (MarkdownImageSpan imageSpan : imageSpans) {
+            int imageSize = imageSpan.getImageSize();
+            Target<Drawable> target = Glide.with(mCommentText)
+                    .load(imageSpan.getUrl())
+                    .apply(options)
+                    .into(new SimpleTarget<Drawable>(imageSize, imageSize) {
+                        @Override
+                        public void onResourceReady(@NonNull Drawable resource, @Nullable Transition<? super Drawable> transition) {
+                            imageSpan.setDrawable(resource);
+                            mCommentText.invalidate();
+                        }
+
+                        @Override
+                        public void onLoadCleared(@Nullable Drawable placeholder) {
+                            //The picture may be recycled once its request is cleared
+                            imageSpan.setDrawable(null);
+                            mCommentText.invalidate();
+                        }
+                    });
+            mImageTargets.add(target);
+        }
     }
 
 }
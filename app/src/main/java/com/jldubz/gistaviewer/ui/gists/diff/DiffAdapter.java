@@ -0,0 +1,87 @@
+package com.jldubz.gistaviewer.ui.gists.diff;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.jldubz.gistaviewer.R;
+import com.jldubz.gistaviewer.model.diff.DiffRow;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * RecyclerView data adapter for displaying the rows of a diff between two Gist revisions
+ * <p>
+ * Rows are read straight from the list the diff is written into.  Since rows are only ever added
+ * to the end of it, new rows are inserted without rebinding the ones already shown.
+ */
+public class DiffAdapter extends RecyclerView.Adapter {
+
+    private List<DiffRow> mRows;
+    private int mItemCount = 0;
+
+    @Override
+    public int getItemViewType(int position) {
+
+        int type = mRows.get(position).getType();
+        if (type == DiffRow.TYPE_FILE_HEADER || type == DiffRow.TYPE_HUNK_HEADER) {
+            return R.layout.item_diff_header;
+        }
+        return R.layout.item_diff_line;
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(viewType, parent, false);
+
+        if (viewType == R.layout.item_diff_header) {
+            return new DiffHeaderViewHolder(view);
+        }
+        return new DiffLineViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+
+        DiffRow row = mRows.get(position);
+        if (holder instanceof DiffHeaderViewHolder) {
+            ((DiffHeaderViewHolder) holder).configureView(row);
+        } else {
+            ((DiffLineViewHolder) holder).configureView(row);
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return mItemCount;
+    }
+
+    /***
+     * Set the list the rows of the diff are written into
+     * @param rows the rows of the diff
+     */
+    public void setRows(List<DiffRow> rows) {
+        mRows = rows;
+        mItemCount = rows.size();
+        notifyDataSetChanged();
+    }
+
+    /***
+     * Show the rows that were added to the end of the list
+     * @param rowCount the number of rows in the list
+     */
+    public void onRowCountChanged(int rowCount) {
+        int oldCount = mItemCount;
+        mItemCount = rowCount;
+        if (rowCount > oldCount) {
+            notifyItemRangeInserted(oldCount, rowCount - oldCount);
+        } else if (rowCount != oldCount) {
+            notifyDataSetChanged();
+        }
+    }
+}
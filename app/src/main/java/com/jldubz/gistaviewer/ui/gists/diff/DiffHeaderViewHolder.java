@@ -0,0 +1,36 @@
+package com.jldubz.gistaviewer.ui.gists.diff;
+
+import android.graphics.Typeface;
+import android.view.View;
+import android.widget.TextView;
+
+import com.jldubz.gistaviewer.R;
+import com.jldubz.gistaviewer.model.diff.DiffRow;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Displays the header of a file or of a hunk of a diff in a RecyclerView
+ */
+class DiffHeaderViewHolder extends RecyclerView.ViewHolder {
+
+    private TextView mHeaderText;
+
+    DiffHeaderViewHolder(@NonNull View itemView) {
+        super(itemView);
+
+        mHeaderText = itemView.findViewById(R.id.text_diff_header);
+    }
+
+    /***
+     * Configure the view according to the header row provided
+     * @param row the header row to display in this view
+     */
+    void configureView(DiffRow row) {
+        mHeaderText.setText(row.getText());
+        //File names stand out from the hunk ranges below them
+        mHeaderText.setTypeface(Typeface.MONOSPACE,
+                row.getType() == DiffRow.TYPE_FILE_HEADER ? Typeface.BOLD : Typeface.NORMAL);
+    }
+}
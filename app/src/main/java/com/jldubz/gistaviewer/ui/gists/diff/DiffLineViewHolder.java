@@ -0,0 +1,58 @@
+package com.jldubz.gistaviewer.ui.gists.diff;
+
+import android.view.View;
+import android.widget.TextView;
+
+import com.jldubz.gistaviewer.R;
+import com.jldubz.gistaviewer.model.diff.DiffRow;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Displays a single line of a diff in a RecyclerView, along with its line numbers in the old and
+ * new revisions
+ */
+class DiffLineViewHolder extends RecyclerView.ViewHolder {
+
+    private TextView mOldLineText;
+    private TextView mNewLineText;
+    private TextView mLineText;
+    private final int mAddedColor;
+    private final int mRemovedColor;
+
+    DiffLineViewHolder(@NonNull View itemView) {
+        super(itemView);
+
+        mOldLineText = itemView.findViewById(R.id.text_diff_old_line);
+        mNewLineText = itemView.findViewById(R.id.text_diff_new_line);
+        mLineText = itemView.findViewById(R.id.text_diff_line);
+        mAddedColor = ContextCompat.getColor(itemView.getContext(), R.color.colorDiffAdded);
+        mRemovedColor = ContextCompat.getColor(itemView.getContext(), R.color.colorDiffRemoved);
+    }
+
+    /***
+     * Configure the view according to the line provided
+     * @param row the line to display in this view
+     */
+    void configureView(DiffRow row) {
+        mOldLineText.setText(row.getOldLineNumber() > 0 ? String.valueOf(row.getOldLineNumber()) : "");
+        mNewLineText.setText(row.getNewLineNumber() > 0 ? String.valueOf(row.getNewLineNumber()) : "");
+
+        switch (row.getType()) {
+            case DiffRow.TYPE_ADDED:
+                mLineText.setText("+ " + row.getText());
+                itemView.setBackgroundColor(mAddedColor);
+                break;
+            case DiffRow.TYPE_REMOVED:
+                mLineText.setText("- " + row.getText());
+                itemView.setBackgroundColor(mRemovedColor);
+                break;
+            default:
+                mLineText.setText("  " + row.getText());
+                itemView.setBackground(null);
+                break;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.jldubz.gistaviewer.ui.gists.diff;
+
+import androidx.annotation.Keep;
+import androidx.appcompat.app.ActionBar;
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+import androidx.lifecycle.ViewModelProviders;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import com.jldubz.gistaviewer.R;
+import com.jldubz.gistaviewer.model.Constants;
+import com.jldubz.gistaviewer.model.data.Account;
+import com.jldubz.gistaviewer.model.data.AccountRegistry;
+import com.jldubz.gistaviewer.viewmodel.GistDiffViewModel;
+
+/**
+ * Activity for viewing the changes made to a GitHub Gist in one revision
+ */
+@Keep
+public class GistDiffActivity extends AppCompatActivity {
+
+    public static String KEY_GIST_ID = "com.jldubz.gistaviewer.ui.gists.diff.GistDiffActivity.gistId";
+    public static String KEY_OLD_VERSION = "com.jldubz.gistaviewer.ui.gists.diff.GistDiffActivity.oldVersion";
+    public static String KEY_NEW_VERSION = "com.jldubz.gistaviewer.ui.gists.diff.GistDiffActivity.newVersion";
+
+    //The number of characters of a revision SHA shown to the user
+    public static final int SHORT_VERSION_LENGTH = 7;
+
+    private GistDiffViewModel mViewModel;
+
+    private ProgressBar mProgressBar;
+    private TextView mEmptyText;
+    private RecyclerView mDiffList;
+    private DiffAdapter mDiffAdapter = new DiffAdapter();
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_gist_diff);
+
+        //Configure toolbar
+        Toolbar toolbar = findViewById(R.id.toolbar_gist_diff_top);
+        setSupportActionBar(toolbar);
+        ActionBar actionBar = getSupportActionBar();
+        if (actionBar != null) {
+            actionBar.setDisplayHomeAsUpEnabled(true);
+            actionBar.setHomeAsUpIndicator(R.drawable.ic_close);
+        }
+
+        //Views
+        mProgressBar = findViewById(R.id.progress_gist_diff);
+        mEmptyText = findViewById(R.id.text_gist_diff_empty);
+        mDiffList = findViewById(R.id.list_gist_diff);
+        mDiffList.setLayoutManager(new LinearLayoutManager(this, RecyclerView.VERTICAL, false));
+        mDiffList.setAdapter(mDiffAdapter);
+
+        //ViewModel
+        mViewModel = ViewModelProviders.of(this).get(GistDiffViewModel.class);
+
+        //Revisions
+        Intent sourceIntent = getIntent();
+        if (sourceIntent == null) {
+            return;
+        }
+        String gistId = sourceIntent.getStringExtra(KEY_GIST_ID);
+        String oldVersion = sourceIntent.getStringExtra(KEY_OLD_VERSION);
+        String newVersion = sourceIntent.getStringExtra(KEY_NEW_VERSION);
+        if (gistId == null || gistId.isEmpty() || newVersion == null) {
+            onErrorChanged(Constants.INVALID_GIST_ID_ERROR);
+            return;
+        }
+        mViewModel.setRevisions(gistId, oldVersion, newVersion);
+        mDiffAdapter.setRows(mViewModel.getDiffRows());
+        setTitle(getString(R.string.title_activity_gist_diff,
+                newVersion.substring(0, Math.min(SHORT_VERSION_LENGTH, newVersion.length()))));
+
+        //Compare the revisions as the active account, e.g. for a secret Gist
+        Account account = AccountRegistry.getInstance(this).getActiveAccount();
+        if (account != null) {
+            mViewModel.setAccount(account);
+        }
+
+        observeViewModel();
+    }
+
+    @Override
+    public boolean onSupportNavigateUp() {
+        finish();
+        return true;
+    }
+
+    /**
+     * Observe all of the necessary properties of the view model
+     */
+    private void observeViewModel() {
+        mViewModel.getErrorMessage().observe(this, this::onErrorChanged);
+        mViewModel.getDiffRowCount().observe(this, this::onDiffRowCountChanged);
+        mViewModel.getProgressBarVisibility().observe(this, this::onProgressBarVisibilityChanged);
+    }
+
+    /**
+     * Called when more rows of the diff are ready to update the UI
+     *
+     * @param rowCount the number of rows that are ready
+     */
+    private void onDiffRowCountChanged(Integer rowCount) {
+        if (rowCount == null) {
+            return;
+        }
+        mEmptyText.setVisibility(rowCount == 0 ? View.VISIBLE : View.GONE);
+        mDiffAdapter.onRowCountChanged(rowCount);
+    }
+
+    private void onProgressBarVisibilityChanged(Integer visibility) {
+        mProgressBar.setVisibility(visibility);
+    }
+
+    /**
+     * Called when a new error message is needs to be displayed to the user
+     *
+     * @param message the error message to display
+     */
+    private void onErrorChanged(String message) {
+        if (message == null) {
+            return;
+        }
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle(R.string.dialog_title_error).setMessage(message).setPositiveButton(R.string.dialog_button_ok, null).show();
+    }
+}
@@ -0,0 +1,120 @@
+package com.jldubz.gistaviewer.ui.gists.files;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.jldubz.gistaviewer.R;
+import com.jldubz.gistaviewer.model.files.FileContent;
+import com.jldubz.gistaviewer.model.files.FileSearch;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Displays the full content of an expanded file of a Gist in a RecyclerView.
+ * <p>
+ * The lines are shown in a list nested in this item.  A long file gets a list of a fixed height
+ * that scrolls on its own, so only its visible lines are ever bound, and the line rows come from
+ * the pool shared by every expanded file.
+ */
+class FileContentViewHolder extends RecyclerView.ViewHolder {
+
+    //Files up to this long are shown in full rather than in a list that scrolls on its own
+    private static final int MAX_WRAPPED_LINES = 40;
+    //The lines laid out ahead of time when the item is about to scroll into view
+    private static final int PREFETCH_LINE_COUNT = 20;
+
+    private RecyclerView mLineList;
+    private TextView mStatusText;
+    private final FileLineAdapter mLineAdapter = new FileLineAdapter();
+    private final int mMaxHeight;
+    private int mFileIndex = RecyclerView.NO_POSITION;
+
+    FileContentViewHolder(@NonNull View itemView, RecyclerView.RecycledViewPool linePool) {
+        super(itemView);
+
+        mStatusText = itemView.findViewById(R.id.text_file_status);
+        mLineList = itemView.findViewById(R.id.list_file_lines);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(itemView.getContext(), RecyclerView.VERTICAL, false);
+        //Give the lines back to the shared pool as soon as the file scrolls away
+        layoutManager.setRecycleChildrenOnDetach(true);
+        layoutManager.setInitialPrefetchItemCount(PREFETCH_LINE_COUNT);
+        mLineList.setLayoutManager(layoutManager);
+        mLineList.setRecycledViewPool(linePool);
+        mLineList.setAdapter(mLineAdapter);
+        mMaxHeight = itemView.getResources().getDimensionPixelSize(R.dimen.file_content_max_height);
+    }
+
+    /***
+     * Configure the view according to the content provided
+     * @param fileIndex the index of the file in the Gist
+     * @param content   the content of the file or NULL if it hasn't loaded
+     * @param isFailed  TRUE if the content could not be loaded
+     */
+    void configureView(int fileIndex, FileContent content, boolean isFailed) {
+        boolean isSameFile = fileIndex == mFileIndex;
+        mFileIndex = fileIndex;
+        if (content == null || content.getLineCount() == 0) {
+            mLineAdapter.setContent(null);
+            mLineList.setVisibility(View.GONE);
+            mStatusText.setVisibility(View.VISIBLE);
+            mStatusText.setText(content != null ? R.string.text_file_empty
+                    : isFailed ? R.string.text_file_failed : R.string.text_file_loading);
+            return;
+        }
+
+        mStatusText.setVisibility(View.GONE);
+        mLineList.setVisibility(View.VISIBLE);
+        ViewGroup.LayoutParams params = mLineList.getLayoutParams();
+        int height = content.getLineCount() > MAX_WRAPPED_LINES ? mMaxHeight : ViewGroup.LayoutParams.WRAP_CONTENT;
+        if (params.height != height) {
+            params.height = height;
+            mLineList.setLayoutParams(params);
+        }
+        mLineAdapter.setContent(content);
+        if (!isSameFile) {
+            mLineList.scrollToPosition(0);
+        }
+    }
+
+    /***
+     * Scroll the lines so a line is at the top.  Only the lines from there down are bound, which
+     * takes the same time for the last line of a long file as for the first.
+     * @param line the index of the line, from 0, which is clamped to the lines of the file
+     */
+    void scrollToLine(int line) {
+        int lastLine = mLineAdapter.getItemCount() - 1;
+        if (lastLine < 0) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) mLineList.getLayoutManager();
+        layoutManager.scrollToPositionWithOffset(Math.max(Math.min(line, lastLine), 0), 0);
+    }
+
+    /***
+     * Highlight the matches of a search of the file.  Only the lines on screen are bound again, so
+     * this is cheap enough to call each time the search finds more matches.
+     * @param search       the search of the file or NULL to highlight nothing
+     * @param currentMatch the index of the match to highlight as the current one, or -1
+     */
+    void setSearch(FileSearch search, int currentMatch) {
+        mLineAdapter.setSearch(search, currentMatch);
+        LinearLayoutManager layoutManager = (LinearLayoutManager) mLineList.getLayoutManager();
+        int firstLine = layoutManager.findFirstVisibleItemPosition();
+        int lastLine = layoutManager.findLastVisibleItemPosition();
+        if (firstLine != RecyclerView.NO_POSITION && lastLine != RecyclerView.NO_POSITION) {
+            mLineAdapter.notifyItemRangeChanged(firstLine, lastLine - firstLine + 1);
+        }
+    }
+
+    /***
+     * Let go of the content once the item has been recycled
+     */
+    void clear() {
+        mLineAdapter.setContent(null);
+        mLineAdapter.setSearch(null, -1);
+        mFileIndex = RecyclerView.NO_POSITION;
+    }
+}
@@ -0,0 +1,65 @@
+package com.jldubz.gistaviewer.ui.gists.files;
+
+import android.text.format.Formatter;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import com.jldubz.gistaviewer.R;
+import com.jldubz.gistaviewer.model.gists.GistFile;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Displays the header of a file of a Gist in a RecyclerView, which expands or collapses the file
+ * when clicked and shows the actions for the file when long clicked
+ */
+class FileHeaderViewHolder extends RecyclerView.ViewHolder {
+
+    private TextView mNameText;
+    private TextView mSizeText;
+    private ImageView mExpandImage;
+
+    FileHeaderViewHolder(@NonNull View itemView, IHeaderClickListener listener) {
+        super(itemView);
+
+        mNameText = itemView.findViewById(R.id.text_file_name);
+        mSizeText = itemView.findViewById(R.id.text_file_size);
+        mExpandImage = itemView.findViewById(R.id.image_file_expand);
+        itemView.setOnClickListener(v -> listener.onHeaderClick(getAdapterPosition()));
+        itemView.setOnLongClickListener(v -> {
+            listener.onHeaderLongClick(v, getAdapterPosition());
+            return true;
+        });
+    }
+
+    /***
+     * Configure the view according to the file provided
+     * @param file       the file whose header to display in this view
+     * @param isExpanded TRUE if the full content of the file is shown below the header
+     */
+    void configureView(GistFile file, boolean isExpanded) {
+        mNameText.setText(file.getFilename());
+        mSizeText.setText(Formatter.formatShortFileSize(itemView.getContext(), file.getSize()));
+        mExpandImage.setRotation(isExpanded ? 180 : 0);
+    }
+
+    interface IHeaderClickListener {
+
+        /**
+         * Called when a header was clicked by the user
+         *
+         * @param position the adapter position of the header
+         */
+        void onHeaderClick(int position);
+
+        /**
+         * Called when a header was long clicked by the user
+         *
+         * @param view     the header that was long clicked
+         * @param position the adapter position of the header
+         */
+        void onHeaderLongClick(View view, int position);
+    }
+}
@@ -0,0 +1,101 @@
+package com.jldubz.gistaviewer.ui.gists.files;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.jldubz.gistaviewer.R;
+import com.jldubz.gistaviewer.model.files.FileContent;
+import com.jldubz.gistaviewer.model.files.FileSearch;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * RecyclerView data adapter for displaying the lines of one file of a Gist
+ * <p>
+ * The matches of a search of the file are looked up as each line is bound, so only the lines on
+ * screen are ever highlighted, however many matches there are.
+ */
+class FileLineAdapter extends RecyclerView.Adapter<FileLineViewHolder> {
+
+    private FileContent mContent;
+    private FileSearch mSearch;
+    private int mCurrentMatch = -1;
+
+    @Override
+    public int getItemViewType(int position) {
+        //The view type is shared with every other list of lines through their common pool
+        return R.layout.item_file_line;
+    }
+
+    @NonNull
+    @Override
+    public FileLineViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(viewType, parent, false);
+        return new FileLineViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull FileLineViewHolder holder, int position) {
+        String line = mContent.getLine(position);
+        if (mSearch == null) {
+            holder.configureView(position + 1, line, null, -1);
+            return;
+        }
+
+        //The matches on the line follow one another, from the first that ends past its start
+        int lineStart = mContent.getLineStart(position);
+        int lineEnd = mContent.getLineEnd(position);
+        int firstMatch = mSearch.findMatch(lineStart);
+        int matchCount = mSearch.getMatchCount();
+        int lastMatch = firstMatch;
+        while (lastMatch < matchCount && mSearch.getMatchStart(lastMatch) < lineEnd) {
+            lastMatch++;
+        }
+        if (lastMatch == firstMatch) {
+            holder.configureView(position + 1, line, null, -1);
+            return;
+        }
+
+        //The matches are byte offsets into the file, so they are turned into indexes into the line
+        int[] matches = new int[(lastMatch - firstMatch) * 2];
+        for (int match = firstMatch; match < lastMatch; match++) {
+            int start = Math.max(mSearch.getMatchStart(match), lineStart);
+            int end = Math.min(mSearch.getMatchEnd(match), lineEnd);
+            matches[(match - firstMatch) * 2] = mContent.getCharCount(lineStart, start);
+            matches[(match - firstMatch) * 2 + 1] = mContent.getCharCount(lineStart, end);
+        }
+        int current = mCurrentMatch >= firstMatch && mCurrentMatch < lastMatch ? mCurrentMatch - firstMatch : -1;
+        holder.configureView(position + 1, line, matches, current);
+    }
+
+    @Override
+    public int getItemCount() {
+        return mContent != null ? mContent.getLineCount() : 0;
+    }
+
+    /***
+     * Set the content of the file to display
+     * @param content the content or NULL to display nothing
+     */
+    void setContent(FileContent content) {
+        if (content == mContent) {
+            return;
+        }
+        mContent = content;
+        notifyDataSetChanged();
+    }
+
+    /***
+     * Set the search whose matches to highlight.  Lines that are already bound aren't changed
+     * until they are bound again.
+     * @param search       the search of the file or NULL to highlight nothing
+     * @param currentMatch the index of the match to highlight as the current one, or -1
+     */
+    void setSearch(FileSearch search, int currentMatch) {
+        mSearch = search;
+        mCurrentMatch = currentMatch;
+    }
+}
@@ -0,0 +1,56 @@
+package com.jldubz.gistaviewer.ui.gists.files;
+
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.BackgroundColorSpan;
+import android.view.View;
+import android.widget.TextView;
+
+import com.jldubz.gistaviewer.R;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Displays a single line of a file of a Gist in a RecyclerView, along with its line number and
+ * the matches of a search on it
+ */
+class FileLineViewHolder extends RecyclerView.ViewHolder {
+
+    private TextView mLineNumberText;
+    private TextView mLineText;
+    private final int mMatchColor;
+    private final int mCurrentMatchColor;
+
+    FileLineViewHolder(@NonNull View itemView) {
+        super(itemView);
+
+        mLineNumberText = itemView.findViewById(R.id.text_file_line_number);
+        mLineText = itemView.findViewById(R.id.text_file_line);
+        mMatchColor = ContextCompat.getColor(itemView.getContext(), R.color.colorSearchMatch);
+        mCurrentMatchColor = ContextCompat.getColor(itemView.getContext(), R.color.colorSearchCurrentMatch);
+    }
+
+    /***
+     * Configure the view according to the line provided
+     * @param lineNumber the number of the line, from 1
+     * @param line       the text of the line
+     * @param matches    the start and end of each match on the line, in pairs, or NULL if none
+     * @param current    the index of the pair that is the current match, or -1 if it isn't here
+     */
+    void configureView(int lineNumber, String line, int[] matches, int current) {
+        mLineNumberText.setText(String.valueOf(lineNumber));
+        if (matches == null) {
+            mLineText.setText(line);
+            return;
+        }
+
+        SpannableString text = new SpannableString(line);
+        for (int i = 0; i < matches.length; i += 2) {
+            int color = i / 2 == current ? mCurrentMatchColor : mMatchColor;
+            text.setSpan(new BackgroundColorSpan(color), matches[i], matches[i + 1], Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        mLineText.setText(text);
+    }
+}
@@ -0,0 +1,53 @@
+package com.jldubz.gistaviewer.ui.gists.files;
+
+import android.view.View;
+import android.widget.TextView;
+
+import com.jldubz.gistaviewer.R;
+import com.jldubz.gistaviewer.model.files.FileContent;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Displays the first lines of a collapsed file of a Gist in a RecyclerView
+ */
+class FilePreviewViewHolder extends RecyclerView.ViewHolder {
+
+    //Enough to recognize a file without making a long Gist much longer to scroll through
+    private static final int PREVIEW_LINE_COUNT = 5;
+
+    private TextView mPreviewText;
+
+    FilePreviewViewHolder(@NonNull View itemView) {
+        super(itemView);
+
+        mPreviewText = itemView.findViewById(R.id.text_file_preview);
+        mPreviewText.setMaxLines(PREVIEW_LINE_COUNT);
+    }
+
+    /***
+     * Configure the view according to the content provided
+     * @param content  the content of the file or NULL if it hasn't loaded
+     * @param isFailed TRUE if the content could not be loaded
+     */
+    void configureView(FileContent content, boolean isFailed) {
+        if (content == null) {
+            mPreviewText.setText(isFailed ? R.string.text_file_failed : R.string.text_file_loading);
+            return;
+        }
+        if (content.getLineCount() == 0) {
+            mPreviewText.setText(R.string.text_file_empty);
+            return;
+        }
+
+        StringBuilder preview = new StringBuilder();
+        for (int line = 0; line < Math.min(content.getLineCount(), PREVIEW_LINE_COUNT); line++) {
+            if (line > 0) {
+                preview.append('\n');
+            }
+            preview.append(content.getLine(line));
+        }
+        mPreviewText.setText(preview);
+    }
+}
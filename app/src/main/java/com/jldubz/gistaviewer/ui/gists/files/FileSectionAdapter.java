@@ -0,0 +1,265 @@
+package com.jldubz.gistaviewer.ui.gists.files;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.jldubz.gistaviewer.R;
+import com.jldubz.gistaviewer.model.files.FileContent;
+import com.jldubz.gistaviewer.model.files.FileSearch;
+import com.jldubz.gistaviewer.model.files.GistFileStore;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * RecyclerView data adapter for displaying every file of a Gist as a section
+ * <p>
+ * Each file takes two items: its header, followed by a preview of its first lines or, once the
+ * user expands it, its full content.  The content of a file is only requested from the store
+ * when its preview or content is bound, and is retained by the store for as long as it is bound.
+ * The request is dropped again if the item is recycled before the content has started loading.
+ * <p>
+ * Jumping to a line of a file expands it and scrolls its lines straight to the line once its
+ * content is bound, which only binds the lines around it.  The matches of a search of a file are
+ * passed on to its content as they are found.
+ */
+class FileSectionAdapter extends RecyclerView.Adapter implements FileHeaderViewHolder.IHeaderClickListener {
+
+    private static final int ITEMS_PER_FILE = 2;
+
+    private final GistFileStore mFileStore;
+    private final Set<Integer> mExpandedFiles;
+    private final FileViewPools mPools;
+    private final IFileMenuListener mFileMenuListener;
+    //The line each file should scroll to the next time its content is bound
+    private final Map<Integer, Integer> mPendingLines = new HashMap<>();
+    //The file each bound preview or content shows, whose content the store retains for it
+    private final Map<RecyclerView.ViewHolder, Integer> mShownFiles = new HashMap<>();
+    private int mFileCount = 0;
+    private RecyclerView mRecyclerView;
+
+    private FileSearch mSearch;
+    private int mSearchFileIndex = RecyclerView.NO_POSITION;
+    private int mCurrentMatch = -1;
+
+    /**
+     * @param fileStore     the files of the Gist
+     * @param expandedFiles the indexes of the files to show in full, toggled by their headers
+     * @param pools         the pools the nested lists of lines recycle into
+     * @param listener      notified when the user asks for the actions for a file
+     */
+    FileSectionAdapter(GistFileStore fileStore, Set<Integer> expandedFiles, FileViewPools pools,
+                       IFileMenuListener listener) {
+        mFileStore = fileStore;
+        mExpandedFiles = expandedFiles;
+        mPools = pools;
+        mFileMenuListener = listener;
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        mRecyclerView = recyclerView;
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        mRecyclerView = null;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+
+        if (position % ITEMS_PER_FILE == 0) {
+            return R.layout.item_file_header;
+        }
+        if (mExpandedFiles.contains(position / ITEMS_PER_FILE)) {
+            return R.layout.item_file_content;
+        }
+        return R.layout.item_file_preview;
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(viewType, parent, false);
+
+        if (viewType == R.layout.item_file_header) {
+            return new FileHeaderViewHolder(view, this);
+        }
+        if (viewType == R.layout.item_file_content) {
+            return new FileContentViewHolder(view, mPools.getLinePool());
+        }
+        return new FilePreviewViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+
+        int index = position / ITEMS_PER_FILE;
+        if (holder instanceof FileHeaderViewHolder) {
+            ((FileHeaderViewHolder) holder).configureView(mFileStore.getFile(index), mExpandedFiles.contains(index));
+            return;
+        }
+
+        //Load the content only now that the file is in view, and keep it while it is
+        Integer shownIndex = mShownFiles.put(holder, index);
+        if (shownIndex == null || shownIndex != index) {
+            mFileStore.retainContent(index);
+            if (shownIndex != null) {
+                mFileStore.releaseContent(shownIndex);
+            }
+        }
+        mFileStore.requestContent(index);
+        if (holder instanceof FileContentViewHolder) {
+            FileContent content = mFileStore.getContent(index);
+            ((FileContentViewHolder) holder).configureView(index, content, mFileStore.isFailed(index));
+            ((FileContentViewHolder) holder).setSearch(index == mSearchFileIndex ? mSearch : null, mCurrentMatch);
+            //The line can only be scrolled to once the content is there
+            Integer line = content != null ? mPendingLines.remove(index) : null;
+            if (line != null) {
+                ((FileContentViewHolder) holder).scrollToLine(line);
+            }
+        } else {
+            ((FilePreviewViewHolder) holder).configureView(mFileStore.getContent(index), mFileStore.isFailed(index));
+        }
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+        super.onViewRecycled(holder);
+        //A file flung past doesn't need its content anymore
+        Integer shownIndex = mShownFiles.remove(holder);
+        if (shownIndex != null) {
+            mFileStore.releaseContent(shownIndex);
+        }
+        if (holder instanceof FileContentViewHolder) {
+            ((FileContentViewHolder) holder).clear();
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return mFileCount * ITEMS_PER_FILE;
+    }
+
+    /***
+     * Show the files that are in the store
+     */
+    void onFilesChanged() {
+        mFileCount = mFileStore.getFileCount();
+        notifyDataSetChanged();
+    }
+
+    /***
+     * Show the content of a file that has loaded
+     * @param index the index of the file
+     */
+    void onContentLoaded(int index) {
+        if (index < mFileCount) {
+            notifyItemChanged(index * ITEMS_PER_FILE + 1);
+        }
+    }
+
+    /***
+     * Get the position of the header of a file
+     * @param index the index of the file
+     * @return the adapter position
+     */
+    int getHeaderPosition(int index) {
+        return index * ITEMS_PER_FILE;
+    }
+
+    /***
+     * Expand a file if it isn't already
+     * @param index the index of the file
+     */
+    void expandFile(int index) {
+        if (mExpandedFiles.add(index)) {
+            notifyItemRangeChanged(getHeaderPosition(index), ITEMS_PER_FILE);
+        }
+    }
+
+    /***
+     * Expand a file and scroll its lines to a line
+     * @param index the index of the file
+     * @param line  the index of the line, from 0
+     */
+    void showLine(int index, int line) {
+        mExpandedFiles.add(index);
+        mPendingLines.put(index, line);
+        notifyItemRangeChanged(getHeaderPosition(index), ITEMS_PER_FILE);
+    }
+
+    /***
+     * Highlight the matches of a search of a file.  Only the lines of the file that are on screen
+     * are bound again.
+     * @param index        the index of the file
+     * @param search       the search of the file or NULL to highlight nothing
+     * @param currentMatch the index of the match to highlight as the current one, or -1
+     */
+    void setSearch(int index, FileSearch search, int currentMatch) {
+        int oldIndex = mSearchFileIndex;
+        mSearchFileIndex = index;
+        mSearch = search;
+        mCurrentMatch = currentMatch;
+        if (oldIndex != index) {
+            updateSearch(oldIndex);
+        }
+        updateSearch(index);
+    }
+
+    private void updateSearch(int index) {
+        if (mRecyclerView == null || index < 0 || index >= mFileCount) {
+            return;
+        }
+        //A file that isn't on screen picks up the search when it is bound
+        RecyclerView.ViewHolder holder = mRecyclerView.findViewHolderForAdapterPosition(index * ITEMS_PER_FILE + 1);
+        if (holder instanceof FileContentViewHolder) {
+            ((FileContentViewHolder) holder).setSearch(index == mSearchFileIndex ? mSearch : null, mCurrentMatch);
+        }
+    }
+
+    /***
+     * Expand or collapse a file when its header is clicked
+     * @param position the position of the header
+     */
+    @Override
+    public void onHeaderClick(int position) {
+        if (position == RecyclerView.NO_POSITION) {
+            return;
+        }
+        int index = position / ITEMS_PER_FILE;
+        if (!mExpandedFiles.remove(index)) {
+            mExpandedFiles.add(index);
+        }
+        //The header shows whether the file is expanded and the item below it changes type
+        notifyItemRangeChanged(position, ITEMS_PER_FILE);
+    }
+
+    @Override
+    public void onHeaderLongClick(View view, int position) {
+        if (position != RecyclerView.NO_POSITION) {
+            mFileMenuListener.onFileMenuRequested(view, position / ITEMS_PER_FILE);
+        }
+    }
+
+    interface IFileMenuListener {
+
+        /**
+         * Called when the user asked for the actions for a file, e.g. to jump to a line of it or
+         * search it
+         *
+         * @param anchor the header of the file
+         * @param index  the index of the file
+         */
+        void onFileMenuRequested(View anchor, int index);
+    }
+}
@@ -0,0 +1,53 @@
+package com.jldubz.gistaviewer.ui.gists.files;
+
+import com.jldubz.gistaviewer.R;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * The view pools shared by the list of file sections and the lists of lines nested in it.
+ * <p>
+ * Every expanded file shows its lines in a list of its own, and all of those lists recycle into
+ * one pool of line rows, so rows scrolled off one file are reused by the next one instead of
+ * being inflated again.  The sections keep few expanded files around once they scroll away,
+ * since each one holds a nested list.
+ */
+class FileViewPools {
+
+    //Headers and previews are small, and a fling through a large Gist shows many of them
+    private static final int MAX_RECYCLED_HEADERS = 12;
+    private static final int MAX_RECYCLED_PREVIEWS = 12;
+    private static final int MAX_RECYCLED_CONTENTS = 2;
+
+    private final RecyclerView.RecycledViewPool mSectionPool = new RecyclerView.RecycledViewPool();
+    private final RecyclerView.RecycledViewPool mLinePool = new RecyclerView.RecycledViewPool();
+
+    /**
+     * @param maxRecycledLines the number of line rows kept for reuse, enough for the expanded
+     *                         files on screen to be filled without inflating any
+     */
+    FileViewPools(int maxRecycledLines) {
+        mSectionPool.setMaxRecycledViews(R.layout.item_file_header, MAX_RECYCLED_HEADERS);
+        mSectionPool.setMaxRecycledViews(R.layout.item_file_preview, MAX_RECYCLED_PREVIEWS);
+        mSectionPool.setMaxRecycledViews(R.layout.item_file_content, MAX_RECYCLED_CONTENTS);
+        mLinePool.setMaxRecycledViews(R.layout.item_file_line, maxRecycledLines);
+    }
+
+    /**
+     * Get the pool the list of file sections recycles into
+     *
+     * @return the pool of headers, previews and contents
+     */
+    RecyclerView.RecycledViewPool getSectionPool() {
+        return mSectionPool;
+    }
+
+    /**
+     * Get the pool every list of lines recycles into
+     *
+     * @return the pool of line rows
+     */
+    RecyclerView.RecycledViewPool getLinePool() {
+        return mLinePool;
+    }
+}
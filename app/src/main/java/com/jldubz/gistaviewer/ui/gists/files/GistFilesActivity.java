@@ -0,0 +1,423 @@
+package com.jldubz.gistaviewer.ui.gists.files;
+
+import androidx.annotation.Keep;
+import androidx.appcompat.app.ActionBar;
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.PopupMenu;
+import androidx.appcompat.widget.SearchView;
+import androidx.appcompat.widget.Toolbar;
+import androidx.lifecycle.ViewModelProviders;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.text.InputType;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.ProgressBar;
+
+import com.jldubz.gistaviewer.R;
+import com.jldubz.gistaviewer.model.Constants;
+import com.jldubz.gistaviewer.model.data.Account;
+import com.jldubz.gistaviewer.model.data.AccountRegistry;
+import com.jldubz.gistaviewer.model.files.FileContent;
+import com.jldubz.gistaviewer.model.files.FileSearch;
+import com.jldubz.gistaviewer.model.gists.Gist;
+import com.jldubz.gistaviewer.viewmodel.GistFilesViewModel;
+
+/**
+ * Activity for viewing every file of a GitHub Gist, each in a section that can be expanded to
+ * show its full content
+ * <p>
+ * One file at a time can be searched from the toolbar.  The search runs in the background and is
+ * started over with each change to the query; its matches are highlighted as they are found and
+ * the first one is scrolled to right away.
+ */
+@Keep
+public class GistFilesActivity extends AppCompatActivity {
+
+    public static String KEY_GIST_ID = "com.jldubz.gistaviewer.ui.gists.files.GistFilesActivity.gistId";
+
+    //About two screens of lines, so a fling from one expanded file to the next inflates none
+    private static final int MAX_RECYCLED_LINES = 80;
+
+    private GistFilesViewModel mViewModel;
+
+    private ProgressBar mProgressBar;
+    private RecyclerView mFileList;
+    private FileSectionAdapter mSectionAdapter;
+    private MenuItem mSearchItem;
+    private MenuItem mRegexItem;
+    private SearchView mSearchView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_gist_files);
+
+        //Configure toolbar
+        Toolbar toolbar = findViewById(R.id.toolbar_gist_files_top);
+        setSupportActionBar(toolbar);
+        ActionBar actionBar = getSupportActionBar();
+        if (actionBar != null) {
+            actionBar.setDisplayHomeAsUpEnabled(true);
+            actionBar.setHomeAsUpIndicator(R.drawable.ic_close);
+        }
+        setTitle(R.string.title_activity_gist_files);
+
+        //ViewModel
+        mViewModel = ViewModelProviders.of(this).get(GistFilesViewModel.class);
+
+        //Views
+        FileViewPools pools = new FileViewPools(MAX_RECYCLED_LINES);
+        mProgressBar = findViewById(R.id.progress_gist_files);
+        mFileList = findViewById(R.id.list_gist_files);
+        mFileList.setLayoutManager(new LinearLayoutManager(this, RecyclerView.VERTICAL, false));
+        mFileList.setRecycledViewPool(pools.getSectionPool());
+
+        //Gist ID
+        Intent sourceIntent = getIntent();
+        if (sourceIntent == null) {
+            return;
+        }
+        String gistId = sourceIntent.getStringExtra(KEY_GIST_ID);
+        if (gistId == null || gistId.isEmpty()) {
+            onErrorChanged(Constants.INVALID_GIST_ID_ERROR);
+            return;
+        }
+        mViewModel.setGistId(gistId);
+
+        //View the files as the active account, e.g. for a secret Gist
+        Account account = AccountRegistry.getInstance(this).getActiveAccount();
+        if (account != null) {
+            mViewModel.setAccount(account);
+        }
+        mSectionAdapter = new FileSectionAdapter(mViewModel.getFileStore(), mViewModel.getExpandedFiles(), pools,
+                this::showFileMenu);
+        mFileList.setAdapter(mSectionAdapter);
+
+        observeViewModel();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        //Recycle the views, so the store no longer retains the content they were showing
+        mFileList.setAdapter(null);
+    }
+
+    @Override
+    protected void onRestart() {
+        super.onRestart();
+        //Only the last file loaded while stopped is observed, so show any others that loaded too
+        if (mSectionAdapter != null) {
+            mSectionAdapter.notifyItemRangeChanged(0, mSectionAdapter.getItemCount());
+        }
+    }
+
+    @Override
+    public boolean onSupportNavigateUp() {
+        finish();
+        return true;
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        //There are no files to search without a Gist
+        if (mSectionAdapter == null) {
+            return super.onCreateOptionsMenu(menu);
+        }
+        getMenuInflater().inflate(R.menu.activity_gist_files_top, menu);
+        mRegexItem = menu.findItem(R.id.menu_file_search_regex);
+        mRegexItem.setChecked(mViewModel.isRegexSearch());
+        mSearchItem = menu.findItem(R.id.menu_file_search);
+        mSearchView = (SearchView) mSearchItem.getActionView();
+
+        //Carry on with the search from before the activity was recreated
+        String query = mViewModel.getSearchQuery();
+        if (query != null) {
+            mSearchItem.expandActionView();
+            mSearchView.setQuery(query, false);
+        }
+        mSearchItem.setOnActionExpandListener(new MenuItem.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(MenuItem item) {
+                updateSearchHint();
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(MenuItem item) {
+                mViewModel.search(mViewModel.getSearchFileIndex(), null, mRegexItem.isChecked());
+                return true;
+            }
+        });
+        mSearchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                showNextMatch();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                //Each change replaces the search that is running
+                if (mSearchItem.isActionViewExpanded() && !newText.equals(mViewModel.getSearchQuery())) {
+                    mViewModel.search(getSearchFileIndex(), newText, mRegexItem.isChecked());
+                }
+                return true;
+            }
+        });
+        updateSearchHint();
+        mViewModel.getSearch().observe(this, this::onSearchChanged);
+        return super.onCreateOptionsMenu(menu);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+
+        switch (item.getItemId()) {
+            case R.id.menu_file_search_regex:
+                item.setChecked(!item.isChecked());
+                if (mSearchItem.isActionViewExpanded()) {
+                    mViewModel.search(getSearchFileIndex(), mSearchView.getQuery().toString(), item.isChecked());
+                }
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Show the actions for a file
+     *
+     * @param anchor the header of the file
+     * @param index  the index of the file
+     */
+    private void showFileMenu(View anchor, int index) {
+        PopupMenu popupMenu = new PopupMenu(this, anchor);
+        popupMenu.inflate(R.menu.popup_file_header);
+        popupMenu.setOnMenuItemClickListener(item -> {
+            switch (item.getItemId()) {
+                case R.id.menu_file_go_to_line:
+                    showGoToLineDialog(index);
+                    return true;
+                case R.id.menu_file_find:
+                    findInFile(index);
+                    return true;
+            }
+            return false;
+        });
+        popupMenu.show();
+    }
+
+    /**
+     * Search a file with the query in the toolbar, opening the search if it isn't already
+     *
+     * @param index the index of the file
+     */
+    private void findInFile(int index) {
+        if (mSearchItem == null) {
+            return;
+        }
+        mSectionAdapter.expandFile(index);
+        String query = mSearchItem.isActionViewExpanded() ? mSearchView.getQuery().toString() : null;
+        mViewModel.search(index, query, mRegexItem.isChecked());
+        mSearchItem.expandActionView();
+        updateSearchHint();
+    }
+
+    /**
+     * Get the file to search, which is the one searched last or else the first expanded file
+     *
+     * @return the index of the file
+     */
+    private int getSearchFileIndex() {
+        int index = mViewModel.getSearchFileIndex();
+        if (index >= 0) {
+            return index;
+        }
+        for (int expandedIndex : mViewModel.getExpandedFiles()) {
+            if (index < 0 || expandedIndex < index) {
+                index = expandedIndex;
+            }
+        }
+        return Math.max(index, 0);
+    }
+
+    private void updateSearchHint() {
+        if (mSearchView == null || getSearchFileIndex() >= mViewModel.getFileStore().getFileCount()) {
+            return;
+        }
+        String filename = mViewModel.getFileStore().getFile(getSearchFileIndex()).getFilename();
+        mSearchView.setQueryHint(getString(R.string.hint_find_in_file, filename));
+    }
+
+    /**
+     * Step to the next match of the search, going back to the first after the last
+     */
+    private void showNextMatch() {
+        FileSearch search = mViewModel.getSearch().getValue();
+        if (search == null || search.isCancelled() || search.getMatchCount() == 0) {
+            return;
+        }
+        showMatch(search, (mViewModel.getCurrentMatch() + 1) % search.getMatchCount());
+    }
+
+    /**
+     * Scroll to a match of the search and highlight it as the current one
+     *
+     * @param search the search
+     * @param match  the index of the match
+     */
+    private void showMatch(FileSearch search, int match) {
+        int index = mViewModel.getSearchFileIndex();
+        FileContent content = mViewModel.getFileStore().getContent(index);
+        if (content == null) {
+            return;
+        }
+        mViewModel.setCurrentMatch(match);
+        mSectionAdapter.setSearch(index, search, match);
+        goToLine(index, content.getLineAt(search.getMatchStart(match)));
+        updateSearchStatus(search);
+    }
+
+    /**
+     * Show how many matches the search has found and which one is current
+     *
+     * @param search the search, or NULL if nothing is being searched for
+     */
+    private void updateSearchStatus(FileSearch search) {
+        ActionBar actionBar = getSupportActionBar();
+        if (actionBar == null) {
+            return;
+        }
+        if (search == null) {
+            actionBar.setSubtitle(mViewModel.isSearchInvalid() ? getString(R.string.text_search_invalid) : null);
+            return;
+        }
+
+        int count = search.getMatchCount();
+        boolean isComplete = search.isComplete();
+        if (count == 0) {
+            actionBar.setSubtitle(isComplete ? R.string.text_search_no_matches : R.string.text_search_searching);
+        } else {
+            int status = isComplete && !search.isTruncated() ? R.string.text_search_matches : R.string.text_search_matches_partial;
+            actionBar.setSubtitle(getString(status, mViewModel.getCurrentMatch() + 1, count));
+        }
+    }
+
+    /**
+     * Ask the user which line of a file to jump to.  The file doesn't have to be loaded yet; the
+     * line is scrolled to once it is.
+     *
+     * @param index the index of the file
+     */
+    private void showGoToLineDialog(int index) {
+        EditText lineInput = new EditText(this);
+        lineInput.setInputType(InputType.TYPE_CLASS_NUMBER);
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle(R.string.dialog_title_go_to_line);
+        FileContent content = mViewModel.getFileStore().getContent(index);
+        if (content != null) {
+            lineInput.setHint(String.valueOf(content.getLineCount()));
+            builder.setMessage(getString(R.string.dialog_message_go_to_line, content.getLineCount()));
+        }
+        builder.setView(lineInput)
+                .setPositiveButton(R.string.dialog_button_go, (dialogInterface, i) -> {
+                    try {
+                        goToLine(index, Integer.parseInt(lineInput.getText().toString()) - 1);
+                    } catch (NumberFormatException exception) {
+                        //Nothing to jump to
+                    }
+                })
+                .setNegativeButton(R.string.dialog_button_cancel, null)
+                .show();
+    }
+
+    /**
+     * Expand a file and scroll to one of its lines, with the header of the file at the top
+     *
+     * @param index the index of the file
+     * @param line  the index of the line, from 0
+     */
+    private void goToLine(int index, int line) {
+        mSectionAdapter.showLine(index, line);
+        ((LinearLayoutManager) mFileList.getLayoutManager())
+                .scrollToPositionWithOffset(mSectionAdapter.getHeaderPosition(index), 0);
+    }
+
+    /**
+     * Observe all of the necessary properties of the view model
+     */
+    private void observeViewModel() {
+        mViewModel.getErrorMessage().observe(this, this::onErrorChanged);
+        mViewModel.getGist().observe(this, this::onGistChanged);
+        mViewModel.getLoadedFileIndex().observe(this, this::onFileContentLoaded);
+        mViewModel.getProgressBarVisibility().observe(this, visibility -> mProgressBar.setVisibility(visibility));
+    }
+
+    /**
+     * Called when the Gist has loaded to show its files
+     *
+     * @param gist the Gist
+     */
+    private void onGistChanged(Gist gist) {
+        if (gist == null) {
+            return;
+        }
+        if (gist.getDescription() != null && !gist.getDescription().isEmpty()) {
+            setTitle(gist.getDescription());
+        }
+        mSectionAdapter.onFilesChanged();
+        updateSearchHint();
+    }
+
+    /**
+     * Called when a search has found more matches, or a new search has started
+     *
+     * @param search the search, or NULL if nothing is being searched for
+     */
+    private void onSearchChanged(FileSearch search) {
+        //A search that has been replaced may still deliver its last matches
+        if (search != null && search.isCancelled()) {
+            return;
+        }
+        if (search != null && mViewModel.getCurrentMatch() < 0 && search.getMatchCount() > 0) {
+            //Jump to the first match as soon as it is found
+            showMatch(search, 0);
+            return;
+        }
+        mSectionAdapter.setSearch(mViewModel.getSearchFileIndex(), search, mViewModel.getCurrentMatch());
+        updateSearchStatus(search);
+    }
+
+    /**
+     * Called when the content of a file has loaded, or failed to, to show it
+     *
+     * @param index the index of the file
+     */
+    private void onFileContentLoaded(Integer index) {
+        if (index == null) {
+            return;
+        }
+        mSectionAdapter.onContentLoaded(index);
+    }
+
+    /**
+     * Called when a new error message is needs to be displayed to the user
+     *
+     * @param message the error message to display
+     */
+    private void onErrorChanged(String message) {
+        if (message == null) {
+            return;
+        }
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle(R.string.dialog_title_error).setMessage(message).setPositiveButton(R.string.dialog_button_ok, null).show();
+    }
+}
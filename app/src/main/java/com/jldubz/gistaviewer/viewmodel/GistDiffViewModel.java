@@ -0,0 +1,268 @@
+package com.jldubz.gistaviewer.viewmodel;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+
+import com.jldubz.gistaviewer.model.Constants;
+import com.jldubz.gistaviewer.model.NetworkUtil;
+import com.jldubz.gistaviewer.model.data.Account;
+import com.jldubz.gistaviewer.model.data.CallScope;
+import com.jldubz.gistaviewer.model.data.IGitHubService;
+import com.jldubz.gistaviewer.model.diff.DiffCache;
+import com.jldubz.gistaviewer.model.diff.DiffRow;
+import com.jldubz.gistaviewer.model.diff.GistDiffer;
+import com.jldubz.gistaviewer.model.gists.Gist;
+import com.jldubz.gistaviewer.model.gists.GistFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+/**
+ * ViewModel that handles business logic for a GistDiffActivity
+ *
+ * @see com.jldubz.gistaviewer.ui.gists.diff.GistDiffActivity
+ */
+public class GistDiffViewModel extends ViewModel {
+
+    //Diffs are shared by every pair of revisions compared during this session
+    private static final int MAX_DIFF_CACHE_ROWS = 50000;
+    private static final DiffCache sDiffCache = new DiffCache(MAX_DIFF_CACHE_ROWS);
+
+    private MutableLiveData<Integer> mDiffRowCount;
+    private MutableLiveData<Integer> mProgressBarVisibility = new MutableLiveData<>();
+    private MutableLiveData<String> mErrorMessage = new MutableLiveData<>();
+    private IGitHubService mGitHubService;
+    private final CallScope mCalls = new CallScope();
+
+    private final ExecutorService mDiffExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final List<DiffRow> mDiffRows = new ArrayList<>();
+
+    private String mGistId;
+    private String mOldVersion;
+    private String mNewVersion;
+
+    public GistDiffViewModel() {
+        mProgressBarVisibility.setValue(View.GONE);
+        initAnonService();
+    }
+
+    /***
+     * Configure a new Retrofit instance for future API calls with no authorization
+     */
+    private void initAnonService() {
+        mGitHubService = NetworkUtil.createGitHubService(NetworkUtil.getHttpClient(), NetworkUtil.createGsonBuilder().create());
+    }
+
+    /**
+     * Set the account to use for authorization when communicating with the GitHub API, e.g. to
+     * compare the revisions of a secret Gist.
+     *
+     * @param account the account to authorize as
+     */
+    public void setAccount(Account account) {
+        mGitHubService = account.getGitHubService();
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        mCalls.close();
+        mMainHandler.removeCallbacksAndMessages(null);
+        //Interrupt the comparison so that a large diff doesn't keep running
+        mDiffExecutor.shutdownNow();
+    }
+
+    /**
+     * Set the revisions to compare
+     *
+     * @param gistId     the ID of the Gist
+     * @param oldVersion the SHA of the old revision or NULL to compare against an empty Gist
+     * @param newVersion the SHA of the new revision
+     */
+    public void setRevisions(String gistId, String oldVersion, String newVersion) {
+        mGistId = gistId;
+        mOldVersion = oldVersion;
+        mNewVersion = newVersion;
+    }
+
+    public LiveData<Integer> getProgressBarVisibility() {
+        return mProgressBarVisibility;
+    }
+
+    public LiveData<String> getErrorMessage() {
+        return mErrorMessage;
+    }
+
+    /**
+     * Get the rows of the diff computed so far.  Rows are only ever added to the end of the list,
+     * on the main thread, right before the new count is posted to {@link #getDiffRowCount()}.
+     *
+     * @return the rows of the diff
+     */
+    public List<DiffRow> getDiffRows() {
+        return mDiffRows;
+    }
+
+    /**
+     * Get an observable number of rows of the diff that are ready.  This will also start
+     * comparing the revisions if that has not been started yet.  The count is 0 once the
+     * comparison is complete if nothing changed.
+     *
+     * @return an observable number of rows
+     * @see LiveData
+     */
+    public LiveData<Integer> getDiffRowCount() {
+        if (mDiffRowCount == null) {
+            mDiffRowCount = new MutableLiveData<>();
+            loadDiff();
+        }
+        return mDiffRowCount;
+    }
+
+    /**
+     * Show the cached diff for the revisions or start comparing them
+     */
+    private void loadDiff() {
+        //Make sure that the revisions were stored for use
+        if (mGistId == null || mNewVersion == null) {
+            showError(Constants.INVALID_GIST_ID_ERROR);
+            return;
+        }
+
+        List<DiffRow> cachedRows = sDiffCache.get(mGistId, mOldVersion, mNewVersion);
+        if (cachedRows != null) {
+            mDiffRows.addAll(cachedRows);
+            mDiffRowCount.setValue(mDiffRows.size());
+            return;
+        }
+
+        //Show the progress bar
+        mProgressBarVisibility.setValue(View.VISIBLE);
+
+        mCalls.call(mGitHubService.getGistRevision(mGistId, mNewVersion)).enqueue(response -> {
+            if (response.body() == null) {
+                showError(NetworkUtil.onGitHubResponseError(response));
+                return;
+            }
+
+            Gist newRevision = response.body();
+            if (mOldVersion == null) {
+                //The first revision is compared against an empty Gist
+                startDiff(null, newRevision);
+                return;
+            }
+            loadOldRevision(newRevision);
+        }, this::showError);
+    }
+
+    /**
+     * Download the old revision once the new revision is available
+     *
+     * @param newRevision the new revision of the Gist
+     */
+    private void loadOldRevision(Gist newRevision) {
+        mCalls.call(mGitHubService.getGistRevision(mGistId, mOldVersion)).enqueue(response -> {
+            if (response.body() == null) {
+                showError(NetworkUtil.onGitHubResponseError(response));
+                return;
+            }
+
+            startDiff(response.body(), newRevision);
+        }, this::showError);
+    }
+
+    /**
+     * Compare two revisions on the background executor.  Rows are added to the list in batches as
+     * soon as each hunk is ready, and the complete diff is cached at the end.
+     *
+     * @param oldRevision the old revision or NULL to compare against an empty Gist
+     * @param newRevision the new revision
+     */
+    private void startDiff(Gist oldRevision, Gist newRevision) {
+        String gistId = mGistId;
+        String oldVersion = mOldVersion;
+        String newVersion = mNewVersion;
+        Map<String, GistFile> oldFiles = oldRevision != null ? oldRevision.getFiles() : null;
+        Map<String, GistFile> newFiles = newRevision.getFiles();
+
+        mDiffExecutor.execute(() -> {
+            try {
+                downloadTruncatedFiles(oldFiles);
+                downloadTruncatedFiles(newFiles);
+            } catch (IOException exception) {
+                showError(exception.getLocalizedMessage());
+                return;
+            }
+
+            GistDiffer differ = new GistDiffer(rows -> mMainHandler.post(() -> {
+                mDiffRows.addAll(rows);
+                mDiffRowCount.setValue(mDiffRows.size());
+            }));
+            if (!differ.diff(oldFiles, newFiles)) {
+                return;
+            }
+
+            //Runs after every batch that was posted above
+            mMainHandler.post(() -> {
+                mProgressBarVisibility.setValue(View.GONE);
+                sDiffCache.put(gistId, oldVersion, newVersion, new ArrayList<>(mDiffRows));
+                if (mDiffRows.isEmpty()) {
+                    mDiffRowCount.setValue(0);
+                }
+            });
+        });
+    }
+
+    /**
+     * Replace the content of any file that was too large to be included in full with its raw
+     * content.  This is called on the background executor, so the downloads are made in line.
+     *
+     * @param files the files of a revision
+     * @throws IOException if a file could not be downloaded
+     */
+    private void downloadTruncatedFiles(Map<String, GistFile> files) throws IOException {
+        if (files == null) {
+            return;
+        }
+
+        for (GistFile file : files.values()) {
+            if (!file.isTruncated() || file.getRaw_url() == null) {
+                continue;
+            }
+            Response<ResponseBody> response = mGitHubService.getRawFile(file.getRaw_url()).execute();
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException(NetworkUtil.onGitHubResponseError(response));
+            }
+            try {
+                file.setContent(body.string());
+                file.setTruncated(false);
+            } finally {
+                body.close();
+            }
+        }
+    }
+
+    /**
+     * Convenience method for showing an error to the user
+     *
+     * @param message the message to show to the user
+     */
+    private void showError(String message) {
+        mProgressBarVisibility.postValue(View.GONE);
+        mErrorMessage.postValue(message);
+    }
+}
@@ -0,0 +1,314 @@
+package com.jldubz.gistaviewer.viewmodel;
+
+import android.view.View;
+
+import com.jldubz.gistaviewer.model.Constants;
+import com.jldubz.gistaviewer.model.NetworkUtil;
+import com.jldubz.gistaviewer.model.data.Account;
+import com.jldubz.gistaviewer.model.data.CallScope;
+import com.jldubz.gistaviewer.model.data.IGitHubService;
+import com.jldubz.gistaviewer.model.files.FileContent;
+import com.jldubz.gistaviewer.model.files.FileSearch;
+import com.jldubz.gistaviewer.model.files.GistFileStore;
+import com.jldubz.gistaviewer.model.gists.Gist;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.PatternSyntaxException;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+/**
+ * ViewModel that handles business logic for a GistFilesActivity
+ *
+ * @see com.jldubz.gistaviewer.ui.gists.files.GistFilesActivity
+ */
+public class GistFilesViewModel extends ViewModel implements GistFileStore.IStoreListener,
+        FileSearch.ISearchListener {
+
+    //Files too large to come with the Gist are downloaded a few at a time
+    private static final int MAX_CONCURRENT_LOADS = 3;
+    //The content of the files that were looked at last is kept in memory, up to this many bytes
+    private static final int MAX_CONTENT_BYTES = 16 * 1024 * 1024;
+    //More matches than anyone would step through, which keeps a search for one letter small
+    private static final int MAX_SEARCH_MATCHES = 10000;
+
+    private MutableLiveData<Gist> mGist;
+    private MutableLiveData<Integer> mLoadedFileIndex = new MutableLiveData<>();
+    private MutableLiveData<Integer> mProgressBarVisibility = new MutableLiveData<>();
+    private MutableLiveData<String> mErrorMessage = new MutableLiveData<>();
+    private MutableLiveData<FileSearch> mSearch = new MutableLiveData<>();
+    private IGitHubService mGitHubService;
+    private final CallScope mCalls = new CallScope();
+
+    private final ExecutorService mLoadExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_LOADS);
+    private GistFileStore mFileStore;
+    //The files the user expanded, which survive the activity being recreated
+    private final Set<Integer> mExpandedFiles = new HashSet<>();
+
+    //Only one file is searched at a time, and a new search replaces the last one
+    private final ExecutorService mSearchExecutor = Executors.newSingleThreadExecutor();
+    private FileSearch mActiveSearch;
+    private Future<?> mSearchTask;
+    private int mSearchFileIndex = -1;
+    private String mSearchQuery;
+    private boolean mIsRegexSearch;
+    private boolean mIsSearchInvalid;
+    private int mCurrentMatch = -1;
+
+    private String mGistId;
+
+    public GistFilesViewModel() {
+        mProgressBarVisibility.setValue(View.GONE);
+        initAnonService();
+    }
+
+    /***
+     * Configure a new Retrofit instance for future API calls with no authorization
+     */
+    private void initAnonService() {
+        mGitHubService = NetworkUtil.createGitHubService(NetworkUtil.getHttpClient(), NetworkUtil.createGsonBuilder().create());
+    }
+
+    /**
+     * Set the account to use for authorization when communicating with the GitHub API, e.g. to
+     * view the files of a secret Gist.
+     *
+     * @param account the account to authorize as
+     */
+    public void setAccount(Account account) {
+        mGitHubService = account.getGitHubService();
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        mCalls.close();
+        if (mFileStore != null) {
+            mFileStore.close();
+        }
+        mLoadExecutor.shutdownNow();
+        cancelSearch();
+        mSearchExecutor.shutdownNow();
+    }
+
+    /**
+     * Set the Gist whose files to show
+     *
+     * @param gistId the ID of the Gist
+     */
+    public void setGistId(String gistId) {
+        mGistId = gistId;
+    }
+
+    /**
+     * Get the store the content of each file is loaded into.  Content is only loaded once it is
+     * requested from the store.
+     *
+     * @return the store of the Gist's files
+     */
+    public GistFileStore getFileStore() {
+        if (mFileStore == null) {
+            mFileStore = new GistFileStore(mGitHubService, mLoadExecutor, MAX_CONTENT_BYTES, this);
+        }
+        return mFileStore;
+    }
+
+    /**
+     * Get the files the user expanded to show their full content
+     *
+     * @return the indexes of the expanded files, which may be changed
+     */
+    public Set<Integer> getExpandedFiles() {
+        return mExpandedFiles;
+    }
+
+    /**
+     * Get an observable Gist, downloading it from the GitHub API the first time.  Its files are
+     * in the file store by the time it is set.
+     *
+     * @return an observable Gist
+     * @see LiveData
+     */
+    public LiveData<Gist> getGist() {
+        if (mGist == null) {
+            mGist = new MutableLiveData<>();
+            loadGist();
+        }
+        return mGist;
+    }
+
+    /**
+     * Get the index of the last file whose content has loaded, or failed to, so it can be shown
+     *
+     * @return an observable file index
+     */
+    public LiveData<Integer> getLoadedFileIndex() {
+        return mLoadedFileIndex;
+    }
+
+    public LiveData<Integer> getProgressBarVisibility() {
+        return mProgressBarVisibility;
+    }
+
+    public LiveData<String> getErrorMessage() {
+        return mErrorMessage;
+    }
+
+    /**
+     * Get an observable search of a file.  It is set again each time the search finds more
+     * matches, and set to NULL when there is nothing to search.
+     *
+     * @return an observable search, which is canceled once it has been replaced
+     * @see #search(int, String, boolean)
+     */
+    public LiveData<FileSearch> getSearch() {
+        return mSearch;
+    }
+
+    /**
+     * Search a file in the background, canceling the last search.  If the content of the file
+     * hasn't loaded yet, it is searched once it does.
+     *
+     * @param index   the index of the file
+     * @param query   the text to look for, or NULL or empty to stop searching
+     * @param isRegex TRUE if the query is a regular expression
+     */
+    public void search(int index, String query, boolean isRegex) {
+        cancelSearch();
+        mSearchFileIndex = index;
+        mSearchQuery = query != null && !query.isEmpty() ? query : null;
+        mIsRegexSearch = isRegex;
+        mIsSearchInvalid = false;
+        mCurrentMatch = -1;
+
+        boolean isFile = index >= 0 && index < getFileStore().getFileCount();
+        FileContent content = isFile ? getFileStore().getContent(index) : null;
+        if (mSearchQuery == null || content == null) {
+            mSearch.setValue(null);
+            if (mSearchQuery != null && isFile) {
+                getFileStore().requestContent(index);
+            }
+            return;
+        }
+
+        FileSearch search;
+        try {
+            search = new FileSearch(content, query, isRegex, MAX_SEARCH_MATCHES, this);
+        } catch (PatternSyntaxException exception) {
+            mIsSearchInvalid = true;
+            mSearch.setValue(null);
+            return;
+        }
+        mActiveSearch = search;
+        mSearch.setValue(search);
+        mSearchTask = mSearchExecutor.submit(search::run);
+    }
+
+    /**
+     * Get the file that is being searched
+     *
+     * @return the index of the file, or -1 if no file has been searched
+     */
+    public int getSearchFileIndex() {
+        return mSearchFileIndex;
+    }
+
+    /**
+     * Get the query of the last search
+     *
+     * @return the query, or NULL if nothing is being searched for
+     */
+    public String getSearchQuery() {
+        return mSearchQuery;
+    }
+
+    public boolean isRegexSearch() {
+        return mIsRegexSearch;
+    }
+
+    /**
+     * Check if the last search couldn't be started because its query is not a valid regular
+     * expression
+     *
+     * @return TRUE if the query is invalid
+     */
+    public boolean isSearchInvalid() {
+        return mIsSearchInvalid;
+    }
+
+    public int getCurrentMatch() {
+        return mCurrentMatch;
+    }
+
+    public void setCurrentMatch(int match) {
+        mCurrentMatch = match;
+    }
+
+    @Override
+    public void onMatchesFound(FileSearch search) {
+        //Called on the search thread, so a search that was just replaced may still get here
+        if (!search.isCancelled()) {
+            mSearch.postValue(search);
+        }
+    }
+
+    @Override
+    public void onContentLoaded(int index) {
+        mLoadedFileIndex.setValue(index);
+        //The file was searched before it loaded
+        if (index == mSearchFileIndex && mActiveSearch == null && mSearchQuery != null
+                && !mIsSearchInvalid && getFileStore().getContent(index) != null) {
+            search(index, mSearchQuery, mIsRegexSearch);
+        }
+    }
+
+    private void cancelSearch() {
+        if (mActiveSearch != null) {
+            mActiveSearch.cancel();
+            mActiveSearch = null;
+        }
+        if (mSearchTask != null) {
+            mSearchTask.cancel(false);
+            mSearchTask = null;
+        }
+    }
+
+    /**
+     * Download the Gist, which includes the content of every file that isn't too large
+     */
+    private void loadGist() {
+        if (mGistId == null || mGistId.isEmpty()) {
+            showError(Constants.INVALID_GIST_ID_ERROR);
+            return;
+        }
+
+        mProgressBarVisibility.setValue(View.VISIBLE);
+        mCalls.call(mGitHubService.getGistById(mGistId)).enqueue(response -> {
+            mProgressBarVisibility.postValue(View.GONE);
+            Gist gist = response.body();
+            if (gist == null) {
+                showError(NetworkUtil.onGitHubResponseError(response));
+                return;
+            }
+            //Delivered on the main thread, so the store and the Gist are set together
+            getFileStore().setFiles(gist.getFiles() != null ? gist.getFiles().values() : null);
+            mGist.setValue(gist);
+        }, this::showError);
+    }
+
+    /**
+     * Convenience method for showing an error to the user
+     *
+     * @param message the message to show to the user
+     */
+    private void showError(String message) {
+        mProgressBarVisibility.postValue(View.GONE);
+        mErrorMessage.postValue(message);
+    }
+}
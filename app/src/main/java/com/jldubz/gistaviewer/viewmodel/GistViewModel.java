@@ -1,28 +1,43 @@
 package com.jldubz.gistaviewer.viewmodel;
 
+import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
 
 import com.jldubz.gistaviewer.model.Constants;
+import com.jldubz.gistaviewer.model.GitHubUser;
 import com.jldubz.gistaviewer.model.NetworkUtil;
-import com.jldubz.gistaviewer.model.data.BasicAuthInterceptor;
+import com.jldubz.gistaviewer.model.data.Account;
+import com.jldubz.gistaviewer.model.data.AccountRegistry;
+import com.jldubz.gistaviewer.model.data.CallScope;
+import com.jldubz.gistaviewer.model.data.CommentDatabase;
+import com.jldubz.gistaviewer.model.data.CommentPageLoader;
+import com.jldubz.gistaviewer.model.data.CommentPageStore;
+import com.jldubz.gistaviewer.model.data.CommentPoller;
 import com.jldubz.gistaviewer.model.data.IGitHubService;
+import com.jldubz.gistaviewer.model.data.RequestBudget;
 import com.jldubz.gistaviewer.model.gists.Gist;
 import com.jldubz.gistaviewer.model.gists.GistComment;
+import com.jldubz.gistaviewer.model.gists.GistHistory;
+import com.jldubz.gistaviewer.model.text.CommentRenderCache;
+import com.jldubz.gistaviewer.model.text.CommentTextPrecomputer;
+import com.jldubz.gistaviewer.model.text.MarkdownRenderer;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
-import androidx.lifecycle.ViewModel;
 
-import okhttp3.OkHttpClient;
-import retrofit2.Call;
-import retrofit2.Callback;
 import retrofit2.Response;
-import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
 
 /**
  * ViewModel that handles business logic for a GistActivity
@@ -30,25 +45,64 @@ import retrofit2.converter.gson.GsonConverterFactory;
  * @author Jon-Luke West
  * @see com.jldubz.gistaviewer.ui.gists.GistActivity
  */
-public class GistViewModel extends ViewModel {
+public class GistViewModel extends AndroidViewModel implements CommentPageLoader.ILoaderListener {
 
     private MutableLiveData<Gist> mGist;
-    private MutableLiveData<List<GistComment>> mComments = new MutableLiveData<>();
+    private MutableLiveData<CommentPageStore.Change> mComments = new MutableLiveData<>();
     private MutableLiveData<Integer> mProgressBarVisibility = new MutableLiveData<>();
     private MutableLiveData<Integer> mCommentsProgressBarVisibility = new MutableLiveData<>();
     private MutableLiveData<String> mErrorMessage = new MutableLiveData<>();
     private MutableLiveData<Boolean> mIsGistStarred = new MutableLiveData<>();
+    private MutableLiveData<List<GistHistory>> mRevisions = new MutableLiveData<>();
+    private MutableLiveData<GitHubUser> mOwnerProfile = new MutableLiveData<>();
     private IGitHubService mGitHubService;
+    private final CallScope mCalls = new CallScope();
+
+    //Rendered comment bodies are shared by every Gist opened during this session
+    private static final int MAX_COMMENT_RENDER_CACHE_BYTES = 4 * 1024 * 1024;
+    private static final CommentRenderCache sCommentRenderCache = new CommentRenderCache(MAX_COMMENT_RENDER_CACHE_BYTES);
+
+    //The number of revisions listed for the user to choose from
+    private static final int REVISIONS_PER_PAGE = 100;
+
+    //The number of comment pages kept in memory on either side of the visible pages
+    private static final int COMMENT_WINDOW_PAGES = 2;
+
+    private final ExecutorService mBackgroundExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final CommentTextPrecomputer mCommentTextPrecomputer;
+    private final CommentDatabase mCommentDatabase;
+    private CommentPageStore mCommentStore;
+    private CommentPageLoader mCommentLoader;
+    private CommentPoller mCommentPoller;
+    private MutableLiveData<Integer> mCommentScrollPosition = new MutableLiveData<>();
 
-    private String mUsername;
-    private String mToken;
     private String mGistId;
-    private int mGistCommentPrevPage;
 
-    public GistViewModel() {
-        super();
+    public GistViewModel(@NonNull Application application) {
+        this(application, Executors.newSingleThreadExecutor());
+    }
+
+    /**
+     * @param application        the application
+     * @param backgroundExecutor the executor comments are stored and rendered on, which is shut
+     *                           down when the view model is cleared
+     */
+    @VisibleForTesting
+    GistViewModel(@NonNull Application application, ExecutorService backgroundExecutor) {
+        super(application);
+        mBackgroundExecutor = backgroundExecutor;
+        mCommentTextPrecomputer = new CommentTextPrecomputer(mBackgroundExecutor, sCommentRenderCache);
         init();
-        initAnonService();
+        //API calls are authorized as the active account, if any, and its comments are kept apart
+        Account account = AccountRegistry.getInstance(application).getActiveAccount();
+        if (account != null) {
+            mGitHubService = account.getGitHubService();
+            mCommentDatabase = new CommentDatabase(application, account.getCommentDatabaseName());
+        } else {
+            initAnonService();
+            mCommentDatabase = new CommentDatabase(application, CommentDatabase.ANONYMOUS_DATABASE_NAME);
+        }
     }
 
     /***
@@ -62,43 +116,31 @@ public class GistViewModel extends ViewModel {
         mIsGistStarred.setValue(false);
         mComments = new MutableLiveData<>();
         mGist = null;
-        mUsername = null;
-        mToken = null;
     }
 
     /***
      * Configure a new Retrofit instance for future API calls with no authorization
      */
     private void initAnonService() {
-        Retrofit retrofit = new Retrofit.Builder().baseUrl(Constants.URL_GITHUB).addConverterFactory(GsonConverterFactory.create()).build();
-
-        mGitHubService = retrofit.create(IGitHubService.class);
+        mGitHubService = NetworkUtil.createGitHubService(NetworkUtil.getHttpClient(), NetworkUtil.createGsonBuilder().create());
     }
 
-    /**
-     * Set the credentials to use for authorization when communicating with the GitHub API for
-     * this Gist.  The Retrofit service instance will be rebuild using these credentials.
-     *
-     * @param username the GitHub username used for authorization
-     * @param token    the private access token associated with the GitHub user
-     */
-    public void setCredentials(String username, String token) {
-
-        //Check if the provided credentials are empty
-        if (username.isEmpty() || token.isEmpty()) {
-            return;
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        //Nothing is left to show the responses, so stop downloading and parsing them
+        mCalls.close();
+        mMainHandler.removeCallbacksAndMessages(null);
+        if (mCommentLoader != null) {
+            mCommentLoader.release();
+            mCommentPoller.stop();
         }
-
-        //Store the username and token for later
-        mUsername = username;
-        mToken = token;
-
-        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(new BasicAuthInterceptor(mUsername, mToken)).build();
-        Retrofit retrofit = new Retrofit.Builder().baseUrl(Constants.URL_GITHUB).addConverterFactory(GsonConverterFactory.create())
-                .client(client)
-                .build();
-        mGitHubService = retrofit.create(IGitHubService.class);
-
+        //Let the queued database work finish so the paged out comments are deleted
+        if (mCommentStore != null) {
+            mCommentStore.clear();
+        }
+        mBackgroundExecutor.execute(mCommentDatabase::close);
+        mBackgroundExecutor.shutdown();
     }
 
     public LiveData<Integer> getProgressBarVisibility() {
@@ -114,10 +156,27 @@ public class GistViewModel extends ViewModel {
     /**
      * Set the ID of the Gist to use
      *
-     * @param mGistId the ID of the Gist
+     * @param gistId the ID of the Gist
      */
-    public void setGistId(String mGistId) {
-        this.mGistId = mGistId;
+    public void setGistId(String gistId) {
+        //Keep the loaded comments when the same Gist is set again, e.g. after a rotation
+        if (mCommentStore != null && mCommentStore.getGistId().equals(gistId)) {
+            return;
+        }
+        this.mGistId = gistId;
+        boolean isPolling = false;
+        if (mCommentLoader != null) {
+            mCommentLoader.release();
+            isPolling = mCommentPoller.isRunning();
+            mCommentPoller.stop();
+        }
+        mCommentStore = new CommentPageStore(gistId, mCommentDatabase, mBackgroundExecutor, COMMENT_WINDOW_PAGES);
+        mCommentLoader = new CommentPageLoader(mCommentStore, mCommentTextPrecomputer, mMainHandler,
+                this::downloadCommentPage, this);
+        mCommentPoller = new CommentPoller(gistId, mCommentStore, mCommentLoader, mMainHandler, mGitHubService);
+        if (isPolling) {
+            mCommentPoller.start();
+        }
     }
 
     /**
@@ -149,29 +208,118 @@ public class GistViewModel extends ViewModel {
 
         //Show the progress bar
         mProgressBarVisibility.postValue(View.VISIBLE);
+        NetworkUtil.getRequestBudget().begin(RequestBudget.OPEN_GIST);
+
+        //The comments can't be paged until the Gist is known to exist, so count them after it loads
+        mCalls.call(mGitHubService.getGistById(mGistId)).then(response -> {
+            mProgressBarVisibility.postValue(View.GONE);
+            mGist.postValue(response.body());
+            getGistStar();
+
+            //Show the progress bar in the comments section
+            mCommentsProgressBarVisibility.postValue(View.VISIBLE);
+            return mGitHubService.getGistCommentsHeaderById(mGistId, CommentPageStore.PAGE_SIZE);
+        }).enqueue(this::onCommentPageCountLoaded, this::showError);
+    }
+
+    //endregion
 
-        mGitHubService.getGistById(mGistId).enqueue(new Callback<Gist>() {
-            @Override
-            public void onResponse(Call<Gist> call, Response<Gist> response) {
-                mProgressBarVisibility.postValue(View.GONE);
+    //region Revisions
+
+    /**
+     * Get an observable list of the Gist's revisions, newest first.  A list is only set after
+     * {@link #loadRevisions()} is called, and every revision in it is followed by its parent
+     * unless it is the first revision of the Gist.
+     *
+     * @return an observable list of revisions or NULL if there is none to show
+     * @see LiveData
+     */
+    public LiveData<List<GistHistory>> getRevisions() {
+        return mRevisions;
+    }
 
-                if (!response.isSuccessful()) {
-                    showError(NetworkUtil.onGitHubResponseError(response));
-                    return;
-                }
+    /**
+     * Called once the list of revisions has been shown so that it is not shown again, e.g. after
+     * a rotation
+     */
+    public void onRevisionsShown() {
+        mRevisions.setValue(null);
+    }
 
-                mGist.postValue(response.body());
-                loadCommentPageCount();
-                getGistStar();
+    /**
+     * Download the list of the Gist's revisions from the GitHub API
+     */
+    public void loadRevisions() {
+
+        //Make sure there is a Gist ID stored for use
+        if (mGistId.isEmpty()) {
+            return;
+        }
+
+        mCalls.call(mGitHubService.getGistCommits(mGistId, 1, REVISIONS_PER_PAGE)).enqueue(response -> {
+            if (response.body() == null) {
+                showError(NetworkUtil.onGitHubResponseError(response));
+                return;
             }
 
-            @Override
-            public void onFailure(Call<Gist> call, Throwable t) {
-                showError(t.getLocalizedMessage());
+            List<GistHistory> revisions = new ArrayList<>(response.body());
+            //The parent of the last revision is on the next page, so it can't be compared
+            if (NetworkUtil.getLinkedPage(response.headers().get("Link"), "next") > 0 && !revisions.isEmpty()) {
+                revisions.remove(revisions.size() - 1);
             }
-        });
+            mRevisions.postValue(revisions);
+        }, this::showError);
+    }
 
+    //endregion
+
+    //region Owner
+
+    /**
+     * Get the observable full profile of the owner of the Gist.  A profile is only set after
+     * {@link #loadOwnerProfile()} is called.
+     *
+     * @return an observable user or NULL if there is no profile to show
+     * @see LiveData
+     */
+    public LiveData<GitHubUser> getOwnerProfile() {
+        return mOwnerProfile;
+    }
 
+    /**
+     * Called once the profile of the owner has been shown so that it is not shown again, e.g.
+     * after a rotation
+     */
+    public void onOwnerProfileShown() {
+        mOwnerProfile.setValue(null);
+    }
+
+    /**
+     * Get the full profile of the owner of the Gist, from the users recently parsed if it is
+     * among them and otherwise from the GitHub API
+     */
+    public void loadOwnerProfile() {
+        Gist gist = mGist != null ? mGist.getValue() : null;
+        GitHubUser owner = gist != null ? gist.getOwner() : null;
+        if (owner == null) {
+            return;
+        }
+
+        //Opening the same profile again, from this Gist or any other, doesn't download it again
+        GitHubUser fullUser = NetworkUtil.getUserIdentityMap().getFullUser(owner.getId());
+        if (fullUser != null) {
+            mOwnerProfile.setValue(fullUser);
+            return;
+        }
+
+        NetworkUtil.getRequestBudget().begin(RequestBudget.OWNER_PROFILE);
+        mCalls.call(mGitHubService.getUserByLogin(owner.getLogin())).enqueue(response -> {
+            if (response.body() == null) {
+                showError(NetworkUtil.onGitHubResponseError(response));
+                return;
+            }
+            mOwnerProfile.postValue(response.body());
+        }, this::showError);
     }
 
     //endregion
@@ -196,6 +344,7 @@ public class GistViewModel extends ViewModel {
             mIsGistStarred.postValue(false);
         }
 
+        NetworkUtil.getRequestBudget().begin(RequestBudget.STAR);
         //Perform the appropriate action based on the state of the star
         if (mIsGistStarred.getValue()) {
             unStarGist();
@@ -214,26 +363,19 @@ public class GistViewModel extends ViewModel {
             return;
         }
 
-        mGitHubService.getStarGistById(mGistId).enqueue(new Callback<Response>() {
-            @Override
-            public void onResponse(Call<Response> call, Response<Response> response) {
-                if (response.code() == 404) {
-                    mIsGistStarred.postValue(false);
-                    return;
-                }
-                else if (response.code() == 204) {
-                    mIsGistStarred.postValue(true);
-                    return;
-                }
-
-                showError(NetworkUtil.onGitHubResponseError(response));
+        //GitHub answers with a 404 if the Gist isn't starred
+        mCalls.call(mGitHubService.getStarGistById(mGistId)).enqueueForAnyResponse(response -> {
+            if (response.code() == 404) {
+                mIsGistStarred.postValue(false);
+                return;
             }
-
-            @Override
-            public void onFailure(Call<Response> call, Throwable t) {
-                showError(t.getLocalizedMessage());
+            else if (response.code() == 204) {
+                mIsGistStarred.postValue(true);
+                return;
             }
-        });
+
+            showError(NetworkUtil.onGitHubResponseError(response));
+        }, this::showError);
     }
 
     /**
@@ -247,25 +389,14 @@ public class GistViewModel extends ViewModel {
             return;
         }
 
-        mGitHubService.starGistById(mGistId).enqueue(new Callback<Response>() {
-            @Override
-            public void onResponse(Call<Response> call, Response<Response> response) {
-                if (response.code() == 204) {
-                    mIsGistStarred.postValue(true);
-                    return;
-                }
-
-                showError(NetworkUtil.onGitHubResponseError(response));
-
-            }
-
-            @Override
-            public void onFailure(Call<Response> call, Throwable t) {
-                showError(t.getLocalizedMessage());
+        mCalls.call(mGitHubService.starGistById(mGistId)).enqueueForAnyResponse(response -> {
+            if (response.code() == 204) {
+                mIsGistStarred.postValue(true);
+                return;
             }
-        });
-
 
+            showError(NetworkUtil.onGitHubResponseError(response));
+        }, this::showError);
     }
 
     /**
@@ -279,90 +410,176 @@ public class GistViewModel extends ViewModel {
             return;
         }
 
-        mGitHubService.unstarGistById(mGistId).enqueue(new Callback<Response>() {
-            @Override
-            public void onResponse(Call<Response> call, Response<Response> response) {
-                if (response.code() == 204) {
-                    mIsGistStarred.postValue(false);
-                    return;
-                }
-
-                showError(NetworkUtil.onGitHubResponseError(response));
-
-            }
-
-            @Override
-            public void onFailure(Call<Response> call, Throwable t) {
-                showError(t.getLocalizedMessage());
+        mCalls.call(mGitHubService.unstarGistById(mGistId)).enqueueForAnyResponse(response -> {
+            if (response.code() == 204) {
+                mIsGistStarred.postValue(false);
+                return;
             }
-        });
-
 
+            showError(NetworkUtil.onGitHubResponseError(response));
+        }, this::showError);
     }
 
     //endregion
 
     //region Comments
 
-    public LiveData<List<GistComment>> getComments() {
+    /**
+     * Get the store holding the comments loaded for the Gist.  Its contents only change on the
+     * main thread, right before an update is posted to {@link #getComments()}.
+     *
+     * @return the comment store or NULL if no Gist ID has been set
+     */
+    public CommentPageStore getCommentStore() {
+        return mCommentStore;
+    }
+
+    /**
+     * Get an observable description of each change made to the comment store
+     *
+     * @return an observable change to the list of comments
+     * @see LiveData
+     */
+    public LiveData<CommentPageStore.Change> getComments() {
         return mComments;
     }
 
     /**
-     * Download comments for the gist from the GitHub API
+     * Set the style of the view that displays comment bodies so that each page of comments
+     * can be rendered and laid out in the background before it is posted
+     *
+     * @param params   the text metrics of the comment body TextView
+     * @param renderer the renderer used to style the markdown of comment bodies
      */
-    public void loadMoreComments() {
+    public void setCommentTextStyle(PrecomputedTextCompat.Params params, MarkdownRenderer renderer) {
+        mCommentTextPrecomputer.setStyle(params, renderer);
+    }
 
-        //Make sure there is a Gist ID stored for use
-        if (mGistId.isEmpty()) {
+    /**
+     * Called when the range of visible comments has changed.  The visible pages and the pages the
+     * user is scrolling towards are loaded, and pages far from the viewport are paged out.
+     *
+     * @param firstVisiblePosition the position of the first visible comment
+     * @param lastVisiblePosition  the position of the last visible comment
+     */
+    public void onCommentsScrolled(int firstVisiblePosition, int lastVisiblePosition) {
+        if (mCommentLoader == null) {
             return;
         }
+        mCommentLoader.onViewportChanged(firstVisiblePosition, lastVisiblePosition);
+    }
 
-        //Make sure that there are more comments to load (last -> first)
-        if (mGistCommentPrevPage == 0) {
-            return;
+    /**
+     * Get an observable position in the list of comments that should be scrolled to.  A new
+     * position is set whenever the newest, oldest or a chosen page of comments has loaded.
+     *
+     * @return an observable scroll position or NULL if there is nowhere to scroll to
+     * @see LiveData
+     */
+    public LiveData<Integer> getCommentScrollPosition() {
+        return mCommentScrollPosition;
+    }
+
+    /**
+     * Called once the list of comments has been scrolled to the requested position so that it is
+     * not scrolled there again, e.g. after a rotation
+     */
+    public void onCommentScrollHandled() {
+        mCommentScrollPosition.setValue(null);
+    }
+
+    /**
+     * Get the number of pages of comments on the Gist
+     *
+     * @return the number of pages or 0 if it is not known yet
+     */
+    public int getCommentPageCount() {
+        return mCommentStore != null ? mCommentStore.getLastPage() : 0;
+    }
+
+    /**
+     * List the comments newest first and jump to the newest comment
+     */
+    public void showNewestComments() {
+        startCommentLoader(CommentPageLoader.ANCHOR_NEWEST, 0);
+    }
+
+    /**
+     * List the comments oldest first and jump to the oldest comment
+     */
+    public void showOldestComments() {
+        startCommentLoader(CommentPageLoader.ANCHOR_OLDEST, 0);
+    }
+
+    /**
+     * Jump to the first comment on a page, keeping the current order of the list
+     *
+     * @param page the number of the page, starting at 1
+     */
+    public void showCommentPage(int page) {
+        startCommentLoader(CommentPageLoader.ANCHOR_PAGE, page);
+    }
+
+    /**
+     * Start checking for new comments in the background, e.g. when the Gist becomes visible
+     */
+    public void startCommentPolling() {
+        if (mCommentPoller != null) {
+            mCommentPoller.start();
         }
+    }
 
-        //Show the progress bar in the comments section
-        mCommentsProgressBarVisibility.postValue(View.VISIBLE);
+    /**
+     * Stop checking for new comments, e.g. when the Gist is no longer visible
+     */
+    public void stopCommentPolling() {
+        if (mCommentPoller != null) {
+            mCommentPoller.stop();
+        }
+    }
 
-        mGitHubService.getGistCommentsById(mGistId, mGistCommentPrevPage).enqueue(new Callback<List<GistComment>>() {
-            @Override
-            public void onResponse(Call<List<GistComment>> call, Response<List<GistComment>> response) {
-                mCommentsProgressBarVisibility.postValue(View.GONE);
-                if (!response.isSuccessful()) {
-                    showError(NetworkUtil.onGitHubResponseError(response));
-                    return;
-                }
-
-                mGistCommentPrevPage++;
-                List<GistComment> currentList = mComments.getValue();
-                if (currentList == null) {
-                    currentList = new ArrayList<>();
-                }
-
-                if (response.body() != null) {
-                    List<GistComment> comments = new ArrayList<>(response.body());
-                    Collections.reverse(comments);
-                    currentList.addAll(comments);
-                }
-                mComments.postValue(currentList);
-            }
+    private void startCommentLoader(int anchor, int page) {
+        if (mCommentLoader == null) {
+            return;
+        }
+        mCommentScrollPosition.setValue(null);
+        NetworkUtil.getRequestBudget().begin(RequestBudget.COMMENT_PAGE);
+        mCommentLoader.start(anchor, page);
+    }
 
-            @Override
-            public void onFailure(Call<List<GistComment>> call, Throwable t) {
-                showError(t.getLocalizedMessage());
-            }
-        });
+    @Override
+    public void onCommentsChanged(CommentPageStore.Change change) {
+        mComments.setValue(change);
+    }
+
+    @Override
+    public void onAnchorLoaded(int position) {
+        mCommentScrollPosition.setValue(position);
     }
 
     /**
-     * Determine if there are more pages that can be loaded for comments
+     * Download a page of comments for the gist from the GitHub API
      *
-     * @return TRUE if more pages can be loaded, FALSE if not
+     * @param page     the number of the page to download
+     * @param callback notified once the download has finished
      */
-    public boolean isMoreCommentsAvailable() {
-        return mGistCommentPrevPage != 0;
+    private void downloadCommentPage(int page, CommentPageLoader.IDownloadCallback callback) {
+
+        //Show the progress bar in the comments section
+        mCommentsProgressBarVisibility.postValue(View.VISIBLE);
+
+        mCalls.call(mGitHubService.getGistCommentsById(mGistId, page, CommentPageStore.PAGE_SIZE)).enqueue(response -> {
+            mCommentsProgressBarVisibility.postValue(View.GONE);
+            List<GistComment> comments = response.body();
+            if (comments == null) {
+                comments = new ArrayList<>();
+            }
+            mCommentPoller.onPageDownloaded(page, response.headers().get("ETag"));
+            callback.onDownloaded(comments);
+        }, message -> {
+            callback.onFailed();
+            showError(message);
+        });
     }
 
     /**
@@ -387,99 +604,44 @@ public class GistViewModel extends ViewModel {
         GistComment newComment = new GistComment();
         newComment.setBody(comment);
 
-        mGitHubService.createCommentOnGist(mGistId, newComment).enqueue(new Callback<GistComment>() {
-            @Override
-            public void onResponse(Call<GistComment> call, Response<GistComment> response) {
-                if (!response.isSuccessful()) {
-                    showError(NetworkUtil.onGitHubResponseError(response));
-                    return;
-                }
-
-                List<GistComment> currentList = mComments.getValue();
-                if (currentList == null) {
-                    currentList = new ArrayList<>();
-                }
-                List<GistComment> comments = new ArrayList<>();
-                comments.add(0, response.body());
-                mComments.postValue(comments);
-
-            }
-
-            @Override
-            public void onFailure(Call<GistComment> call, Throwable t) {
-                showError(t.getLocalizedMessage());
+        mCalls.call(mGitHubService.createCommentOnGist(mGistId, newComment)).enqueue(response -> {
+            if (response.body() == null) {
+                showError(NetworkUtil.onGitHubResponseError(response));
+                return;
             }
-        });
-
 
+            GistComment createdComment = response.body();
+            CommentPageStore commentStore = mCommentStore;
+            mCommentTextPrecomputer.precompute(Collections.singletonList(createdComment),
+                    () -> mMainHandler.post(() -> {
+                        CommentPageStore.Change change = commentStore.addNewestComment(createdComment);
+                        mComments.setValue(change);
+                        //Show the user the comment they just posted
+                        if (change.getType() == CommentPageStore.Change.INSERTED) {
+                            mCommentScrollPosition.setValue(change.getPositionStart());
+                        }
+                    }));
+        }, this::showError);
     }
 
     /**
-     * Download the headers for the comment API call to determine how many pages there are to load.
-     * Comments cannot be loaded until this is executed first.
+     * Called with the headers for the comment API call, which tell how many pages there are to
+     * load.  Comments cannot be loaded until this has been called.
+     *
+     * @param response the response to the HEAD request for the first page of comments
      */
-    private void loadCommentPageCount() {
-        //Make sure there is a Gist ID stored for use
-        if (mGistId.isEmpty()) {
-            return;
+    private void onCommentPageCountLoaded(Response<Void> response) {
+        //Without a "last" link all of the comments fit on the first page
+        int lastPage = 1;
+        String linkedHeader = response.headers().get("Link");
+        if (linkedHeader != null) {
+            lastPage = Math.max(NetworkUtil.getLinkedPage(linkedHeader, "last"), 1);
         }
-
-        //Show the progress bar in the comments section
-        mCommentsProgressBarVisibility.postValue(View.VISIBLE);
-
-        mGitHubService.getGistCommentsHeaderById(mGistId).enqueue(new Callback<Void>() {
-            @Override
-            public void onResponse(Call<Void> call, Response<Void> response) {
-                if (!response.isSuccessful()) {
-                    showError(NetworkUtil.onGitHubResponseError(response));
-                    return;
-                }
-
-                String linkedHeader = response.headers().get("Link");
-                if (linkedHeader != null) {
-                    mGistCommentPrevPage = getLastPageNum(linkedHeader);
-                } else {
-                    mGistCommentPrevPage = 0;
-                }
-                loadMoreComments();
-            }
-
-            @Override
-            public void onFailure(Call<Void> call, Throwable t) {
-
-            }
-        });
-
+        mCommentLoader.setLastPage(lastPage);
     }
 
     //endregion
 
-    /**
-     * Check a link header returned in a call to the GitHub API to see if there is a URL pointing to the last page of content
-     * and then get the number of pages from it
-     *
-     * @param linkHeader the Link header returned by the call to the GitHub API
-     * @return the number of pages in the list of data
-     */
-    private int getLastPageNum(String linkHeader) {
-        //check to see if there is a "last" page
-        int lastLinkIndex = linkHeader.indexOf("; rel=\"last\"");
-        if (lastLinkIndex >= 0) {
-            //grab the page number for the "last" link
-            int lastPageNumberIndex = linkHeader.lastIndexOf("page=");
-            String lastPageNum = linkHeader.substring(lastPageNumberIndex + 5, linkHeader.indexOf(">", lastPageNumberIndex));
-            try {
-                return Integer.parseInt(lastPageNum);
-            } catch (NumberFormatException exception) {
-                showError("Couldn't load comments.  Please try again.");
-                return 0;
-            }
-
-        } else {
-            return 0;
-        }
-    }
-
     /**
      * Convenience method for showing an error to the user
      *
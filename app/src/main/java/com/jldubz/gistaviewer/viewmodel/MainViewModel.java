@@ -1,32 +1,40 @@
 package com.jldubz.gistaviewer.viewmodel;
 
+import android.app.Application;
+import android.net.Uri;
 import android.view.View;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.jldubz.gistaviewer.model.Constants;
 import com.jldubz.gistaviewer.model.NetworkUtil;
-import com.jldubz.gistaviewer.model.data.BasicAuthInterceptor;
+import com.jldubz.gistaviewer.model.data.Account;
+import com.jldubz.gistaviewer.model.data.AccountRegistry;
+import com.jldubz.gistaviewer.model.data.AdaptivePageSize;
+import com.jldubz.gistaviewer.model.data.CallScope;
 import com.jldubz.gistaviewer.model.data.IGitHubService;
-import com.jldubz.gistaviewer.model.gists.Gist;
+import com.jldubz.gistaviewer.model.data.PagedListLoader;
+import com.jldubz.gistaviewer.model.data.RequestBudget;
+import com.jldubz.gistaviewer.model.export.ExportReport;
+import com.jldubz.gistaviewer.model.export.GistExporter;
+import com.jldubz.gistaviewer.model.gists.GistListItem;
 import com.jldubz.gistaviewer.model.GitHubUser;
+import com.jldubz.gistaviewer.model.upload.PictureDownscaler;
+import com.jldubz.gistaviewer.model.upload.PictureUploader;
+import com.jldubz.gistaviewer.model.upload.ProgressRequestBody;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
-import androidx.lifecycle.ViewModel;
-
-import okhttp3.OkHttpClient;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
-import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
 
 /**
  * ViewModel that handles business logic for Gist fragments DiscoverGistsFragment, StarGistsFragment, and YourGistsFragment and
@@ -34,12 +42,18 @@ import retrofit2.converter.gson.GsonConverterFactory;
  *
  * @author Jon-Luke West
  */
-public class MainViewModel extends ViewModel {
+public class MainViewModel extends AndroidViewModel {
+
+    public static final int LIST_DISCOVERED_GISTS = 0;
+    public static final int LIST_STARRED_GISTS = 1;
+    public static final int LIST_YOUR_GISTS = 2;
 
     private MutableLiveData<GitHubUser> mUser = new MutableLiveData<>();
-    private MutableLiveData<List<Gist>> mStarredGists = new MutableLiveData<>();
-    private MutableLiveData<List<Gist>> mYourGists = new MutableLiveData<>();
-    private MutableLiveData<List<Gist>> mDiscoveredGists = new MutableLiveData<>();
+    private MutableLiveData<List<String>> mAccountUsernames = new MutableLiveData<>();
+    //Indexed by list type, e.g. LIST_STARRED_GISTS
+    private final List<MutableLiveData<List<GistListItem>>> mGistLists = new ArrayList<>();
+    //Public Gists look the same to every account, so there is only one list of them
+    private final PagedListLoader<GistListItem> mDiscoveredGistsLoader;
 
     private MutableLiveData<Integer> mLoginViewVisibility = new MutableLiveData<>();
     private MutableLiveData<Integer> mLoginFormVisibility = new MutableLiveData<>();
@@ -50,24 +64,80 @@ public class MainViewModel extends ViewModel {
     private MutableLiveData<String> mUsernameError = new MutableLiveData<>();
     private MutableLiveData<String> mTokenError = new MutableLiveData<>();
 
-    private IMainViewModelListener mListener;
+    private MutableLiveData<Boolean> mIsExporting = new MutableLiveData<>();
+    private MutableLiveData<Integer> mExportedGistCount = new MutableLiveData<>();
+    private MutableLiveData<ExportReport> mExportReport = new MutableLiveData<>();
 
-    private String mUsername;
-    private String mToken;
-    private int mStarredGistsPagesLoaded;
-    private int mYourGistsPagesLoaded;
-    private int mGistPagesLoaded = 0;
-    private boolean mMoreDiscoveredGistsAvailable = true;
-    private boolean mMoreYourGistsAvailable = true;
-    private boolean mMoreStarredGistsAvailable = true;
+    private MutableLiveData<Boolean> mIsUploadingPicture = new MutableLiveData<>();
+    private MutableLiveData<Integer> mPictureUploadProgress = new MutableLiveData<>();
+
+    private final AccountRegistry mAccounts;
+    //Every account that has been active keeps its session, so switching back to it is instant
+    private final Map<Account, AccountSession> mSessions = new HashMap<>();
+    private AccountSession mSession;
     private boolean mIsLoggedIn;
 
     private IGitHubService mGitHubService;
-
-    public MainViewModel() {
-        super();
+    private final CallScope mCalls = new CallScope();
+
+    //Pages start small for the first rows to show quickly and grow as fast as the network allows
+    private static final int MIN_GISTS_PAGE_SIZE = 10;
+    private static final int MAX_GISTS_PAGE_SIZE = 100;
+    //Every list is loaded over the same network, so they share what was measured about it
+    private final AdaptivePageSize mGistsPageSize = new AdaptivePageSize(MIN_GISTS_PAGE_SIZE, MAX_GISTS_PAGE_SIZE);
+    //The next page is requested once the user has scrolled this close to the end of a list
+    private static final int GIST_PREFETCH_DISTANCE = 5;
+
+    //Files are downloaded by the exporter itself, so only one export runs at a time
+    private static final int MAX_CONCURRENT_EXPORT_DOWNLOADS = 4;
+    private final ExecutorService mExportExecutor = Executors.newSingleThreadExecutor();
+    private GistExporter mExporter;
+
+    //Pictures are shrunk before they are sent, decoding at most 16 MB of pixels to do so
+    private static final int MAX_PICTURE_DIMENSION = 1024;
+    private static final long MAX_PICTURE_DECODE_BYTES = 16 * 1024 * 1024;
+    private final ExecutorService mUploadExecutor = Executors.newSingleThreadExecutor();
+    private PictureUploader mUploader;
+
+    public MainViewModel(@NonNull Application application) {
+        super(application);
+        mAccounts = AccountRegistry.getInstance(application);
+        mIsExporting.setValue(false);
+        mIsUploadingPicture.setValue(false);
+        for (int list = LIST_DISCOVERED_GISTS; list <= LIST_YOUR_GISTS; list++) {
+            mGistLists.add(new MutableLiveData<>());
+        }
+        //The service is read when each page is requested, so the list follows account switches
+        mDiscoveredGistsLoader = new PagedListLoader<>((page, pageSize) -> {
+            Map<String, Object> queries = new HashMap<>();
+            queries.put("page", page);
+            queries.put("per_page", pageSize);
+            return mGitHubService.getPublicGists(queries);
+        }, mGistsPageSize, GIST_PREFETCH_DISTANCE, mGistLists.get(LIST_DISCOVERED_GISTS)::setValue, this::showError);
         init();
         initAnonService();
+
+        //Log back in to the account that was active when the app was closed
+        Account activeAccount = mAccounts.getActiveAccount();
+        NetworkUtil.getRequestBudget().begin(RequestBudget.STARTUP);
+        if (activeAccount != null) {
+            switchToAccount(activeAccount, false);
+        }
+        updateAccountUsernames();
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        mCalls.close();
+        mDiscoveredGistsLoader.close();
+        for (AccountSession session : mSessions.values()) {
+            session.close();
+        }
+        cancelExport();
+        mExportExecutor.shutdown();
+        cancelPictureUpload();
+        mUploadExecutor.shutdown();
     }
 
     /***
@@ -80,23 +150,15 @@ public class MainViewModel extends ViewModel {
         mUsernameError.setValue(null);
         mTokenError.setValue(null);
         mUser.postValue(null);
-        mStarredGists.postValue(null);
-        mYourGists.postValue(null);
-        mUsername = null;
-        mToken = null;
         mIsLoggedIn = false;
-        mStarredGistsPagesLoaded = 0;
-        mYourGistsPagesLoaded = 0;
     }
 
     /***
      * Configure a new Retrofit instance for future API calls with no authorization
      */
     private void initAnonService() {
-        Gson gson = new GsonBuilder().setDateFormat("YYYY-MM-dd'T'HH:mm:ss").create();
-        Retrofit retrofit = new Retrofit.Builder().baseUrl(Constants.URL_GITHUB).addConverterFactory(GsonConverterFactory.create(gson)).build();
-
-        mGitHubService = retrofit.create(IGitHubService.class);
+        Gson gson = NetworkUtil.createGsonBuilder().setDateFormat("YYYY-MM-dd'T'HH:mm:ss").create();
+        mGitHubService = NetworkUtil.createGitHubService(NetworkUtil.getHttpClient(), gson);
     }
 
     //region Profile
@@ -138,44 +200,209 @@ public class MainViewModel extends ViewModel {
             return;
         }
 
-        byte[] authBytes = (username + ":" + token).getBytes();
-        String auth = android.util.Base64.encodeToString(authBytes, android.util.Base64.NO_WRAP);
-        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(new BasicAuthInterceptor(username.trim(), token.trim())).build();
-        Retrofit retrofit = new Retrofit.Builder().baseUrl(Constants.URL_GITHUB).addConverterFactory(GsonConverterFactory.create())
-                .client(client)
-                .build();
-        mGitHubService = retrofit.create(IGitHubService.class);
-
-        mGitHubService.getLoggedInUser().enqueue(new Callback<GitHubUser>() {
-            @Override
-            public void onResponse(Call<GitHubUser> call, Response<GitHubUser> response) {
-                if (!response.isSuccessful()) {
-                    initAnonService();
-                    showError(NetworkUtil.onGitHubResponseError(response));
-                    return;
-                }
+        //The account is only added once GitHub has accepted its credentials.  A login that is
+        // still on its way is replaced by this one.
+        mCalls.cancelAll();
+        NetworkUtil.getRequestBudget().begin(RequestBudget.LOGIN);
+        Account account = mAccounts.createAccount(username.trim(), token.trim());
+        mCalls.call(account.getGitHubService().getLoggedInUser()).enqueueForAnyResponse(response -> {
+            if (!response.isSuccessful()) {
+                onLoginFailed(NetworkUtil.onGitHubResponseError(response));
+                return;
+            }
 
-                mUser.postValue(response.body());
-                showProfile();
-                saveCredentials(username, token);
+            mAccounts.setUser(account, response.body(), response.headers().get("ETag"));
+            mAccounts.addAccount(account);
+            switchToAccount(account, true);
+        }, this::onLoginFailed);
+    }
+
+    /**
+     * Show why a login failed and let the user try again
+     *
+     * @param message the message to show to the user
+     */
+    private void onLoginFailed(String message) {
+        showLoginForm();
+        showError(message);
+    }
+
+    /***
+     * Logout of the active account and forget it.  The next account, if any, becomes active;
+     * otherwise the API service is reset to anonymous access.
+     */
+    public void logout() {
+        cancelExport();
+        cancelPictureUpload();
+        mCalls.cancelAll();
+        if (mSession != null) {
+            AccountSession session = mSession;
+            mSession = null;
+            session.close();
+            mSessions.remove(session.mAccount);
+            mAccounts.removeAccount(session.mAccount);
+        }
+
+        List<Account> accounts = mAccounts.getAccounts();
+        if (!accounts.isEmpty()) {
+            switchToAccount(accounts.get(0), false);
+        } else {
+            mAccounts.setActiveAccount(null);
+            showAnonymous();
+        }
+        updateAccountUsernames();
+    }
+
+    /**
+     * Make another account that has been logged in with the active account.  Everything already
+     * loaded for the account is shown right away.
+     *
+     * @param username the username of the account
+     */
+    public void switchAccount(String username) {
+        Account account = mAccounts.getAccount(username);
+        if (account == null || (mSession != null && mSession.mAccount == account)) {
+            return;
+        }
+        NetworkUtil.getRequestBudget().begin(RequestBudget.LOGIN);
+        switchToAccount(account, false);
+    }
+
+    /**
+     * Show the login form so another account can be added, while the active account stays active
+     * until the new one has logged in
+     */
+    public void showAddAccount() {
+        mProfileVisibility.postValue(View.GONE);
+        mLoginViewVisibility.postValue(View.VISIBLE);
+        mLoginFormVisibility.postValue(View.VISIBLE);
+    }
 
-                loadMoreYourGists();
-                loadMoreStarredGists();
+    /**
+     * Hide the login form opened by {@link #showAddAccount()} and go back to the active account's
+     * profile
+     */
+    public void cancelAddAccount() {
+        if (!mIsLoggedIn) {
+            return;
+        }
+        mCalls.cancelAll();
+        showProfile();
+    }
+
+    /**
+     * Make an account the active account and show its session, creating the session the first
+     * time.  The account's user is loaded again in the background unless it was just loaded;
+     * until an account that hasn't been verified since the app started is accepted, its lists are
+     * not loaded.
+     *
+     * @param account     the account
+     * @param isUserFresh TRUE if the account's user was just loaded, e.g. by logging in
+     */
+    private void switchToAccount(Account account, boolean isUserFresh) {
+        //Nothing requested for the previous account may be shown for this one
+        mCalls.cancelAll();
+        cancelExport();
+        cancelPictureUpload();
+        if (mSession != null) {
+            mSession.pause();
+        }
+
+        AccountSession session = mSessions.get(account);
+        if (session == null) {
+            session = new AccountSession(account);
+            mSessions.put(account, session);
+        }
+        mSession = session;
+        mAccounts.setActiveAccount(account);
+        mGitHubService = account.getGitHubService();
+        mGistLists.get(LIST_STARRED_GISTS).setValue(session.getLoader(LIST_STARRED_GISTS).getItems());
+        mGistLists.get(LIST_YOUR_GISTS).setValue(session.getLoader(LIST_YOUR_GISTS).getItems());
+        updateAccountUsernames();
+
+        GitHubUser user = account.getUser();
+        mIsLoggedIn = user != null;
+        mUser.postValue(user);
+        if (mIsLoggedIn) {
+            showProfile();
+            session.start();
+        } else {
+            mLoginFormVisibility.postValue(View.GONE);
+            mProgressBarVisibility.postValue(View.VISIBLE);
+        }
+        if (isUserFresh) {
+            return;
+        }
+
+        //The saved user is shown while it is revalidated, which is free when it hasn't changed
+        AccountSession verifiedSession = session;
+        mCalls.call(mGitHubService.getLoggedInUserIfChanged(account.getUserETag())).enqueueForAnyResponse(response -> {
+            if (response.code() == 304) {
+                return;
+            }
+            if (!response.isSuccessful()) {
+                onAccountRejected(verifiedSession, NetworkUtil.onGitHubResponseError(response), response.code() == 401);
+                return;
             }
 
-            @Override
-            public void onFailure(Call<GitHubUser> call, Throwable t) {
-                showError(t.getLocalizedMessage());
+            mAccounts.setUser(account, response.body(), response.headers().get("ETag"));
+            mUser.postValue(response.body());
+            if (!mIsLoggedIn) {
+                mIsLoggedIn = true;
+                showProfile();
+                verifiedSession.start();
             }
-        });
+        }, message -> onAccountRejected(verifiedSession, message, false));
     }
 
-    /***
-     * Logout of GitHub and reset the API service to anonymous access
+    /**
+     * Called when the user of the active account could not be loaded.  An account that was
+     * already verified keeps showing what was loaded for it, unless its credentials were
+     * rejected; otherwise API calls go back to anonymous access.  The account stays saved either
+     * way, so the next start tries it again.
+     *
+     * @param session   the session of the account
+     * @param message   the message to show to the user
+     * @param isRevoked TRUE if GitHub no longer accepts the account's credentials
      */
-    public void logout() {
+    private void onAccountRejected(AccountSession session, String message, boolean isRevoked) {
+        if (session != mSession || (mIsLoggedIn && !isRevoked)) {
+            return;
+        }
+        session.pause();
+        mSession = null;
+        showAnonymous();
+        showError(message);
+    }
+
+    /**
+     * Go back to anonymous access with empty lists for the user
+     */
+    private void showAnonymous() {
         init();
         initAnonService();
+        mGistLists.get(LIST_STARRED_GISTS).setValue(new ArrayList<>());
+        mGistLists.get(LIST_YOUR_GISTS).setValue(new ArrayList<>());
+    }
+
+    /**
+     * Post the usernames of every account, e.g. after an account was added or removed
+     */
+    private void updateAccountUsernames() {
+        List<String> usernames = new ArrayList<>();
+        for (Account account : mAccounts.getAccounts()) {
+            usernames.add(account.getUsername());
+        }
+        mAccountUsernames.setValue(usernames);
+    }
+
+    /**
+     * Get the usernames of every account that has been logged in with
+     *
+     * @return an observable list of usernames
+     */
+    public LiveData<List<String>> getAccountUsernames() {
+        return mAccountUsernames;
     }
 
     public LiveData<GitHubUser> getUser() {
@@ -208,194 +435,286 @@ public class MainViewModel extends ViewModel {
 
     //endregion
 
-    //region Discover Gists
+    //region Gist lists
 
     /**
-     * Download public Gists that have been recently created or updated on GitHub
-     */
-    public void discoverMoreGists() {
-        Map<String, Object> queries = new HashMap<>();
-        queries.put("page", mGistPagesLoaded+1);
-        queries.put("per_page", 15);
-
-        mGitHubService.getPublicGists(queries).enqueue(new Callback<List<Gist>>() {
-            @Override
-            public void onResponse(Call<List<Gist>> call, Response<List<Gist>> response) {
-                if (!response.isSuccessful()) {
-                    showError(NetworkUtil.onGitHubResponseError(response));
-                    return;
-                }
-                mGistPagesLoaded++;
-                mMoreDiscoveredGistsAvailable = isNextLinkAvailable(response);
+     * Get an observable list of Gists
+     *
+     * @param list {@link #LIST_DISCOVERED_GISTS}, {@link #LIST_STARRED_GISTS} or {@link #LIST_YOUR_GISTS}
+     * @return every Gist loaded so far for the list
+     * @see LiveData
+     */
+    public LiveData<List<GistListItem>> getGists(int list) {
+        return mGistLists.get(list);
+    }
 
-                List<Gist> currentList = mDiscoveredGists.getValue();
-                if (currentList == null) {
-                    currentList = new ArrayList<>();
-                }
+    /**
+     * Download the next page of a list of Gists
+     *
+     * @param list {@link #LIST_DISCOVERED_GISTS}, {@link #LIST_STARRED_GISTS} or {@link #LIST_YOUR_GISTS}
+     */
+    public void loadMoreGists(int list) {
+        //Make sure there is an authorized user; otherwise these lists can't be loaded
+        if (list != LIST_DISCOVERED_GISTS && !mIsLoggedIn) {
+            showError(Constants.NEED_LOGIN_ERROR);
+            return;
+        }
+        getLoader(list).loadNextPage();
+    }
 
-                if (response.body() != null) {
-                    currentList.addAll(response.body());
-                }
-                mDiscoveredGists.postValue(response.body());
-            }
+    /**
+     * Check if there are more pages of a list of Gists to load
+     *
+     * @param list {@link #LIST_DISCOVERED_GISTS}, {@link #LIST_STARRED_GISTS} or {@link #LIST_YOUR_GISTS}
+     * @return TRUE if there are more pages
+     */
+    public boolean isMoreGistsAvailable(int list) {
+        PagedListLoader<GistListItem> loader = getLoader(list);
+        return loader != null && loader.hasMore();
+    }
 
-            @Override
-            public void onFailure(Call<List<Gist>> call, Throwable t) {
-                showError(t.getLocalizedMessage());
-            }
-        });
+    /**
+     * Called when a list of Gists has been scrolled, so that the next page is requested before
+     * the user reaches the end of the list
+     *
+     * @param list                {@link #LIST_DISCOVERED_GISTS}, {@link #LIST_STARRED_GISTS} or {@link #LIST_YOUR_GISTS}
+     * @param lastVisiblePosition the position of the last visible Gist
+     */
+    public void onGistListScrolled(int list, int lastVisiblePosition) {
+        if (list != LIST_DISCOVERED_GISTS && !mIsLoggedIn) {
+            return;
+        }
+        getLoader(list).onScrolled(lastVisiblePosition);
     }
 
-    public LiveData<List<Gist>> getDiscoveredGists() {
-        if (mGistPagesLoaded == 0) {
-            discoverMoreGists();
+    /**
+     * Called when a list of Gists is no longer visible, e.g. after switching tabs.  A page that is
+     * still on its way is cancelled to save bandwidth and rate limit, and requested again when
+     * the list is visible again.
+     *
+     * @param list {@link #LIST_DISCOVERED_GISTS}, {@link #LIST_STARRED_GISTS} or {@link #LIST_YOUR_GISTS}
+     */
+    public void onGistListHidden(int list) {
+        PagedListLoader<GistListItem> loader = getLoader(list);
+        if (loader != null) {
+            loader.pause();
+        }
+    }
+
+    /**
+     * Called when a list of Gists is visible.  The first page is requested if the list hasn't
+     * been loaded yet, and a page that was cancelled when the list was hidden is requested again.
+     *
+     * @param list {@link #LIST_DISCOVERED_GISTS}, {@link #LIST_STARRED_GISTS} or {@link #LIST_YOUR_GISTS}
+     */
+    public void onGistListShown(int list) {
+        //The user's lists are loaded once a login that is still on its way has finished
+        if (list != LIST_DISCOVERED_GISTS && !mIsLoggedIn && mCalls.isBusy()) {
+            return;
         }
+        PagedListLoader<GistListItem> loader = getLoader(list);
+        if (loader == null || !loader.isStarted()) {
+            loadMoreGists(list);
+            return;
+        }
+        loader.resume();
+    }
 
-        return mDiscoveredGists;
+    /**
+     * Get the loader of a list of Gists
+     *
+     * @param list {@link #LIST_DISCOVERED_GISTS}, {@link #LIST_STARRED_GISTS} or {@link #LIST_YOUR_GISTS}
+     * @return the loader or NULL for the user's lists while no account is active
+     */
+    private PagedListLoader<GistListItem> getLoader(int list) {
+        if (list == LIST_DISCOVERED_GISTS) {
+            return mDiscoveredGistsLoader;
+        }
+        return mSession != null ? mSession.getLoader(list) : null;
     }
 
-    public boolean isMoreDiscoveredGistsAvailable() {
-        return mMoreDiscoveredGistsAvailable;
+    /**
+     * Set whether the active network is metered, e.g. mobile data.  Pages of Gists are kept small
+     * on a metered network so nothing is downloaded far ahead of what the user scrolls to.
+     *
+     * @param isMetered TRUE if the active network is metered
+     */
+    public void setNetworkMetered(boolean isMetered) {
+        mGistsPageSize.setMetered(isMetered);
     }
 
     //endregion
 
-    //region Starred Gists
+    //region Export
 
     /**
-     * Download Gists starred by the authorized user GitHub
-     */
-    public void loadMoreStarredGists() {
-        mGitHubService.getStarredGists(mStarredGistsPagesLoaded).enqueue(new Callback<List<Gist>>() {
-            @Override
-            public void onResponse(Call<List<Gist>> call, Response<List<Gist>> response) {
-                if (!response.isSuccessful()) {
-                    showError(NetworkUtil.onGitHubResponseError(response));
-                    return;
-                }
-
-                mStarredGistsPagesLoaded++;
-                mMoreStarredGistsAvailable = isNextLinkAvailable(response);
-
-                List<Gist> currentList = mStarredGists.getValue();
-                if (currentList == null) {
-                    currentList = new ArrayList<>();
-                }
+     * Export the authorized user's Gists or starred Gists to a zip archive in the background.  An
+     * export that was stopped early is resumed from where it left off.
+     *
+     * @param type      {@link GistExporter#TYPE_YOUR_GISTS} or {@link GistExporter#TYPE_STARRED_GISTS}
+     * @param outputDir the directory each account's archives are written to, in a directory named
+     *                  after the account
+     */
+    public void exportGists(int type, File outputDir) {
+        if (!mIsLoggedIn) {
+            showError(Constants.NEED_LOGIN_ERROR);
+            return;
+        }
+        if (Boolean.TRUE.equals(mIsExporting.getValue())) {
+            return;
+        }
 
-                if (response.body() != null) {
-                    currentList.addAll(response.body());
+        //Each account resumes its own exports
+        File accountDir = new File(outputDir, mSession.mAccount.getKey());
+        File tempDir = new File(getApplication().getCacheDir(), "exports");
+        GistExporter exporter = new GistExporter(mGitHubService, type, accountDir, tempDir, MAX_CONCURRENT_EXPORT_DOWNLOADS,
+                (gistsExported, bytesWritten) -> mExportedGistCount.postValue(gistsExported));
+        mExporter = exporter;
+        mIsExporting.setValue(true);
+        mExportedGistCount.setValue(0);
+        mExportReport.setValue(null);
+
+        mExportExecutor.execute(() -> {
+            try {
+                if (!accountDir.isDirectory() && !accountDir.mkdirs()) {
+                    throw new IOException("Could not create " + accountDir);
                 }
-                mStarredGists.postValue(response.body());
-            }
-
-            @Override
-            public void onFailure(Call<List<Gist>> call, Throwable t) {
-                showError(t.getLocalizedMessage());
+                mExportReport.postValue(exporter.run());
+            } catch (IOException exception) {
+                showError(exception.getLocalizedMessage());
             }
+            mIsExporting.postValue(false);
         });
-
     }
 
-    public LiveData<List<Gist>> getStarredGists() {
-        if (mStarredGistsPagesLoaded == 0) {
-            loadMoreStarredGists();
+    /**
+     * Stop the export in progress, if any.  It is resumed the next time the same list is exported.
+     */
+    public void cancelExport() {
+        if (mExporter == null) {
+            return;
         }
+        mExporter.cancel();
+        mExporter = null;
+    }
 
-        return mStarredGists;
+    /**
+     * Get whether an export is running, e.g. to disable the export buttons
+     *
+     * @return an observable flag that is TRUE while an export is running
+     */
+    public LiveData<Boolean> getIsExporting() {
+        return mIsExporting;
     }
 
-    public boolean isMoreStarredGistsAvailable() {
-        return mMoreStarredGistsAvailable;
+    public LiveData<Integer> getExportedGistCount() {
+        return mExportedGistCount;
+    }
+
+    /**
+     * Get the summary of the last export, posted once it has stopped
+     *
+     * @return an observable summary or NULL while no export has finished
+     */
+    public LiveData<ExportReport> getExportReport() {
+        return mExportReport;
     }
 
     //endregion
 
-    //region Your Gists
+    //region Picture upload
 
     /**
-     * Download Gists published by the authorized user GitHub
+     * Upload a picture to the authorized user's profile in the background.  The picture is
+     * downscaled first, so it can be as large as the camera takes them.
+     *
+     * @param pictureUri the picture, e.g. picked from the gallery
      */
-    public void loadMoreYourGists() {
-        //Make sure there is an authorized user; otherwise this call returns the same thing as discoverMoreGists();
+    public void uploadPicture(Uri pictureUri) {
         if (!mIsLoggedIn) {
             showError(Constants.NEED_LOGIN_ERROR);
             return;
         }
+        if (Boolean.TRUE.equals(mIsUploadingPicture.getValue())) {
+            return;
+        }
 
-        mGitHubService.getYourGists(mYourGistsPagesLoaded).enqueue(new Callback<List<Gist>>() {
-            @Override
-            public void onResponse(Call<List<Gist>> call, Response<List<Gist>> response) {
-                if (!response.isSuccessful()) {
-                    showError(NetworkUtil.onGitHubResponseError(response));
-                    return;
-                }
-
-                mYourGistsPagesLoaded++;
-                mMoreYourGistsAvailable = isNextLinkAvailable(response);
-
-                List<Gist> currentList = mYourGists.getValue();
-                if (currentList == null) {
-                    currentList = new ArrayList<>();
+        Account account = mSession.mAccount;
+        Application application = getApplication();
+        PictureUploader uploader = new PictureUploader(mGitHubService, application.getContentResolver(), pictureUri,
+                "Profile picture", new PictureDownscaler(MAX_PICTURE_DIMENSION, MAX_PICTURE_DECODE_BYTES),
+                application.getCacheDir(), new ProgressRequestBody.IProgressListener() {
+
+                    private int mLastPercent = -1;
+
+                    @Override
+                    public void onProgress(long bytesSent, long total) {
+                        //Posted only when it changes, not for every chunk
+                        int percent = total > 0 ? (int) (bytesSent * 100 / total) : 0;
+                        if (percent != mLastPercent) {
+                            mLastPercent = percent;
+                            mPictureUploadProgress.postValue(percent);
+                        }
+                    }
+                });
+        mUploader = uploader;
+        mIsUploadingPicture.setValue(true);
+        mPictureUploadProgress.setValue(0);
+
+        mUploadExecutor.execute(() -> {
+            try {
+                GitHubUser user = uploader.run();
+                //Keep the ETag, so the next check of the user is still a conditional request; it
+                // no longer matches, so that check brings the updated user
+                mAccounts.setUser(account, user, account.getUserETag());
+                //Cancelled by switching accounts, so another account's user is showing
+                if (!uploader.isCancelled()) {
+                    mUser.postValue(user);
                 }
-
-                if (response.body() != null) {
-                    currentList.addAll(response.body());
+            } catch (IOException exception) {
+                //A cancelled upload was stopped by the user, so it isn't an error
+                if (!uploader.isCancelled()) {
+                    showError(exception.getLocalizedMessage());
                 }
-                mYourGists.postValue(response.body());
-            }
-
-            @Override
-            public void onFailure(Call<List<Gist>> call, Throwable t) {
-                showError(t.getLocalizedMessage());
             }
+            mIsUploadingPicture.postValue(false);
         });
-
     }
 
-    public LiveData<List<Gist>> getYourGists() {
-        if (mYourGistsPagesLoaded == 0) {
-            loadMoreYourGists();
+    /**
+     * Stop the picture upload in progress, if any
+     */
+    public void cancelPictureUpload() {
+        if (mUploader == null) {
+            return;
         }
-
-        return mYourGists;
-    }
-
-    public boolean isMoreYourGistsAvailable() {
-        return mMoreYourGistsAvailable;
-    }
-
-    //endregion
-
-    public LiveData<String> getErrorMessage() {
-        mErrorMessage.setValue(null);
-        return mErrorMessage;
+        mUploader.cancel();
+        mUploader = null;
     }
 
     /**
-     * Set or clear the interface listening to calls to save credentials
+     * Get whether a picture is being uploaded, e.g. to show the cancel button
      *
-     * @param mListener the interface listening or NULL to clear it
+     * @return an observable flag that is TRUE while a picture is being uploaded
      */
-    public void setListener(IMainViewModelListener mListener) {
-        this.mListener = mListener;
+    public LiveData<Boolean> getIsUploadingPicture() {
+        return mIsUploadingPicture;
     }
 
     /**
-     * Check a link header returned in a call to the GitHub API to see if there is a URL pointing to the next page of content
+     * Get how much of the picture being uploaded has been sent
      *
-     * @param response the Retrofit Response to process
-     * @return TRUE is a next link was found, FALSE if not
+     * @return an observable percentage from 0 to 100
      */
-    private boolean isNextLinkAvailable(Response response) {
-
-        String linkHeader = response.headers().get("Link");
-        if (linkHeader == null) {
-            return false;
-        }
+    public LiveData<Integer> getPictureUploadProgress() {
+        return mPictureUploadProgress;
+    }
 
-        int nextLinkIndex = linkHeader.indexOf("; rel=\"next\"");
-        return nextLinkIndex >= 0;
+    //endregion
 
+    public LiveData<String> getErrorMessage() {
+        mErrorMessage.setValue(null);
+        return mErrorMessage;
     }
 
     /**
@@ -427,31 +746,66 @@ public class MainViewModel extends ViewModel {
     }
 
     /**
-     * Trim and save credentials so that the login persists after the app closes
-     * <p>
-     * This assumes that there is an IMainViewModelListener configured
-     *
-     * @param username the username to save
-     * @param token    the private access token to save
+     * The lists of Gists of one account.  A session's lists keep what was loaded while another
+     * account is active, and only post to the observable lists while the session is active.
      */
-    private void saveCredentials(String username, String token) {
-        mIsLoggedIn = true;
-        //trim white space
-        mUsername = username.trim();
-        mToken = token.trim();
-        if (mListener != null) {
-            mListener.saveCredentials(mUsername, mToken);
+    private class AccountSession {
+
+        private final Account mAccount;
+        private final PagedListLoader<GistListItem> mStarredGistsLoader;
+        private final PagedListLoader<GistListItem> mYourGistsLoader;
+
+        AccountSession(Account account) {
+            mAccount = account;
+            IGitHubService gitHubService = account.getGitHubService();
+            mStarredGistsLoader = createLoader(LIST_STARRED_GISTS, gitHubService::getStarredGistListItems);
+            mYourGistsLoader = createLoader(LIST_YOUR_GISTS, gitHubService::getYourGistListItems);
         }
-    }
 
-    public interface IMainViewModelListener {
+        private PagedListLoader<GistListItem> createLoader(int list, PagedListLoader.IPageSource<GistListItem> source) {
+            return new PagedListLoader<>(source, mGistsPageSize, GIST_PREFETCH_DISTANCE, gists -> {
+                if (mSession == this) {
+                    mGistLists.get(list).setValue(gists);
+                }
+            }, message -> {
+                if (mSession == this) {
+                    showError(message);
+                }
+            });
+        }
+
+        PagedListLoader<GistListItem> getLoader(int list) {
+            return list == LIST_STARRED_GISTS ? mStarredGistsLoader : mYourGistsLoader;
+        }
+
+        /**
+         * Load the first page of each list that hasn't been loaded yet, and request any page that
+         * was cancelled when the session was paused
+         */
+        void start() {
+            start(mStarredGistsLoader);
+            start(mYourGistsLoader);
+        }
+
+        private void start(PagedListLoader<GistListItem> loader) {
+            if (!loader.isStarted()) {
+                loader.loadNextPage();
+            } else {
+                loader.resume();
+            }
+        }
 
         /**
-         * Called when credentials need to be saved to Shared Preferences
-         *
-         * @param username the username to save
-         * @param token    the private access token to save
+         * Cancel the pages on their way, e.g. when another account becomes active
          */
-        void saveCredentials(String username, String token);
+        void pause() {
+            mStarredGistsLoader.pause();
+            mYourGistsLoader.pause();
+        }
+
+        void close() {
+            mStarredGistsLoader.close();
+            mYourGistsLoader.close();
+        }
     }
 }
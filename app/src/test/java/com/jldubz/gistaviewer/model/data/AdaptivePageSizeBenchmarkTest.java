@@ -0,0 +1,98 @@
+package com.jldubz.gistaviewer.model.data;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Simulates loading 500 Gists page by page over a few network profiles, with the fixed page
+ * sizes the lists used before and with {@link AdaptivePageSize}, and reports the total time and
+ * the time to the first page.
+ * <p>
+ * A page of n items takes the round trip, 100ms on the server plus 2ms per item before the
+ * response starts, and then 3 KB per item over the link.  The simulation uses no clock, so its
+ * results are the same on every machine.
+ */
+public class AdaptivePageSizeBenchmarkTest {
+
+    private static final int GIST_COUNT = 500;
+    private static final long SERVER_MILLIS = 100;
+    private static final double SERVER_MILLIS_PER_ITEM = 2;
+    private static final double BYTES_PER_ITEM = 3 * 1024;
+
+    private static final Profile[] PROFILES = {
+            new Profile("wifi", 20, 50000),
+            new Profile("4G", 60, 10000),
+            new Profile("3G", 150, 1500),
+            new Profile("2G", 400, 250),
+    };
+
+    @Test
+    public void load500Gists_eachProfile() {
+        System.out.println("profile              fixed 15     fixed 30     adaptive     adaptive first page");
+        for (Profile profile : PROFILES) {
+            Result fixed15 = load(profile, new AdaptivePageSize(15, 15), false);
+            Result fixed30 = load(profile, new AdaptivePageSize(30, 30), false);
+            Result adaptive = load(profile, new AdaptivePageSize(10, 100), true);
+
+            System.out.println(String.format(Locale.US, "%-4s %4dms %5dkbit %9.1fs %11.1fs %11.1fs %14.1fs",
+                    profile.mName, profile.mRoundTripMillis, profile.mKilobitsPerSecond,
+                    fixed15.mTotalMillis / 1000.0, fixed30.mTotalMillis / 1000.0,
+                    adaptive.mTotalMillis / 1000.0, adaptive.mFirstPageMillis / 1000.0));
+
+            //Adaptive sizing must beat the old fixed sizes to the end of the list and to the first rows
+            assertTrue(profile.mName, adaptive.mTotalMillis < fixed15.mTotalMillis);
+            assertTrue(profile.mName, adaptive.mTotalMillis < fixed30.mTotalMillis);
+            assertTrue(profile.mName, adaptive.mFirstPageMillis < fixed15.mFirstPageMillis);
+        }
+    }
+
+    /**
+     * Load the list the way {@link PagedListLoader} does, one page at a time from page numbers
+     * derived from the offset
+     */
+    private static Result load(Profile profile, AdaptivePageSize pageSize, boolean isReported) {
+        Result result = new Result();
+        int offset = 0;
+        while (offset < GIST_COUNT) {
+            int size = pageSize.getPageSize(offset);
+            assertEquals("Page sizes must line up with the offset", 0, offset % size);
+
+            int items = Math.min(size, GIST_COUNT - offset);
+            long latencyMillis = profile.mRoundTripMillis + SERVER_MILLIS + Math.round(SERVER_MILLIS_PER_ITEM * items);
+            long transferMillis = Math.round(items * BYTES_PER_ITEM * 8 / profile.mKilobitsPerSecond);
+            if (isReported && items == size) {
+                pageSize.onPageLoaded(items, latencyMillis + transferMillis, latencyMillis);
+            }
+
+            result.mTotalMillis += latencyMillis + transferMillis;
+            if (offset == 0) {
+                result.mFirstPageMillis = result.mTotalMillis;
+            }
+            offset += size;
+        }
+        return result;
+    }
+
+    private static class Profile {
+
+        private final String mName;
+        private final int mRoundTripMillis;
+        private final int mKilobitsPerSecond;
+
+        Profile(String name, int roundTripMillis, int kilobitsPerSecond) {
+            mName = name;
+            mRoundTripMillis = roundTripMillis;
+            mKilobitsPerSecond = kilobitsPerSecond;
+        }
+    }
+
+    private static class Result {
+
+        private long mTotalMillis;
+        private long mFirstPageMillis;
+    }
+}
@@ -0,0 +1,62 @@
+package com.jldubz.gistaviewer.model.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdaptivePageSizeTest {
+
+    private final AdaptivePageSize mPageSize = new AdaptivePageSize(10, 100);
+
+    @Test
+    public void getPageSize_beforeAnyPage_isMinimum() {
+        assertEquals(10, mPageSize.getPageSize(0));
+    }
+
+    @Test
+    public void getPageSize_fastNetwork_growsOnceOffsetLinesUp() {
+        //1 item per millisecond, so a page of 100 arrives well within the target
+        mPageSize.onPageLoaded(10, 10, 0);
+
+        //Page 2 of a list of 100s wouldn't start at item 10
+        assertEquals(10, mPageSize.getPageSize(10));
+        assertEquals(50, mPageSize.getPageSize(50));
+        assertEquals(100, mPageSize.getPageSize(100));
+    }
+
+    @Test
+    public void getPageSize_slowTransfer_staysSmall() {
+        //190ms per item, so only a few fit in the target
+        mPageSize.onPageLoaded(10, 2000, 100);
+
+        assertEquals(10, mPageSize.getPageSize(100));
+    }
+
+    @Test
+    public void getPageSize_latencyDominates_growsToAmortizeIt() {
+        //100ms per item after 500ms of latency: a page may take 5s, and 45 items fit in it
+        mPageSize.onPageLoaded(10, 1500, 500);
+
+        assertEquals(25, mPageSize.getPageSize(100));
+    }
+
+    @Test
+    public void getPageSize_metered_isCapped() {
+        mPageSize.onPageLoaded(10, 10, 0);
+        mPageSize.setMetered(true);
+
+        assertEquals(25, mPageSize.getPageSize(100));
+    }
+
+    @Test
+    public void onPageLoaded_averagesTimePerItem() {
+        //50 then 10ms per item average to 30ms, a target of 33
+        mPageSize.onPageLoaded(20, 1000, 0);
+        mPageSize.onPageLoaded(100, 1000, 0);
+
+        assertEquals(25, mPageSize.getPageSize(100));
+        //A short last page is ignored
+        mPageSize.onPageLoaded(0, 1000, 0);
+        assertEquals(25, mPageSize.getPageSize(100));
+    }
+}
@@ -0,0 +1,132 @@
+package com.jldubz.gistaviewer.model.data;
+
+import android.app.Application;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.jldubz.gistaviewer.model.DateFormatUtil;
+import com.jldubz.gistaviewer.model.NetworkUtil;
+import com.jldubz.gistaviewer.model.gists.GistComment;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that binding the dates of a page of comments does no formatting once
+ * {@link DisplayTextTypeAdapterFactory} has formatted them during parsing, and reports how long
+ * binding takes against formatting them while binding
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class DisplayTextBindBenchmarkTest {
+
+    private static final int COMMENT_COUNT = 100;
+    private static final int ROUNDS = 20;
+
+    @Test
+    public void bind_afterParsing_doesNoFormatting() {
+        Locale locale = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.US);
+            List<GistComment> comments = parseComments();
+            String[] parsedTexts = new String[comments.size()];
+            for (int i = 0; i < parsedTexts.length; i++) {
+                parsedTexts[i] = comments.get(i).getCreatedAtText();
+            }
+
+            //Formatting at bind time would now produce German text
+            Locale.setDefault(Locale.GERMANY);
+            for (int i = 0; i < parsedTexts.length; i++) {
+                GistComment comment = comments.get(i);
+                assertSame(parsedTexts[i], comment.getCreatedAtText());
+                assertNotEquals(DateFormatUtil.formatDateTime(comment.getCreated_at()), parsedTexts[i]);
+            }
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void bind_afterParsing_reportsTimings() {
+        List<GistComment> comments = parseComments();
+
+        //The fastest of several rounds, so a pause of the test JVM doesn't skew the numbers
+        long bindNanos = Long.MAX_VALUE;
+        long formatNanos = Long.MAX_VALUE;
+        int length = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (GistComment comment : comments) {
+                length += comment.getCreatedAtText().length();
+            }
+            bindNanos = Math.min(bindNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (GistComment comment : comments) {
+                DateFormat format = DateFormat.getDateTimeInstance(DateFormat.DEFAULT, DateFormat.DEFAULT);
+                length += format.format(comment.getCreated_at()).length();
+            }
+            formatNanos = Math.min(formatNanos, System.nanoTime() - start);
+        }
+
+        assertTrue(length > 0);
+        //Timings depend on the machine, so they are only reported
+        System.out.println("Binding " + COMMENT_COUNT + " comment dates took " + bindNanos / 1000
+                + "us, formatting them " + formatNanos / 1000 + "us");
+    }
+
+    @Test
+    public void formatDate_sameDate_isMemoized() {
+        Date date = new Date(1546300800000L);
+
+        assertSame(DateFormatUtil.formatDate(date), DateFormatUtil.formatDate(new Date(date.getTime())));
+        assertSame(DateFormatUtil.formatDateTime(date), DateFormatUtil.formatDateTime(new Date(date.getTime())));
+        assertEquals("", DateFormatUtil.formatDate(null));
+    }
+
+    @Test
+    public void formatDate_localeChanged_formatsAgain() {
+        Locale locale = Locale.getDefault();
+        Date date = new Date(1546300800000L);
+        try {
+            Locale.setDefault(Locale.US);
+            String usText = DateFormatUtil.formatDate(date);
+            Locale.setDefault(Locale.GERMANY);
+            String germanText = DateFormatUtil.formatDate(date);
+
+            assertNotEquals(usText, germanText);
+            assertEquals(DateFormat.getDateInstance(DateFormat.DEFAULT, Locale.GERMANY).format(date), germanText);
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    private static List<GistComment> parseComments() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < COMMENT_COUNT; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            //A different minute for each comment, so none share a memoized string
+            json.append("{\"id\":").append(i).append(",\"body\":\"Comment ").append(i)
+                    .append("\",\"created_at\":\"2019-01-01T10:").append(String.format(Locale.US, "%02d", i % 60))
+                    .append(":").append(String.format(Locale.US, "%02d", i / 60)).append("Z\"}");
+        }
+        json.append(']');
+
+        Gson gson = NetworkUtil.createGsonBuilder().create();
+        return gson.fromJson(json.toString(), new TypeToken<List<GistComment>>() {}.getType());
+    }
+}
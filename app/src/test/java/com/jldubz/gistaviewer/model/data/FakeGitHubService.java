@@ -0,0 +1,229 @@
+package com.jldubz.gistaviewer.model.data;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * An {@link IGitHubService} that answers every call with a canned response instead of going to
+ * the network, and records the name of every method that was called.
+ * <p>
+ * A call is recorded when it is sent, like {@link RequestBudget} counts requests, and its
+ * response is posted to the main thread like Retrofit does.  Methods without a canned response
+ * are answered with a 404.
+ */
+public class FakeGitHubService implements InvocationHandler {
+
+    private static final Request REQUEST = new Request.Builder().url("https://api.github.com/").build();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, IResponder> mResponders = new HashMap<>();
+    private final List<String> mCalls = new ArrayList<>();
+    private final IGitHubService mService = (IGitHubService) Proxy.newProxyInstance(
+            IGitHubService.class.getClassLoader(), new Class<?>[]{IGitHubService.class}, this);
+
+    public IGitHubService getService() {
+        return mService;
+    }
+
+    /**
+     * Answer every call to a method with the same response
+     *
+     * @param method   the name of the {@link IGitHubService} method
+     * @param response the response
+     */
+    public void respond(String method, Response<?> response) {
+        respond(method, args -> response);
+    }
+
+    /**
+     * Answer the calls to a method with a response made from the arguments of each call
+     *
+     * @param method    the name of the {@link IGitHubService} method
+     * @param responder creates the response of a call
+     */
+    public synchronized void respond(String method, IResponder responder) {
+        mResponders.put(method, responder);
+    }
+
+    /**
+     * Get the names of the methods that were called, in the order the calls were sent
+     *
+     * @return a copy of the list of calls
+     */
+    public synchronized List<String> getCalls() {
+        return new ArrayList<>(mCalls);
+    }
+
+    /**
+     * Count the calls that would be charged to a flow
+     *
+     * @param flow the flow
+     * @return the number of calls to the methods of the flow
+     */
+    public synchronized int countCalls(RequestBudget.Flow flow) {
+        int count = 0;
+        for (String method : mCalls) {
+            if (flow.hasMethod(method)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Forget the calls made so far, e.g. once the flow before the one being tested has finished
+     */
+    public synchronized void clearCalls() {
+        mCalls.clear();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return "FakeGitHubService";
+            }
+        }
+        return new FakeCall<>(method.getName(), args);
+    }
+
+    private synchronized Response<?> send(String method, Object[] args) {
+        mCalls.add(method);
+        IResponder responder = mResponders.get(method);
+        return responder != null ? responder.respond(args) : status(404);
+    }
+
+    /**
+     * Create a successful response
+     *
+     * @param body    the body of the response
+     * @param headers the headers of the response, as pairs of names and values
+     * @param <T>     the type of the body
+     * @return a 200 response
+     */
+    public static <T> Response<T> success(T body, String... headers) {
+        return Response.success(body, createRawResponse(200, Headers.of(headers)));
+    }
+
+    /**
+     * Create a response without a body, e.g. a 204, 304 or 404
+     *
+     * @param code the status code of the response
+     * @param <T>  the type of the body
+     * @return the response
+     */
+    public static <T> Response<T> status(int code) {
+        okhttp3.Response rawResponse = createRawResponse(code, Headers.of());
+        if (rawResponse.isSuccessful()) {
+            return Response.success(null, rawResponse);
+        }
+        return Response.error(ResponseBody.create("", MediaType.get("application/json")), rawResponse);
+    }
+
+    private static okhttp3.Response createRawResponse(int code, Headers headers) {
+        return new okhttp3.Response.Builder()
+                .request(REQUEST)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("HTTP " + code)
+                .headers(headers)
+                .build();
+    }
+
+    public interface IResponder {
+
+        /**
+         * Called when a call to the method is sent
+         *
+         * @param args the arguments the method was called with
+         * @return the response to the call
+         */
+        Response<?> respond(Object[] args);
+    }
+
+    private class FakeCall<T> implements Call<T> {
+
+        private final String mMethod;
+        private final Object[] mArgs;
+        private volatile boolean mIsExecuted;
+        private volatile boolean mIsCanceled;
+
+        FakeCall(String method, Object[] args) {
+            mMethod = method;
+            mArgs = args;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Response<T> execute() throws IOException {
+            mIsExecuted = true;
+            if (mIsCanceled) {
+                throw new IOException("Canceled");
+            }
+            return (Response<T>) send(mMethod, mArgs);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void enqueue(Callback<T> callback) {
+            mIsExecuted = true;
+            Response<T> response = mIsCanceled ? null : (Response<T>) send(mMethod, mArgs);
+            mMainHandler.post(() -> {
+                if (mIsCanceled) {
+                    callback.onFailure(this, new IOException("Canceled"));
+                } else {
+                    callback.onResponse(this, response);
+                }
+            });
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return mIsExecuted;
+        }
+
+        @Override
+        public void cancel() {
+            mIsCanceled = true;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return mIsCanceled;
+        }
+
+        @SuppressWarnings("MethodDoesntCallSuperMethod")
+        @Override
+        public Call<T> clone() {
+            return new FakeCall<>(mMethod, mArgs);
+        }
+
+        @Override
+        public Request request() {
+            return REQUEST;
+        }
+    }
+}
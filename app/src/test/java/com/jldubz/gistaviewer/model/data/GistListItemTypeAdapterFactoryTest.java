@@ -0,0 +1,69 @@
+package com.jldubz.gistaviewer.model.data;
+
+import android.app.Application;
+
+import com.google.gson.Gson;
+import com.jldubz.gistaviewer.model.NetworkUtil;
+import com.jldubz.gistaviewer.model.gists.GistListItem;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class GistListItemTypeAdapterFactoryTest {
+
+    private final Gson mGson = NetworkUtil.createGsonBuilder().create();
+
+    @Test
+    public void read_keepsOnlyRowFields() {
+        GistListItem item = mGson.fromJson(createGistJson(), GistListItem.class);
+
+        assertEquals("aa5a315d61ae9438b18d", item.getId());
+        assertEquals("hello_world.rb", item.getFilename());
+        assertEquals(1546337100000L, item.getUpdatedAt().getTime());
+        assertEquals(583231, item.getOwner().getId());
+        assertEquals("octocat", item.getOwner().getLogin());
+    }
+
+    @Test
+    public void write_canBeReadBack() {
+        GistListItem item = mGson.fromJson(createGistJson(), GistListItem.class);
+
+        GistListItem readItem = mGson.fromJson(mGson.toJson(item), GistListItem.class);
+
+        assertEquals(item.getId(), readItem.getId());
+        assertEquals(item.getFilename(), readItem.getFilename());
+        assertEquals(item.getUpdatedAt(), readItem.getUpdatedAt());
+        assertEquals(item.getUpdatedAtDateText(), readItem.getUpdatedAtDateText());
+        //Both go through the same map of users
+        assertSame(item.getOwner(), readItem.getOwner());
+    }
+
+    @Test
+    public void write_anonymousGistWithoutFiles_canBeReadBack() {
+        GistListItem item = new GistListItem("1", null, null, "", null);
+
+        GistListItem readItem = mGson.fromJson(mGson.toJson(item), GistListItem.class);
+
+        assertEquals("1", readItem.getId());
+        assertNull(readItem.getFilename());
+        assertNull(readItem.getUpdatedAt());
+        assertNull(readItem.getOwner());
+    }
+
+    private static String createGistJson() {
+        return "{\"url\":\"https://api.github.com/gists/aa5a315d61ae9438b18d\",\"id\":\"aa5a315d61ae9438b18d\","
+                + "\"files\":{\"hello_world.rb\":{\"filename\":\"hello_world.rb\",\"type\":\"application/x-ruby\","
+                + "\"size\":167},\"hello_world.py\":{\"filename\":\"hello_world.py\",\"size\":199}},"
+                + "\"public\":true,\"created_at\":\"2019-01-01T10:00:00Z\",\"updated_at\":\"2019-01-01T10:05:00Z\","
+                + "\"comments\":0,\"owner\":{\"login\":\"octocat\",\"id\":583231,"
+                + "\"avatar_url\":\"https://avatars.githubusercontent.com/u/583231\"}}";
+    }
+}
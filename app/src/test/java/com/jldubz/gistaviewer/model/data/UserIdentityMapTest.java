@@ -0,0 +1,110 @@
+package com.jldubz.gistaviewer.model.data;
+
+import android.app.Application;
+import android.os.Looper;
+
+import com.jldubz.gistaviewer.model.GitHubUser;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class UserIdentityMapTest {
+
+    private final UserIdentityMap mUsers = new UserIdentityMap(2);
+
+    @Test
+    public void canonicalize_onBackgroundThread_mergesOnMainThread() throws Exception {
+        GitHubUser knownUser = createUser("octocat", "https://avatars/1");
+        mUsers.canonicalize(knownUser, false);
+
+        ExecutorService parser = Executors.newSingleThreadExecutor();
+        GitHubUser canonicalUser = parser.submit(
+                () -> mUsers.canonicalize(createUser("octocat", "https://avatars/2"), false)).get();
+        parser.shutdown();
+
+        assertSame(knownUser, canonicalUser);
+        assertEquals("https://avatars/1", knownUser.getAvatar_url());
+        shadowOf(Looper.getMainLooper()).idle();
+        assertEquals("https://avatars/2", knownUser.getAvatar_url());
+    }
+
+    @Test
+    public void canonicalize_restoredUser_doesNotOverwriteNewerFields() {
+        GitHubUser knownUser = createUser("octocat", "https://avatars/2");
+        mUsers.canonicalize(knownUser, false);
+
+        GitHubUser restoredUser = createUser("octocat-old", "https://avatars/1");
+        restoredUser.setCreatedAt(new Date(0));
+        restoredUser.setName("The Octocat");
+        assertSame(knownUser, mUsers.canonicalize(restoredUser, true));
+
+        assertEquals("octocat", knownUser.getLogin());
+        assertEquals("https://avatars/2", knownUser.getAvatar_url());
+        //The profile the newer summary didn't have is filled in
+        assertEquals("The Octocat", knownUser.getName());
+    }
+
+    @Test
+    public void getFullUser_onlyKeepsFullRecords() {
+        GitHubUser summary = createUser("octocat", "https://avatars/1");
+        mUsers.canonicalize(summary, false);
+        assertNull(mUsers.getFullUser(summary.getId()));
+
+        //A full record of the same user makes the known instance full
+        GitHubUser fullUser = createUser("octocat", "https://avatars/1");
+        fullUser.setCreatedAt(new Date(0));
+        fullUser.setName("The Octocat");
+        mUsers.canonicalize(fullUser, false);
+
+        assertSame(summary, mUsers.getFullUser(summary.getId()));
+        assertEquals("The Octocat", summary.getName());
+    }
+
+    @Test
+    public void getFullUser_overCapacity_evictsLeastRecentlyUsed() {
+        GitHubUser first = createFullUser(1);
+        GitHubUser second = createFullUser(2);
+        mUsers.canonicalize(first, false);
+        mUsers.canonicalize(second, false);
+        //Looking the first user up makes the second the least recently used
+        assertSame(first, mUsers.getFullUser(1));
+
+        GitHubUser third = createFullUser(3);
+        mUsers.canonicalize(third, false);
+
+        assertSame(first, mUsers.getFullUser(1));
+        assertNull(mUsers.getFullUser(2));
+        assertSame(third, mUsers.getFullUser(3));
+        //An evicted user is still the one instance while it is referred to
+        assertSame(second, mUsers.canonicalize(createFullUser(2), false));
+    }
+
+    private static GitHubUser createFullUser(int id) {
+        GitHubUser user = new GitHubUser();
+        user.setId(id);
+        user.setLogin("user" + id);
+        user.setCreatedAt(new Date(0));
+        return user;
+    }
+
+    private static GitHubUser createUser(String login, String avatarUrl) {
+        GitHubUser user = new GitHubUser();
+        user.setId(583231);
+        user.setLogin(login);
+        user.setAvatar_url(avatarUrl);
+        return user;
+    }
+}
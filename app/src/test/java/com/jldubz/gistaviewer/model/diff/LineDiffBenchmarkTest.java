@@ -0,0 +1,84 @@
+package com.jldubz.gistaviewer.model.diff;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Times diffing two versions of a 10k-line file with a few, many and all of its lines changed.
+ * Timings depend on the machine, so they are only reported; the tests check the number of
+ * changed lines found.
+ */
+public class LineDiffBenchmarkTest {
+
+    private static final int LINE_COUNT = 10000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void diff_fewChanges() {
+        //An edit every thousand lines, like a typical revision of a long file
+        benchmark("10 changed lines", 1000, 2 * 10);
+    }
+
+    @Test
+    public void diff_manyChanges() {
+        benchmark("1000 changed lines", 10, 2 * 1000);
+    }
+
+    @Test
+    public void diff_everyLineChanged() {
+        benchmark("every line changed", 1, 2 * LINE_COUNT);
+    }
+
+    /**
+     * Diff a file against a copy with every n-th line replaced, and report the fastest of a few
+     * rounds
+     *
+     * @param name            the name of the case in the report
+     * @param changeEvery     how many lines apart the changed lines are
+     * @param expectedChanges the number of removed and added lines the diff must find
+     */
+    private static void benchmark(String name, int changeEvery, int expectedChanges) {
+        List<String> oldLines = createLines();
+        List<String> newLines = new ArrayList<>(oldLines);
+        for (int i = changeEvery / 2; i < LINE_COUNT; i += changeEvery) {
+            newLines.set(i, "changed " + i);
+        }
+
+        long bestNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            LineDiff diff = new LineDiff(oldLines, newLines);
+            List<List<DiffRow>> hunks = new ArrayList<>();
+            diff.writeHunks(GistDiffer.CONTEXT_LINES, hunks::add);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+
+            assertEquals(expectedChanges, countChanges(diff));
+        }
+        System.out.println("Diffing " + LINE_COUNT + " lines with " + name + " took "
+                + bestNanos / 1000000 + "ms");
+    }
+
+    private static List<String> createLines() {
+        //Source-like lines, every one distinct so the number of changes is known exactly
+        Random random = new Random(42);
+        List<String> lines = new ArrayList<>(LINE_COUNT);
+        for (int i = 0; i < LINE_COUNT; i++) {
+            lines.add("    int value" + i + " = compute(" + random.nextInt(1000) + ");");
+        }
+        return lines;
+    }
+
+    private static int countChanges(LineDiff diff) {
+        int changes = 0;
+        for (int i = 0; i < LINE_COUNT; i++) {
+            changes += diff.isRemoved(i) ? 1 : 0;
+            changes += diff.isAdded(i) ? 1 : 0;
+        }
+        return changes;
+    }
+}
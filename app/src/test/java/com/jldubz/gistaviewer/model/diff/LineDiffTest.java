@@ -0,0 +1,142 @@
+package com.jldubz.gistaviewer.model.diff;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LineDiffTest {
+
+    @Test
+    public void writeHunks_sameLines_writesNothing() {
+        List<String> lines = Arrays.asList("a", "b", "c");
+        List<List<DiffRow>> hunks = writeHunks(new LineDiff(lines, lines), 3);
+
+        assertTrue(hunks.isEmpty());
+    }
+
+    @Test
+    public void writeHunks_changedLine_writesItWithContext() {
+        LineDiff diff = new LineDiff(Arrays.asList("a", "b", "c", "d", "e"), Arrays.asList("a", "b", "X", "d", "e"));
+        List<List<DiffRow>> hunks = writeHunks(diff, 1);
+
+        assertEquals(1, hunks.size());
+        List<DiffRow> rows = hunks.get(0);
+        assertEquals("@@ -2,3 +2,3 @@", rows.get(0).getText());
+        assertRow(rows.get(1), DiffRow.TYPE_CONTEXT, 2, 2, "b");
+        assertRow(rows.get(2), DiffRow.TYPE_REMOVED, 3, 0, "c");
+        assertRow(rows.get(3), DiffRow.TYPE_ADDED, 0, 3, "X");
+        assertRow(rows.get(4), DiffRow.TYPE_CONTEXT, 4, 4, "d");
+        assertEquals(5, rows.size());
+    }
+
+    @Test
+    public void writeHunks_changesApart_writesOneHunkEach() {
+        List<String> oldLines = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            oldLines.add("line " + i);
+        }
+        List<String> newLines = new ArrayList<>(oldLines);
+        newLines.set(2, "changed");
+        newLines.set(17, "changed");
+
+        assertEquals(2, writeHunks(new LineDiff(oldLines, newLines), 3).size());
+        //The context of the two changes overlaps, so they share a hunk
+        assertEquals(1, writeHunks(new LineDiff(oldLines, newLines), 8).size());
+    }
+
+    @Test
+    public void lineDiff_findsShortestEditScript() {
+        //The example from Myers' paper, whose shortest edit script is 5 lines long
+        List<String> oldLines = Arrays.asList("a", "b", "c", "a", "b", "b", "a");
+        List<String> newLines = Arrays.asList("c", "b", "a", "b", "a", "c");
+
+        assertEquals(5, countChanges(new LineDiff(oldLines, newLines), oldLines.size(), newLines.size()));
+    }
+
+    @Test
+    public void lineDiff_randomEdits_keepLongestCommonSubsequence() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            List<String> oldLines = createRandomLines(random);
+            List<String> newLines = createRandomLines(random);
+            LineDiff diff = new LineDiff(oldLines, newLines);
+
+            //The lines kept from each side must be the same lines, and as many as possible
+            List<String> keptOld = new ArrayList<>();
+            for (int i = 0; i < oldLines.size(); i++) {
+                if (!diff.isRemoved(i)) {
+                    keptOld.add(oldLines.get(i));
+                }
+            }
+            List<String> keptNew = new ArrayList<>();
+            for (int i = 0; i < newLines.size(); i++) {
+                if (!diff.isAdded(i)) {
+                    keptNew.add(newLines.get(i));
+                }
+            }
+            assertEquals(keptOld, keptNew);
+            assertEquals(longestCommonSubsequence(oldLines, newLines), keptOld.size());
+        }
+    }
+
+    @Test
+    public void splitLines_dropsLineTerminators() {
+        assertEquals(Arrays.asList("a", "b"), LineDiff.splitLines("a\r\nb\n"));
+        assertEquals(Arrays.asList("a", "", "b"), LineDiff.splitLines("a\n\nb"));
+        assertEquals(Collections.emptyList(), LineDiff.splitLines(null));
+        assertEquals(Collections.emptyList(), LineDiff.splitLines(""));
+    }
+
+    private static List<List<DiffRow>> writeHunks(LineDiff diff, int contextLines) {
+        List<List<DiffRow>> hunks = new ArrayList<>();
+        diff.writeHunks(contextLines, hunks::add);
+        return hunks;
+    }
+
+    private static void assertRow(DiffRow row, int type, int oldLineNumber, int newLineNumber, String text) {
+        assertEquals(type, row.getType());
+        assertEquals(oldLineNumber, row.getOldLineNumber());
+        assertEquals(newLineNumber, row.getNewLineNumber());
+        assertEquals(text, row.getText());
+    }
+
+    private static int countChanges(LineDiff diff, int oldCount, int newCount) {
+        int changes = 0;
+        for (int i = 0; i < oldCount; i++) {
+            changes += diff.isRemoved(i) ? 1 : 0;
+        }
+        for (int i = 0; i < newCount; i++) {
+            changes += diff.isAdded(i) ? 1 : 0;
+        }
+        return changes;
+    }
+
+    private static List<String> createRandomLines(Random random) {
+        //Few distinct lines, so there are many ways to match them up
+        List<String> lines = new ArrayList<>();
+        int count = random.nextInt(30);
+        for (int i = 0; i < count; i++) {
+            lines.add(String.valueOf((char) ('a' + random.nextInt(4))));
+        }
+        return lines;
+    }
+
+    private static int longestCommonSubsequence(List<String> oldLines, List<String> newLines) {
+        int[][] lengths = new int[oldLines.size() + 1][newLines.size() + 1];
+        for (int i = 1; i <= oldLines.size(); i++) {
+            for (int j = 1; j <= newLines.size(); j++) {
+                lengths[i][j] = oldLines.get(i - 1).equals(newLines.get(j - 1))
+                        ? lengths[i - 1][j - 1] + 1
+                        : Math.max(lengths[i - 1][j], lengths[i][j - 1]);
+            }
+        }
+        return lengths[oldLines.size()][newLines.size()];
+    }
+}
@@ -0,0 +1,175 @@
+package com.jldubz.gistaviewer.model.export;
+
+import android.app.Application;
+
+import com.jldubz.gistaviewer.model.NetworkUtil;
+import com.jldubz.gistaviewer.model.data.IGitHubService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Exports two Gists, one file each, from a local server, stopping the export while the second
+ * Gist's file is downloading and resuming it afterwards
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class GistExporterTest {
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final MockWebServer mServer = new MockWebServer();
+    private final GistDispatcher mDispatcher = new GistDispatcher();
+    private final ExecutorService mRunExecutor = Executors.newSingleThreadExecutor();
+    private IGitHubService mGitHubService;
+    private File mOutputDir;
+    private File mTempDir;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer.setDispatcher(mDispatcher);
+        mServer.start();
+        mGitHubService = new Retrofit.Builder()
+                .baseUrl(mServer.url("/"))
+                .addConverterFactory(GsonConverterFactory.create(NetworkUtil.createGsonBuilder().create()))
+                .client(new OkHttpClient())
+                .build()
+                .create(IGitHubService.class);
+        mOutputDir = mFolder.newFolder("exports");
+        mTempDir = new File(mFolder.getRoot(), "cache");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mRunExecutor.shutdownNow();
+        mServer.shutdown();
+    }
+
+    @Test
+    public void cancel_keepsCompleteGistsInUnfinishedArchive() throws Exception {
+        ExportReport report = runAndCancelOnSecondFile();
+
+        assertFalse(report.isComplete());
+        assertEquals(1, report.getGistsExported());
+        assertFalse(report.getArchiveFile().exists());
+        File partFile = new File(report.getArchiveFile().getPath() + ".part");
+        assertEquals(Arrays.asList("first/first.txt", "first/gist.json"), readEntryNames(partFile));
+        //The download that was stopped left no temporary file behind
+        assertArrayEquals(new String[0], mTempDir.list());
+    }
+
+    @Test
+    public void run_afterCancel_resumesWithoutDownloadingCompleteGists() throws Exception {
+        runAndCancelOnSecondFile();
+        mDispatcher.mIsSecondFileHanging = false;
+        mDispatcher.mPaths.clear();
+
+        ExportReport report = createExporter().run();
+
+        assertTrue(report.isComplete());
+        assertEquals(1, report.getGistsSkipped());
+        assertEquals(1, report.getGistsExported());
+        assertEquals(Arrays.asList("/gists?page=1&per_page=100", "/raw/second.txt"), mDispatcher.mPaths);
+        assertEquals(Arrays.asList("first/first.txt", "first/gist.json", "second/second.txt", "second/gist.json"),
+                readEntryNames(report.getArchiveFile()));
+        assertFalse(new File(report.getArchiveFile().getPath() + ".part").exists());
+    }
+
+    /**
+     * Run an export that is cancelled once the first Gist is written and the file of the second
+     * one is being downloaded
+     */
+    private ExportReport runAndCancelOnSecondFile() throws Exception {
+        mDispatcher.mIsSecondFileHanging = true;
+        GistExporter exporter = createExporter();
+        Future<ExportReport> run = mRunExecutor.submit(exporter::run);
+
+        assertTrue(mDispatcher.mSecondFileRequested.await(5, TimeUnit.SECONDS));
+        exporter.cancel();
+        return run.get(5, TimeUnit.SECONDS);
+    }
+
+    private GistExporter createExporter() {
+        //One download at a time, so the first Gist is always written before the second starts
+        return new GistExporter(mGitHubService, GistExporter.TYPE_YOUR_GISTS, mOutputDir, mTempDir, 1,
+                (gistsExported, bytesWritten) -> {});
+    }
+
+    private static List<String> readEntryNames(File archive) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream input = new ZipInputStream(new FileInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                names.add(entry.getName());
+            }
+        }
+        return names;
+    }
+
+    private class GistDispatcher extends Dispatcher {
+
+        private final List<String> mPaths = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch mSecondFileRequested = new CountDownLatch(1);
+        private volatile boolean mIsSecondFileHanging;
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            String path = request.getPath();
+            mPaths.add(path);
+            if (path.startsWith("/gists?")) {
+                return new MockResponse().setBody("[" + createGistJson("first") + "," + createGistJson("second") + "]");
+            }
+            if (path.equals("/raw/second.txt") && mIsSecondFileHanging) {
+                mSecondFileRequested.countDown();
+                //Never answered, so the download only ends when it is cancelled
+                return new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE);
+            }
+            if (path.startsWith("/raw/")) {
+                return new MockResponse().setBody("Content of " + path);
+            }
+            return new MockResponse().setResponseCode(404);
+        }
+
+        private String createGistJson(String id) {
+            String filename = id + ".txt";
+            return "{\"id\":\"" + id + "\",\"files\":{\"" + filename + "\":{\"filename\":\"" + filename
+                    + "\",\"size\":20,\"raw_url\":\"" + mServer.url("/raw/" + filename) + "\"}}}";
+        }
+    }
+}
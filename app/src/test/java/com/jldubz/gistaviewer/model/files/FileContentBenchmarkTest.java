@@ -0,0 +1,86 @@
+package com.jldubz.gistaviewer.model.files;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Times indexing a file of a million lines as it is read, and reports the memory the content
+ * takes, which is what {@link GistFileStore} sizes its cache by.  Timings depend on the machine,
+ * so they are only reported; the tests check the line count and the size of the index.
+ */
+public class FileContentBenchmarkTest {
+
+    private static final int LINE_COUNT = 1000000;
+    private static final int ROUNDS = 3;
+
+    @Test
+    public void read_millionLines_knownSize() throws IOException {
+        benchmark(true);
+    }
+
+    @Test
+    public void read_millionLines_unknownSize() throws IOException {
+        //Without a Content-Length the arrays grow while reading
+        benchmark(false);
+    }
+
+    private static void benchmark(boolean isSizeKnown) throws IOException {
+        byte[] bytes = createContent();
+
+        long bestNanos = Long.MAX_VALUE;
+        FileContent content = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            content = FileContent.read(new ByteArrayInputStream(bytes), isSizeKnown ? bytes.length : 0);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+
+        assertEquals(LINE_COUNT, content.getLineCount());
+        //One int per line on top of the bytes themselves
+        int indexBytes = content.getMemorySize() - bytes.length;
+        assertEquals(LINE_COUNT * 4, indexBytes);
+
+        //Decoding every line into a string instead takes a header and a char array per line
+        long stringBytes = 0;
+        for (int line = 0; line < LINE_COUNT; line += 1000) {
+            stringBytes += estimateStringSize(content.getLine(line));
+        }
+        stringBytes = stringBytes * 1000;
+
+        System.out.println(String.format(Locale.US,
+                "Indexing %d lines (%.1f MB, size %s) took %dms; the content takes %.1f MB, of which"
+                        + " the index is %.1f MB, against about %.1f MB as a million strings",
+                LINE_COUNT, toMegabytes(bytes.length), isSizeKnown ? "known" : "unknown", bestNanos / 1000000,
+                toMegabytes(content.getMemorySize()), toMegabytes(indexBytes), toMegabytes(stringBytes)));
+    }
+
+    private static byte[] createContent() {
+        //Source-like lines of varying length, about 40 bytes each
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder(LINE_COUNT * 40);
+        for (int i = 0; i < LINE_COUNT; i++) {
+            builder.append("    int value").append(i).append(" = compute(").append(random.nextInt(100000)).append(");\n");
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static double toMegabytes(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    /**
+     * Estimate the heap a string takes on a 64-bit VM: a 24 byte string object and its UTF-16
+     * array, which has a 16 byte header and is padded to 8 bytes
+     */
+    private static long estimateStringSize(String line) {
+        long arrayBytes = (16 + line.length() * 2 + 7) / 8 * 8;
+        return 24 + arrayBytes;
+    }
+}
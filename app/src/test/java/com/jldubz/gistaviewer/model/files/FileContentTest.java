@@ -0,0 +1,78 @@
+package com.jldubz.gistaviewer.model.files;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class FileContentTest {
+
+    @Test
+    public void of_indexesEachLine() {
+        FileContent content = FileContent.of("a\nbc\r\n\nd");
+
+        assertEquals(4, content.getLineCount());
+        assertEquals("a", content.getLine(0));
+        assertEquals("bc", content.getLine(1));
+        assertEquals("", content.getLine(2));
+        assertEquals("d", content.getLine(3));
+        assertEquals(2, content.getLineStart(1));
+        assertEquals(4, content.getLineEnd(1));
+    }
+
+    @Test
+    public void of_finalLineBreak_endsLastLine() {
+        assertEquals(2, FileContent.of("a\nb\n").getLineCount());
+        assertEquals(0, FileContent.of("").getLineCount());
+    }
+
+    @Test
+    public void read_matchesContentIndexedInMemory() throws IOException {
+        //Longer than the read buffer, with lines of characters from one to four bytes long
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            builder.append("line ").append(i).append(" é€😀\n");
+        }
+        String text = builder.toString();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        FileContent expected = FileContent.of(text);
+
+        for (int expectedSize : new int[]{0, bytes.length}) {
+            FileContent content = FileContent.read(new ByteArrayInputStream(bytes), expectedSize);
+            assertArrayEquals(bytes, content.getBytes());
+            assertEquals(5000, content.getLineCount());
+            assertEquals(expected.getLine(4321), content.getLine(4321));
+            assertEquals("line 4321 é€😀", content.getLine(4321));
+            assertEquals(expected.getMemorySize(), content.getMemorySize());
+        }
+    }
+
+    @Test
+    public void getLineAt_findsLineOfEachByte() {
+        FileContent content = FileContent.of("ab\ncd\nef");
+
+        assertEquals(0, content.getLineAt(0));
+        assertEquals(0, content.getLineAt(2));
+        assertEquals(1, content.getLineAt(3));
+        assertEquals(2, content.getLineAt(7));
+    }
+
+    @Test
+    public void getCharCount_countsDecodedChars() {
+        FileContent content = FileContent.of("aé€😀");
+
+        //1 + 2 + 3 + 4 bytes decode to 1 + 1 + 1 + 2 chars
+        assertEquals(10, content.getBytes().length);
+        assertEquals(5, content.getCharCount(0, 10));
+        assertEquals(2, content.getCharCount(6, 10));
+    }
+
+    @Test
+    public void getMemorySize_countsBytesAndIndex() {
+        assertEquals(7 + 3 * 4, FileContent.of("ab\ncd\ne").getMemorySize());
+    }
+}
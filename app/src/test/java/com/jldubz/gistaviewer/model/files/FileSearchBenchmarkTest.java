@@ -0,0 +1,99 @@
+package com.jldubz.gistaviewer.model.files;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Times searching 50 MB of content for plain text and regular expressions, to the first reported
+ * matches and to the end.  Timings depend on the machine, so they are only reported; the tests
+ * check the number of matches found.
+ */
+public class FileSearchBenchmarkTest {
+
+    private static final int CONTENT_SIZE = 50 * 1024 * 1024;
+    //One line in this many holds the rare query
+    private static final int NEEDLE_EVERY = 10000;
+    private static final String NEEDLE = "findTheNeedle";
+    private static final int ROUNDS = 3;
+
+    private static FileContent sContent;
+    private static int sNeedleCount;
+
+    @BeforeClass
+    public static void createContent() throws IOException {
+        //Source-like ASCII lines, as most large Gist files are logs, data or code
+        Random random = new Random(42);
+        ByteArrayOutputStream output = new ByteArrayOutputStream(CONTENT_SIZE + 1024);
+        int line = 0;
+        while (output.size() < CONTENT_SIZE) {
+            String text = line % NEEDLE_EVERY == NEEDLE_EVERY - 1
+                    ? "    " + NEEDLE + "(" + line + ");\n"
+                    : "    int value" + line + " = compute(" + random.nextInt(100000) + ");\n";
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            output.write(bytes, 0, bytes.length);
+            if (line % NEEDLE_EVERY == NEEDLE_EVERY - 1) {
+                sNeedleCount++;
+            }
+            line++;
+        }
+        byte[] bytes = output.toByteArray();
+        sContent = FileContent.read(new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    @Test
+    public void search_rareText() {
+        benchmark("rare text", NEEDLE, false, sNeedleCount);
+    }
+
+    @Test
+    public void search_commonShortText() {
+        //Shorter than Boyer-Moore-Horspool is worth using for, and on every other line
+        benchmark("common short text", "int", false, sContent.getLineCount() - sNeedleCount);
+    }
+
+    @Test
+    public void search_rareRegex() {
+        benchmark("rare regex", "^\\s+find\\w+\\(\\d+\\);$", true, sNeedleCount);
+    }
+
+    /**
+     * Search the content a few times and report the fastest time to the first reported matches
+     * and to the end of the content
+     *
+     * @param name            the name of the case in the report
+     * @param query           the query
+     * @param isRegex         TRUE if the query is a regular expression
+     * @param expectedMatches the number of matches the search must find
+     */
+    private static void benchmark(String name, String query, boolean isRegex, int expectedMatches) {
+        long bestFirstNanos = Long.MAX_VALUE;
+        long bestNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long[] firstReport = {0};
+            long start = System.nanoTime();
+            FileSearch search = new FileSearch(sContent, query, isRegex, Integer.MAX_VALUE, found -> {
+                if (firstReport[0] == 0) {
+                    firstReport[0] = System.nanoTime();
+                }
+            });
+            search.run();
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+            bestFirstNanos = Math.min(bestFirstNanos, firstReport[0] - start);
+
+            assertTrue(search.isComplete());
+            assertEquals(expectedMatches, search.getMatchCount());
+        }
+        System.out.println("Searching " + CONTENT_SIZE / 1024 / 1024 + " MB for " + name + " took "
+                + bestNanos / 1000000 + "ms, the first matches were reported after "
+                + bestFirstNanos / 1000000 + "ms");
+    }
+}
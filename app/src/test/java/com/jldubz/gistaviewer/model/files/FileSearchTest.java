@@ -0,0 +1,118 @@
+package com.jldubz.gistaviewer.model.files;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FileSearchTest {
+
+    @Test
+    public void run_plainText_findsSameMatchesAsIndexOf() {
+        //Larger than a chunk, so matches across the chunk boundaries are checked too
+        String text = createRandomText(200 * 1024);
+        FileContent content = FileContent.of(text);
+
+        for (String query : new String[]{"ab", "abc", "abca", "cabbac"}) {
+            FileSearch search = runSearch(content, query, false, Integer.MAX_VALUE);
+
+            List<Integer> expected = new ArrayList<>();
+            for (int index = text.indexOf(query); index >= 0; index = text.indexOf(query, index + query.length())) {
+                expected.add(index);
+            }
+            assertEquals(query, expected, getMatchStarts(search));
+            assertTrue(search.isComplete());
+            assertEquals(expected.get(0) + query.length(), search.getMatchEnd(0));
+        }
+    }
+
+    @Test
+    public void run_nonAsciiText_returnsByteOffsets() {
+        FileContent content = FileContent.of("é find\n€ find");
+        FileSearch search = runSearch(content, "find", false, Integer.MAX_VALUE);
+
+        assertEquals(2, search.getMatchCount());
+        assertEquals(3, search.getMatchStart(0));
+        assertEquals("é ".getBytes(StandardCharsets.UTF_8).length, search.getMatchStart(0));
+        assertEquals("é find\n€ ".getBytes(StandardCharsets.UTF_8).length, search.getMatchStart(1));
+    }
+
+    @Test
+    public void run_regex_matchesEachLine() {
+        FileContent content = FileContent.of("abc\nbcd\nxbz\nbé\n");
+        FileSearch search = runSearch(content, "^b.*$", true, Integer.MAX_VALUE);
+
+        assertEquals(2, search.getMatchCount());
+        assertEquals(4, search.getMatchStart(0));
+        assertEquals(7, search.getMatchEnd(0));
+        //The line with a two byte character is matched once it is decoded
+        assertEquals(12, search.getMatchStart(1));
+        assertEquals(15, search.getMatchEnd(1));
+    }
+
+    @Test
+    public void run_maxMatches_stopsAndIsTruncated() {
+        FileContent content = FileContent.of("x x x x x");
+        FileSearch search = runSearch(content, "x", false, 3);
+
+        assertEquals(3, search.getMatchCount());
+        assertTrue(search.isTruncated());
+    }
+
+    @Test
+    public void cancel_stopsBeforeComplete() {
+        FileContent content = FileContent.of(createRandomText(1024 * 1024));
+        List<FileSearch> reports = new ArrayList<>();
+        FileSearch search = new FileSearch(content, "abc", false, Integer.MAX_VALUE, found -> {
+            reports.add(found);
+            found.cancel();
+        });
+        search.run();
+
+        assertTrue(search.isCancelled());
+        assertFalse(search.isComplete());
+        //The first match was reported before the search was cancelled
+        assertEquals(1, reports.size());
+    }
+
+    @Test
+    public void findMatch_findsFirstMatchEndingAfterOffset() {
+        FileContent content = FileContent.of("ab ab ab");
+        FileSearch search = runSearch(content, "ab", false, Integer.MAX_VALUE);
+
+        assertEquals(0, search.findMatch(0));
+        assertEquals(1, search.findMatch(2));
+        assertEquals(1, search.findMatch(4));
+        assertEquals(3, search.findMatch(8));
+    }
+
+    private static FileSearch runSearch(FileContent content, String query, boolean isRegex, int maxMatches) {
+        FileSearch search = new FileSearch(content, query, isRegex, maxMatches, found -> {});
+        search.run();
+        return search;
+    }
+
+    private static List<Integer> getMatchStarts(FileSearch search) {
+        List<Integer> starts = new ArrayList<>();
+        for (int i = 0; i < search.getMatchCount(); i++) {
+            starts.add(search.getMatchStart(i));
+        }
+        return starts;
+    }
+
+    private static String createRandomText(int length) {
+        //Few distinct characters, so the queries match often
+        Random random = new Random(7);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(i % 80 == 79 ? '\n' : (char) ('a' + random.nextInt(3)));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package com.jldubz.gistaviewer.model.files;
+
+import android.app.Application;
+import android.os.Looper;
+
+import com.jldubz.gistaviewer.model.gists.GistFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class GistFileStoreTest {
+
+    private static final int MAX_BYTES = 1024;
+
+    private final List<Integer> mLoadedFiles = new ArrayList<>();
+    private ExecutorService mExecutor;
+    private GistFileStore mStore;
+
+    @Before
+    public void setUp() {
+        mExecutor = Executors.newSingleThreadExecutor();
+        //Only files whose content came with the Gist are used, so nothing is downloaded
+        mStore = new GistFileStore(null, mExecutor, MAX_BYTES, mLoadedFiles::add);
+    }
+
+    @After
+    public void tearDown() {
+        mStore.close();
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void requestContent_fileLargerThanCap_failsWithoutLoading() throws Exception {
+        mStore.setFiles(Arrays.asList(createFile("large.txt", 4 * MAX_BYTES)));
+
+        mStore.retainContent(0);
+        mStore.requestContent(0);
+        finishLoads();
+        mStore.requestContent(0);
+        finishLoads();
+
+        assertTrue(mStore.isFailed(0));
+        assertNull(mStore.getContent(0));
+        assertTrue(mLoadedFiles.isEmpty());
+    }
+
+    @Test
+    public void requestContent_shownFilesOverCap_areKeptAndNotLoadedAgain() throws Exception {
+        //Each file fits in the cache, but the two of them together don't
+        mStore.setFiles(Arrays.asList(createFile("first.txt", 600), createFile("second.txt", 600)));
+
+        for (int index = 0; index < 2; index++) {
+            mStore.retainContent(index);
+            mStore.requestContent(index);
+        }
+        finishLoads();
+        //Binding the files again once their content has loaded
+        mStore.requestContent(0);
+        mStore.requestContent(1);
+        finishLoads();
+
+        assertNotNull(mStore.getContent(0));
+        assertNotNull(mStore.getContent(1));
+        assertEquals(Arrays.asList(0, 1), mLoadedFiles);
+    }
+
+    @Test
+    public void releaseContent_evictsContentUntilCacheFitsCap() throws Exception {
+        mStore.setFiles(Arrays.asList(createFile("first.txt", 600), createFile("second.txt", 600)));
+        for (int index = 0; index < 2; index++) {
+            mStore.retainContent(index);
+            mStore.requestContent(index);
+        }
+        finishLoads();
+
+        //The file that is still shown takes up the room the other one would need
+        mStore.releaseContent(0);
+        assertNull(mStore.getContent(0));
+        assertNotNull(mStore.getContent(1));
+
+        mStore.releaseContent(1);
+        assertNotNull(mStore.getContent(1));
+        assertFalse(mStore.isFailed(0));
+    }
+
+    @Test
+    public void releaseContent_fileShownTwice_keepsContentUntilBothRelease() throws Exception {
+        mStore.setFiles(Arrays.asList(createFile("first.txt", 600), createFile("second.txt", 600)));
+        mStore.retainContent(0);
+        mStore.retainContent(0);
+        mStore.retainContent(1);
+        mStore.requestContent(0);
+        mStore.requestContent(1);
+        finishLoads();
+
+        //e.g. the old view of an item change animation is recycled after the new one was bound
+        mStore.releaseContent(0);
+        mStore.releaseContent(1);
+
+        assertNotNull(mStore.getContent(0));
+        assertNull(mStore.getContent(1));
+    }
+
+    /**
+     * Wait for the loads that were started, and deliver their content on the main thread
+     */
+    private void finishLoads() throws Exception {
+        mExecutor.submit(() -> {}).get();
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private static GistFile createFile(String filename, int size) {
+        char[] content = new char[size];
+        Arrays.fill(content, 'a');
+        for (int i = 79; i < size; i += 80) {
+            content[i] = '\n';
+        }
+        GistFile file = new GistFile();
+        file.setFilename(filename);
+        file.setSize(size);
+        file.setContent(new String(content));
+        return file;
+    }
+}
@@ -0,0 +1,85 @@
+package com.jldubz.gistaviewer.model.text;
+
+import android.app.Application;
+import android.graphics.Typeface;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+
+import com.jldubz.gistaviewer.model.gists.GistComment;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class CommentRenderCacheTest {
+
+    //Each body of 20 characters is estimated at 40 bytes, so two of them fit
+    private static final String BODY = "Twenty characters...";
+    private static final int MAX_BYTES = 100;
+
+    private final CommentRenderCache mCache = new CommentRenderCache(MAX_BYTES);
+
+    @Test
+    public void put_estimatesCharactersAndSpans() {
+        CommentRenderCache cache = new CommentRenderCache(1024);
+        cache.put(createComment(1, 0), BODY);
+        assertEquals(40, cache.size());
+
+        SpannableString spanned = new SpannableString("Bold");
+        spanned.setSpan(new StyleSpan(Typeface.BOLD), 0, 4, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        cache.put(createComment(2, 0), spanned);
+        assertEquals(40 + 4 * 2 + 64, cache.size());
+    }
+
+    @Test
+    public void put_overCap_evictsLeastRecentlyUsedBody() {
+        mCache.put(createComment(1, 0), BODY);
+        mCache.put(createComment(2, 0), BODY);
+        //Comment 1 is used again, so comment 2 is the least recently used
+        mCache.get(createComment(1, 0));
+        mCache.put(createComment(3, 0), BODY);
+
+        assertEquals(80, mCache.size());
+        assertSame(BODY, mCache.get(createComment(1, 0)));
+        assertNull(mCache.get(createComment(2, 0)));
+        assertSame(BODY, mCache.get(createComment(3, 0)));
+    }
+
+    @Test
+    public void put_bodyLargerThanCap_isNotKept() {
+        StringBuilder body = new StringBuilder();
+        while (body.length() * 2 <= MAX_BYTES) {
+            body.append(BODY);
+        }
+        mCache.put(createComment(1, 0), BODY);
+        mCache.put(createComment(2, 0), body);
+
+        assertNull(mCache.get(createComment(2, 0)));
+        assertEquals(0, mCache.size());
+    }
+
+    @Test
+    public void get_editedComment_misses() {
+        mCache.put(createComment(1, 1000), BODY);
+
+        assertSame(BODY, mCache.get(createComment(1, 1000)));
+        assertNull(mCache.get(createComment(1, 2000)));
+    }
+
+    private static GistComment createComment(int id, long updatedAt) {
+        GistComment comment = new GistComment();
+        comment.setId(id);
+        comment.setUpdated_at(new Date(updatedAt));
+        return comment;
+    }
+}
@@ -0,0 +1,128 @@
+package com.jldubz.gistaviewer.model.text;
+
+import android.app.Application;
+
+import com.google.gson.Gson;
+import com.jldubz.gistaviewer.model.gists.GistComment;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Locale;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Times rendering a corpus of typical Gist Comment bodies, with and without the render cache.
+ * Timings depend on the machine, so they are only reported; the tests check that every body
+ * renders and that the cache stays within its cap.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class MarkdownRendererBenchmarkTest {
+
+    private static final String CORPUS = "comment_corpus.json";
+    private static final int ROUNDS = 5;
+    //Enough comments to fill a few pages of each of many Gists
+    private static final int COMMENT_COUNT = 3000;
+    //The cap GistViewModel uses
+    private static final int MAX_CACHE_BYTES = 4 * 1024 * 1024;
+
+    private final MarkdownRenderer mRenderer = new MarkdownRenderer(0xFFEEEEEE, 0xFFCCCCCC, 8, 48);
+
+    @Test
+    public void render_corpus() throws Exception {
+        String[] bodies = loadCorpus();
+        long chars = 0;
+        for (String body : bodies) {
+            chars += body.length();
+        }
+
+        long bestNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < COMMENT_COUNT; i++) {
+                assertNotNull(mRenderer.render(bodies[i % bodies.length]));
+            }
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+
+        long renderedChars = chars * COMMENT_COUNT / bodies.length;
+        System.out.println(String.format(Locale.US,
+                "Markdown render: %d comments (%.1f KB) in %.1f ms, %.0f comments/s, %.2f MB/s",
+                COMMENT_COUNT, renderedChars / 1024.0, bestNanos / 1e6,
+                COMMENT_COUNT / (bestNanos / 1e9), renderedChars / 1048576.0 / (bestNanos / 1e9)));
+    }
+
+    @Test
+    public void render_corpusThroughCache() throws Exception {
+        String[] bodies = loadCorpus();
+        CommentRenderCache cache = new CommentRenderCache(MAX_CACHE_BYTES);
+        GistComment[] comments = new GistComment[COMMENT_COUNT];
+        for (int i = 0; i < COMMENT_COUNT; i++) {
+            comments[i] = createComment(i, bodies[i % bodies.length]);
+        }
+
+        //The first pass renders every comment, later passes are served from the cache
+        long coldNanos = 0;
+        long bestWarmNanos = Long.MAX_VALUE;
+        int hits = 0;
+        for (int round = 0; round <= ROUNDS; round++) {
+            hits = 0;
+            long start = System.nanoTime();
+            for (GistComment comment : comments) {
+                CharSequence text = cache.get(comment);
+                if (text != null) {
+                    hits++;
+                } else {
+                    text = mRenderer.render(comment.getBody());
+                    cache.put(comment, text);
+                }
+                comment.setBodyText(text);
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round == 0) {
+                coldNanos = elapsed;
+            } else {
+                bestWarmNanos = Math.min(bestWarmNanos, elapsed);
+            }
+            assertTrue(cache.size() <= cache.maxSize());
+        }
+
+        //Whatever the cache kept is the instance that was rendered for the comment
+        for (GistComment comment : comments) {
+            CharSequence cached = cache.get(comment);
+            if (cached != null) {
+                assertSame(comment.getBodyText(), cached);
+            }
+        }
+        System.out.println(String.format(Locale.US,
+                "Markdown render through cache: %d comments, cold %.1f ms, warm %.1f ms, "
+                        + "%d hits, %.1f KB of %.1f KB cap",
+                COMMENT_COUNT, coldNanos / 1e6, bestWarmNanos / 1e6, hits,
+                cache.size() / 1024.0, cache.maxSize() / 1024.0));
+    }
+
+    private static String[] loadCorpus() throws Exception {
+        try (Reader reader = new InputStreamReader(
+                MarkdownRendererBenchmarkTest.class.getResourceAsStream(CORPUS), StandardCharsets.UTF_8)) {
+            return new Gson().fromJson(reader, String[].class);
+        }
+    }
+
+    private static GistComment createComment(int id, String body) {
+        GistComment comment = new GistComment();
+        comment.setId(id);
+        comment.setBody(body);
+        comment.setUpdated_at(new Date(0));
+        return comment;
+    }
+}
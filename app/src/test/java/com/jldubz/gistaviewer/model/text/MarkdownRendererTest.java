@@ -0,0 +1,159 @@
+package com.jldubz.gistaviewer.model.text;
+
+import android.app.Application;
+import android.graphics.Typeface;
+import android.text.Spanned;
+import android.text.style.BackgroundColorSpan;
+import android.text.style.BulletSpan;
+import android.text.style.QuoteSpan;
+import android.text.style.RelativeSizeSpan;
+import android.text.style.StyleSpan;
+import android.text.style.TypefaceSpan;
+import android.text.style.URLSpan;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class MarkdownRendererTest {
+
+    private static final int IMAGE_SIZE = 48;
+
+    private final MarkdownRenderer mRenderer = new MarkdownRenderer(0xFFEEEEEE, 0xFFCCCCCC, 8, IMAGE_SIZE);
+
+    @Test
+    public void render_null_isEmpty() {
+        assertEquals("", mRenderer.render(null).toString());
+    }
+
+    @Test
+    public void render_paragraphs_joinLinesAndKeepBlankLineBetween() {
+        CharSequence text = mRenderer.render("First line\r\nsame paragraph\n\n\nSecond paragraph");
+
+        assertEquals("First line same paragraph\n\nSecond paragraph", text.toString());
+    }
+
+    @Test
+    public void render_heading_isBoldAndSizedByLevel() {
+        Spanned text = render("# Title #\n\n### Smaller");
+
+        assertEquals("Title\n\nSmaller", text.toString());
+        assertStyle(text, "Title", Typeface.BOLD);
+        assertEquals(1.6f, getSpan(text, "Title", RelativeSizeSpan.class).getSizeChange(), 0);
+        assertEquals(1.25f, getSpan(text, "Smaller", RelativeSizeSpan.class).getSizeChange(), 0);
+    }
+
+    @Test
+    public void render_fencedCode_isCopiedVerbatimInMonospace() {
+        Spanned text = render("Before\n```java\nint **a** = 1;\n  `b`\n```\nAfter");
+
+        assertEquals("Before\nint **a** = 1;\n  `b`\n\nAfter", text.toString());
+        assertEquals("monospace", getSpan(text, "int **a** = 1;\n  `b`", TypefaceSpan.class).getFamily());
+        getSpan(text, "int **a** = 1;\n  `b`", BackgroundColorSpan.class);
+        //Nothing inside the fence is styled
+        assertEquals(0, text.getSpans(0, text.length(), StyleSpan.class).length);
+    }
+
+    @Test
+    public void render_unterminatedFence_isClosedAtEnd() {
+        Spanned text = render("~~~\nsome code");
+
+        assertEquals("some code", text.toString());
+        getSpan(text, "some code", TypefaceSpan.class);
+    }
+
+    @Test
+    public void render_emphasis_isStyled() {
+        Spanned text = render("**bold**, __also bold__, *italic* and _also italic_");
+
+        assertEquals("bold, also bold, italic and also italic", text.toString());
+        assertStyle(text, "bold", Typeface.BOLD);
+        assertStyle(text, "also bold", Typeface.BOLD);
+        assertStyle(text, "italic", Typeface.ITALIC);
+        assertStyle(text, "also italic", Typeface.ITALIC);
+    }
+
+    @Test
+    public void render_underscoresInsideWords_areNotItalic() {
+        Spanned text = render("Call snake_case_name or 2 * 3 * 4");
+
+        assertEquals("Call snake_case_name or 2 * 3 * 4", text.toString());
+        assertEquals(0, text.getSpans(0, text.length(), StyleSpan.class).length);
+    }
+
+    @Test
+    public void render_inlineCode_isMonospaced() {
+        Spanned text = render("Run `gradle *build*` first");
+
+        assertEquals("Run gradle *build* first", text.toString());
+        getSpan(text, "gradle *build*", TypefaceSpan.class);
+        assertEquals(0, text.getSpans(0, text.length(), StyleSpan.class).length);
+    }
+
+    @Test
+    public void render_links_keepTextAndUrl() {
+        Spanned text = render("See [the **docs**](https://docs.github.com \"title\") or https://github.com/octocat.");
+
+        assertEquals("See the docs or https://github.com/octocat.", text.toString());
+        assertEquals("https://docs.github.com", getSpan(text, "the docs", URLSpan.class).getURL());
+        assertStyle(text, "docs", Typeface.BOLD);
+        //Trailing punctuation isn't part of a bare URL
+        assertEquals("https://github.com/octocat", getSpan(text, "https://github.com/octocat", URLSpan.class).getURL());
+    }
+
+    @Test
+    public void render_images_reserveSpaceForPicture() {
+        Spanned text = render("![screenshot](https://example.com/a.png) and ![](https://example.com/b.png)");
+
+        assertEquals("screenshot and \uFFFC", text.toString());
+        MarkdownImageSpan image = getSpan(text, "screenshot", MarkdownImageSpan.class);
+        assertEquals("https://example.com/a.png", image.getUrl());
+        assertEquals(IMAGE_SIZE, image.getImageSize());
+        assertEquals("https://example.com/b.png", getSpan(text, "\uFFFC", MarkdownImageSpan.class).getUrl());
+    }
+
+    @Test
+    public void render_listsAndQuotes_getTheirSpans() {
+        Spanned text = render("Steps:\n- one\n* two\n\n> quoted\n> still quoted");
+
+        assertEquals("Steps:\none\ntwo\n\nquoted\nstill quoted", text.toString());
+        getSpan(text, "one", BulletSpan.class);
+        getSpan(text, "two", BulletSpan.class);
+        getSpan(text, "quoted", QuoteSpan.class);
+        getSpan(text, "still quoted", QuoteSpan.class);
+    }
+
+    private Spanned render(String markdown) {
+        return (Spanned) mRenderer.render(markdown);
+    }
+
+    /**
+     * Find the span of a type that covers exactly the first occurrence of some text
+     */
+    private static <T> T getSpan(Spanned text, String covered, Class<T> type) {
+        int start = text.toString().indexOf(covered);
+        int end = start + covered.length();
+        for (T span : text.getSpans(start, end, type)) {
+            if (text.getSpanStart(span) == start && text.getSpanEnd(span) == end) {
+                return span;
+            }
+        }
+        throw new AssertionError("No " + type.getSimpleName() + " over \"" + covered + "\" in \"" + text + "\"");
+    }
+
+    private static void assertStyle(Spanned text, String covered, int style) {
+        int start = text.toString().indexOf(covered);
+        int end = start + covered.length();
+        for (StyleSpan span : text.getSpans(start, end, StyleSpan.class)) {
+            if (text.getSpanStart(span) == start && text.getSpanEnd(span) == end && span.getStyle() == style) {
+                return;
+            }
+        }
+        throw new AssertionError("\"" + covered + "\" isn't styled " + style + " in \"" + text + "\"");
+    }
+}
@@ -0,0 +1,93 @@
+package com.jldubz.gistaviewer.model.upload;
+
+import android.app.Application;
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.net.Uri;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Decodes a real 12 megapixel JPEG, which would take 48 MB at its full size.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class PictureDownscalerDecodeTest {
+
+    private static final int PHOTO_WIDTH = 4000;
+    private static final int PHOTO_HEIGHT = 3000;
+    private static final int MAX_DIMENSION = 1024;
+    private static final long MAX_DECODE_BYTES = 16 * 1024 * 1024;
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    private ContentResolver mResolver;
+    private Uri mPhotoUri;
+
+    @Before
+    public void setUp() throws IOException {
+        mResolver = RuntimeEnvironment.getApplication().getContentResolver();
+        File photo = mFolder.newFile("photo.jpg");
+        Bitmap bitmap = Bitmap.createBitmap(PHOTO_WIDTH, PHOTO_HEIGHT, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(Color.BLUE);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(photo))) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        }
+        bitmap.recycle();
+        mPhotoUri = Uri.fromFile(photo);
+    }
+
+    @Test
+    public void decode_largePhoto_staysUnderCeiling() throws IOException {
+        Bitmap decoded = new PictureDownscaler(MAX_DIMENSION, MAX_DECODE_BYTES).decode(mResolver, mPhotoUri);
+
+        assertEquals(2000, decoded.getWidth());
+        assertEquals(1500, decoded.getHeight());
+        assertTrue(decoded.getAllocationByteCount() <= MAX_DECODE_BYTES);
+    }
+
+    @Test
+    public void decode_lowCeiling_samplesFurther() throws IOException {
+        long maxDecodeBytes = 4 * 1024 * 1024;
+
+        Bitmap decoded = new PictureDownscaler(MAX_DIMENSION, maxDecodeBytes).decode(mResolver, mPhotoUri);
+
+        assertEquals(1000, decoded.getWidth());
+        assertEquals(750, decoded.getHeight());
+        assertTrue(decoded.getAllocationByteCount() <= maxDecodeBytes);
+    }
+
+    @Test
+    public void downscale_largePhoto_writesJpegAtMaxDimension() throws IOException {
+        File output = mFolder.newFile("downscaled.jpg");
+
+        new PictureDownscaler(MAX_DIMENSION, MAX_DECODE_BYTES).downscale(mResolver, mPhotoUri, output);
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(output.getPath(), options);
+        assertEquals(MAX_DIMENSION, options.outWidth);
+        assertEquals(768, options.outHeight);
+    }
+}
@@ -0,0 +1,34 @@
+package com.jldubz.gistaviewer.model.upload;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PictureDownscalerTest {
+
+    private static final int MAX_DIMENSION = 1024;
+    private static final long MAX_DECODE_BYTES = 16 * 1024 * 1024;
+
+    @Test
+    public void calculateInSampleSize_pictureSmallerThanMax_decodesFullSize() {
+        assertEquals(1, PictureDownscaler.calculateInSampleSize(800, 600, MAX_DIMENSION, MAX_DECODE_BYTES));
+        assertEquals(1, PictureDownscaler.calculateInSampleSize(2047, 1000, MAX_DIMENSION, MAX_DECODE_BYTES));
+    }
+
+    @Test
+    public void calculateInSampleSize_largePhoto_keepsLongestSideAtLeastMax() {
+        //12 megapixels, sampled to 2000x1500 rather than 1000x750
+        assertEquals(2, PictureDownscaler.calculateInSampleSize(4000, 3000, MAX_DIMENSION, MAX_DECODE_BYTES));
+        assertEquals(2, PictureDownscaler.calculateInSampleSize(3000, 4000, MAX_DIMENSION, MAX_DECODE_BYTES));
+        //A panorama is sampled by its longest side
+        assertEquals(8, PictureDownscaler.calculateInSampleSize(10000, 100, MAX_DIMENSION, MAX_DECODE_BYTES));
+    }
+
+    @Test
+    public void calculateInSampleSize_decodeOverCeiling_samplesFurther() {
+        //2000x1500 would take 12 MB
+        assertEquals(4, PictureDownscaler.calculateInSampleSize(4000, 3000, MAX_DIMENSION, 4 * 1024 * 1024));
+        //Even a picture smaller than the max dimension is sampled to fit the ceiling
+        assertEquals(2, PictureDownscaler.calculateInSampleSize(1000, 1000, MAX_DIMENSION, 1024 * 1024));
+    }
+}
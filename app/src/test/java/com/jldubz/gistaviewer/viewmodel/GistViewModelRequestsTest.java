@@ -0,0 +1,177 @@
+package com.jldubz.gistaviewer.viewmodel;
+
+import android.app.Application;
+import android.os.Looper;
+
+import com.jldubz.gistaviewer.model.GitHubUser;
+import com.jldubz.gistaviewer.model.NetworkUtil;
+import com.jldubz.gistaviewer.model.data.CommentPageStore;
+import com.jldubz.gistaviewer.model.data.FakeGitHubService;
+import com.jldubz.gistaviewer.model.data.RequestBudget;
+import com.jldubz.gistaviewer.model.gists.Gist;
+import com.jldubz.gistaviewer.model.gists.GistComment;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Drives the user flows of a Gist against a fake API and checks that each flow makes no more
+ * requests than {@link RequestBudget} allows it
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class GistViewModelRequestsTest {
+
+    private static final String GIST_ID = "aa5a315d61ae9438b18d";
+    private static final int LAST_COMMENT_PAGE = 5;
+    //Not used by any other test, since the users parsed are shared by the whole process
+    private static final int OWNER_ID = 9583231;
+
+    private final QueuedExecutor mBackgroundExecutor = new QueuedExecutor();
+    private FakeGitHubService mFakeService;
+    private GistViewModel mViewModel;
+
+    @Before
+    public void setUp() {
+        mFakeService = new FakeGitHubService();
+        Gist gist = new Gist();
+        GitHubUser owner = new GitHubUser();
+        owner.setId(OWNER_ID);
+        owner.setLogin("octocat");
+        gist.setOwner(owner);
+        mFakeService.respond("getGistById", FakeGitHubService.success(gist));
+        //Not starred yet
+        mFakeService.respond("getStarGistById", FakeGitHubService.status(404));
+        mFakeService.respond("starGistById", FakeGitHubService.status(204));
+        mFakeService.respond("getGistCommentsHeaderById", FakeGitHubService.success(null, "Link",
+                "<https://api.github.com/gists/" + GIST_ID + "/comments?per_page=30&page=" + LAST_COMMENT_PAGE + ">; rel=\"last\""));
+        mFakeService.respond("getGistCommentsById", args -> FakeGitHubService.success(createCommentPage((int) args[1])));
+        //Parsed like a real response, so the full record goes through the shared map of users
+        mFakeService.respond("getUserByLogin", args -> FakeGitHubService.success(NetworkUtil.createGsonBuilder().create()
+                .fromJson("{\"login\":\"" + args[0] + "\",\"id\":" + OWNER_ID
+                        + ",\"name\":\"The Octocat\",\"created_at\":\"2011-01-25T18:44:36Z\"}", GitHubUser.class)));
+        NetworkUtil.setServiceFactory((client, gson) -> mFakeService.getService());
+
+        mViewModel = new GistViewModel(RuntimeEnvironment.getApplication(), mBackgroundExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        mViewModel.onCleared();
+        //Close the comment database
+        mBackgroundExecutor.runQueuedTasks();
+        NetworkUtil.setServiceFactory(null);
+    }
+
+    @Test
+    public void openGist_makesFourRequests() {
+        openGist();
+
+        assertNotNull(mViewModel.getCommentScrollPosition().getValue());
+        assertEquals(4, RequestBudget.OPEN_GIST.getMaxRequests());
+        assertCalls(RequestBudget.OPEN_GIST, 4);
+    }
+
+    @Test
+    public void jumpToCommentPage_loadsPagesAheadOnlyOnceScrolled() {
+        openGist();
+        mFakeService.clearCalls();
+
+        //Newest first, so the first comment of page 3 is below the 60 comments of pages 5 and 4
+        mViewModel.showCommentPage(3);
+        runUntilIdle();
+        assertEquals(Integer.valueOf(60), mViewModel.getCommentScrollPosition().getValue());
+        mViewModel.onCommentsScrolled(60, 65);
+        runUntilIdle();
+        assertCalls(RequestBudget.COMMENT_PAGE, 1);
+
+        //Scrolling down a newest first list moves towards the older pages 2 and 1
+        mViewModel.onCommentsScrolled(70, 75);
+        runUntilIdle();
+        assertCalls(RequestBudget.COMMENT_PAGE, 3);
+    }
+
+    @Test
+    public void starGist_makesOneRequest() {
+        openGist();
+        mFakeService.clearCalls();
+
+        mViewModel.starItemClicked();
+        runUntilIdle();
+
+        assertEquals(Boolean.TRUE, mViewModel.getStarredState().getValue());
+        assertCalls(RequestBudget.STAR, 1);
+    }
+
+    @Test
+    public void openOwnerProfileAgain_makesNoRequest() {
+        openGist();
+        mFakeService.clearCalls();
+
+        mViewModel.loadOwnerProfile();
+        runUntilIdle();
+        GitHubUser profile = mViewModel.getOwnerProfile().getValue();
+        assertEquals("The Octocat", profile.getName());
+        mViewModel.onOwnerProfileShown();
+        assertCalls(RequestBudget.OWNER_PROFILE, 1);
+
+        mViewModel.loadOwnerProfile();
+        runUntilIdle();
+        assertSame(profile, mViewModel.getOwnerProfile().getValue());
+        assertCalls(RequestBudget.OWNER_PROFILE, 1);
+    }
+
+    /**
+     * Open the Gist and show the newest comments, like GistActivity does
+     */
+    private void openGist() {
+        mViewModel.setGistId(GIST_ID);
+        mViewModel.getGist();
+        runUntilIdle();
+        mViewModel.onCommentsScrolled(0, 5);
+        runUntilIdle();
+    }
+
+    private void assertCalls(RequestBudget.Flow flow, int expectedCount) {
+        int count = mFakeService.countCalls(flow);
+        assertEquals(mFakeService.getCalls().toString(), expectedCount, count);
+        assertTrue(count <= flow.getMaxRequests());
+    }
+
+    private static List<GistComment> createCommentPage(int page) {
+        List<GistComment> comments = new ArrayList<>();
+        for (int i = 0; i < CommentPageStore.PAGE_SIZE; i++) {
+            GistComment comment = new GistComment();
+            comment.setId(page * 1000 + i);
+            comment.setBody("Comment " + i + " on page " + page);
+            comments.add(comment);
+        }
+        return comments;
+    }
+
+    /**
+     * Run the main thread and the view model's background executor until the responses, and the
+     * work they start on either, have all been handled
+     */
+    private void runUntilIdle() {
+        ShadowLooper looper = shadowOf(Looper.getMainLooper());
+        do {
+            looper.idle();
+        } while (mBackgroundExecutor.runQueuedTasks() || !looper.isIdle());
+    }
+}
@@ -0,0 +1,147 @@
+package com.jldubz.gistaviewer.viewmodel;
+
+import android.app.Application;
+import android.os.Looper;
+
+import com.jldubz.gistaviewer.model.GitHubUser;
+import com.jldubz.gistaviewer.model.NetworkUtil;
+import com.jldubz.gistaviewer.model.data.Account;
+import com.jldubz.gistaviewer.model.data.AccountRegistry;
+import com.jldubz.gistaviewer.model.data.FakeGitHubService;
+import com.jldubz.gistaviewer.model.data.RequestBudget;
+import com.jldubz.gistaviewer.model.gists.GistListItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Drives the user flows of the main screen against a fake API and checks that each flow makes no
+ * more requests than {@link RequestBudget} allows it
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class MainViewModelRequestsTest {
+
+    private static final String USERNAME = "octocat";
+    private static final String TOKEN = "ghp_0123456789";
+
+    private FakeGitHubService mFakeService;
+    private AccountRegistry mAccounts;
+    private MainViewModel mViewModel;
+
+    @Before
+    public void setUp() {
+        mFakeService = new FakeGitHubService();
+        mFakeService.respond("getLoggedInUser", FakeGitHubService.success(createUser(), "ETag", "\"1\""));
+        mFakeService.respond("getLoggedInUserIfChanged", FakeGitHubService.status(304));
+        mFakeService.respond("getPublicGists", FakeGitHubService.success(new ArrayList<GistListItem>()));
+        mFakeService.respond("getStarredGistListItems", FakeGitHubService.success(new ArrayList<GistListItem>()));
+        mFakeService.respond("getYourGistListItems", FakeGitHubService.success(new ArrayList<GistListItem>()));
+        NetworkUtil.setServiceFactory((client, gson) -> mFakeService.getService());
+
+        mAccounts = AccountRegistry.getInstance(RuntimeEnvironment.getApplication());
+    }
+
+    @After
+    public void tearDown() {
+        if (mViewModel != null) {
+            mViewModel.onCleared();
+        }
+        //The registry outlives each test, so it is emptied for the next one
+        for (Account account : mAccounts.getAccounts()) {
+            mAccounts.removeAccount(account);
+        }
+        NetworkUtil.setServiceFactory(null);
+    }
+
+    @Test
+    public void startupWithSavedAccount_makesFourRequests() {
+        addSavedAccount();
+
+        mViewModel = new MainViewModel(RuntimeEnvironment.getApplication());
+        //The Discover tab is shown first
+        mViewModel.onGistListShown(MainViewModel.LIST_DISCOVERED_GISTS);
+        runUntilIdle();
+
+        assertNotNull(mViewModel.getUser().getValue());
+        assertCalls(RequestBudget.STARTUP, 4);
+    }
+
+    @Test
+    public void logIn_makesThreeRequests() {
+        mViewModel = new MainViewModel(RuntimeEnvironment.getApplication());
+        runUntilIdle();
+        mFakeService.clearCalls();
+
+        mViewModel.logIn(USERNAME, TOKEN);
+        runUntilIdle();
+
+        assertNotNull(mViewModel.getUser().getValue());
+        assertEquals(3, RequestBudget.LOGIN.getMaxRequests());
+        assertCalls(RequestBudget.LOGIN, 3);
+    }
+
+    @Test
+    public void switchTabs_requestsOnlyTheCancelledPage() {
+        addSavedAccount();
+        mViewModel = new MainViewModel(RuntimeEnvironment.getApplication());
+        //Switch to the Starred tab before the first page of public Gists has arrived
+        mViewModel.onGistListShown(MainViewModel.LIST_DISCOVERED_GISTS);
+        mViewModel.onGistListHidden(MainViewModel.LIST_DISCOVERED_GISTS);
+        mViewModel.onGistListShown(MainViewModel.LIST_STARRED_GISTS);
+        runUntilIdle();
+        mFakeService.clearCalls();
+
+        mViewModel.onGistListHidden(MainViewModel.LIST_STARRED_GISTS);
+        mViewModel.onGistListShown(MainViewModel.LIST_DISCOVERED_GISTS);
+        runUntilIdle();
+
+        assertNotNull(mViewModel.getGists(MainViewModel.LIST_DISCOVERED_GISTS).getValue());
+        assertCalls(RequestBudget.SWITCH_TAB, 1);
+    }
+
+    /**
+     * Save an account that was verified in an earlier session, like the one a returning user has
+     */
+    private void addSavedAccount() {
+        Account account = mAccounts.createAccount(USERNAME, TOKEN);
+        mAccounts.setUser(account, createUser(), "\"1\"");
+        mAccounts.addAccount(account);
+    }
+
+    /**
+     * Run the main thread until the responses, and the calls they start, have all been handled
+     */
+    private static void runUntilIdle() {
+        ShadowLooper looper = shadowOf(Looper.getMainLooper());
+        while (!looper.isIdle()) {
+            looper.idle();
+        }
+    }
+
+    private void assertCalls(RequestBudget.Flow flow, int expectedCount) {
+        int count = mFakeService.countCalls(flow);
+        assertEquals(mFakeService.getCalls().toString(), expectedCount, count);
+        assertTrue(count <= flow.getMaxRequests());
+    }
+
+    private static GitHubUser createUser() {
+        GitHubUser user = new GitHubUser();
+        user.setId(583231);
+        user.setLogin(USERNAME);
+        return user;
+    }
+}
@@ -0,0 +1,146 @@
+package com.jldubz.gistaviewer.viewmodel;
+
+import android.app.Application;
+import android.os.Looper;
+
+import com.jldubz.gistaviewer.model.GitHubUser;
+import com.jldubz.gistaviewer.model.NetworkUtil;
+import com.jldubz.gistaviewer.model.data.Account;
+import com.jldubz.gistaviewer.model.data.AccountRegistry;
+import com.jldubz.gistaviewer.model.data.FakeGitHubService;
+import com.jldubz.gistaviewer.model.gists.GistListItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Times the ViewModel's share of switching between the tabs of the main screen once every list
+ * has been loaded.  Timings depend on the machine, so they are only reported; the test checks
+ * that switching makes no requests and doesn't hand the lists out again.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class MainViewModelTabSwitchBenchmarkTest {
+
+    private static final String USERNAME = "octocat";
+    private static final String TOKEN = "ghp_0123456789";
+    private static final int[] LISTS = {MainViewModel.LIST_DISCOVERED_GISTS,
+            MainViewModel.LIST_STARRED_GISTS, MainViewModel.LIST_YOUR_GISTS};
+    private static final int GISTS_PER_LIST = 100;
+    private static final int SWITCH_COUNT = 3000;
+
+    private FakeGitHubService mFakeService;
+    private AccountRegistry mAccounts;
+    private MainViewModel mViewModel;
+
+    @Before
+    public void setUp() {
+        GitHubUser user = createUser();
+        List<GistListItem> gists = createGists(user);
+        mFakeService = new FakeGitHubService();
+        mFakeService.respond("getLoggedInUser", FakeGitHubService.success(user, "ETag", "\"1\""));
+        mFakeService.respond("getLoggedInUserIfChanged", FakeGitHubService.status(304));
+        mFakeService.respond("getPublicGists", FakeGitHubService.success(gists));
+        mFakeService.respond("getStarredGistListItems", FakeGitHubService.success(gists));
+        mFakeService.respond("getYourGistListItems", FakeGitHubService.success(gists));
+        NetworkUtil.setServiceFactory((client, gson) -> mFakeService.getService());
+
+        mAccounts = AccountRegistry.getInstance(RuntimeEnvironment.getApplication());
+        Account account = mAccounts.createAccount(USERNAME, TOKEN);
+        mAccounts.setUser(account, user, "\"1\"");
+        mAccounts.addAccount(account);
+    }
+
+    @After
+    public void tearDown() {
+        if (mViewModel != null) {
+            mViewModel.onCleared();
+        }
+        for (Account account : mAccounts.getAccounts()) {
+            mAccounts.removeAccount(account);
+        }
+        NetworkUtil.setServiceFactory(null);
+    }
+
+    @Test
+    public void switchTabs_loadedLists() {
+        mViewModel = new MainViewModel(RuntimeEnvironment.getApplication());
+        //Visit every tab once so each list has its first page
+        for (int list : LISTS) {
+            mViewModel.onGistListShown(list);
+            runUntilIdle();
+            mViewModel.onGistListHidden(list);
+        }
+        List<List<GistListItem>> loadedLists = new ArrayList<>();
+        for (int list : LISTS) {
+            assertEquals(GISTS_PER_LIST, mViewModel.getGists(list).getValue().size());
+            loadedLists.add(mViewModel.getGists(list).getValue());
+        }
+        mFakeService.clearCalls();
+
+        long[] switchNanos = new long[SWITCH_COUNT];
+        int shownList = LISTS[LISTS.length - 1];
+        for (int i = 0; i < SWITCH_COUNT; i++) {
+            int nextList = LISTS[i % LISTS.length];
+            long start = System.nanoTime();
+            mViewModel.onGistListHidden(shownList);
+            mViewModel.onGistListShown(nextList);
+            runUntilIdle();
+            switchNanos[i] = System.nanoTime() - start;
+            shownList = nextList;
+        }
+
+        assertEquals(mFakeService.getCalls().toString(), 0, mFakeService.getCalls().size());
+        //Nothing new is posted, so the fragments have nothing to bind again
+        for (int i = 0; i < LISTS.length; i++) {
+            assertSame(loadedLists.get(i), mViewModel.getGists(LISTS[i]).getValue());
+        }
+        Arrays.sort(switchNanos);
+        System.out.println(String.format(Locale.US,
+                "Tab switch with %d gists per list: %d switches, median %.1f us, p99 %.1f us, max %.1f us",
+                GISTS_PER_LIST, SWITCH_COUNT, switchNanos[SWITCH_COUNT / 2] / 1e3,
+                switchNanos[SWITCH_COUNT * 99 / 100] / 1e3, switchNanos[SWITCH_COUNT - 1] / 1e3));
+    }
+
+    /**
+     * Run the main thread until the responses, and the calls they start, have all been handled
+     */
+    private static void runUntilIdle() {
+        ShadowLooper looper = shadowOf(Looper.getMainLooper());
+        while (!looper.isIdle()) {
+            looper.idle();
+        }
+    }
+
+    private static GitHubUser createUser() {
+        GitHubUser user = new GitHubUser();
+        user.setId(583231);
+        user.setLogin(USERNAME);
+        return user;
+    }
+
+    private static List<GistListItem> createGists(GitHubUser owner) {
+        List<GistListItem> gists = new ArrayList<>();
+        for (int i = 0; i < GISTS_PER_LIST; i++) {
+            gists.add(new GistListItem(String.format(Locale.US, "%020x", i), "file" + i + ".txt",
+                    new Date(0), "Jan 1, 1970", owner));
+        }
+        return gists;
+    }
+}
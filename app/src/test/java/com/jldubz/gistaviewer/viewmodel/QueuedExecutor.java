@@ -0,0 +1,66 @@
+package com.jldubz.gistaviewer.viewmodel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An executor that queues its tasks until the test runs them, so background work happens at a
+ * known point of the test instead of racing it
+ */
+class QueuedExecutor extends AbstractExecutorService {
+
+    private final Queue<Runnable> mTasks = new ArrayDeque<>();
+    private boolean mIsShutdown;
+
+    /**
+     * Run the queued tasks, and the tasks they queue, on the calling thread
+     *
+     * @return TRUE if any task was run
+     */
+    boolean runQueuedTasks() {
+        boolean hasRun = false;
+        Runnable task;
+        while ((task = mTasks.poll()) != null) {
+            task.run();
+            hasRun = true;
+        }
+        return hasRun;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        mTasks.add(command);
+    }
+
+    @Override
+    public void shutdown() {
+        mIsShutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        mIsShutdown = true;
+        List<Runnable> tasks = new ArrayList<>(mTasks);
+        mTasks.clear();
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return mIsShutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return mIsShutdown && mTasks.isEmpty();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+        return isTerminated();
+    }
+}
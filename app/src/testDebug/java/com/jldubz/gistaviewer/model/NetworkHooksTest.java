@@ -0,0 +1,124 @@
+package com.jldubz.gistaviewer.model;
+
+import android.app.Application;
+
+import com.google.gson.Gson;
+import com.jldubz.gistaviewer.model.replay.Exchange;
+import com.jldubz.gistaviewer.model.replay.Recording;
+import com.jldubz.gistaviewer.model.replay.ReplayConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.GzipSink;
+import okio.Okio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Records compressed responses through a client built like the shared one, then replays them
+ * without the server.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class NetworkHooksTest {
+
+    private static final String BODY = "{\"id\":\"aa5a315d61ae9438b18d\",\"description\":\"Hello brotli\","
+            + "\"files\":{\"hello.txt\":{\"filename\":\"hello.txt\",\"content\":\"Hello, Hello, Hello, Hello, "
+            + "Hello, Hello, Hello, Hello, Hello, Hello, Hello, Hello, Hello, Hello, Hello, Hello, Hello, Hello, "
+            + "Hello, Hello, \"}}}";
+    //BODY compressed with brotli
+    private static final String BODY_BROTLI_BASE64 = "GwEBUCwO7Gbf7DAf1dRkol6VEVSJ7Ok2r1d294gZ9p2KHYEQhIXX10hhZGmKRccNDtiDwJKwUGbfZdXd4DBKs7xg2Ub+uEOqLqy52M+eYsGWIFsgTtWj+K/rghPF3phuTTjWJkJM2f0fpDg=";
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final MockWebServer mServer = new MockWebServer();
+    private File mRecordingFile;
+    private Recording mRecording;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer.start();
+        mRecordingFile = mFolder.newFile("recording.jsonl");
+        mRecording = new Recording(mRecordingFile);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        NetworkHooks.setUp(null, null);
+        mServer.shutdown();
+    }
+
+    @Test
+    public void recordBrotliResponse_replaysDecodedBody() throws Exception {
+        Buffer body = new Buffer().write(ByteString.decodeBase64(BODY_BROTLI_BASE64));
+        mServer.enqueue(new MockResponse().setHeader("Content-Encoding", "br").setBody(body));
+
+        recordAndReplay();
+    }
+
+    @Test
+    public void recordGzipResponse_replaysDecodedBody() throws Exception {
+        Buffer body = new Buffer();
+        try (BufferedSink gzip = Okio.buffer(new GzipSink(body))) {
+            gzip.writeUtf8(BODY);
+        }
+        mServer.enqueue(new MockResponse().setHeader("Content-Encoding", "gzip").setBody(body));
+
+        recordAndReplay();
+    }
+
+    /**
+     * Fetch the enqueued response while recording, then fetch it again while replaying
+     */
+    private void recordAndReplay() throws Exception {
+        HttpUrl url = mServer.url("/gists/aa5a315d61ae9438b18d");
+
+        NetworkHooks.setUp(createConfig(ReplayConfig.MODE_RECORD), mRecording);
+        assertEquals(BODY, fetch(url));
+        assertEquals("br,gzip", mServer.takeRequest().getHeader("Accept-Encoding"));
+
+        Exchange exchange = mRecording.get("GET", url);
+        assertEquals(BODY, exchange.getBody());
+        assertNull(exchange.getHeader("Content-Encoding"));
+
+        //The recording is read back from its file, like the app does when it starts replaying
+        Recording recording = new Recording(mRecordingFile);
+        recording.load();
+        NetworkHooks.setUp(createConfig(ReplayConfig.MODE_REPLAY), recording);
+        assertEquals(BODY, fetch(url));
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    private static String fetch(HttpUrl url) throws IOException {
+        OkHttpClient client = NetworkUtil.createHttpClientBuilder().build();
+        try (Response response = client.newCall(new Request.Builder().url(url).build()).execute()) {
+            assertEquals(200, response.code());
+            return response.body().string();
+        }
+    }
+
+    private static ReplayConfig createConfig(String mode) {
+        return new Gson().fromJson("{\"mode\":\"" + mode + "\"}", ReplayConfig.class);
+    }
+}
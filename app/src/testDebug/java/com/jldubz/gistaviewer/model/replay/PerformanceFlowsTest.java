@@ -0,0 +1,207 @@
+package com.jldubz.gistaviewer.model.replay;
+
+import android.app.Application;
+
+import com.google.gson.Gson;
+import com.jldubz.gistaviewer.model.Constants;
+import com.jldubz.gistaviewer.model.NetworkUtil;
+import com.jldubz.gistaviewer.model.data.CommentPageStore;
+import com.jldubz.gistaviewer.model.data.IGitHubService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.brotli.BrotliInterceptor;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Records a short session against a mock of the GitHub API, then replays the login, discover
+ * scroll and open Gist flows from it with the public Gists and comments scaled up.  The time
+ * each flow took depends on the machine, so it is only reported; the tests check the requests
+ * each flow made.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class PerformanceFlowsTest {
+
+    private static final String GIST_ID = "aa5a315d61ae9438b18d";
+    private static final String USER = "{\"login\":\"octocat\",\"id\":583231,"
+            + "\"avatar_url\":\"https://avatars.githubusercontent.com/u/583231\"}";
+    private static final String GIST = "{\"id\":\"" + GIST_ID + "\",\"description\":\"Hello World\","
+            + "\"files\":{\"hello_world.rb\":{\"filename\":\"hello_world.rb\",\"size\":167,"
+            + "\"content\":\"class HelloWorld\\n  def initialize(name)\\n    @name = name\\n  end\\nend\"}},"
+            + "\"public\":true,\"created_at\":\"2019-01-01T10:00:00Z\",\"updated_at\":\"2019-01-01T10:05:00Z\","
+            + "\"comments\":2,\"owner\":" + USER + "}";
+    private static final String COMMENTS = "[{\"id\":1,\"body\":\"Thanks for sharing!\",\"user\":" + USER + ","
+            + "\"created_at\":\"2019-01-02T10:00:00Z\",\"updated_at\":\"2019-01-02T10:00:00Z\"},"
+            + "{\"id\":2,\"body\":\"Use `attr_reader :name` instead.\",\"user\":" + USER + ","
+            + "\"created_at\":\"2019-01-03T10:00:00Z\",\"updated_at\":\"2019-01-03T10:00:00Z\"}]";
+
+    private static final int LOGIN_PAGE_SIZE = 30;
+    private static final int DISCOVER_PAGE_SIZE = 100;
+    private static final int PUBLIC_GIST_COUNT = 1000;
+    private static final int COMMENT_COUNT = 1500;
+    private static final long LATENCY_MILLIS = 20;
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final MockWebServer mServer = new MockWebServer();
+    private Recording mRecording;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer.setDispatcher(new GitHubDispatcher());
+        mServer.start();
+        mRecording = new Recording(mFolder.newFile("recording.jsonl"));
+        record();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void run_replaysEveryFlowWithoutServer() {
+        int recordedRequestCount = mServer.getRequestCount();
+
+        List<String> reports = new PerformanceFlows(mRecording, createConfig()).run();
+        for (String report : reports) {
+            System.out.println(report);
+        }
+
+        assertEquals(3, reports.size());
+        assertFlow(reports.get(0), "login: ", "logged in", 3);
+        assertFlow(reports.get(1), "discover scroll: ", "1000 gists in 10 pages", PUBLIC_GIST_COUNT / DISCOVER_PAGE_SIZE);
+        //The Gist, the header with the number of pages, and every page of comments
+        int commentPageCount = COMMENT_COUNT / CommentPageStore.PAGE_SIZE;
+        assertFlow(reports.get(2), "open gist: ", commentPageCount + " of " + commentPageCount + " comment pages",
+                2 + commentPageCount);
+        assertEquals(recordedRequestCount, mServer.getRequestCount());
+    }
+
+    /**
+     * Make the requests the app makes when it logs in, shows the public Gists and opens a Gist,
+     * once each, through a client that records them
+     */
+    private void record() throws IOException {
+        HttpUrl serverUrl = mServer.url("/");
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new RecordingInterceptor(mRecording))
+                .addInterceptor(BrotliInterceptor.INSTANCE)
+                //Send the requests for api.github.com to the mock
+                .addInterceptor(chain -> chain.proceed(chain.request().newBuilder()
+                        .url(chain.request().url().newBuilder()
+                                .scheme(serverUrl.scheme())
+                                .host(serverUrl.host())
+                                .port(serverUrl.port())
+                                .build())
+                        .build()))
+                .build();
+        IGitHubService service = new Retrofit.Builder().baseUrl(Constants.URL_GITHUB)
+                .addConverterFactory(GsonConverterFactory.create(NetworkUtil.createGsonBuilder().create()))
+                .client(client)
+                .build()
+                .create(IGitHubService.class);
+
+        service.getLoggedInUser().execute();
+        service.getYourGistListItems(1, LOGIN_PAGE_SIZE).execute();
+        service.getStarredGistListItems(1, LOGIN_PAGE_SIZE).execute();
+        Map<String, Object> queries = new HashMap<>();
+        queries.put("page", 1);
+        queries.put("per_page", DISCOVER_PAGE_SIZE);
+        service.getPublicGists(queries).execute();
+        service.getGistById(GIST_ID).execute();
+        service.getGistCommentsHeaderById(GIST_ID, CommentPageStore.PAGE_SIZE).execute();
+        service.getGistCommentsById(GIST_ID, 1, CommentPageStore.PAGE_SIZE).execute();
+    }
+
+    private static ReplayConfig createConfig() {
+        return new Gson().fromJson("{\"mode\":\"replay\",\"latencyMillis\":" + LATENCY_MILLIS
+                + ",\"publicGistCount\":" + PUBLIC_GIST_COUNT + ",\"commentCount\":" + COMMENT_COUNT
+                + ",\"gistId\":\"" + GIST_ID + "\"}", ReplayConfig.class);
+    }
+
+    /**
+     * Check the report of a flow
+     *
+     * @param report       the report
+     * @param name         the start of the report, with the name of the flow
+     * @param result       the result of the flow
+     * @param requestCount the number of requests the flow must have made, none of them failed
+     */
+    private static void assertFlow(String report, String name, String result, int requestCount) {
+        assertTrue(report, report.startsWith(name));
+        assertTrue(report, report.contains(" ms, " + result + "\n"));
+        assertTrue(report, report.contains("\n" + requestCount + " requests (0 failed)"));
+    }
+
+    /**
+     * Answers like the GitHub API, gzip compressing bodies when the client accepts it
+     */
+    private static class GitHubDispatcher extends Dispatcher {
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            String path = request.getRequestUrl().encodedPath();
+            switch (path) {
+                case "/user":
+                    return createResponse(request, USER);
+                case "/gists":
+                case "/gists/starred":
+                case "/gists/public":
+                    return createResponse(request, "[" + GIST + "]");
+                case "/gists/" + GIST_ID:
+                    return createResponse(request, GIST);
+                case "/gists/" + GIST_ID + "/comments":
+                    return createResponse(request, COMMENTS);
+                default:
+                    return new MockResponse().setResponseCode(404);
+            }
+        }
+
+        private static MockResponse createResponse(RecordedRequest request, String body) {
+            MockResponse response = new MockResponse().setHeader("Content-Type", "application/json; charset=utf-8");
+            if ("HEAD".equals(request.getMethod())) {
+                return response;
+            }
+            String acceptEncoding = request.getHeader("Accept-Encoding");
+            if (acceptEncoding == null || !acceptEncoding.contains("gzip")) {
+                return response.setBody(body);
+            }
+            Buffer gzipped = new Buffer();
+            try (BufferedSink sink = Okio.buffer(new GzipSink(gzipped))) {
+                sink.writeUtf8(body);
+            } catch (IOException exception) {
+                throw new AssertionError(exception);
+            }
+            return response.setHeader("Content-Encoding", "gzip").setBody(gzipped);
+        }
+    }
+}